@@ -0,0 +1,31 @@
+plugins {
+  java
+  id("me.champeau.jmh") version Versions.jmhPlugin
+}
+
+description = "PostgreSQL JDBC - NG - Benchmarks"
+
+
+dependencies {
+
+  jmh(project(":pgjdbc-ng"))
+  jmh(testFixtures(project(":pgjdbc-ng")))
+  jmh("io.netty:netty-common:${Versions.netty}")
+  jmh("io.netty:netty-buffer:${Versions.netty}")
+  jmh("io.netty:netty-transport:${Versions.netty}")
+
+}
+
+jmh {
+  jmhVersion.set(Versions.jmh)
+  fork.set(1)
+  warmupIterations.set(3)
+  iterations.set(5)
+  profilers.add("gc")
+  resultFormat.set("JSON")
+  (project.findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
+
+apply {
+  from("$rootDir/shared/src/build/compile-java.gradle.kts")
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.jdbc.PGArray;
+import com.impossibl.postgres.types.Type;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Binary decoding & encoding of one dimensional {@code int4[]} values, to
+ * and from primitive and boxed Java arrays, along with partial access to a
+ * decoded {@link java.sql.Array}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ArrayBenchmark {
+
+  @Param({"10", "10000"})
+  public int length;
+
+  private BenchmarkContext context;
+  private Type type;
+  private int[] ints;
+  private Integer[] integers;
+  private ByteBuf buffer;
+  private ByteBuf encodeBuffer;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext();
+    type = context.loadType("_int4");
+    ints = new int[length];
+    integers = new Integer[length];
+    for (int idx = 0; idx < length; ++idx) {
+      ints[idx] = idx * 31;
+      integers[idx] = ints[idx];
+    }
+    buffer = context.getAllocator().buffer();
+    encodeBuffer = context.getAllocator().buffer();
+    type.getBinaryCodec().getEncoder().encode(context, type, integers, null, buffer);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    buffer.release();
+    encodeBuffer.release();
+  }
+
+  private Object decode(Class<?> targetClass) throws IOException {
+    buffer.readerIndex(0);
+    return type.getBinaryCodec().getDecoder().decode(context, type, type.getLength(), null, buffer, targetClass, null);
+  }
+
+  private ByteBuf encode(Object value) throws IOException {
+    encodeBuffer.clear();
+    type.getBinaryCodec().getEncoder().encode(context, type, value, null, encodeBuffer);
+    return encodeBuffer;
+  }
+
+  @Benchmark
+  public Object decodePrimitive() throws IOException {
+    return decode(int[].class);
+  }
+
+  @Benchmark
+  public Object decodeBoxed() throws IOException {
+    return decode(Integer[].class);
+  }
+
+  @Benchmark
+  public int decodeLength() throws IOException, SQLException {
+    PGArray array = (PGArray) decode(java.sql.Array.class);
+    try {
+      return array.getLength();
+    }
+    finally {
+      array.free();
+    }
+  }
+
+  @Benchmark
+  public Object decodeWindow() throws IOException, SQLException {
+    PGArray array = (PGArray) decode(java.sql.Array.class);
+    try {
+      return array.getArray(length / 2 + 1, Math.min(length / 2, 10));
+    }
+    finally {
+      array.free();
+    }
+  }
+
+  @Benchmark
+  public Object encodePrimitive() throws IOException {
+    return encode(ints);
+  }
+
+  @Benchmark
+  public Object encodeBoxed() throws IOException {
+    return encode(integers);
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Executing {@code batchSize} inserts against the in-process
+ * {@link StubServer}, either as a single pipelined batch or as individual
+ * executions that each wait for the server's response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchBenchmark {
+
+  private static final String SQL = "INSERT INTO products(id, name, price) VALUES (?, ?, ?)";
+
+  @Param({"10", "100", "1000"})
+  public int batchSize;
+
+  private StubServer server;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException, SQLException {
+
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> sql.startsWith("INSERT INTO products") ? StubResult.command("INSERT 0 1") : null);
+    server.start();
+
+    connection = DriverManager.getConnection(server.getUrl("bench"), "bench", "");
+    statement = connection.prepareStatement(SQL);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+    server.close();
+  }
+
+  private void bind(int id) throws SQLException {
+    statement.setInt(1, id);
+    statement.setString(2, "product-name-" + (id % 64));
+    statement.setDouble(3, id * 0.25);
+  }
+
+  @Benchmark
+  public int[] pipelined() throws SQLException {
+    for (int id = 0; id < batchSize; ++id) {
+      bind(id);
+      statement.addBatch();
+    }
+    return statement.executeBatch();
+  }
+
+  @Benchmark
+  public int individual() throws SQLException {
+    int total = 0;
+    for (int id = 0; id < batchSize; ++id) {
+      bind(id);
+      total += statement.executeUpdate();
+    }
+    return total;
+  }
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.datetime.DateTimeFormat;
+import com.impossibl.postgres.datetime.ISODateFormat;
+import com.impossibl.postgres.datetime.ISOIntervalFormat;
+import com.impossibl.postgres.datetime.ISOTimeFormat;
+import com.impossibl.postgres.datetime.ISOTimestampFormat;
+import com.impossibl.postgres.datetime.IntervalFormat;
+import com.impossibl.postgres.protocol.RequestExecutor;
+import com.impossibl.postgres.protocol.ServerConnection;
+import com.impossibl.postgres.system.AbstractContext;
+import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.ServerConnectionInfo;
+import com.impossibl.postgres.system.ServerInfo;
+import com.impossibl.postgres.system.Version;
+import com.impossibl.postgres.system.procs.Procs;
+import com.impossibl.postgres.types.ArrayType;
+import com.impossibl.postgres.types.BaseType;
+import com.impossibl.postgres.types.CompositeType;
+import com.impossibl.postgres.types.QualifiedName;
+import com.impossibl.postgres.types.Registry;
+import com.impossibl.postgres.types.SharedRegistry;
+import com.impossibl.postgres.types.Type;
+
+import static com.impossibl.postgres.protocol.FieldFormat.Binary;
+import static com.impossibl.postgres.types.Type.PUBLIC_NAMESPACE;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Connection-less context for benchmarking codecs, row decoding and
+ * message encoding.
+ *
+ * The registry is seeded with the builtin types (and {@code hstore}) using
+ * the same codecs a connection would load, any other type lookup fails.
+ */
+public class BenchmarkContext extends AbstractContext {
+
+  public static final int HSTORE_OID = 16384;
+
+  private static final ServerInfo SERVER_INFO = new ServerInfo(Version.parse("13.0"), "UTF8", true);
+
+  private Registry registry;
+  private DateTimeFormat dateFormat = new ISODateFormat();
+  private DateTimeFormat timeFormat = new ISOTimeFormat();
+  private DateTimeFormat timestampFormat = new ISOTimestampFormat();
+  private IntervalFormat intervalFormat = new ISOIntervalFormat();
+  private NumberFormat integerFormatter;
+  private NumberFormat decimalFormatter;
+  private NumberFormat currencyFormatter;
+
+  public BenchmarkContext() {
+
+    ServerConnectionInfo connectionInfo = new ServerConnectionInfo(SERVER_INFO, new InetSocketAddress("localhost", 5432), "benchmark");
+    SharedRegistry sharedRegistry = SharedRegistry.getFactory(false).get(connectionInfo);
+    sharedRegistry.addTypes(loadTypes(sharedRegistry));
+
+    registry = new Registry(sharedRegistry, new Registry.TypeLoader() {
+
+      @Override
+      public Type load(int oid) {
+        return null;
+      }
+
+      @Override
+      public CompositeType loadRelation(int relationOid) {
+        return null;
+      }
+
+      @Override
+      public Type load(QualifiedName name) {
+        return null;
+      }
+
+      @Override
+      public Type load(String name) {
+        return null;
+      }
+
+    });
+
+    integerFormatter = NumberFormat.getIntegerInstance(Locale.ROOT);
+    integerFormatter.setGroupingUsed(false);
+    integerFormatter.setParseIntegerOnly(true);
+
+    decimalFormatter = DecimalFormat.getNumberInstance(Locale.ROOT);
+    decimalFormatter.setGroupingUsed(false);
+    ((DecimalFormat) decimalFormatter).setParseBigDecimal(true);
+
+    currencyFormatter = DecimalFormat.getCurrencyInstance(Locale.ROOT);
+    currencyFormatter.setGroupingUsed(false);
+    ((DecimalFormat) currencyFormatter).setParseBigDecimal(true);
+  }
+
+  private static List<Type> loadTypes(SharedRegistry sharedRegistry) {
+
+    Procs procs = new Procs(SERVER_INFO, BenchmarkContext.class.getClassLoader());
+
+    try {
+      Type int4 = sharedRegistry.findOrLoadType(23, null);
+      Type text = sharedRegistry.findOrLoadType(25, null);
+      Type float8 = new BaseType(701, "float8", (short) 8, (byte) 8, Type.Category.Numeric, ',', 1022, procs, Binary, Binary);
+
+      return Arrays.asList(
+          float8,
+          new BaseType(1043, "varchar", (short) -1, (byte) 4, Type.Category.String, ',', 1015, procs, Binary, Binary),
+          new BaseType(1700, "numeric", Type.CATALOG_NAMESPACE, (short) -1, (byte) 4, Type.Category.Numeric, ',', 1231, "numeric_", procs, Binary, Binary),
+          new BaseType(1082, "date", Type.CATALOG_NAMESPACE, (short) 4, (byte) 4, Type.Category.DateTime, ',', 1182, "date_", procs, Binary, Binary),
+          new BaseType(1114, "timestamp", Type.CATALOG_NAMESPACE, (short) 8, (byte) 8, Type.Category.DateTime, ',', 1115, "timestamp_", procs, Binary, Binary),
+          new BaseType(1184, "timestamptz", Type.CATALOG_NAMESPACE, (short) 8, (byte) 8, Type.Category.DateTime, ',', 1185, "timestamptz_", procs, Binary, Binary),
+          new BaseType(2950, "uuid", Type.CATALOG_NAMESPACE, (short) 16, (byte) 1, Type.Category.User, ',', 2951, "uuid_", procs, Binary, Binary),
+          new BaseType(114, "json", Type.CATALOG_NAMESPACE, (short) -1, (byte) 4, Type.Category.User, ',', 199, "json_", procs, Binary, Binary),
+          new BaseType(3802, "jsonb", Type.CATALOG_NAMESPACE, (short) -1, (byte) 4, Type.Category.User, ',', 3807, "jsonb_", procs, Binary, Binary),
+          new BaseType(HSTORE_OID, "hstore", PUBLIC_NAMESPACE, (short) -1, (byte) 4, Type.Category.User, ',', HSTORE_OID + 5, "hstore_", procs, Binary, Binary),
+          new ArrayType(1007, "_int4", (short) -1, (byte) 4, Type.Category.Array, ',', 0, procs, Binary, Binary, int4),
+          new ArrayType(1009, "_text", (short) -1, (byte) 4, Type.Category.Array, ',', 0, procs, Binary, Binary, text),
+          new ArrayType(1022, "_float8", (short) -1, (byte) 4, Type.Category.Array, ',', 0, procs, Binary, Binary, float8)
+      );
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Resolves a type by its catalog name (e.g. {@code int4} or {@code _int4})
+   * or, for extension types, its public name (e.g. {@code hstore}).
+   */
+  public Type loadType(String name) {
+    if (name.equals("hstore")) {
+      try {
+        return registry.loadType(HSTORE_OID);
+      }
+      catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return registry.loadBaseType(name);
+  }
+
+  @Override
+  public RequestExecutor getRequestExecutor() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public ByteBufAllocator getAllocator() {
+    return PooledByteBufAllocator.DEFAULT;
+  }
+
+  @Override
+  public Registry getRegistry() {
+    return registry;
+  }
+
+  @Override
+  public TimeZone getTimeZone() {
+    return TimeZone.getTimeZone("UTC");
+  }
+
+  @Override
+  public ZoneId getTimeZoneId() {
+    return ZoneId.of("UTC");
+  }
+
+  @Override
+  public Charset getCharset() {
+    return UTF_8;
+  }
+
+  @Override
+  public ServerInfo getServerInfo() {
+    return SERVER_INFO;
+  }
+
+  @Override
+  public ServerConnection.KeyData getKeyData() {
+    return null;
+  }
+
+  @Override
+  public NumberFormat getClientIntegerFormatter() {
+    return integerFormatter;
+  }
+
+  @Override
+  public NumberFormat getClientDecimalFormatter() {
+    return decimalFormatter;
+  }
+
+  @Override
+  public NumberFormat getServerCurrencyFormatter() {
+    return currencyFormatter;
+  }
+
+  @Override
+  public NumberFormat getClientCurrencyFormatter() {
+    return currencyFormatter;
+  }
+
+  @Override
+  public DateTimeFormat getServerDateFormat() {
+    return dateFormat;
+  }
+
+  @Override
+  public DateTimeFormat getClientDateFormat() {
+    return dateFormat;
+  }
+
+  @Override
+  public DateTimeFormat getServerTimeFormat() {
+    return timeFormat;
+  }
+
+  @Override
+  public DateTimeFormat getClientTimeFormat() {
+    return timeFormat;
+  }
+
+  @Override
+  public DateTimeFormat getServerTimestampFormat() {
+    return timestampFormat;
+  }
+
+  @Override
+  public DateTimeFormat getClientTimestampFormat() {
+    return timestampFormat;
+  }
+
+  @Override
+  public IntervalFormat getServerIntervalFormat() {
+    return intervalFormat;
+  }
+
+  @Override
+  public IntervalFormat getClientIntervalFormat() {
+    return intervalFormat;
+  }
+
+  @Override
+  public Map<String, Class<?>> getCustomTypeMap() {
+    return new HashMap<>();
+  }
+
+  @Override
+  public Context unwrap() {
+    return this;
+  }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.utils.CacheMap;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.synchronizedMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Lookups & insertions in an access ordered {@link CacheMap}, configured
+ * as the connection configures its statement, description and parsed SQL
+ * caches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CacheMapBenchmark {
+
+  private static final int KEY_COUNT = 1024;
+
+  @Param({"50", "250"})
+  public int maxSize;
+
+  private Map<String, Object> cache;
+  private String[] keys;
+  private int next;
+
+  @Setup
+  public void setup() {
+    cache = synchronizedMap(new CacheMap<>(maxSize, 1.1f, true));
+    keys = new String[KEY_COUNT];
+    for (int keyIdx = 0; keyIdx < KEY_COUNT; ++keyIdx) {
+      keys[keyIdx] = "SELECT * FROM table_" + keyIdx + " WHERE id = $1";
+    }
+    for (int keyIdx = 0; keyIdx < maxSize; ++keyIdx) {
+      cache.put(keys[keyIdx], new Object());
+    }
+  }
+
+  private String nextKey(int range) {
+    next = (next + 1) % range;
+    return keys[next];
+  }
+
+  @Benchmark
+  public Object hit() {
+    return cache.get(nextKey(maxSize));
+  }
+
+  @Benchmark
+  public Object miss() {
+    String key = nextKey(KEY_COUNT);
+    Object value = cache.get(key);
+    if (value == null) {
+      value = new Object();
+      cache.put(key, value);
+    }
+    return value;
+  }
+
+}
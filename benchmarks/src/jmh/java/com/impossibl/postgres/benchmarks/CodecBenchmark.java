@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.types.Type;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Encoding & decoding of single values using the codecs a connection loads
+ * for each type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodecBenchmark {
+
+  @Param({"int4", "numeric", "date", "timestamp", "timestamptz", "text", "uuid", "json", "jsonb", "hstore",
+      "_int4", "_text", "_float8"})
+  public String typeName;
+
+  @Param({"Binary", "Text"})
+  public FieldFormat format;
+
+  private BenchmarkContext context;
+  private Type type;
+  private Object value;
+  private ByteBuf binaryBuffer;
+  private ByteBuf binaryEncodeBuffer;
+  private String textBuffer;
+  private StringBuilder textEncodeBuffer;
+  private Class<?> binaryTarget;
+  private Class<?> textTarget;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext();
+    type = context.loadType(typeName);
+    value = sampleValue(typeName);
+    binaryTarget = type.getBinaryCodec().getDecoder().getDefaultClass();
+    textTarget = type.getTextCodec().getDecoder().getDefaultClass();
+
+    binaryBuffer = context.getAllocator().buffer();
+    binaryEncodeBuffer = context.getAllocator().buffer();
+    textEncodeBuffer = new StringBuilder();
+
+    if (format == FieldFormat.Binary) {
+      type.getBinaryCodec().getEncoder().encode(context, type, value, null, binaryBuffer);
+    }
+    else {
+      StringBuilder text = new StringBuilder();
+      type.getTextCodec().getEncoder().encode(context, type, value, null, text);
+      textBuffer = text.toString();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    binaryBuffer.release();
+    binaryEncodeBuffer.release();
+  }
+
+  static Object sampleValue(String typeName) {
+    switch (typeName) {
+      case "int4":
+        return 123456789;
+      case "numeric":
+        return new BigDecimal("-12345678901234.56789012345");
+      case "date":
+        return LocalDate.of(2021, 6, 15);
+      case "timestamp":
+        return LocalDateTime.of(2021, 6, 15, 13, 45, 30, 123456000);
+      case "timestamptz":
+        return OffsetDateTime.of(2021, 6, 15, 13, 45, 30, 123456000, ZoneOffset.ofHours(-5));
+      case "text":
+        return "The quick brown fox jumps over the lazy dog";
+      case "uuid":
+        return UUID.fromString("4c3f5a8e-2d7b-4f0e-9a61-0c2d8e5b7a13");
+      case "json":
+      case "jsonb":
+        return "{\"id\": 42, \"name\": \"widget\", \"tags\": [\"a\", \"b\", \"c\"], \"price\": 12.5, \"active\": true}";
+      case "hstore":
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int c = 0; c < 10; ++c) {
+          map.put("key" + c, "value" + c);
+        }
+        return map;
+      case "_int4":
+        Integer[] ints = new Integer[100];
+        for (int c = 0; c < ints.length; ++c) {
+          ints[c] = c * 31;
+        }
+        return ints;
+      case "_text":
+        String[] texts = new String[20];
+        for (int c = 0; c < texts.length; ++c) {
+          texts[c] = "element-" + c;
+        }
+        return texts;
+      case "_float8":
+        Double[] doubles = new Double[100];
+        for (int c = 0; c < doubles.length; ++c) {
+          doubles[c] = c * 1.5;
+        }
+        return doubles;
+      default:
+        throw new IllegalArgumentException("No sample value for " + typeName);
+    }
+  }
+
+  @Benchmark
+  public Object decode() throws IOException, SQLException {
+    Object decoded;
+    if (format == FieldFormat.Binary) {
+      binaryBuffer.readerIndex(0);
+      decoded = type.getBinaryCodec().getDecoder().decode(context, type, type.getLength(), null, binaryBuffer, binaryTarget, null);
+    }
+    else {
+      decoded = type.getTextCodec().getDecoder().decode(context, type, type.getLength(), null, textBuffer, textTarget, null);
+    }
+    // Arrays hold references to their element buffers
+    if (decoded instanceof Array) {
+      ((Array) decoded).free();
+    }
+    return decoded;
+  }
+
+  @Benchmark
+  public Object encode() throws IOException {
+    if (format == FieldFormat.Binary) {
+      binaryEncodeBuffer.clear();
+      type.getBinaryCodec().getEncoder().encode(context, type, value, null, binaryEncodeBuffer);
+      return binaryEncodeBuffer;
+    }
+    else {
+      textEncodeBuffer.setLength(0);
+      type.getTextCodec().getEncoder().encode(context, type, value, null, textEncodeBuffer);
+      return textEncodeBuffer;
+    }
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.api.data.HStore;
+import com.impossibl.postgres.types.Type;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Binary decoding of {@code hstore} values followed by a few key lookups,
+ * eagerly into a {@link HashMap} versus the lazy {@link HStore} view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HStoreBenchmark {
+
+  @Param({"10", "300"})
+  public int entries;
+
+  private BenchmarkContext context;
+  private Type type;
+  private ByteBuf buffer;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext();
+    type = context.loadType("hstore");
+
+    Map<String, String> value = new HashMap<>();
+    for (int idx = 0; idx < entries; ++idx) {
+      value.put("tag-" + idx, "value-" + idx);
+    }
+
+    buffer = context.getAllocator().buffer();
+    type.getBinaryCodec().getEncoder().encode(context, type, value, null, buffer);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    buffer.release();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void lookup(Class<?> targetClass, Blackhole blackhole) throws IOException {
+    buffer.readerIndex(0);
+    Map<String, String> map = (Map<String, String>) type.getBinaryCodec().getDecoder().decode(context, type, type.getLength(), null, buffer, targetClass, null);
+    blackhole.consume(map.get("tag-1"));
+    blackhole.consume(map.get("tag-5"));
+    blackhole.consume(map.get("missing"));
+  }
+
+  @Benchmark
+  public void lookupMap(Blackhole blackhole) throws IOException {
+    lookup(Map.class, blackhole);
+  }
+
+  @Benchmark
+  public void lookupHStore(Blackhole blackhole) throws IOException {
+    lookup(HStore.class, blackhole);
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.types.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Binary decoding of {@code jsonb} documents, materialized as a
+ * {@link String} versus handed out as a stream or buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonBenchmark {
+
+  @Param({"1024", "1048576"})
+  public int size;
+
+  private BenchmarkContext context;
+  private Type type;
+  private ByteBuf buffer;
+  private byte[] chunk = new byte[8192];
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext();
+    type = context.loadType("jsonb");
+
+    StringBuilder document = new StringBuilder("[");
+    while (document.length() < size) {
+      document.append("{\"id\":").append(document.length()).append(",\"name\":\"document\"},");
+    }
+    document.setCharAt(document.length() - 1, ']');
+
+    buffer = context.getAllocator().buffer();
+    type.getBinaryCodec().getEncoder().encode(context, type, document.toString(), null, buffer);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    buffer.release();
+  }
+
+  private Object decode(Class<?> targetClass) throws IOException {
+    buffer.readerIndex(0);
+    return type.getBinaryCodec().getDecoder().decode(context, type, type.getLength(), null, buffer, targetClass, null);
+  }
+
+  @Benchmark
+  public Object decodeString() throws IOException {
+    return decode(String.class);
+  }
+
+  @Benchmark
+  public Object decodeByteBuffer() throws IOException {
+    return decode(ByteBuffer.class);
+  }
+
+  @Benchmark
+  public void decodeInputStream(Blackhole blackhole) throws IOException {
+    try (InputStream in = (InputStream) decode(InputStream.class)) {
+      for (int read = in.read(chunk); read != -1; read = in.read(chunk)) {
+        blackhole.consume(chunk);
+      }
+    }
+  }
+
+}
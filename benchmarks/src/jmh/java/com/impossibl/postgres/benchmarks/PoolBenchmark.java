@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.jdbc.PGConnectionPoolDataSource;
+import com.impossibl.postgres.jdbc.PGPoolingDataSource;
+import com.impossibl.postgres.stub.StubServer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.PooledConnection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Borrowing &amp; returning connections from {@link PGPoolingDataSource},
+ * single threaded and with 8 threads contending for a pool of 4, compared
+ * with reopening a logical connection from a single
+ * {@link PGConnectionPoolDataSource} pooled connection.
+ *
+ * Results are measured in borrows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PoolBenchmark {
+
+  private StubServer server;
+  private PGPoolingDataSource dataSource;
+  private PooledConnection pooledConnection;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException, SQLException {
+
+    server = new StubServer();
+    server.start();
+
+    dataSource = new PGPoolingDataSource();
+    dataSource.setUrl(server.getUrl("bench"));
+    dataSource.setUser("bench");
+    dataSource.setPoolSizeMax(4);
+
+    PGConnectionPoolDataSource poolDataSource = new PGConnectionPoolDataSource();
+    poolDataSource.setUrl(server.getUrl("bench"));
+    poolDataSource.setUser("bench");
+    pooledConnection = poolDataSource.getPooledConnection();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    pooledConnection.close();
+    dataSource.close();
+    server.close();
+  }
+
+  @Benchmark
+  public Connection pooledConnectionHandle() throws SQLException {
+    Connection connection = pooledConnection.getConnection();
+    connection.close();
+    return connection;
+  }
+
+  @Benchmark
+  public Connection borrow() throws SQLException {
+    Connection connection = dataSource.getConnection();
+    connection.close();
+    return connection;
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Connection borrowContended() throws SQLException {
+    Connection connection = dataSource.getConnection();
+    connection.close();
+    return connection;
+  }
+
+}
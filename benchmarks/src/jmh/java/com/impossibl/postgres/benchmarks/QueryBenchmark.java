@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * End-to-end query execution through {@code PGDirectConnection} against
+ * the in-process {@link StubServer}.
+ *
+ * Results are measured in queries per second; rows per second is the
+ * score multiplied by {@code rowCount}. A non-zero {@code fetchSize}
+ * retrieves the rows through a cursor in batches of that size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueryBenchmark {
+
+  private static final String SQL = "SELECT id, name, price, stock FROM products";
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("id", StubTypes.INT8),
+    column("name", StubTypes.TEXT),
+    column("price", StubTypes.FLOAT8),
+    column("stock", StubTypes.INT4),
+  };
+
+  @Param({"1", "1000", "100000"})
+  public int rowCount;
+
+  @Param({"0", "1000"})
+  public int fetchSize;
+
+  private StubServer server;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException, SQLException {
+
+    String[] names = new String[64];
+    for (int nameIdx = 0; nameIdx < names.length; ++nameIdx) {
+      names[nameIdx] = "product-name-" + nameIdx;
+    }
+
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (!sql.equals(SQL)) {
+        return null;
+      }
+      return StubResult.generated(COLUMNS, rowCount, (rowIdx, columnIdx) -> {
+        switch (columnIdx) {
+          case 0: return rowIdx;
+          case 1: return names[(int) (rowIdx % names.length)];
+          case 2: return rowIdx * 0.25;
+          default: return (int) (rowIdx % 1000);
+        }
+      });
+    });
+    server.start();
+
+    connection = DriverManager.getConnection(server.getUrl("bench"), "bench", "");
+    // Cursors are only used inside transactions
+    connection.setAutoCommit(fetchSize == 0);
+
+    statement = connection.prepareStatement(SQL);
+    statement.setFetchSize(fetchSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+    server.close();
+  }
+
+  @Benchmark
+  public void query(Blackhole blackhole) throws SQLException {
+    try (ResultSet rs = statement.executeQuery()) {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(1));
+        blackhole.consume(rs.getString(2));
+        blackhole.consume(rs.getDouble(3));
+        blackhole.consume(rs.getInt(4));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.api.jdbc.PGResultSet;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mapping 1,000 row results to POJOs: by hand using column labels, with a
+ * typical reflection based mapper (label lookup &amp; {@code Field.set} per
+ * column) and with {@link PGResultSet#mapTo(Class)} &amp;
+ * {@link PGResultSet#stream(Class)}.
+ *
+ * Results are measured in queries per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RowMappingBenchmark {
+
+  private static final String SQL = "SELECT id, name, price, stock FROM products";
+
+  private static final int ROW_COUNT = 1000;
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("id", StubTypes.INT8),
+    column("name", StubTypes.TEXT),
+    column("price", StubTypes.FLOAT8),
+    column("stock", StubTypes.INT4),
+  };
+
+  public static class Product {
+
+    private long id;
+    private String name;
+    private double price;
+    private int stock;
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public void setPrice(double price) {
+      this.price = price;
+    }
+
+    public void setStock(int stock) {
+      this.stock = stock;
+    }
+
+  }
+
+  private static final Map<String, Field> PRODUCT_FIELDS = new HashMap<>();
+  private static final Map<Class<?>, Class<?>> BOXES = new HashMap<>();
+
+  static {
+    for (Field field : Product.class.getDeclaredFields()) {
+      field.setAccessible(true);
+      PRODUCT_FIELDS.put(field.getName(), field);
+    }
+    BOXES.put(long.class, Long.class);
+    BOXES.put(double.class, Double.class);
+    BOXES.put(int.class, Integer.class);
+  }
+
+  private StubServer server;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException, SQLException {
+
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (!sql.equals(SQL)) {
+        return null;
+      }
+      return StubResult.generated(COLUMNS, ROW_COUNT, (rowIdx, columnIdx) -> {
+        switch (columnIdx) {
+          case 0: return rowIdx;
+          case 1: return "product-name-" + (rowIdx % 64);
+          case 2: return rowIdx * 0.25;
+          default: return (int) (rowIdx % 1000);
+        }
+      });
+    });
+    server.start();
+
+    connection = DriverManager.getConnection(server.getUrl("bench"), "bench", "");
+    statement = connection.prepareStatement(SQL);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+    server.close();
+  }
+
+  @Benchmark
+  public void byLabel(Blackhole blackhole) throws SQLException {
+    try (ResultSet rs = statement.executeQuery()) {
+      while (rs.next()) {
+        Product product = new Product();
+        product.setId(rs.getLong("id"));
+        product.setName(rs.getString("name"));
+        product.setPrice(rs.getDouble("price"));
+        product.setStock(rs.getInt("stock"));
+        blackhole.consume(product);
+      }
+    }
+  }
+
+  @Benchmark
+  public void reflective(Blackhole blackhole) throws SQLException, ReflectiveOperationException {
+    try (ResultSet rs = statement.executeQuery()) {
+      ResultSetMetaData metaData = rs.getMetaData();
+      while (rs.next()) {
+        Product product = Product.class.getDeclaredConstructor().newInstance();
+        for (int columnIdx = 1; columnIdx <= metaData.getColumnCount(); ++columnIdx) {
+          Field field = PRODUCT_FIELDS.get(metaData.getColumnLabel(columnIdx));
+          Class<?> type = BOXES.getOrDefault(field.getType(), field.getType());
+          field.set(product, rs.getObject(columnIdx, type));
+        }
+        blackhole.consume(product);
+      }
+    }
+  }
+
+  @Benchmark
+  public void mapTo(Blackhole blackhole) throws SQLException {
+    try (PGResultSet rs = statement.executeQuery().unwrap(PGResultSet.class)) {
+      while (rs.next()) {
+        blackhole.consume(rs.mapTo(Product.class));
+      }
+    }
+  }
+
+  @Benchmark
+  public void stream(Blackhole blackhole) throws SQLException {
+    statement.executeQuery().unwrap(PGResultSet.class).stream(Product.class).forEach(blackhole::consume);
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.jdbc.SQLText;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing of SQL text, performed for every statement that misses the
+ * connection's parsed SQL cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SQLTextBenchmark {
+
+  private static final String SIMPLE =
+      "SELECT id, name FROM users WHERE id = ?";
+
+  private static final String COMPLEX =
+      "WITH recent AS (SELECT * FROM orders WHERE created > ? AND status <> 'cancelled') " +
+      "SELECT o.id, o.total, c.name, /* customer */ c.email, '{\"a\": [1, 2]}'::jsonb, $$dollar ? quoted$$ " +
+      "FROM recent o JOIN customers c ON c.id = o.customer_id " +
+      "WHERE o.total BETWEEN ? AND ? AND c.region IN (?, ?, ?) -- trailing comment\n" +
+      "ORDER BY o.created DESC LIMIT ?";
+
+  private static final String ESCAPES =
+      "SELECT {fn ucase(name)}, {fn timestampadd(SQL_TSI_DAY, 1, {ts '2021-06-15 13:45:30'})} " +
+      "FROM items WHERE code LIKE ? {escape '\\'}";
+
+  private static final String MULTI =
+      "INSERT INTO log(msg) VALUES (?); UPDATE counters SET value = value + 1 WHERE name = ?; SELECT value FROM counters";
+
+  @Param({"simple", "complex", "escapes", "multi"})
+  public String statement;
+
+  private String sql;
+
+  @Setup
+  public void setup() {
+    switch (statement) {
+      case "simple":
+        sql = SIMPLE;
+        break;
+      case "complex":
+        sql = COMPLEX;
+        break;
+      case "escapes":
+        sql = ESCAPES;
+        break;
+      case "multi":
+        sql = MULTI;
+        break;
+      default:
+        throw new IllegalArgumentException(statement);
+    }
+  }
+
+  @Benchmark
+  public SQLText parse() throws ParseException {
+    return new SQLText(sql);
+  }
+
+}
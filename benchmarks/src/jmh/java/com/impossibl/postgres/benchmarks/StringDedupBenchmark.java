@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.benchmarks;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading 1,000 row results with two low cardinality text columns (status
+ * &amp; country code) and one unique text column, with string deduplication
+ * ({@code field.string.dedup}) disabled and enabled.
+ *
+ * Results are measured in queries per second; compare the allocation rates
+ * reported by the GC profiler to see the retained strings saved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StringDedupBenchmark {
+
+  private static final String SQL = "SELECT status, country, name FROM accounts";
+
+  private static final int ROW_COUNT = 1000;
+
+  private static final String[] STATUSES = {"active", "pending", "suspended", "closed"};
+  private static final String[] COUNTRIES = {"US", "GB", "DE", "FR", "JP", "BR", "IN", "CA"};
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("status", StubTypes.TEXT),
+    column("country", StubTypes.TEXT),
+    column("name", StubTypes.TEXT),
+  };
+
+  @Param({"0", "256"})
+  private int dedup;
+
+  @Param({"binary", "text"})
+  private String format;
+
+  private StubServer server;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException, SQLException {
+
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (!sql.equals(SQL)) {
+        return null;
+      }
+      return StubResult.generated(COLUMNS, ROW_COUNT, (rowIdx, columnIdx) -> {
+        switch (columnIdx) {
+          case 0: return STATUSES[(int) (rowIdx % STATUSES.length)];
+          case 1: return COUNTRIES[(int) (rowIdx % COUNTRIES.length)];
+          default: return "account-name-" + rowIdx;
+        }
+      });
+    });
+    server.start();
+
+    Properties properties = new Properties();
+    properties.setProperty("user", "bench");
+    properties.setProperty("password", "");
+    properties.setProperty("field.format", format);
+    properties.setProperty("field.string.dedup", Integer.toString(dedup));
+
+    connection = DriverManager.getConnection(server.getUrl("bench"), properties);
+    statement = connection.prepareStatement(SQL);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+    server.close();
+  }
+
+  @Benchmark
+  public void query(Blackhole blackhole) throws SQLException {
+    try (ResultSet rs = statement.executeQuery()) {
+      while (rs.next()) {
+        blackhole.consume(rs.getString(1));
+        blackhole.consume(rs.getString(2));
+        blackhole.consume(rs.getString(3));
+      }
+    }
+  }
+
+}
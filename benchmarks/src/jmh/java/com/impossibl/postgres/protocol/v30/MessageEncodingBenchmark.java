@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.benchmarks.BenchmarkContext;
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.FieldFormatRef;
+import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.types.Type;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Encoding of extended query protocol messages into {@link ByteBuf}s.
+ *
+ * Messages are written to an embedded channel whose outbound handler
+ * releases them immediately, so only the cost of building each message
+ * is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MessageEncodingBenchmark {
+
+  private static final String QUERY =
+      "SELECT id, name, price, created FROM products WHERE category = $1 AND price < $2 ORDER BY created DESC LIMIT $3";
+
+  @Param({"3", "32"})
+  public int parameterCount;
+
+  private EmbeddedChannel channel;
+  private ProtocolChannel protocolChannel;
+  private TypeRef[] parameterTypes;
+  private FieldFormatRef[] parameterFormats;
+  private ByteBuf[] parameterBuffers;
+  private FieldFormatRef[] resultFormats;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    BenchmarkContext context = new BenchmarkContext();
+
+    channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+      @Override
+      public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        ReferenceCountUtil.release(msg);
+      }
+    });
+    channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+    protocolChannel = new ProtocolChannel(channel, UTF_8);
+
+    Type int4 = context.loadType("int4");
+    Type text = context.loadType("text");
+
+    parameterTypes = new TypeRef[parameterCount];
+    parameterFormats = new FieldFormatRef[parameterCount];
+    parameterBuffers = new ByteBuf[parameterCount];
+    for (int paramIdx = 0; paramIdx < parameterCount; ++paramIdx) {
+      ByteBuf buffer = context.getAllocator().buffer();
+      if (paramIdx % 2 == 0) {
+        parameterTypes[paramIdx] = int4;
+        int4.getBinaryCodec().getEncoder().encode(context, int4, paramIdx, null, buffer);
+      }
+      else {
+        parameterTypes[paramIdx] = text;
+        text.getBinaryCodec().getEncoder().encode(context, text, "parameter-" + paramIdx, null, buffer);
+      }
+      parameterFormats[paramIdx] = FieldFormat.Binary;
+      parameterBuffers[paramIdx] = buffer;
+    }
+
+    resultFormats = new FieldFormatRef[] {FieldFormat.Binary, FieldFormat.Text, FieldFormat.Binary, FieldFormat.Binary};
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (ByteBuf parameterBuffer : parameterBuffers) {
+      parameterBuffer.release();
+    }
+    channel.finishAndReleaseAll();
+  }
+
+  @Benchmark
+  public void parse() {
+    protocolChannel
+        .writeParse(null, QUERY, parameterTypes)
+        .flush();
+  }
+
+  @Benchmark
+  public void bindExecuteSync() throws IOException {
+    protocolChannel
+        .writeBind(null, "S1", parameterFormats, parameterBuffers, resultFormats)
+        .writeExecute(null, 0)
+        .writeSync()
+        .flush();
+  }
+
+  @Benchmark
+  public void parseBindExecuteSync() throws IOException {
+    protocolChannel
+        .writeParse(null, QUERY, parameterTypes)
+        .writeBind(null, null, parameterFormats, parameterBuffers, resultFormats)
+        .writeExecute(null, 0)
+        .writeSync()
+        .flush();
+  }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.benchmarks.BenchmarkContext;
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.types.Type;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding of every field of a {@code DataRow} message through
+ * {@link BufferRowData}, mirroring what a result set does while
+ * iterating rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RowDecodingBenchmark {
+
+  private static final String[] TYPE_NAMES = {"int4", "text", "numeric", "timestamp", "timestamptz", "float8", "uuid", "varchar"};
+
+  @Param({"Binary", "Text"})
+  public FieldFormat format;
+
+  private BenchmarkContext context;
+  private ResultField[] fields;
+  private Class<?>[] targetClasses;
+  private ByteBuf message;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext();
+
+    Object[] values = {
+      987654321,
+      "The quick brown fox jumps over the lazy dog",
+      new BigDecimal("1234567.8901"),
+      LocalDateTime.of(2021, 6, 15, 13, 45, 30, 123456000),
+      OffsetDateTime.of(2021, 6, 15, 13, 45, 30, 123456000, ZoneOffset.UTC),
+      Math.PI,
+      UUID.fromString("4c3f5a8e-2d7b-4f0e-9a61-0c2d8e5b7a13"),
+      "widget",
+    };
+
+    fields = new ResultField[TYPE_NAMES.length];
+    targetClasses = new Class<?>[TYPE_NAMES.length];
+    for (int fieldIdx = 0; fieldIdx < TYPE_NAMES.length; ++fieldIdx) {
+      Type type = context.loadType(TYPE_NAMES[fieldIdx]);
+      fields[fieldIdx] = new ResultField("c" + fieldIdx, 0, (short) 0, type, type.getLength(), 0, format);
+      targetClasses[fieldIdx] = type.getCodec(format).getDecoder().getDefaultClass();
+    }
+
+    // Build the body of a DataRow message exactly as it arrives from the server
+    BufferRowData encoded = BufferRowData.encode(context, fields, values);
+    try {
+      message = context.getAllocator().buffer();
+      message.writeShort(fields.length);
+      message.writeBytes(encoded.content(), 0, encoded.content().writerIndex());
+    }
+    finally {
+      encoded.release();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    message.release();
+  }
+
+  @Benchmark
+  public void decodeRow(Blackhole blackhole) throws IOException {
+    BufferRowData rowData = new BufferRowData(message.retainedDuplicate());
+    try {
+      for (int fieldIdx = 0; fieldIdx < rowData.getFieldCount(); ++fieldIdx) {
+        blackhole.consume(rowData.getField(fieldIdx, fields[fieldIdx], context, targetClasses[fieldIdx], null));
+      }
+    }
+    finally {
+      rowData.release();
+    }
+  }
+
+}
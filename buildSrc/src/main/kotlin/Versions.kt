@@ -28,6 +28,7 @@ object Versions {
   const val guava = "23.5-jre"
   const val compilerTesting = "0.19"
   const val checkstyle = "6.18"
+  const val jmh = "1.29"
 
   /**
    * Plugin dependencies
@@ -39,5 +40,6 @@ object Versions {
   const val gitPublishPlugin = "3.0.0"
   const val testLoggerPlugin = "3.0.0"
   const val githubReleasePlugin = "2.2.12"
+  const val jmhPlugin = "0.6.5"
 
 }
@@ -36,6 +36,8 @@ class SpyGen {
 
   private val targetPkg = "com.impossibl.jdbc.spy"
   private val relayIfaceName = ClassName.get(targetPkg, "Relay")!!
+  private val listenerBaseIfaceName = ClassName.get(targetPkg, "Listener")!!
+  private val methodsClassName = ClassName.get(targetPkg, "Methods")!!
   private val traceOutputIfaceName = ClassName.get(targetPkg, "TraceOutput")!!
   private val traceTypeName = ClassName.get(targetPkg, "Trace")!!
   private val traceBuilderTypeName = traceTypeName.nestedClass("Builder")!!
@@ -62,14 +64,61 @@ class SpyGen {
      ReflectionTypeSolver(true)
   )
 
-  fun generate(): List<JavaFile> = targetIfaces.flatMap { generate(it) }
+  fun generate(): List<JavaFile> {
+    val methodNames = mutableListOf<String>()
+    return targetIfaces.flatMap { generate(it, methodNames) } + generateMethods(methodNames)
+  }
 
   fun generateTo(outputDir: File) {
 
     return generate().forEach { it.writeTo(outputDir) }
   }
 
-  private fun generate(targetIfaceIn: Class<*>): List<JavaFile> {
+  /**
+   * Generates the table mapping the method ids, passed to [Listener.enter] & [Listener.exit],
+   * to their method names.
+   */
+  private fun generateMethods(methodNames: List<String>): JavaFile {
+
+    val namesInit = CodeBlock.builder().add("{\n\$>")
+    methodNames.forEach { namesInit.add("\$S,\n", it) }
+    namesInit.add("\$<}")
+
+    val methodsClass = TypeSpec.classBuilder(methodsClassName)
+       .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+       .addField(
+          FieldSpec.builder(ArrayTypeName.of(String::class.java), "NAMES", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+             .initializer(namesInit.build())
+             .build()
+       )
+       .addMethod(
+          MethodSpec.constructorBuilder()
+             .addModifiers(Modifier.PRIVATE)
+             .build()
+       )
+       .addMethod(
+          MethodSpec.methodBuilder("getCount")
+             .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+             .returns(TypeName.INT)
+             .addStatement("return NAMES.length")
+             .build()
+       )
+       .addMethod(
+          MethodSpec.methodBuilder("getName")
+             .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+             .addParameter(TypeName.INT, "methodId")
+             .returns(String::class.java)
+             .addStatement("return NAMES[methodId]")
+             .build()
+       )
+       .build()
+
+    return JavaFile.builder(targetPkg, methodsClass)
+       .skipJavaLangImports(true)
+       .build()
+  }
+
+  private fun generate(targetIfaceIn: Class<*>, methodNames: MutableList<String>): List<JavaFile> {
 
     val targetIface = solver.tryToSolveType(targetIfaceIn.name)
        .let {
@@ -89,6 +138,7 @@ class SpyGen {
     val relayClassName = getSpyClassName(targetIfaceName, ClassKind.Relay)
 
     val listenerIfaceBldr = TypeSpec.interfaceBuilder(listenerIfaceName)
+       .addSuperinterface(listenerBaseIfaceName)
 
     val tracerClassBldr = TypeSpec.classBuilder(tracerClassName)
        .addModifiers(Modifier.PUBLIC)
@@ -108,6 +158,26 @@ class SpyGen {
              .addStatement("this.out.trace(trace)")
              .build()
        )
+       .addMethod(
+          MethodSpec.methodBuilder("enter")
+             .addAnnotation(Override::class.java)
+             .addModifiers(Modifier.PUBLIC)
+             .addParameter(TypeName.INT, "methodId")
+             .returns(TypeName.LONG)
+             .addStatement("return this.out.enter(methodId)")
+             .build()
+       )
+       .addMethod(
+          MethodSpec.methodBuilder("exit")
+             .addAnnotation(Override::class.java)
+             .addModifiers(Modifier.PUBLIC)
+             .addParameter(TypeName.INT, "methodId")
+             .addParameter(TypeName.LONG, "entered")
+             .addParameter(Throwable::class.java, "cause")
+             .returns(TypeName.BOOLEAN)
+             .addStatement("return this.out.exit(methodId, entered, cause)")
+             .build()
+       )
 
     val relayClassBldr =
        TypeSpec.classBuilder(relayClassName)
@@ -144,7 +214,13 @@ class SpyGen {
 
     val requiredFactoryMethodNames = mutableSetOf<ClassName>()
 
-    for (targetMethod in targetIface.methods) {
+    for (targetMethod in targetIface.methods.sortedBy { it.signature }) {
+
+      val methodId = methodNames.size
+      methodNames.add(
+         targetIface.name + "." + targetMethod.name +
+            targetMethod.parameters.joinToString(", ", "(", ")") { it.type.typeName.simpleTypeName }
+      )
 
       val listenerSuccessMethodBldr = MethodSpec.methodBuilder(targetMethod.name)
          .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
@@ -229,19 +305,25 @@ class SpyGen {
         }
       }
 
+      relayMethodBldr.addStatement("long entered = this.listener.enter(\$L)", methodId)
+
       relayMethodBldr.addCode("try {$>\n")
 
       val targetMethodParameterNames = targetMethod.parameters.map { it.name }
 
       if (targetReturnTypeName == TypeName.VOID) {
         relayMethodBldr.addStatement("this.target.\$N(\$L)", targetMethod.name, targetMethodParameterNames.joinToString())
+        relayMethodBldr.beginControlFlow("if (this.listener.exit(\$L, entered, null))", methodId)
         relayMethodBldr.addStatement("this.listener.\$N(\$L)", targetMethod.name, targetMethodParameterNames.joinToString())
+        relayMethodBldr.endControlFlow()
       }
       else {
 
         relayMethodBldr.addStatement("\$T targetSuccessResult = this.target.\$N(\$L)", targetReturnTypeName, targetMethod.name, targetMethodParameterNames.joinToString())
 
+        relayMethodBldr.beginControlFlow("if (this.listener.exit(\$L, entered, null))", methodId)
         relayMethodBldr.addStatement("this.listener.\$N(\$L)", targetMethod.name, (listOf("targetSuccessResult") + targetMethodParameterNames).joinToString())
+        relayMethodBldr.endControlFlow()
 
         if (targetReturnTypeName is ClassName && targetIfaceNames.contains(targetReturnTypeName)) {
 
@@ -262,7 +344,9 @@ class SpyGen {
 
       relayMethodBldr.addCode("$<\n}\ncatch(\$L targetFailureCause) {$>\n", exceptions)
 
+      relayMethodBldr.beginControlFlow("if (this.listener.exit(\$L, entered, targetFailureCause))", methodId)
       relayMethodBldr.addStatement("this.listener.\$N(\$L)", targetMethod.name, (listOf("targetFailureCause") + targetMethodParameterNames).joinToString())
+      relayMethodBldr.endControlFlow()
       relayMethodBldr.addStatement("throw targetFailureCause")
 
       relayMethodBldr.addCode("$<\n}\n")
@@ -329,6 +413,9 @@ val ResolvedType.typeName: TypeName get() =
     else -> throw IllegalArgumentException("Unsupported ResolvedType: ${this.javaClass}")
   }
 
+val TypeName.simpleTypeName: String get() =
+  toString().replace(Regex("\\b[a-z][a-z0-9_]*\\."), "")
+
 val ResolvedWildcard.wildcardTypeName: WildcardTypeName
   get() =
     when {
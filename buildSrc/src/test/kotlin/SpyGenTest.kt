@@ -15,6 +15,7 @@ class SpyGenTest {
     val supportFiles = listOf<JavaFileObject>(
        JavaFileObjects.forResource("Trace.java"),
        JavaFileObjects.forResource("TraceOutput.java"),
+       JavaFileObjects.forResource("Listener.java"),
        JavaFileObjects.forResource("Relay.java")
     )
 
@@ -0,0 +1,14 @@
+package com.impossibl.jdbc.spy;
+
+// Shell for compilation test
+public interface Listener {
+
+  default long enter(int methodId) {
+    return 0;
+  }
+
+  default boolean exit(int methodId, long entered, Throwable cause) {
+    return true;
+  }
+
+}
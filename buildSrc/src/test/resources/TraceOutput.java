@@ -5,4 +5,12 @@ public interface TraceOutput {
 
   void trace(Trace trace);
 
+  default long enter(int methodId) {
+    return 0;
+  }
+
+  default boolean exit(int methodId, long entered, Throwable cause) {
+    return true;
+  }
+
 }
@@ -62,6 +62,33 @@ public class Address implements SQLData {
     out.writeString(this.state);
     out.writeString(this.zip);
   }
+
+  /**
+   * Binary codec reading address attributes directly to/from fields.
+   */
+  public static class Codec extends RecordProcProvider<Address> {
+    public Codec() {
+      super("public", "address", Address.class, "pg_catalog.text", "pg_catalog.text", "pg_catalog.bpchar", "pg_catalog.bpchar");
+    }
+
+    @Override
+    protected Address decodeAttributes(RecordProcProvider.Input in) throws IOException {
+      Address value = new Address();
+      value.street = in.readString();
+      value.city = in.readString();
+      value.state = in.readString();
+      value.zip = in.readString();
+      return value;
+    }
+
+    @Override
+    protected void encodeAttributes(RecordProcProvider.Output out, Address value) throws IOException {
+      out.writeString(value.street);
+      out.writeString(value.city);
+      out.writeString(value.state);
+      out.writeString(value.zip);
+    }
+  }
 }
 
 public enum Title {
@@ -154,4 +181,32 @@ public class VCard implements SQLData {
     out.writeString(this.title.getLabel());
     out.writeObject(this.addresses, null);
   }
+
+  /**
+   * Binary codec reading v_card attributes directly to/from fields.
+   */
+  public static class Codec extends RecordProcProvider<VCard> {
+    public Codec() {
+      super("public", "v_card", VCard.class, "pg_catalog.int4", "pg_catalog.text", "public.title", "public._address");
+    }
+
+    @Override
+    protected VCard decodeAttributes(RecordProcProvider.Input in) throws IOException {
+      VCard value = new VCard();
+      value.id = in.readInt();
+      value.name = in.readString();
+      String titleLabel = in.readString();
+      value.title = titleLabel != null ? Title.valueOfLabel(titleLabel) : null;
+      value.addresses = in.readObject(PGStruct[].class);
+      return value;
+    }
+
+    @Override
+    protected void encodeAttributes(RecordProcProvider.Output out, VCard value) throws IOException {
+      out.writeInt(value.id);
+      out.writeString(value.name);
+      out.writeString(value.title != null ? value.title.getLabel() : null);
+      out.writeObject(value.addresses);
+    }
+  }
 }
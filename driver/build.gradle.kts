@@ -1,6 +1,7 @@
 
 plugins {
   `java-library`
+  `java-test-fixtures`
   id("com.adarshr.test-logger") version Versions.testLoggerPlugin
 }
 
@@ -21,6 +22,11 @@ dependencies {
   implementation("io.netty:netty-transport-native-kqueue:${Versions.netty}")
   implementation("io.netty:netty-transport-native-epoll:${Versions.netty}")
 
+  testFixturesImplementation("io.netty:netty-common:${Versions.netty}")
+  testFixturesImplementation("io.netty:netty-buffer:${Versions.netty}")
+  testFixturesImplementation("io.netty:netty-transport:${Versions.netty}")
+  testFixturesImplementation("io.netty:netty-codec:${Versions.netty}")
+
   testImplementation("org.junit.jupiter:junit-jupiter-engine:${Versions.junit}")
   testImplementation("org.junit.jupiter:junit-jupiter-params:${Versions.junit}")
   testImplementation("org.junit.vintage:junit-vintage-engine:${Versions.junit}")
@@ -38,6 +44,12 @@ apply {
 }
 
 
+// Test fixtures (e.g. the stub server) are for tests & benchmarks only, never published
+val javaComponent = components["java"] as AdhocComponentWithVariants
+javaComponent.withVariantsFromConfiguration(configurations["testFixturesApiElements"]) { skip() }
+javaComponent.withVariantsFromConfiguration(configurations["testFixturesRuntimeElements"]) { skip() }
+
+
 tasks {
   compileJava {
     outputs.dir("$buildDir/generated/docs")
@@ -3,6 +3,36 @@ apply {
   from("$rootDir/shared/src/build/compile-java.gradle.kts")
 }
 
+/**
+ * Flight Recorder events need `jdk.jfr`, which JDK 8 only ships from 8u262. They are
+ * compiled in their own source set by a JDK 11 toolchain (still targeting Java 8) and
+ * loaded reflectively, so the main sources build with any JDK 8 toolchain.
+ */
+val sourceSets = the<SourceSetContainer>()
+val main by sourceSets.existing
+val jfr by sourceSets.creating {
+  compileClasspath += main.get().output + main.get().compileClasspath
+}
+
+sourceSets.named("test") {
+  compileClasspath += jfr.output
+  runtimeClasspath += jfr.output
+}
+
+val javaToolchains = extensions.getByName("javaToolchains") as JavaToolchainService
+
+tasks.named<JavaCompile>("compileJfrJava") {
+  javaCompiler.set(javaToolchains.compilerFor {
+    languageVersion.set(JavaLanguageVersion.of(11))
+  })
+  sourceCompatibility = Versions.javaTarget.toString()
+  targetCompatibility = Versions.javaTarget.toString()
+}
+
+tasks.named<Jar>("jar") {
+  from(jfr.output)
+}
+
 tasks.named<JavaCompile>("compileJava") {
   options.compilerArgs.add("-Adoc.dir=$buildDir/generated/docs/")
   options.isDeprecation = true
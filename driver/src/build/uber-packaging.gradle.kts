@@ -16,6 +16,7 @@ apply { from("$rootDir/shared/src/build/uber-packaging.gradle.kts") }
  */
 
 tasks.named<ShadowJar>("uberJar") {
+  from(the<SourceSetContainer>()["jfr"].output)
   relocate("io.netty", "com.impossibl.shadow.io.netty")
   minimize()
 }
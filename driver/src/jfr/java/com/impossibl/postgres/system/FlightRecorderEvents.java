@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder backed implementation of {@link Events}. Only loaded
+ * (reflectively) after Flight Recorder has been verified to be available.
+ *
+ * Compiled separately (see the {@code jfr} source set) against a JDK that
+ * provides {@code jdk.jfr}, so the driver itself builds on any JDK 8.
+ */
+class FlightRecorderEvents implements Events.Recorder {
+
+  static final int MAX_SQL_LENGTH = 1024;
+
+  static String truncate(String sql) {
+    if (sql == null || sql.length() <= MAX_SQL_LENGTH) {
+      return sql;
+    }
+    return sql.substring(0, MAX_SQL_LENGTH) + "...";
+  }
+
+  @Name("com.impossibl.postgres.Request")
+  @Label("Request")
+  @Category({"PGJDBC-NG", "Protocol"})
+  @Description("Protocol request, from submission until its response completed")
+  @Threshold("10 ms")
+  @StackTrace(false)
+  static class RequestEvent extends Event {
+
+    @Label("Request Type")
+    String requestType;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Bytes Received")
+    @DataAmount
+    long bytes;
+
+  }
+
+  @Name("com.impossibl.postgres.Prepare")
+  @Label("Prepare")
+  @Category({"PGJDBC-NG", "Statement"})
+  @Description("Statement prepared or described by the server")
+  @Threshold("10 ms")
+  static class PrepareEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Statement Name")
+    String statementName;
+
+  }
+
+  @Name("com.impossibl.postgres.Execute")
+  @Label("Execute")
+  @Category({"PGJDBC-NG", "Statement"})
+  @Description("Prepared statement execution")
+  @Threshold("10 ms")
+  static class ExecuteEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Statement Name")
+    String statementName;
+
+    @Label("Rows")
+    @Description("Rows returned in the first batch of results, or rows affected")
+    long rows;
+
+  }
+
+  @Name("com.impossibl.postgres.Fetch")
+  @Label("Fetch")
+  @Category({"PGJDBC-NG", "Statement"})
+  @Description("Fetch of additional rows from a suspended portal")
+  @Threshold("10 ms")
+  static class FetchEvent extends Event {
+
+    @Label("Portal Name")
+    String portalName;
+
+    @Label("Rows")
+    long rows;
+
+  }
+
+  @Name("com.impossibl.postgres.TypeLoad")
+  @Label("Type Load")
+  @Category({"PGJDBC-NG", "Types"})
+  @Description("Type loaded from the server's catalog")
+  @Threshold("0 ms")
+  static class TypeLoadEvent extends Event {
+
+    @Label("Type Name")
+    String typeName;
+
+  }
+
+  @Name("com.impossibl.postgres.HousekeeperCleanup")
+  @Label("Housekeeper Cleanup")
+  @Category({"PGJDBC-NG", "Housekeeper"})
+  @Description("Leaked JDBC object cleaned up by the housekeeper")
+  @StackTrace(false)
+  static class HousekeeperCleanupEvent extends Event {
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Allocation Traced")
+    boolean allocationTraced;
+
+  }
+
+  private static final EventType REQUEST_TYPE = EventType.getEventType(RequestEvent.class);
+  private static final EventType PREPARE_TYPE = EventType.getEventType(PrepareEvent.class);
+  private static final EventType EXECUTE_TYPE = EventType.getEventType(ExecuteEvent.class);
+  private static final EventType FETCH_TYPE = EventType.getEventType(FetchEvent.class);
+  private static final EventType TYPE_LOAD_TYPE = EventType.getEventType(TypeLoadEvent.class);
+
+  @Override
+  public Object begin(Events.Kind kind) {
+
+    // Check the (cached) type first, nothing is allocated unless recording
+    Event event;
+    switch (kind) {
+      case REQUEST:
+        event = REQUEST_TYPE.isEnabled() ? new RequestEvent() : null;
+        break;
+      case PREPARE:
+        event = PREPARE_TYPE.isEnabled() ? new PrepareEvent() : null;
+        break;
+      case EXECUTE:
+        event = EXECUTE_TYPE.isEnabled() ? new ExecuteEvent() : null;
+        break;
+      case FETCH:
+        event = FETCH_TYPE.isEnabled() ? new FetchEvent() : null;
+        break;
+      case TYPE_LOAD:
+        event = TYPE_LOAD_TYPE.isEnabled() ? new TypeLoadEvent() : null;
+        break;
+      default:
+        return null;
+    }
+
+    if (event == null) {
+      return null;
+    }
+
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void endRequest(Object event, String requestType, long rows, long bytes) {
+    RequestEvent requestEvent = (RequestEvent) event;
+    requestEvent.end();
+    if (requestEvent.shouldCommit()) {
+      requestEvent.requestType = requestType;
+      requestEvent.rows = rows;
+      requestEvent.bytes = bytes;
+      requestEvent.commit();
+    }
+  }
+
+  @Override
+  public void endPrepare(Object event, String sql, String statementName) {
+    PrepareEvent prepareEvent = (PrepareEvent) event;
+    prepareEvent.end();
+    if (prepareEvent.shouldCommit()) {
+      prepareEvent.sql = truncate(sql);
+      prepareEvent.statementName = statementName;
+      prepareEvent.commit();
+    }
+  }
+
+  @Override
+  public void endExecute(Object event, String sql, String statementName, long rows) {
+    ExecuteEvent executeEvent = (ExecuteEvent) event;
+    executeEvent.end();
+    if (executeEvent.shouldCommit()) {
+      executeEvent.sql = truncate(sql);
+      executeEvent.statementName = statementName;
+      executeEvent.rows = rows;
+      executeEvent.commit();
+    }
+  }
+
+  @Override
+  public void endFetch(Object event, String portalName, long rows) {
+    FetchEvent fetchEvent = (FetchEvent) event;
+    fetchEvent.end();
+    if (fetchEvent.shouldCommit()) {
+      fetchEvent.portalName = portalName;
+      fetchEvent.rows = rows;
+      fetchEvent.commit();
+    }
+  }
+
+  @Override
+  public void endTypeLoad(Object event, String typeName) {
+    TypeLoadEvent typeLoadEvent = (TypeLoadEvent) event;
+    typeLoadEvent.end();
+    if (typeLoadEvent.shouldCommit()) {
+      typeLoadEvent.typeName = typeName;
+      typeLoadEvent.commit();
+    }
+  }
+
+  @Override
+  public void housekeeperCleanup(String kind, boolean allocationTraced) {
+    HousekeeperCleanupEvent event = new HousekeeperCleanupEvent();
+    if (event.isEnabled()) {
+      event.kind = kind;
+      event.allocationTraced = allocationTraced;
+      event.commit();
+    }
+  }
+
+}
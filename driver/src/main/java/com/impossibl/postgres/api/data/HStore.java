@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.data;
+
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only {@link Map} view of an {@code hstore} value in its binary
+ * format.
+ *
+ * Nothing is decoded up front; an open addressing index of key hashes to
+ * entry offsets is built on the first lookup and keys &amp; values are only
+ * decoded to {@link String}s when returned. Useful when only a few entries
+ * of large values are read; request it via
+ * {@code ResultSet.getObject(column, HStore.class)}.
+ */
+public final class HStore extends AbstractMap<String, String> {
+
+  private final byte[] data;
+  private final Charset charset;
+  private final int size;
+  private volatile Index index;
+
+  /**
+   * Open addressing index; each slot holds the offset of an entry's key
+   * length (or {@code 0} when empty) and the matching element of
+   * {@code hashes} the key's hash. Immutable once built, so it can be
+   * published to other threads through a single field.
+   */
+  private static final class Index {
+
+    final int[] slots;
+    final int[] hashes;
+
+    Index(int[] slots, int[] hashes) {
+      this.slots = slots;
+      this.hashes = hashes;
+    }
+
+  }
+
+  /**
+   * @param data hstore value in binary format (i.e. the entry count followed
+   *             by length prefixed keys &amp; values).
+   * @param charset Charset of keys &amp; values.
+   */
+  public HStore(byte[] data, Charset charset) {
+    this.data = data;
+    this.charset = charset;
+    this.size = data.length != 0 ? readInt(0) : 0;
+  }
+
+  private int readInt(int offset) {
+    return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+  }
+
+  private static int hash(byte[] bytes, int offset, int length) {
+    int hash = 0x811c9dc5;
+    for (int idx = offset, end = offset + length; idx < end; ++idx) {
+      hash = (hash ^ bytes[idx]) * 0x01000193;
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Builds the index. Concurrent first lookups may each build one; they
+   * are identical, so whichever is published last wins harmlessly.
+   */
+  private Index buildIndex() {
+
+    int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    int[] slots = new int[capacity];
+    int[] hashes = new int[capacity];
+
+    int offset = 4;
+    for (int entry = 0; entry < size; ++entry) {
+
+      int keyLength = readInt(offset);
+      int hash = hash(data, offset + 4, keyLength);
+
+      int slot = hash & (capacity - 1);
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      slots[slot] = offset;
+      hashes[slot] = hash;
+
+      offset += 4 + keyLength;
+      offset += 4 + Math.max(readInt(offset), 0);
+    }
+
+    return new Index(slots, hashes);
+  }
+
+  /**
+   * @return Offset of the entry's key length or {@code -1} if not found.
+   */
+  private int find(Object key) {
+
+    if (!(key instanceof String) || size == 0) {
+      return -1;
+    }
+
+    Index index = this.index;
+    if (index == null) {
+      index = buildIndex();
+      this.index = index;
+    }
+    int[] slots = index.slots;
+    int[] hashes = index.hashes;
+
+    byte[] keyBytes = ((String) key).getBytes(charset);
+    int hash = hash(keyBytes, 0, keyBytes.length);
+
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int offset = slots[slot];
+      if (hashes[slot] == hash && readInt(offset) == keyBytes.length && regionEquals(offset + 4, keyBytes)) {
+        return offset;
+      }
+    }
+
+    return -1;
+  }
+
+  private boolean regionEquals(int offset, byte[] bytes) {
+    for (int idx = 0; idx < bytes.length; ++idx) {
+      if (data[offset + idx] != bytes[idx]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decode(int offset) {
+    int length = readInt(offset);
+    return length != -1 ? new String(data, offset + 4, length, charset) : null;
+  }
+
+  private int valueOffset(int keyOffset) {
+    return keyOffset + 4 + readInt(keyOffset);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return find(key) != -1;
+  }
+
+  @Override
+  public String get(Object key) {
+    int offset = find(key);
+    return offset != -1 ? decode(valueOffset(offset)) : null;
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        return new Iterator<Entry<String, String>>() {
+
+          int entry = 0;
+          int offset = 4;
+
+          @Override
+          public boolean hasNext() {
+            return entry < size;
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            int valueOffset = valueOffset(offset);
+            Entry<String, String> result = new SimpleImmutableEntry<>(decode(offset), decode(valueOffset));
+            offset = valueOffset + 4 + Math.max(readInt(valueOffset), 0);
+            entry += 1;
+            return result;
+          }
+
+        };
+      }
+
+    };
+  }
+
+}
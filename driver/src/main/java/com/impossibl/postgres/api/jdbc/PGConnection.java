@@ -32,6 +32,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Public API for PGConnection
@@ -94,6 +96,21 @@ public interface PGConnection extends Connection {
    */
   void removeNotificationListener(PGNotificationListener listener);
 
+  /**
+   * Sets the executor used to deliver asynchronous notifications to listeners.
+   *
+   * Notifications are queued per listener and always delivered to a listener
+   * in the order they were received. By default notifications are delivered
+   * by a driver wide thread pool; to deliver notifications directly on the
+   * connection's I/O thread provide an executor that runs tasks immediately
+   * (e.g. {@code Runnable::run}).
+   *
+   * @param executor
+   *          Executor for notification delivery or {@code null} to use the
+   *          driver's default executor
+   */
+  void setNotificationExecutor(Executor executor);
+
   /**
    * Set strict mode
    * @param v The value
@@ -165,4 +182,22 @@ public interface PGConnection extends Connection {
    */
   void copyTo(String sql, OutputStream outputStream) throws SQLException;
 
+
+  /**
+   * Starts streaming changes from a logical replication slot.
+   *
+   * The connection must have been opened in replication mode (setting
+   * {@code replication=database}) and cannot be used for other commands
+   * until the returned stream is closed.
+   *
+   * @param slotName Name of an existing logical replication slot.
+   * @param startLSN WAL location to start streaming from (e.g. {@code 0/0} to
+   *                 start from the slot's confirmed location).
+   * @param options Options passed to the slot's output plugin, may be {@code null}.
+   * @param listener Listener to receive the streamed data.
+   * @return Active replication stream.
+   * @throws SQLException If an error occurs starting replication.
+   */
+  PGReplicationStream startLogicalReplication(String slotName, String startLSN, Map<String, String> options, PGReplicationListener listener) throws SQLException;
+
 }
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * PostgreSQL replication stream listener
+ *
+ * Data is delivered on the connection's I/O thread, blocking in a callback
+ * stops the connection from receiving further data.
+ */
+public interface PGReplicationListener {
+
+  /**
+   * Receives a single WAL data message.
+   *
+   * @param startLSN
+   *          WAL location of the start of the message
+   * @param data
+   *          Message payload (e.g. output of the logical decoding plugin). The
+   *          buffer references the driver's receive buffer directly and is
+   *          only valid for the duration of the call.
+   */
+  void xlogData(long startLSN, ByteBuffer data);
+
+  /**
+   * Reports the stream has ended.
+   *
+   * @param cause
+   *          Error that ended the stream or {@code null} if the stream ended
+   *          normally
+   */
+  default void closed(SQLException cause) {
+  }
+
+}
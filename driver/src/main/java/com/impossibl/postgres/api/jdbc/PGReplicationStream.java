@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Active replication stream started via
+ * {@link PGConnection#startLogicalReplication(String, String, java.util.Map, PGReplicationListener)}.
+ *
+ * Progress reported via {@link #setFlushedLSN(long)} and
+ * {@link #setAppliedLSN(long)} is sent to the server in batched standby
+ * status updates (see the {@code protocol.replication.status.interval}
+ * setting). All methods may be called from any thread, including from
+ * within listener callbacks.
+ */
+public interface PGReplicationStream extends AutoCloseable {
+
+  /**
+   * Retrieves the location of the last WAL data received.
+   *
+   * @return Last received WAL location
+   */
+  long getLastReceiveLSN();
+
+  /**
+   * Reports that all data up to, and including, the given location has
+   * been durably stored by the application. The server is free to discard
+   * WAL before this location.
+   *
+   * @param lsn WAL location
+   */
+  void setFlushedLSN(long lsn);
+
+  /**
+   * Reports that all data up to, and including, the given location has
+   * been applied by the application.
+   *
+   * @param lsn WAL location
+   */
+  void setAppliedLSN(long lsn);
+
+  /**
+   * Sends a standby status update immediately, instead of waiting for the
+   * next scheduled update.
+   *
+   * @throws SQLException If the stream is closed or the update cannot be sent
+   */
+  void forceStatusUpdate() throws SQLException;
+
+  /**
+   * Stops receiving data until {@link #resume()} is called. Data is left
+   * in the server's send buffers, applying back pressure to the server.
+   */
+  void pause();
+
+  /**
+   * Resumes receiving data after {@link #pause()}.
+   */
+  void resume();
+
+  /**
+   * Checks if the stream has ended.
+   *
+   * @return {@code true} if the stream has ended
+   */
+  boolean isClosed();
+
+  /**
+   * Ends the stream, sending a final status update, and waits for the
+   * server to complete it.
+   *
+   * @throws SQLException If the stream ended with an error
+   */
+  @Override
+  void close() throws SQLException;
+
+  /**
+   * Parses a WAL location in PostgreSQL's textual form (e.g. {@code 16/B374D848}).
+   *
+   * @param lsn Textual WAL location
+   * @return WAL location
+   */
+  static long parseLSN(String lsn) {
+    int sep = lsn.indexOf('/');
+    if (sep == -1) {
+      throw new IllegalArgumentException("Invalid LSN: " + lsn);
+    }
+    return (Long.parseLong(lsn.substring(0, sep), 16) << 32) | Long.parseLong(lsn.substring(sep + 1), 16);
+  }
+
+  /**
+   * Formats a WAL location in PostgreSQL's textual form.
+   *
+   * @param lsn WAL location
+   * @return Textual WAL location
+   */
+  static String formatLSN(long lsn) {
+    return Long.toHexString(lsn >>> 32).toUpperCase() + "/" + Long.toHexString(lsn & 0xFFFFFFFFL).toUpperCase();
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Public API for PGResultSet
+ *
+ * Rows can be mapped to instances of a Java class, either a record (the canonical
+ * constructor is used) or a POJO (a no-arg constructor and setters or fields are
+ * used). Columns are matched to record components or properties by name, ignoring
+ * case and underscores (e.g. {@code first_name} maps to {@code firstName}). The
+ * mapping is resolved once per result set and target class; no column label lookups
+ * or reflective calls are made per row.
+ */
+public interface PGResultSet extends ResultSet {
+
+  /**
+   * Maps the current row to an instance of the given class
+   *
+   * @param type Record or POJO class to map to
+   * @param <T> Mapped type
+   * @return New instance populated from the current row
+   * @throws SQLException If no columns match or a column cannot be decoded
+   *          to the matching property's type
+   */
+  <T> T mapTo(Class<T> type) throws SQLException;
+
+  /**
+   * Iterates the remaining rows, advancing the result set as it goes, mapping
+   * each row to an instance of the given class (see {@link #mapTo(Class)}).
+   *
+   * {@link SQLException}s raised while iterating are wrapped in an
+   * {@link IllegalStateException}.
+   *
+   * @param type Record or POJO class to map to
+   * @param <T> Mapped type
+   * @return Iterator of mapped rows
+   * @throws SQLException If no columns match the given class
+   */
+  <T> Iterator<T> iterator(Class<T> type) throws SQLException;
+
+  /**
+   * Streams the remaining rows, advancing the result set as it goes, mapping
+   * each row to an instance of the given class (see {@link #mapTo(Class)}).
+   *
+   * Closing the stream closes the result set. {@link SQLException}s raised while
+   * streaming are wrapped in an {@link IllegalStateException}.
+   *
+   * @param type Record or POJO class to map to
+   * @param <T> Mapped type
+   * @return Sequential stream of mapped rows
+   * @throws SQLException If no columns match the given class
+   */
+  <T> Stream<T> stream(Class<T> type) throws SQLException;
+
+}
@@ -92,6 +92,12 @@ public class ISODateFormat implements DateTimeFormat {
 
     @Override
     public TemporalAccessor parse(CharSequence date) {
+
+      TemporalAccessor parsed = ISOParsers.parseDate(date);
+      if (parsed != null) {
+        return parsed;
+      }
+
       return FMT_ERA.parse(date);
     }
 
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.datetime;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Character level parsers for the fixed output of the server when
+ * {@code DateStyle} is {@code ISO}.
+ *
+ * Each parser returns {@code null} for text that is not in the common
+ * form (e.g. BC dates or {@code 24:00:00}), leaving it to the general
+ * formatters.
+ */
+final class ISOParsers {
+
+  private static final int[] FRACTION_SCALES = {
+    0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1,
+  };
+
+  private final CharSequence text;
+  private int pos;
+
+  private ISOParsers(CharSequence text) {
+    this.text = text;
+  }
+
+  /**
+   * Parses {@code yyyy-mm-dd}.
+   */
+  static LocalDate parseDate(CharSequence text) {
+    try {
+      ISOParsers parser = new ISOParsers(text);
+      LocalDate date = parser.date();
+      return date != null && parser.atEnd() ? date : null;
+    }
+    catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Parses {@code hh:mm[:ss[.f]][+hh[:mm[:ss]]]}.
+   *
+   * @return {@link LocalTime} or {@link OffsetTime}.
+   */
+  static TemporalAccessor parseTime(CharSequence text) {
+    try {
+      ISOParsers parser = new ISOParsers(text);
+      LocalTime time = parser.time();
+      if (time == null || parser.atEnd()) {
+        return time;
+      }
+      ZoneOffset offset = parser.offset();
+      return offset != null && parser.atEnd() ? OffsetTime.of(time, offset) : null;
+    }
+    catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Parses {@code yyyy-mm-dd hh:mm[:ss[.f]][+hh[:mm[:ss]]]}.
+   *
+   * @return {@link LocalDateTime} or {@link OffsetDateTime}.
+   */
+  static TemporalAccessor parseTimestamp(CharSequence text) {
+    try {
+      ISOParsers parser = new ISOParsers(text);
+      LocalDate date = parser.date();
+      if (date == null || !parser.expect(' ')) {
+        return null;
+      }
+      LocalTime time = parser.time();
+      if (time == null) {
+        return null;
+      }
+      LocalDateTime dateTime = LocalDateTime.of(date, time);
+      if (parser.atEnd()) {
+        return dateTime;
+      }
+      ZoneOffset offset = parser.offset();
+      return offset != null && parser.atEnd() ? OffsetDateTime.of(dateTime, offset) : null;
+    }
+    catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  private LocalDate date() {
+
+    // Server years range from 4 to 6 digits
+    int year = digits(4);
+    for (int extra = 0; extra < 2 && year >= 0 && pos < text.length() && isDigit(text.charAt(pos)); ++extra) {
+      year = year * 10 + (text.charAt(pos++) - '0');
+    }
+    if (year < 1 || !expect('-')) {
+      return null;
+    }
+
+    int month = digits(2);
+    if (month < 0 || !expect('-')) {
+      return null;
+    }
+
+    int day = digits(2);
+    if (day < 0) {
+      return null;
+    }
+
+    return LocalDate.of(year, month, day);
+  }
+
+  private LocalTime time() {
+
+    int hour = digits(2);
+    if (hour < 0 || hour > 23 || !expect(':')) {
+      return null;
+    }
+
+    int minute = digits(2);
+    if (minute < 0) {
+      return null;
+    }
+
+    int second = 0;
+    int nano = 0;
+    if (expect(':')) {
+
+      second = digits(2);
+      if (second < 0) {
+        return null;
+      }
+
+      if (expect('.')) {
+        int start = pos;
+        int fraction = 0;
+        while (pos < text.length() && isDigit(text.charAt(pos))) {
+          fraction = fraction * 10 + (text.charAt(pos++) - '0');
+          if (pos - start >= FRACTION_SCALES.length) {
+            return null;
+          }
+        }
+        if (pos == start) {
+          return null;
+        }
+        nano = fraction * FRACTION_SCALES[pos - start];
+      }
+    }
+
+    return LocalTime.of(hour, minute, second, nano);
+  }
+
+  private ZoneOffset offset() {
+
+    char sign = text.charAt(pos++);
+    if (sign != '+' && sign != '-') {
+      return null;
+    }
+
+    int hours = digits(2);
+    if (hours < 0) {
+      return null;
+    }
+
+    int minutes = 0;
+    int seconds = 0;
+    if (expect(':')) {
+      minutes = digits(2);
+      if (minutes < 0) {
+        return null;
+      }
+      if (expect(':')) {
+        seconds = digits(2);
+        if (seconds < 0) {
+          return null;
+        }
+      }
+    }
+
+    int totalSeconds = (hours * 60 + minutes) * 60 + seconds;
+    return ZoneOffset.ofTotalSeconds(sign == '-' ? -totalSeconds : totalSeconds);
+  }
+
+  private int digits(int count) {
+
+    if (pos + count > text.length()) {
+      return -1;
+    }
+
+    int value = 0;
+    for (int end = pos + count; pos < end; ++pos) {
+      char ch = text.charAt(pos);
+      if (!isDigit(ch)) {
+        return -1;
+      }
+      value = value * 10 + (ch - '0');
+    }
+
+    return value;
+  }
+
+  private boolean expect(char ch) {
+    if (pos < text.length() && text.charAt(pos) == ch) {
+      ++pos;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean atEnd() {
+    return pos == text.length();
+  }
+
+  static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+}
@@ -122,6 +122,12 @@ public class ISOTimeFormat implements DateTimeFormat {
 
     @Override
     public TemporalAccessor parse(CharSequence time) {
+
+      TemporalAccessor parsed = ISOParsers.parseTime(time);
+      if (parsed != null) {
+        return parsed;
+      }
+
       return PARSE_FMT.parse(time);
     }
 
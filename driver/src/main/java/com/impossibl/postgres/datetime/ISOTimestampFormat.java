@@ -101,6 +101,11 @@ public class ISOTimestampFormat implements DateTimeFormat {
     @Override
     public TemporalAccessor parse(CharSequence text) {
 
+      TemporalAccessor parsed = ISOParsers.parseTimestamp(text);
+      if (parsed != null) {
+        return parsed;
+      }
+
       return FMT_ERA.parseBest(text, ZonedDateTime::from, OffsetDateTime::from, LocalDateTime::from);
     }
 
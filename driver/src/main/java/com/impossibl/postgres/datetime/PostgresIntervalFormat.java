@@ -30,6 +30,8 @@ package com.impossibl.postgres.datetime;
 
 import com.impossibl.postgres.api.data.Interval;
 
+import static com.impossibl.postgres.datetime.ISOParsers.isDigit;
+
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
@@ -41,11 +43,17 @@ import java.util.StringTokenizer;
 
 import static java.lang.Double.parseDouble;
 import static java.lang.Integer.parseInt;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class PostgresIntervalFormat implements IntervalFormat {
 
   private Interval parse(CharSequence chars) {
 
+    Interval interval = parseNonVerbose(chars);
+    if (interval != null) {
+      return interval;
+    }
+
     String value = chars.toString();
 
     boolean isVerbose = value.startsWith("@");
@@ -154,6 +162,129 @@ public class PostgresIntervalFormat implements IntervalFormat {
     return Interval.of(period, duration);
   }
 
+  private static final long MAX_HOURS = 2_000_000;
+
+  /**
+   * Parses the non-verbose form output by the server (e.g.
+   * {@code 1 year 2 mons -3 days +04:05:06.789}) without tokenizing.
+   *
+   * @return Parsed interval or {@code null} if the text is not in that form.
+   */
+  private static Interval parseNonVerbose(CharSequence chars) {
+
+    int years = 0;
+    int months = 0;
+    int days = 0;
+    long nanos = 0;
+
+    int length = chars.length();
+    int pos = 0;
+    while (pos < length) {
+
+      boolean negative = chars.charAt(pos) == '-';
+      if (negative || chars.charAt(pos) == '+') {
+        ++pos;
+      }
+
+      int start = pos;
+      long value = 0;
+      while (pos < length && isDigit(chars.charAt(pos))) {
+        value = value * 10 + (chars.charAt(pos++) - '0');
+        if (value > Integer.MAX_VALUE) {
+          return null;
+        }
+      }
+      if (pos == start || pos == length) {
+        return null;
+      }
+
+      if (chars.charAt(pos) == ':') {
+
+        // Time is always last, as hh:mm:ss[.f]
+        if (value > MAX_HOURS || pos + 6 > length || chars.charAt(pos + 3) != ':') {
+          return null;
+        }
+
+        int minutes = twoDigits(chars, pos + 1);
+        int seconds = twoDigits(chars, pos + 4);
+        if (minutes < 0 || seconds < 0) {
+          return null;
+        }
+        pos += 6;
+
+        long fraction = 0;
+        if (pos < length) {
+          if (chars.charAt(pos++) != '.' || pos == length || length - pos > 9) {
+            return null;
+          }
+          for (int digit = 0; digit < 9; ++digit, ++pos) {
+            if (pos < length && !isDigit(chars.charAt(pos))) {
+              return null;
+            }
+            fraction = fraction * 10 + (pos < length ? chars.charAt(pos) - '0' : 0);
+          }
+        }
+
+        nanos = SECONDS.toNanos(((value * 60) + minutes) * 60 + seconds) + fraction;
+        if (negative) {
+          nanos = -nanos;
+        }
+        break;
+      }
+
+      if (chars.charAt(pos++) != ' ') {
+        return null;
+      }
+
+      int unitStart = pos;
+      while (pos < length && chars.charAt(pos) != ' ') {
+        ++pos;
+      }
+
+      int signedValue = (int) (negative ? -value : value);
+      if (startsWith(chars, unitStart, pos, "year")) {
+        years = signedValue;
+      }
+      else if (startsWith(chars, unitStart, pos, "mon")) {
+        months = signedValue;
+      }
+      else if (startsWith(chars, unitStart, pos, "day")) {
+        days = signedValue;
+      }
+      else {
+        return null;
+      }
+
+      // Skip separator
+      if (pos < length) {
+        ++pos;
+      }
+    }
+
+    return Interval.of(Period.of(years, months, days), Duration.ofNanos(nanos));
+  }
+
+  private static int twoDigits(CharSequence chars, int pos) {
+    char tens = chars.charAt(pos);
+    char ones = chars.charAt(pos + 1);
+    if (!isDigit(tens) || !isDigit(ones)) {
+      return -1;
+    }
+    return (tens - '0') * 10 + (ones - '0');
+  }
+
+  private static boolean startsWith(CharSequence chars, int start, int end, String prefix) {
+    if (end - start < prefix.length()) {
+      return false;
+    }
+    for (int c = 0; c < prefix.length(); ++c) {
+      if (chars.charAt(start + c) != prefix.charAt(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private DecimalFormat secondsFormat = new DecimalFormat("0.00####", DecimalFormatSymbols.getInstance(Locale.ROOT));
 
   private String print(Interval interval) {
@@ -29,6 +29,8 @@
 package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.MetricsAggregate;
+import com.impossibl.postgres.system.MetricsMXBean;
 import com.impossibl.postgres.system.Setting;
 import com.impossibl.postgres.system.Settings;
 import com.impossibl.postgres.types.SharedRegistry;
@@ -71,6 +73,8 @@ import io.netty.channel.unix.DomainSocketAddress;
 public abstract class AbstractDataSource implements CommonDataSource {
 
   protected Settings settings = new Settings(DS, JDBC, SYS, PROTO);
+  private PGNotificationHub notificationHub;
+  private MetricsAggregate metrics;
 
   /**
    * Constructor
@@ -109,7 +113,7 @@ public abstract class AbstractDataSource implements CommonDataSource {
         throw new SQLException("Unsupported database URL");
       }
 
-      return connection;
+      return trackMetrics(connection);
     }
     else {
 
@@ -122,11 +126,69 @@ public abstract class AbstractDataSource implements CommonDataSource {
       // Strip DataSource specific settings
       settings.unsetAll(DS.getAllOwnedSettings());
 
-      return ConnectionUtil.createConnection(connSpec.getAddresses(), settings, sharedRegistryFactory);
+      return trackMetrics(ConnectionUtil.createConnection(connSpec.getAddresses(), settings, sharedRegistryFactory));
     }
 
   }
 
+  private synchronized PGDirectConnection trackMetrics(PGDirectConnection connection) {
+
+    if (connection.metrics != null) {
+
+      if (metrics == null) {
+        String name = settings.get(DATASOURCE_NAME);
+        if (name == null) {
+          name = connection.getSetting(DATABASE_URL);
+        }
+        metrics = new MetricsAggregate();
+        MetricsBeans.register("DataSource", name, metrics);
+      }
+
+      metrics.add(connection.metrics);
+    }
+
+    return connection;
+  }
+
+  /**
+   * Metrics totalled across all connections created by this DataSource,
+   * available when the {@code metrics} setting is enabled.
+   *
+   * @return DataSource metrics or {@code null} if no connection has
+   *         collected metrics
+   */
+  public synchronized MetricsMXBean getMetricsTotals() {
+    return metrics;
+  }
+
+  /**
+   * Retrieves the notification hub shared by all users of this DataSource.
+   *
+   * The hub is created on first access and opens its connection, using the
+   * DataSource's configured credentials, when the first listener is added.
+   * It is closed along with a {@link PGPoolingDataSource}; for other
+   * DataSources, which have no lifecycle, the caller owns the hub and must
+   * close it when it is no longer needed.
+   *
+   * @return The notification hub
+   */
+  public synchronized PGNotificationHub getNotificationHub() {
+    if (notificationHub == null) {
+      notificationHub = new PGNotificationHub(() -> createConnection(settings.get(CREDENTIALS_USERNAME), settings.get(CREDENTIALS_PASSWORD)));
+    }
+    return notificationHub;
+  }
+
+  /**
+   * Closes the notification hub, if one has been created. Later requests
+   * for the hub return the closed hub.
+   */
+  protected synchronized void closeNotificationHub() {
+    if (notificationHub != null) {
+      notificationHub.close();
+    }
+  }
+
   static ConnectionUtil.ConnectionSpecifier  buildConnectionSpecifier(Settings settings) throws SQLException {
 
     ConnectionUtil.ConnectionSpecifier connSpec = new ConnectionUtil.ConnectionSpecifier();
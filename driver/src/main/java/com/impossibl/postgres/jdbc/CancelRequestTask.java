@@ -29,6 +29,9 @@
 package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.protocol.ServerConnection;
+import com.impossibl.postgres.system.Metrics;
+
+import static com.impossibl.postgres.system.Metrics.Counter.CANCELS;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
@@ -48,14 +51,19 @@ public class CancelRequestTask extends ExecutionTimerTask {
 
   private SocketAddress serverAddress;
   private ServerConnection.KeyData keyData;
+  private Metrics metrics;
 
-  CancelRequestTask(SocketAddress serverAddress, ServerConnection.KeyData keyData) {
+  CancelRequestTask(SocketAddress serverAddress, ServerConnection.KeyData keyData, Metrics metrics) {
     this.serverAddress = serverAddress;
     this.keyData = keyData;
+    this.metrics = metrics;
   }
 
   @Override
   public void go() {
+    if (metrics != null) {
+      metrics.increment(CANCELS);
+    }
     sendCancelRequest();
   }
 
@@ -0,0 +1,528 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+
+/**
+ * Pool of {@link PGPooledConnection}s backing {@link PGPoolingDataSource}.
+ *
+ * Borrowing is lock free. A thread first tries the connection it last
+ * returned, then scans the pool and finally waits for a connection to
+ * be handed off directly by a returning thread or the background
+ * creator.
+ *
+ * Connections are created &amp; closed by each pool's own background
+ * threads, so a slow or unreachable server cannot stall other pools.
+ * Idle connections are evicted &amp; retired by a shared housekeeping
+ * thread, which only references the pool weakly; a pool that is
+ * abandoned without being closed stops being housekept once it is
+ * collected.
+ *
+ * Connections are validated using the channel state &amp; transaction
+ * status the driver already tracks, so borrowing never costs a round
+ * trip to the server.
+ */
+class ConnectionPool implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+  private static final long MAX_HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+  private static final long MIN_HOUSEKEEPING_PERIOD_MILLIS = 10;
+  private static final long MAX_WAIT_SLICE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final int IDLE = 0;
+  private static final int IN_USE = 1;
+  private static final int REMOVED = 2;
+
+  interface ConnectionFactory {
+    PGPooledConnection create() throws SQLException;
+  }
+
+  private static ScheduledThreadPoolExecutor housekeeper;
+
+  private static synchronized ScheduledThreadPoolExecutor getHousekeeper() {
+    if (housekeeper == null) {
+      housekeeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "PG-JDBC Pool Housekeeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      housekeeper.setKeepAliveTime(10, TimeUnit.SECONDS);
+      housekeeper.allowCoreThreadTimeOut(true);
+      housekeeper.setRemoveOnCancelPolicy(true);
+    }
+    return housekeeper;
+  }
+
+  /**
+   * Creates an executor whose threads are only kept while it is busy,
+   * so an abandoned pool needs no explicit shutdown.
+   */
+  private static ThreadPoolExecutor newWorkerExecutor(int threads, String name) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Housekeeping task that does not keep its pool reachable.
+   */
+  private static final class Housekeeping implements Runnable {
+
+    private final WeakReference<ConnectionPool> poolRef;
+
+    Housekeeping(ConnectionPool pool) {
+      this.poolRef = new WeakReference<>(pool);
+    }
+
+    @Override
+    public void run() {
+      ConnectionPool pool = poolRef.get();
+      if (pool == null) {
+        // Pool was abandoned without being closed, failing suppresses further runs
+        throw new CancellationException();
+      }
+      pool.housekeep();
+    }
+
+  }
+
+  private final class Entry implements ConnectionEventListener {
+
+    final PGPooledConnection pooledConnection;
+    final PGDirectConnection connection;
+    final AtomicInteger state = new AtomicInteger(IN_USE);
+    final long createdNanos = System.nanoTime();
+    volatile long lastReturnedNanos = createdNanos;
+
+    Entry(PGPooledConnection pooledConnection) {
+      this.pooledConnection = pooledConnection;
+      this.connection = pooledConnection.getPhysicalConnection();
+      pooledConnection.addConnectionEventListener(this);
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+      release(this);
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+      remove(this);
+    }
+
+  }
+
+  private final ConnectionFactory factory;
+  private final int maxSize;
+  private final int minIdle;
+  private final long idleTimeoutNanos;
+  private final long maxLifetimeNanos;
+  private final CopyOnWriteArrayList<Entry> entries = new CopyOnWriteArrayList<>();
+  private final AtomicInteger total = new AtomicInteger();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final SynchronousQueue<Entry> handoff = new SynchronousQueue<>(true);
+  private final ThreadLocal<WeakReference<Entry>> lastReturned = new ThreadLocal<>();
+  private final ThreadPoolExecutor creator;
+  private final ThreadPoolExecutor closer;
+  private final ScheduledFuture<?> housekeeping;
+  private volatile SQLException lastCreateError;
+  private volatile boolean closed;
+
+  ConnectionPool(ConnectionFactory factory, int maxSize, int minIdle, long idleTimeoutMillis, long maxLifetimeMillis) {
+    this.factory = factory;
+    this.maxSize = maxSize;
+    this.minIdle = min(minIdle, maxSize);
+    this.idleTimeoutNanos = MILLISECONDS.toNanos(idleTimeoutMillis);
+    this.maxLifetimeNanos = MILLISECONDS.toNanos(maxLifetimeMillis);
+
+    long period = MAX_HOUSEKEEPING_PERIOD_MILLIS;
+    if (idleTimeoutMillis > 0) {
+      period = min(period, idleTimeoutMillis / 2);
+    }
+    if (maxLifetimeMillis > 0) {
+      period = min(period, maxLifetimeMillis / 2);
+    }
+    period = max(period, MIN_HOUSEKEEPING_PERIOD_MILLIS);
+
+    // Creation may block up to the connect timeout, allow filling the pool concurrently
+    this.creator = newWorkerExecutor(maxSize, "PG-JDBC Pool Creator");
+    this.closer = newWorkerExecutor(1, "PG-JDBC Pool Closer");
+    this.housekeeping = getHousekeeper().scheduleWithFixedDelay(new Housekeeping(this), period, period, MILLISECONDS);
+
+    fillIdle();
+  }
+
+  int getTotalCount() {
+    return entries.size();
+  }
+
+  int getIdleCount() {
+    return countState(IDLE);
+  }
+
+  int getActiveCount() {
+    return countState(IN_USE);
+  }
+
+  int getWaitingCount() {
+    return waiters.get();
+  }
+
+  private int countState(int state) {
+    int count = 0;
+    for (Entry entry : entries) {
+      if (entry.state.get() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Borrows a connection from the pool.
+   *
+   * @param timeoutMillis Maximum time to wait for a connection; zero waits indefinitely
+   * @return Logical connection that returns to the pool when closed
+   * @throws SQLException If the pool is closed or no connection became available in time
+   */
+  Connection borrow(long timeoutMillis) throws SQLException {
+    checkOpen();
+
+    // Fast path, connection last returned by this thread
+    WeakReference<Entry> lastRef = lastReturned.get();
+    if (lastRef != null) {
+      Entry entry = lastRef.get();
+      if (entry != null && entry.state.compareAndSet(IDLE, IN_USE)) {
+        Connection connection = checkout(entry);
+        if (connection != null) {
+          return connection;
+        }
+      }
+    }
+
+    long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+
+    waiters.incrementAndGet();
+    try {
+
+      while (true) {
+
+        for (Entry entry : entries) {
+          if (entry.state.compareAndSet(IDLE, IN_USE)) {
+            Connection connection = checkout(entry);
+            if (connection != null) {
+              return connection;
+            }
+          }
+        }
+
+        if (waiters.get() > pending.get()) {
+          requestConnection();
+        }
+
+        long remaining = timeoutMillis == 0 ? MAX_WAIT_SLICE_NANOS : deadline - System.nanoTime();
+        if (remaining <= 0) {
+          break;
+        }
+
+        Entry entry = handoff.poll(min(remaining, MAX_WAIT_SLICE_NANOS), NANOSECONDS);
+        if (entry != null && entry.state.compareAndSet(IDLE, IN_USE)) {
+          Connection connection = checkout(entry);
+          if (connection != null) {
+            return connection;
+          }
+        }
+
+        checkOpen();
+      }
+
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PGSQLSimpleException("Interrupted waiting for a pooled connection", "08001");
+    }
+    finally {
+      waiters.decrementAndGet();
+    }
+
+    throw new SQLTimeoutException("Timed out waiting for a pooled connection", "08001", lastCreateError);
+  }
+
+  private void checkOpen() throws SQLException {
+    if (closed) {
+      throw new PGSQLSimpleException("Connection pool has been closed", "08003");
+    }
+  }
+
+  /**
+   * Validates a reserved entry and opens a logical connection on it,
+   * removing the entry when it is no longer usable.
+   */
+  private Connection checkout(Entry entry) {
+    if (isUsable(entry, System.nanoTime())) {
+      try {
+        return entry.pooledConnection.getConnection();
+      }
+      catch (SQLException e) {
+        logger.log(Level.FINE, "Unable to open pooled connection", e);
+      }
+    }
+    remove(entry);
+    return null;
+  }
+
+  private boolean isUsable(Entry entry, long now) {
+    if (maxLifetimeNanos > 0 && now - entry.createdNanos > maxLifetimeNanos) {
+      return false;
+    }
+    if (entry.connection.isClosed()) {
+      return false;
+    }
+    try {
+      return entry.connection.getTransactionStatus() == Idle;
+    }
+    catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns an entry whose logical connection was closed to the pool.
+   */
+  private void release(Entry entry) {
+    if (entry.state.get() != IN_USE) {
+      return;
+    }
+
+    if (closed || !reset(entry) || !isUsable(entry, System.nanoTime())) {
+      remove(entry);
+      return;
+    }
+
+    WeakReference<Entry> lastRef = lastReturned.get();
+    if (lastRef == null || lastRef.get() != entry) {
+      lastReturned.set(new WeakReference<>(entry));
+    }
+
+    offer(entry);
+  }
+
+  /**
+   * Rolls back any transaction left open on the physical connection
+   * (e.g. one started with an explicit {@code BEGIN} in auto-commit mode).
+   */
+  private boolean reset(Entry entry) {
+    PGDirectConnection connection = entry.connection;
+    if (connection.isClosed()) {
+      return false;
+    }
+    try {
+      if (connection.getTransactionStatus() != Idle) {
+        connection.execute("@TR");
+      }
+      return true;
+    }
+    catch (SQLException e) {
+      logger.log(Level.FINE, "Unable to reset pooled connection", e);
+      return false;
+    }
+  }
+
+  /**
+   * Marks an entry idle and, if any threads are waiting, hands it
+   * off directly to one of them.
+   */
+  private void offer(Entry entry) {
+    entry.lastReturnedNanos = System.nanoTime();
+    entry.state.set(IDLE);
+
+    for (int spins = 1; waiters.get() > 0; ++spins) {
+      if (entry.state.get() != IDLE || handoff.offer(entry)) {
+        return;
+      }
+      if ((spins & 0xff) == 0) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      }
+      else {
+        Thread.yield();
+      }
+    }
+  }
+
+  private void remove(Entry entry) {
+    if (entry.state.getAndSet(REMOVED) == REMOVED) {
+      return;
+    }
+
+    entries.remove(entry);
+    total.decrementAndGet();
+
+    entry.pooledConnection.removeConnectionEventListener(entry);
+    closer.execute(() -> closeQuietly(entry));
+
+    if (!closed && waiters.get() > pending.get()) {
+      requestConnection();
+    }
+  }
+
+  private static void closeQuietly(Entry entry) {
+    try {
+      entry.pooledConnection.close();
+    }
+    catch (SQLException e) {
+      entry.connection.close();
+    }
+  }
+
+  /**
+   * Starts creating a connection in the background if the pool has
+   * capacity for it.
+   */
+  private void requestConnection() {
+    while (true) {
+      int current = total.get();
+      if (closed || current >= maxSize) {
+        return;
+      }
+      if (total.compareAndSet(current, current + 1)) {
+        break;
+      }
+    }
+
+    pending.incrementAndGet();
+    creator.execute(this::createConnection);
+  }
+
+  private void createConnection() {
+    Entry entry = null;
+    try {
+      if (!closed) {
+        entry = new Entry(factory.create());
+        lastCreateError = null;
+      }
+    }
+    catch (SQLException e) {
+      lastCreateError = e;
+      if (!closed) {
+        logger.log(Level.WARNING, "Unable to create pooled connection", e);
+      }
+    }
+    finally {
+      pending.decrementAndGet();
+    }
+
+    if (entry == null) {
+      total.decrementAndGet();
+      return;
+    }
+
+    entries.add(entry);
+
+    if (closed) {
+      remove(entry);
+      return;
+    }
+
+    offer(entry);
+  }
+
+  private void housekeep() {
+    long now = System.nanoTime();
+
+    for (Entry entry : entries) {
+      if (entry.state.get() != IDLE) {
+        continue;
+      }
+
+      boolean evict = !isUsable(entry, now) ||
+          (idleTimeoutNanos > 0 && now - entry.lastReturnedNanos > idleTimeoutNanos && total.get() > minIdle);
+
+      if (evict && entry.state.compareAndSet(IDLE, IN_USE)) {
+        remove(entry);
+      }
+    }
+
+    fillIdle();
+  }
+
+  private void fillIdle() {
+    for (int idle = getIdleCount() + pending.get(); idle < minIdle && total.get() < maxSize; ++idle) {
+      requestConnection();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    housekeeping.cancel(false);
+
+    for (Entry entry : entries) {
+      if (entry.state.compareAndSet(IDLE, IN_USE)) {
+        remove(entry);
+      }
+    }
+  }
+
+}
@@ -34,6 +34,7 @@ import com.impossibl.postgres.types.SharedRegistry;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
 import static com.impossibl.postgres.jdbc.JDBCSettings.HOUSEKEEPER;
+import static com.impossibl.postgres.jdbc.JDBCSettings.HOUSEKEEPER_ALLOCATION_TRACE_SAMPLE_RATE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.JDBC;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_URL;
@@ -286,7 +287,7 @@ class ConnectionUtil {
     // Select housekeeper for connection
     Housekeeper.Ref housekeeper = null;
     if (settings.enabled(HOUSEKEEPER)) {
-      housekeeper = ThreadedHousekeeper.acquire();
+      housekeeper = ThreadedHousekeeper.acquire(settings.get(HOUSEKEEPER_ALLOCATION_TRACE_SAMPLE_RATE));
     }
 
     // Try to connect to each provided address in turn returning the first
@@ -99,6 +99,54 @@ public class DataSourceSettings {
   )
   public static final Setting<Integer> LOGIN_TIMEOUT = Setting.declare();
 
+  @Setting.Info(
+      desc = "Maximum number of physical connections held by a pooling data source.",
+      def = "10", min = 1,
+      name = "pool.size.max",
+      group = "jdbc-ds",
+      alternateNames = {"maxPoolSize"}
+  )
+  public static final Setting<Integer> POOL_SIZE_MAX = Setting.declare();
+
+  @Setting.Info(
+      desc = "Minimum number of idle connections a pooling data source maintains in the background.",
+      def = "0", min = 0,
+      name = "pool.idle.min",
+      group = "jdbc-ds",
+      alternateNames = {"minIdle"}
+  )
+  public static final Setting<Integer> POOL_IDLE_MIN = Setting.declare();
+
+  @Setting.Info(
+      desc = "Maximum time (in milliseconds) to wait for a pooled connection to become available.\n\n" +
+          "Value of zero waits indefinitely.",
+      def = "30000", min = 0,
+      name = "pool.borrow-timeout",
+      group = "jdbc-ds",
+      alternateNames = {"borrowTimeout"}
+  )
+  public static final Setting<Integer> POOL_BORROW_TIMEOUT = Setting.declare();
+
+  @Setting.Info(
+      desc = "Time (in milliseconds) after which an idle pooled connection above the `pool.idle.min` is closed.\n\n" +
+          "Value of zero disables idle eviction.",
+      def = "600000", min = 0,
+      name = "pool.idle-timeout",
+      group = "jdbc-ds",
+      alternateNames = {"idleTimeout"}
+  )
+  public static final Setting<Integer> POOL_IDLE_TIMEOUT = Setting.declare();
+
+  @Setting.Info(
+      desc = "Maximum lifetime (in milliseconds) of a pooled connection; connections are retired when next idle.\n\n" +
+          "Value of zero disables the limit.",
+      def = "1800000", min = 0,
+      name = "pool.max-lifetime",
+      group = "jdbc-ds",
+      alternateNames = {"maxLifetime"}
+  )
+  public static final Setting<Integer> POOL_MAX_LIFETIME = Setting.declare();
+
   static {
     DataSourceSettingsInit.init();
   }
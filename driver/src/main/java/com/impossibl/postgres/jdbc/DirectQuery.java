@@ -81,6 +81,11 @@ public class DirectQuery implements Query {
     return status;
   }
 
+  @Override
+  public String getPortalName() {
+    return portalName;
+  }
+
   @Override
   public Long getTimeout() {
     return timeout;
@@ -28,9 +28,16 @@
  */
 package com.impossibl.postgres.jdbc;
 
-
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+
 
 abstract class ExecutionTimerTask implements Runnable {
 
@@ -41,11 +48,44 @@ abstract class ExecutionTimerTask implements Runnable {
     Completed
   }
 
+  private static ExecutorService executor;
+
+  private static synchronized Executor getExecutor() {
+    if (executor == null) {
+      AtomicInteger idx = new AtomicInteger(1);
+      executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "PG-JDBC Timeouts (" + idx.getAndIncrement() + ")");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+
   private final AtomicReference<State> state = new AtomicReference<>(State.NotStarted);
   private Thread thread;
+  private volatile boolean run;
+
+  /**
+   * Schedules the task to run after the given delay. Expired tasks are
+   * handed off to an executor, so a slow task never delays the timer.
+   *
+   * @return Timeout handle used to cancel the scheduled run
+   */
+  Timeout schedule(Timer timer, long delay, TimeUnit unit) {
+    return timer.newTimeout(timeout -> getExecutor().execute(this), delay, unit);
+  }
 
   protected abstract void go();
 
+  /**
+   * @return {@code true} if the task started running, i.e. was not
+   * cancelled before its delay expired.
+   */
+  boolean hasRun() {
+    return run;
+  }
+
   boolean isCancelled() {
     return state.get() != State.Running || thread.isInterrupted();
   }
@@ -60,6 +100,8 @@ abstract class ExecutionTimerTask implements Runnable {
       if (!state.compareAndSet(State.NotStarted, State.Running))
         return;
 
+      run = true;
+
       go();
 
     }
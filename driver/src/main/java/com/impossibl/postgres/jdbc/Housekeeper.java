@@ -41,6 +41,15 @@ public interface Housekeeper {
 
     void remove(Object cleanupKey);
 
+    /**
+     * Captures the current stack as the allocation site of a tracked
+     * reference, subject to the sampling policy of this reference. The
+     * captured stack is only resolved to a trace if a leak is reported.
+     *
+     * @return Captured allocation site or {@code null} if not sampled
+     */
+    Throwable captureAllocationSite();
+
     void release();
 
   }
@@ -55,6 +64,9 @@ public interface Housekeeper {
 
     String getKind();
 
+    /**
+     * @return Allocation stack trace or {@code null} if it was not captured
+     */
     StackTraceElement[] getAllocationStackTrace();
 
   }
@@ -93,6 +93,43 @@ public class JDBCSettings {
   )
   public static final Setting<Integer> DEFAULT_NETWORK_TIMEOUT = Setting.declare();
 
+  public enum QueryTimeoutMode {
+
+    @Setting.Description(
+        "Query timeouts are enforced by the driver, which sends a cancel request over a new connection when a\n" +
+        "timeout expires."
+    )
+    CLIENT,
+
+    @Setting.Description(
+        "Query timeouts are enforced by the server. The driver sets <code>statement_timeout</code> in the same\n" +
+        "pipeline as the query, and only sends a cancel request if the server has not responded within the\n" +
+        "grace period (<code>query.timeout.cancel.grace</code>) after the timeout.\n\n" +
+        "NOTE: The driver manages the session's <code>statement_timeout</code> in this mode."
+    )
+    SERVER,
+  }
+
+  @Setting.Info(
+      desc = "Selects how query timeouts are enforced.",
+      def = "client",
+      name = "query.timeout.mode",
+      group = "jdbc",
+      alternateNames = "queryTimeoutMode"
+  )
+  public static final Setting<QueryTimeoutMode> QUERY_TIMEOUT_MODE = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Time, in milliseconds, after a query's timeout before a cancel request is sent when query timeouts\n" +
+          "are enforced by the server (`query.timeout.mode` is `server`).",
+      def = "2000", min = 0,
+      name = "query.timeout.cancel.grace",
+      group = "jdbc",
+      alternateNames = "queryTimeoutCancelGrace"
+  )
+  public static final Setting<Integer> QUERY_TIMEOUT_CANCEL_GRACE = Setting.declare();
+
   @Setting.Info(
       desc = "Enable or disable strict adherence to JDBC specification.\n\n" +
           "Affected behavior when disabled:\n" +
@@ -132,6 +169,18 @@ public class JDBCSettings {
   )
   public static final Setting<Boolean> HOUSEKEEPER = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Captures the allocation site of 1 in N objects tracked by the housekeeper, reported when\n" +
+          "the object is leaked. Once any leak is detected all allocation sites are captured.\n" +
+          "Zero disables allocation site capture.",
+      def = "1",
+      min = 0,
+      name = "housekeeper.allocation-trace.sample-rate",
+      group = "jdbc"
+  )
+  public static final Setting<Integer> HOUSEKEEPER_ALLOCATION_TRACE_SAMPLE_RATE = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables sharing type registries between connections.",
       def = "true",
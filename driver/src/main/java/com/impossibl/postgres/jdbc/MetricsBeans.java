@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.system.MetricsMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registration of metrics MBeans with the platform MBean server.
+ *
+ * Beans are registered under the {@code com.impossibl.postgres} domain
+ * with a {@code type} key of {@code Connection} or {@code DataSource}.
+ */
+class MetricsBeans {
+
+  private static final Logger logger = Logger.getLogger(MetricsBeans.class.getName());
+
+  static final String DOMAIN = "com.impossibl.postgres";
+
+  private static final AtomicLong ids = new AtomicLong();
+
+  /**
+   * Registers the given metrics.
+   *
+   * Names that are database URLs are published without their query
+   * parameters or user info, as they may contain credentials.
+   *
+   * @param type Type of object being measured
+   * @param name Descriptive name of object being measured
+   * @param metrics Metrics to register
+   * @return Registered name or {@code null} if registration failed
+   */
+  static ObjectName register(String type, String name, MetricsMXBean metrics) {
+
+    try {
+      ObjectName objectName =
+          new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(stripCredentials(name)) + ",id=" + ids.incrementAndGet());
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+      return objectName;
+    }
+    catch (JMException e) {
+      logger.log(Level.WARNING, "Unable to register metrics MBean", e);
+      return null;
+    }
+  }
+
+  static String stripCredentials(String name) {
+
+    if (name == null || !name.startsWith("jdbc:")) {
+      return name;
+    }
+
+    int paramsIdx = name.indexOf('?');
+    if (paramsIdx != -1) {
+      name = name.substring(0, paramsIdx);
+    }
+
+    int authorityIdx = name.indexOf("//");
+    if (authorityIdx != -1) {
+      authorityIdx += 2;
+      int pathIdx = name.indexOf('/', authorityIdx);
+      int userInfoEndIdx = name.lastIndexOf('@', pathIdx != -1 ? pathIdx : name.length());
+      if (userInfoEndIdx >= authorityIdx) {
+        name = name.substring(0, authorityIdx) + name.substring(userInfoEndIdx + 1);
+      }
+    }
+
+    return name;
+  }
+
+  static void unregister(ObjectName objectName) {
+
+    if (objectName == null) {
+      return;
+    }
+
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+    catch (JMException e) {
+      // Already unregistered...
+    }
+  }
+
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+
+/**
+ * Matches asynchronous notifications to registered listeners and delivers them
+ * via an executor.
+ *
+ * Listeners with a literal channel name filter are indexed by channel name,
+ * only listeners with actual regular expression filters are matched by
+ * pattern. Each listener has its own queue, guaranteeing ordered delivery to
+ * the listener; a burst of notifications is delivered in batches by a single
+ * executor task instead of one task per notification.
+ */
+class NotificationDispatcher {
+
+  private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+  private static final int MAX_BATCH_SIZE = 256;
+  private static final String PATTERN_CHARS = "\\^$.|?*+()[]{}";
+
+  private static ExecutorService defaultExecutor;
+
+  static synchronized Executor getDefaultExecutor() {
+    if (defaultExecutor == null) {
+      AtomicInteger idx = new AtomicInteger(1);
+      defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "PG-JDBC Notifications (" + idx.getAndIncrement() + ")");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return defaultExecutor;
+  }
+
+  private volatile Executor executor;
+  private volatile Registrations registrations;
+
+  NotificationDispatcher() {
+    this.executor = getDefaultExecutor();
+    this.registrations = new Registrations();
+  }
+
+  void setExecutor(Executor executor) {
+    this.executor = executor != null ? executor : getDefaultExecutor();
+  }
+
+  boolean isEmpty() {
+    return registrations.all.isEmpty();
+  }
+
+  synchronized void add(String name, String channelNameFilter, PGNotificationListener listener) {
+
+    Registration registration = new Registration(name, channelNameFilter, listener);
+
+    Registrations updated = registrations.copy();
+    updated.add(registration);
+    registrations = updated;
+  }
+
+  synchronized void remove(Predicate<Registration> predicate) {
+
+    Registrations updated = new Registrations();
+    for (Registration registration : registrations.all) {
+      if (predicate.test(registration)) {
+        registration.removed = true;
+      }
+      else {
+        updated.add(registration);
+      }
+    }
+    registrations = updated;
+  }
+
+  void removeAll(String name) {
+    remove(registration -> registration.name.equals(name));
+  }
+
+  void removeAll(PGNotificationListener listener) {
+    remove(registration -> registration.listener.equals(listener));
+  }
+
+  /**
+   * Queues the notification for delivery to all matching listeners.
+   *
+   * Called on the connection's I/O thread; matching and queueing are the only
+   * work performed before returning.
+   */
+  void dispatch(int processId, String channelName, String payload) {
+
+    Registrations current = registrations;
+
+    Notification notification = null;
+
+    List<Registration> named = current.byChannelName.get(channelName);
+    if (named != null) {
+      notification = new Notification(processId, channelName, payload);
+      for (Registration registration : named) {
+        registration.enqueue(notification);
+      }
+    }
+
+    for (Registration registration : current.unfiltered) {
+      if (notification == null) {
+        notification = new Notification(processId, channelName, payload);
+      }
+      registration.enqueue(notification);
+    }
+
+    for (Registration registration : current.patterned) {
+      if (registration.channelNamePattern.matcher(channelName).matches()) {
+        if (notification == null) {
+          notification = new Notification(processId, channelName, payload);
+        }
+        registration.enqueue(notification);
+      }
+    }
+
+  }
+
+  /**
+   * Queues a closed report, delivered after any pending notifications, to
+   * all listeners and then removes all listeners.
+   */
+  synchronized void close() {
+
+    for (Registration registration : registrations.all) {
+      registration.enqueue(Notification.CLOSED);
+    }
+
+    registrations = new Registrations();
+  }
+
+  private static boolean isLiteral(String channelNameFilter) {
+    for (int c = 0; c < channelNameFilter.length(); ++c) {
+      if (PATTERN_CHARS.indexOf(channelNameFilter.charAt(c)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Immutable (once published) set of registrations and their indexes.
+   */
+  private static class Registrations {
+
+    List<Registration> all = new ArrayList<>();
+    Map<String, List<Registration>> byChannelName = new HashMap<>();
+    List<Registration> unfiltered = new ArrayList<>();
+    List<Registration> patterned = new ArrayList<>();
+
+    Registrations copy() {
+      Registrations copy = new Registrations();
+      all.forEach(copy::add);
+      return copy;
+    }
+
+    void add(Registration registration) {
+      all.add(registration);
+      if (registration.channelName != null) {
+        byChannelName.computeIfAbsent(registration.channelName, key -> new ArrayList<>(1)).add(registration);
+      }
+      else if (registration.channelNamePattern != null) {
+        patterned.add(registration);
+      }
+      else {
+        unfiltered.add(registration);
+      }
+    }
+
+  }
+
+  private static class Notification {
+
+    static final Notification CLOSED = new Notification(0, null, null);
+
+    int processId;
+    String channelName;
+    String payload;
+
+    Notification(int processId, String channelName, String payload) {
+      this.processId = processId;
+      this.channelName = channelName;
+      this.payload = payload;
+    }
+
+  }
+
+  class Registration implements Runnable {
+
+    String name;
+    String channelName;
+    Pattern channelNamePattern;
+    PGNotificationListener listener;
+    private Queue<Notification> queue;
+    private AtomicBoolean scheduled;
+    private volatile boolean removed;
+
+    Registration(String name, String channelNameFilter, PGNotificationListener listener) {
+      this.name = name;
+      this.listener = listener;
+      this.queue = new ConcurrentLinkedQueue<>();
+      this.scheduled = new AtomicBoolean();
+
+      if (channelNameFilter == null || channelNameFilter.equals(".*")) {
+        this.channelName = null;
+        this.channelNamePattern = null;
+      }
+      else if (isLiteral(channelNameFilter)) {
+        this.channelName = channelNameFilter;
+        this.channelNamePattern = null;
+      }
+      else {
+        this.channelName = null;
+        this.channelNamePattern = Pattern.compile(channelNameFilter);
+      }
+    }
+
+    void enqueue(Notification notification) {
+      queue.offer(notification);
+      schedule();
+    }
+
+    private void schedule() {
+      if (!scheduled.compareAndSet(false, true)) return;
+
+      try {
+        executor.execute(this);
+      }
+      catch (Throwable t) {
+        scheduled.set(false);
+        logger.log(Level.WARNING, "Unable to schedule notification delivery", t);
+      }
+    }
+
+    @Override
+    public void run() {
+
+      for (int delivered = 0; delivered < MAX_BATCH_SIZE; ++delivered) {
+
+        Notification notification = queue.poll();
+        if (notification == null) {
+          break;
+        }
+
+        if (removed) {
+          queue.clear();
+          break;
+        }
+
+        deliver(notification);
+      }
+
+      scheduled.set(false);
+
+      // Reschedule if notifications remain (or arrived after draining)
+      if (!queue.isEmpty()) {
+        schedule();
+      }
+    }
+
+    private void deliver(Notification notification) {
+      try {
+        if (notification == Notification.CLOSED) {
+          listener.closed();
+        }
+        else {
+          listener.notification(notification.processId, notification.channelName, notification.payload);
+        }
+      }
+      catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception in connection listener", t);
+      }
+    }
+
+  }
+
+}
@@ -33,6 +33,7 @@ import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.procs.PrimitiveArrays;
 import com.impossibl.postgres.types.ArrayType;
 import com.impossibl.postgres.types.NestedArrayType;
 import com.impossibl.postgres.types.Registry;
@@ -66,6 +67,9 @@ public class PGBuffersArray extends PGArray {
 
   private FieldFormat elementFormat;
   private ByteBuf[] elementBuffers;
+  private ByteBuf elementData;
+  private int[] elementPositions;
+  private int elementStride;
   private int[] dimensions;
   private Class<?> sourceArrayType;
 
@@ -73,6 +77,32 @@ public class PGBuffersArray extends PGArray {
     this(context, type, elementFormat, elementBuffers, dimensions, null);
   }
 
+  /**
+   * Creates an array over the length prefixed, binary formatted elements of
+   * an array value (i.e. the section of the binary array format following
+   * the dimensions).
+   *
+   * Elements are not sliced or decoded up front; only the elements requested
+   * are decoded. Fixed width elements (see {@link PrimitiveArrays}) without
+   * {@code NULL}s are located arithmetically, otherwise an index of element
+   * positions is built on first access.
+   *
+   * @param elementData Element data, ownership is transferred to the array.
+   * @param hasNulls Whether any element may be {@code NULL}.
+   */
+  public PGBuffersArray(Context context, ArrayType type, ByteBuf elementData, int[] dimensions, boolean hasNulls) {
+    super(context, type);
+    this.elementFormat = FieldFormat.Binary;
+    this.elementData = elementData;
+    this.dimensions = dimensions;
+
+    // Catalog lengths (e.g. name's 64) don't always match the binary width
+    int elementWidth = PrimitiveArrays.elementWidth(type.getElementType());
+    if (!hasNulls && elementWidth > 0) {
+      this.elementStride = 4 + elementWidth;
+    }
+  }
+
   private PGBuffersArray(Context context, ArrayType type, FieldFormat elementFormat, ByteBuf[] elementBuffers, int[] dimensions, Class<?> sourceArrayType) {
     super(context, type);
     this.elementFormat = elementFormat;
@@ -146,6 +176,48 @@ public class PGBuffersArray extends PGArray {
     return dimensions[0];
   }
 
+  private int[] getElementPositions() {
+
+    if (elementPositions == null) {
+
+      int[] positions = new int[strideOfDimensions(dimensions)];
+
+      int position = elementData.readerIndex();
+      for (int c = 0; c < positions.length; ++c) {
+        positions[c] = position;
+        position += 4 + Math.max(elementData.getInt(position), 0);
+      }
+
+      elementPositions = positions;
+    }
+
+    return elementPositions;
+  }
+
+  private int getElementPosition(int elementIdx) {
+
+    if (elementStride != 0 || elementIdx == 0) {
+      return elementData.readerIndex() + elementIdx * elementStride;
+    }
+
+    return getElementPositions()[elementIdx];
+  }
+
+  private ByteBuf getElementBuffer(int elementIdx) {
+
+    if (elementBuffers != null) {
+      return elementBuffers[elementIdx];
+    }
+
+    int position = getElementPosition(elementIdx);
+    int length = elementData.getInt(position);
+    if (length == -1) {
+      return null;
+    }
+
+    return elementData.slice(position + 4, length);
+  }
+
   @Override
   protected Object getArray(Context context, Class<?> targetComponentType, long index, int count) throws SQLException {
 
@@ -165,13 +237,17 @@ public class PGBuffersArray extends PGArray {
     }
 
     try {
-      return getArray(context, targetComponentType, dimensions, offset, count);
+      return getArray(context, targetComponentType, dimensions, offset * strideOfDimensions(dimensions, 1), count);
     }
     catch (IOException e) {
       throw new SQLException(e);
     }
   }
 
+  /**
+   * @param offset Index of the first element of the slice, in elements of
+   *               the fully flattened array.
+   */
   private Object getArray(Context context, Class<?> targetComponentType, int[] dimensions, int offset, int count) throws IOException {
 
     Object result;
@@ -199,6 +275,20 @@ public class PGBuffersArray extends PGArray {
       // Handle arrays of elements
 
       Type componentType = type.getElementType();
+
+      if (targetComponentType.isPrimitive() && elementFormat == FieldFormat.Binary) {
+        if (elementBuffers != null) {
+          result = PrimitiveArrays.decode(componentType, targetComponentType, elementBuffers, offset, count);
+        }
+        else {
+          int start = getElementPosition(offset);
+          result = PrimitiveArrays.decode(componentType, targetComponentType, elementData.slice(start, elementData.writerIndex() - start), count);
+        }
+        if (result != null) {
+          return result;
+        }
+      }
+
       result = Array.newInstance(targetComponentType, count);
 
       targetComponentType = boxType(targetComponentType);
@@ -206,7 +296,7 @@ public class PGBuffersArray extends PGArray {
       for (int c = 0; c < count; ++c) {
         Object element = null;
 
-        ByteBuf elementBuffer = elementBuffers[offset + c];
+        ByteBuf elementBuffer = getElementBuffer(offset + c);
         if (elementBuffer != null) {
           switch (elementFormat) {
             case Text: {
@@ -269,15 +359,25 @@ public class PGBuffersArray extends PGArray {
       ByteBuf indexBuffer = byteBufAllocator.buffer(4).writeInt(offset + c + 1);
 
       ByteBuf elementBuffer;
-      if (stride > 1) {
+      if (stride > 1 && elementBuffers == null) {
+        // Sub-arrays are contiguous runs of length prefixed elements
+        int start = getElementPosition((offset + c) * stride);
+        int lastPosition = getElementPosition(((offset + c + 1) * stride) - 1);
+        int end = lastPosition + 4 + Math.max(elementData.getInt(lastPosition), 0);
+        elementBuffer = elementData.retainedSlice(start, end - start);
+      }
+      else if (stride > 1) {
         CompositeByteBuf compElementBuffer = byteBufAllocator.compositeBuffer(stride);
         for (int s = 0; s < stride; ++s) {
-          compElementBuffer.addComponent(elementBuffers[((offset + c) * stride) + s].retainedDuplicate());
+          compElementBuffer.addComponent(getElementBuffer(((offset + c) * stride) + s).retainedDuplicate());
         }
         elementBuffer = compElementBuffer;
       }
       else {
-        elementBuffer = elementBuffers[offset + c].retainedDuplicate();
+        elementBuffer = getElementBuffer(offset + c);
+        if (elementBuffer != null) {
+          elementBuffer = elementBuffer.retainedDuplicate();
+        }
       }
 
       results.add(new FieldBuffersRowData(new ByteBuf[] {indexBuffer, elementBuffer}, context.getAllocator()));
@@ -291,15 +391,20 @@ public class PGBuffersArray extends PGArray {
 
   @Override
   public void free() {
-    for (ByteBuf elementBuf : elementBuffers) {
-      ReferenceCountUtil.release(elementBuf);
+    if (elementBuffers != null) {
+      for (ByteBuf elementBuf : elementBuffers) {
+        ReferenceCountUtil.release(elementBuf);
+      }
     }
+    ReferenceCountUtil.release(elementData);
     this.context = null;
     this.type = null;
     this.elementFormat = null;
     this.dimensions = null;
     this.sourceArrayType = null;
     this.elementBuffers = null;
+    this.elementData = null;
+    this.elementPositions = null;
   }
 
 }
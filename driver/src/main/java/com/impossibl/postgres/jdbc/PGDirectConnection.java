@@ -31,7 +31,10 @@ package com.impossibl.postgres.jdbc;
 import com.impossibl.postgres.api.jdbc.PGAnyType;
 import com.impossibl.postgres.api.jdbc.PGConnection;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationStream;
 import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
+import com.impossibl.postgres.jdbc.JDBCSettings.QueryTimeoutMode;
 import com.impossibl.postgres.jdbc.SQLTextTree.ParameterPiece;
 import com.impossibl.postgres.jdbc.SQLTextTree.Processor;
 import com.impossibl.postgres.protocol.FieldFormatRef;
@@ -45,6 +48,7 @@ import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.ServerConnection;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.system.BasicContext;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.ParameterNames;
 import com.impossibl.postgres.system.Setting;
 import com.impossibl.postgres.system.Settings;
@@ -73,6 +77,8 @@ import static com.impossibl.postgres.jdbc.JDBCSettings.JDBC;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PARSED_SQL_CACHE_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_THRESHOLD;
+import static com.impossibl.postgres.jdbc.JDBCSettings.QUERY_TIMEOUT_CANCEL_GRACE;
+import static com.impossibl.postgres.jdbc.JDBCSettings.QUERY_TIMEOUT_MODE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.READ_ONLY;
 import static com.impossibl.postgres.jdbc.JDBCSettings.STRICT_MODE;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.appendReturningClause;
@@ -92,8 +98,13 @@ import static com.impossibl.postgres.jdbc.SQLTextUtils.isTrue;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.prependCursorDeclaration;
 import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
+import static com.impossibl.postgres.system.Metrics.Cache.DESCRIPTION;
+import static com.impossibl.postgres.system.Metrics.Cache.PARSED_SQL;
+import static com.impossibl.postgres.system.Metrics.Cache.PREPARED_STATEMENT;
+import static com.impossibl.postgres.system.Metrics.Counter.TIMEOUTS;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_URL;
 import static com.impossibl.postgres.system.SystemSettings.PROTO;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_REPLICATION_STATUS_INTERVAL;
 import static com.impossibl.postgres.system.SystemSettings.SERVER;
 import static com.impossibl.postgres.system.SystemSettings.STANDARD_CONFORMING_STRINGS;
 import static com.impossibl.postgres.system.SystemSettings.SYS;
@@ -138,11 +149,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 import static java.lang.String.format;
 import static java.sql.ClientInfoStatus.REASON_UNKNOWN;
@@ -157,8 +165,11 @@ import static java.util.Collections.unmodifiableMap;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import javax.management.ObjectName;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
+import io.netty.util.Timeout;
 
 import static io.netty.util.ReferenceCountUtil.release;
 
@@ -182,14 +193,16 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     ServerConnection serverConnection;
     Collection<WeakReference<PGStatement>> statements;
-    StackTraceElement[] allocationStackTrace;
+    Throwable allocationSite;
     String connectionInfo;
+    ObjectName metricsName;
 
-    private Cleanup(ServerConnection serverConnection, Collection<WeakReference<PGStatement>> statements, String connectionInfo) {
+    private Cleanup(ServerConnection serverConnection, Collection<WeakReference<PGStatement>> statements, String connectionInfo, ObjectName metricsName, Throwable allocationSite) {
       this.serverConnection = serverConnection;
       this.statements = statements;
-      this.allocationStackTrace = new Exception().getStackTrace();
+      this.allocationSite = allocationSite;
       this.connectionInfo = connectionInfo;
+      this.metricsName = metricsName;
     }
 
     @Override
@@ -199,7 +212,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     @Override
     public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
+      return allocationSite != null ? allocationSite.getStackTrace() : null;
     }
 
     @Override
@@ -208,6 +221,8 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       serverConnection.shutdown();
 
       closeStatements(statements);
+
+      MetricsBeans.unregister(metricsName);
     }
 
   }
@@ -219,14 +234,21 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   private int holdability;
   boolean autoCommit = true;
   private int networkTimeout;
+  private QueryTimeoutMode queryTimeoutMode;
+  private int queryTimeoutCancelGrace;
+  private Long sessionStatementTimeout = 0L;
+  private Long localStatementTimeout;
   private SQLWarning warningChain;
+  final Metrics metrics;
+  private ObjectName metricsName;
   private Collection<WeakReference<PGStatement>> activeStatements;
   private Map<StatementCacheKey, StatementDescription> descriptionCache;
   private Map<StatementCacheKey, PreparedStatementDescription> preparedStatementCache;
   private int preparedStatementCacheThreshold;
   private Map<StatementCacheKey, Integer> preparedStatementHeat;
   private Integer defaultFetchSize;
-  private Map<NotificationKey, PGNotificationListener> notificationListeners;
+  private NotificationDispatcher notificationDispatcher;
+  private SessionState sessionState;
   final Housekeeper.Ref housekeeper;
   private final Object cleanupKey;
 
@@ -237,18 +259,30 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     this.strict = getSetting(STRICT_MODE);
     this.networkTimeout = getSetting(DEFAULT_NETWORK_TIMEOUT);
+    this.queryTimeoutMode = getSetting(QUERY_TIMEOUT_MODE);
+    this.queryTimeoutCancelGrace = getSetting(QUERY_TIMEOUT_CANCEL_GRACE);
     this.activeStatements = new ConcurrentLinkedQueue<>();
-    this.notificationListeners = new ConcurrentHashMap<>();
+    this.notificationDispatcher = new NotificationDispatcher();
+
+    final Metrics metrics = getServerConnection().getMetrics();
+    this.metrics = metrics;
+    if (metrics != null) {
+      this.metricsName = MetricsBeans.register("Connection", getSetting(DATABASE_URL), metrics);
+    }
 
     final int descriptionCacheSize = getSetting(DESCRIPTION_CACHE_SIZE);
     if (descriptionCacheSize > 0) {
-      this.descriptionCache = synchronizedMap(new CacheMap<>(descriptionCacheSize, 1.1f, true));
+      this.descriptionCache = synchronizedMap(new CacheMap<>(descriptionCacheSize, 1.1f, true,
+          metrics != null ? eldest -> metrics.cacheEviction(DESCRIPTION) : null));
     }
 
     final int statementCacheSize = getSetting(PREPARED_STATEMENT_CACHE_SIZE);
     if (statementCacheSize > 0) {
       WeakReference<PGDirectConnection> weakThis = new WeakReference<>(this);
       preparedStatementCache = synchronizedMap(new CacheMap<>(statementCacheSize, 1.1f, true, eldest -> {
+        if (metrics != null) {
+          metrics.cacheEviction(PREPARED_STATEMENT);
+        }
         try {
           PGStatement.dispose(weakThis.get(), eldest.getValue().name);
         }
@@ -280,7 +314,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     this.housekeeper = housekeeper;
     if (this.housekeeper != null)
-      this.cleanupKey = this.housekeeper.add(this, new Cleanup(getServerConnection(), activeStatements, getSetting(DATABASE_URL)));
+      this.cleanupKey = this.housekeeper.add(this, new Cleanup(getServerConnection(), activeStatements, getSetting(DATABASE_URL), metricsName, this.housekeeper.captureAllocationSite()));
     else
       this.cleanupKey = null;
   }
@@ -426,22 +460,121 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     closeStatements(activeStatements);
   }
 
+  /**
+   * Enables tracking of the session state changed via this connection,
+   * allowing {@link #resetSessionState()} to revert it.
+   */
+  void enableSessionTracking() {
+    sessionState = new SessionState();
+  }
+
+  private SQLText trackSessionChanges(SQLText sqlText) {
+    if (sessionState != null) {
+      sessionState.track(sqlText, sqlText.getSessionChanges());
+    }
+    return sqlText;
+  }
+
+  private void trackSessionChange(int change) {
+    if (sessionState != null) {
+      sessionState.track(change);
+    }
+  }
+
+  /**
+   * Reverts the session state changed since tracking was enabled or the
+   * last reset. Only the tracked kinds of state are reset; a clean
+   * session costs nothing and prepared statements are always retained.
+   *
+   * @throws SQLException If an error occurs resetting the session
+   */
+  void resetSessionState() throws SQLException {
+
+    if (sessionState == null || !sessionState.isDirty() || getTransactionStatus() != Idle) {
+      return;
+    }
+
+    String resetSQL = sessionState.getResetSQL();
+    if (resetSQL != null) {
+      execute(resetSQL);
+    }
+
+    for (String name : sessionState.getPreparedStatementNames()) {
+      try {
+        execute("DEALLOCATE " + name);
+      }
+      catch (SQLException e) {
+        // Tolerate statements whose PREPARE failed
+        if (!"26000".equals(e.getSQLState())) {
+          throw e;
+        }
+      }
+    }
+
+    if (sessionState.isChanged(SessionState.SETTINGS)) {
+      // Server defaults restored, reapply ours
+      sessionStatementTimeout = null;
+      try {
+        applySettings(settings);
+      }
+      catch (IOException e) {
+        throw makeSQLException(e);
+      }
+    }
+
+    if (sessionState.isChanged(SessionState.STATEMENTS_DISCARDED)) {
+      // Server dropped all named statements, forget ours
+      if (preparedStatementCache != null) {
+        preparedStatementCache.clear();
+      }
+      if (preparedStatementHeat != null) {
+        preparedStatementHeat.clear();
+      }
+      clearUtilQueries();
+      try {
+        prepareUtilQuery("TB", getBeginText());
+        prepareUtilQuery("TC", getCommitText());
+        prepareUtilQuery("TR", getRollbackText());
+      }
+      catch (IOException e) {
+        throw makeSQLException(e);
+      }
+    }
+
+    sessionState.clear();
+  }
+
   SQLText parseSQL(String sqlText) throws SQLException {
 
     try {
       final boolean standardConformingStrings = getSetting(STANDARD_CONFORMING_STRINGS, false);
 
       if (parsedSqlCache == null) {
-        return new SQLText(sqlText, standardConformingStrings);
+        return trackSessionChanges(new SQLText(sqlText, standardConformingStrings));
       }
 
       SQLText parsedSql = parsedSqlCache.get(sqlText);
       if (parsedSql == null) {
         parsedSql = new SQLText(sqlText, standardConformingStrings);
-        parsedSqlCache.put(sqlText, parsedSql);
+        if (metrics != null) {
+          metrics.cacheMiss(PARSED_SQL);
+          // The cache is shared, evictions are attributed to the connection causing them
+          synchronized (parsedSqlCache) {
+            int size = parsedSqlCache.size();
+            if (parsedSqlCache.putIfAbsent(sqlText, parsedSql) == null && parsedSqlCache.size() == size) {
+              metrics.cacheEviction(PARSED_SQL);
+            }
+          }
+        }
+        else {
+          parsedSqlCache.put(sqlText, parsedSql);
+        }
+      }
+      else if (metrics != null) {
+        metrics.cacheHit(PARSED_SQL);
       }
 
-      return parsedSql.copy();
+      return trackSessionChanges(parsedSql).copy();
     }
     catch (ParseException e) {
       throw new SQLException("Error parsing SQL at position " + e.getErrorOffset() +
@@ -495,6 +628,10 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
     catch (BlockingReadTimeoutException e) {
 
+      if (metrics != null) {
+        metrics.increment(TIMEOUTS);
+      }
+
       internalClose();
 
       throw new SQLTimeoutException(e);
@@ -518,10 +655,117 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
   <T> T executeTimed(Long executionTimeout, QueryResultFunction<T> function) throws SQLException {
 
+    if (queryTimeoutMode == QueryTimeoutMode.SERVER) {
+      return executeServerTimed(executionTimeout, function);
+    }
+
     if (executionTimeout == null || executionTimeout < 1 || (networkTimeout > 0 && networkTimeout < executionTimeout)) {
       return execute(function);
     }
 
+    return executeCancellable(executionTimeout, function, true);
+  }
+
+  /**
+   * Counts a query cancelled (SQLSTATE 57014) because its timeout expired.
+   */
+  private void countTimeout(SQLException e) {
+    if (metrics != null && "57014".equals(e.getSQLState())) {
+      metrics.increment(TIMEOUTS);
+    }
+  }
+
+  /**
+   * Executes the given function with the timeout enforced by the server via
+   * {@code statement_timeout}. The timeout is pipelined ahead of the query
+   * and a cancel request is only sent, as a backstop, if the server fails to
+   * respond within the grace period.
+   */
+  private <T> T executeServerTimed(Long executionTimeout, QueryResultFunction<T> function) throws SQLException {
+
+    long statementTimeout = executionTimeout != null && executionTimeout > 0 ? executionTimeout : 0;
+
+    Long priorSessionTimeout = sessionStatementTimeout;
+    Long priorLocalTimeout = localStatementTimeout;
+    long started = System.nanoTime();
+
+    QueryResultFunction<T> timedFunction = timeout -> {
+      applyStatementTimeout(statementTimeout);
+      return function.query(timeout);
+    };
+
+    try {
+
+      long cancelTimeout = statementTimeout + queryTimeoutCancelGrace;
+      if (statementTimeout == 0 || (networkTimeout > 0 && networkTimeout < cancelTimeout)) {
+        return execute(timedFunction);
+      }
+
+      return executeCancellable(cancelTimeout, timedFunction, false);
+    }
+    catch (SQLException e) {
+      // A cancel before the timeout expired came from elsewhere
+      if (statementTimeout > 0 && System.nanoTime() - started >= MILLISECONDS.toNanos(statementTimeout)) {
+        countTimeout(e);
+      }
+      // Only a value pipelined with the failed query is uncertain, its
+      // SET may have failed along with it
+      if (!Objects.equals(sessionStatementTimeout, priorSessionTimeout)) {
+        sessionStatementTimeout = null;
+      }
+      if (!Objects.equals(localStatementTimeout, priorLocalTimeout)) {
+        localStatementTimeout = null;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Ensures the server enforces the given statement timeout for the next
+   * query.
+   *
+   * Outside of a transaction the session's value is set, and only when it
+   * differs from the last value set. Inside a transaction the value is set
+   * locally, so a rollback cannot revert a session level change.
+   */
+  private void applyStatementTimeout(long statementTimeout) throws IOException {
+
+    boolean idle = getServerConnection().getTransactionStatus() == Idle;
+    if (idle) {
+      // Any local value ended with the previous transaction
+      localStatementTimeout = null;
+    }
+
+    if (autoCommit && idle) {
+
+      if (sessionStatementTimeout == null || sessionStatementTimeout != statementTimeout) {
+        getRequestExecutor().lazyQuery("SET statement_timeout = " + formatStatementTimeout(statementTimeout));
+        sessionStatementTimeout = statementTimeout;
+      }
+
+      return;
+    }
+
+    Long currentTimeout = localStatementTimeout != null ? localStatementTimeout : sessionStatementTimeout;
+    if (currentTimeout == null || currentTimeout != statementTimeout) {
+      getRequestExecutor().lazyQuery("SET LOCAL statement_timeout = " + formatStatementTimeout(statementTimeout));
+      localStatementTimeout = statementTimeout;
+    }
+  }
+
+  private static String formatStatementTimeout(long statementTimeout) {
+    return statementTimeout == 0 ? "DEFAULT" : Long.toString(Math.min(statementTimeout, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Executes the given function, sending a cancel request if it has not
+   * completed before the given timeout.
+   *
+   * @param countTimeout Whether a query cancelled by the request is counted
+   *                     as a timeout.
+   */
+  private <T> T executeCancellable(long cancelTimeout, QueryResultFunction<T> function, boolean countTimeout) throws SQLException {
+
     // Lock the executor to ensure no asynchronous requests are
     // started while we're operating under the execution timeout.
     // This ensures we don't cancel a request _after_ this one
@@ -531,19 +775,25 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
       // Schedule task to run at execution timeout
 
-      ExecutionTimerTask task = new CancelRequestTask(getServerConnection().getRemoteAddress(), getKeyData());
+      ExecutionTimerTask task = new CancelRequestTask(getServerConnection().getRemoteAddress(), getKeyData(), metrics);
 
-      ScheduledFuture<?> taskHandle = getServerConnection().getIOExecutor().schedule(task, executionTimeout, MILLISECONDS);
+      Timeout taskHandle = task.schedule(getServerConnection().getTimer(), cancelTimeout, MILLISECONDS);
 
       try {
 
         return execute(function);
 
       }
+      catch (SQLException e) {
+        if (countTimeout && task.hasRun()) {
+          countTimeout(e);
+        }
+        throw e;
+      }
       finally {
 
         // Cancel the scheduled running (if it hasn't began to run)
-        taskHandle.cancel(true);
+        taskHandle.cancel();
 
         // Also, ensure any task that is currently running also gets
         // completely cancelled, or finishes, before returning
@@ -700,6 +950,12 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       housekeeper.remove(cleanupKey);
       housekeeper.release();
     }
+
+    if (metrics != null) {
+      metrics.close();
+    }
+
+    MetricsBeans.unregister(metricsName);
   }
 
   @Override
@@ -707,8 +963,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     cleanupClosed();
 
-    reportClosed();
-    notificationListeners.clear();
+    notificationDispatcher.close();
   }
 
   /**
@@ -825,6 +1080,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     execute(getSetSessionReadabilityText(readOnly));
+    trackSessionChange(SessionState.SETTINGS);
   }
 
   @Override
@@ -850,6 +1106,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     execute(getSetSessionIsolationLevelText(level));
+    trackSessionChange(SessionState.SETTINGS);
   }
 
   @Override
@@ -915,6 +1172,10 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       throw new SQLException("invalid savepoint");
     }
 
+    // Rolling back may revert statement timeouts set after the save-point
+    sessionStatementTimeout = null;
+    localStatementTimeout = null;
+
     try {
       // Rollback to save-point (if in transaction)
       if (getTransactionStatus() != Idle) {
@@ -983,6 +1244,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
       release(executeForResultBatch(format("SET SCHEMA '%s'", schema)));
     }
+    trackSessionChange(SessionState.SETTINGS);
   }
 
   @Override
@@ -1292,6 +1554,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       String sqlValue = escapeLiteral(value, settings.enabled(STANDARD_CONFORMING_STRINGS));
 
       execute("SET " + ParameterNames.APPLICATION_NAME + " = '" + sqlValue + "'");
+      trackSessionChange(SessionState.SETTINGS);
 
       // Server sends out parameter status, which updates our settings
     }
@@ -1300,6 +1563,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       String sqlValue = escapeLiteral(value, settings.enabled(STANDARD_CONFORMING_STRINGS));
 
       execute("SET " + ParameterNames.SESSION_AUTHORIZATION + " = '" + sqlValue + "'");
+      trackSessionChange(SessionState.AUTHORIZATION);
 
       // Server sends out parameter status, which updates our settings
     }
@@ -1392,7 +1656,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     //is a convenience to the server as the abort does not depend on its
     //success to complete properly
 
-    executor.execute(new CancelRequestTask(serverAddress, getKeyData()));
+    executor.execute(new CancelRequestTask(serverAddress, getKeyData(), metrics));
 
     shutdown.syncUninterruptibly();
 
@@ -1461,81 +1725,29 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   public void addNotificationListener(String name, String channelNameFilter, PGNotificationListener listener) {
 
     name = nullToEmpty(name);
-    channelNameFilter = channelNameFilter != null ? channelNameFilter : ".*";
 
-    Pattern channelNameFilterPattern = Pattern.compile(channelNameFilter);
-
-    NotificationKey key = new NotificationKey(name, channelNameFilterPattern);
-
-    notificationListeners.put(key, listener);
+    notificationDispatcher.add(name, channelNameFilter, listener);
   }
 
   public void removeNotificationListener(PGNotificationListener listener) {
 
-    Iterator<Map.Entry<NotificationKey, PGNotificationListener>> iter = notificationListeners.entrySet().iterator();
-    while (iter.hasNext()) {
-
-      Map.Entry<NotificationKey, PGNotificationListener> entry = iter.next();
-
-      PGNotificationListener iterListener = entry.getValue();
-      if (iterListener == null || iterListener.equals(listener)) {
-
-        iter.remove();
-      }
-
-    }
+    notificationDispatcher.removeAll(listener);
   }
 
   public void removeNotificationListener(String listenerName) {
 
-    Iterator<Map.Entry<NotificationKey, PGNotificationListener>> iter = notificationListeners.entrySet().iterator();
-    while (iter.hasNext()) {
-
-      Map.Entry<NotificationKey, PGNotificationListener> entry = iter.next();
-
-      String iterListenerName = entry.getKey().name;
-      PGNotificationListener iterListener = entry.getValue();
-      if (iterListenerName.equals(listenerName) || iterListener == null) {
-
-        iter.remove();
-      }
-
-    }
+    notificationDispatcher.removeAll(listenerName);
   }
 
-  private void reportNotification(int processId, String channelName, String payload) {
-
-    for (Map.Entry<NotificationKey, PGNotificationListener> entry : notificationListeners.entrySet()) {
-
-      PGNotificationListener listener = entry.getValue();
-      if (entry.getKey().channelNameFilter.matcher(channelName).matches()) {
-
-        try {
-          listener.notification(processId, channelName, payload);
-        }
-        catch (Throwable t) {
-          logger.log(Level.WARNING, "Exception in connection listener", t);
-        }
-      }
-
-    }
+  @Override
+  public void setNotificationExecutor(Executor executor) {
 
+    notificationDispatcher.setExecutor(executor);
   }
 
-  private void reportClosed() {
-
-    for (Map.Entry<NotificationKey, PGNotificationListener> entry : notificationListeners.entrySet()) {
-
-      PGNotificationListener listener = entry.getValue();
-
-      try {
-        listener.closed();
-      }
-      catch (Throwable t) {
-        logger.log(Level.WARNING, "Exception in connection listener", t);
-      }
-    }
+  private void reportNotification(int processId, String channelName, String payload) {
 
+    notificationDispatcher.dispatch(processId, channelName, payload);
   }
 
   boolean isCacheEnabled() {
@@ -1553,12 +1765,20 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     // Check prepared statement cache...
     if (preparedStatementCache != null) {
       PreparedStatementDescription cached = preparedStatementCache.get(key);
-      if (cached != null) return cached;
+      if (cached != null) {
+        recordCacheHit(PREPARED_STATEMENT);
+        return cached;
+      }
     }
 
     // Check description cache
     StatementDescription cached = descriptionCache.get(key);
-    if (cached != null) return cached;
+    if (cached != null) {
+      recordCacheHit(DESCRIPTION);
+      return cached;
+    }
+
+    recordCacheMiss(DESCRIPTION);
 
     try {
       cached = loader.load();
@@ -1573,6 +1793,18 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   }
 
 
+  private void recordCacheHit(Metrics.Cache cache) {
+    if (metrics != null) {
+      metrics.cacheHit(cache);
+    }
+  }
+
+  private void recordCacheMiss(Metrics.Cache cache) {
+    if (metrics != null) {
+      metrics.cacheMiss(cache);
+    }
+  }
+
   interface PreparedStatementDescriptionLoader {
     PreparedStatementDescription load() throws IOException, SQLException;
 
@@ -1590,8 +1822,12 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     PreparedStatementDescription cached = preparedStatementCache.get(key);
-    if (cached != null) return cached;
+    if (cached != null) {
+      recordCacheHit(PREPARED_STATEMENT);
+      return cached;
+    }
 
+    recordCacheMiss(PREPARED_STATEMENT);
 
     if (preparedStatementHeat != null) {
       Integer heat = preparedStatementHeat.computeIfPresent(key, (k, h) -> h + 1);
@@ -1620,6 +1856,28 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     return cached;
   }
 
+  @Override
+  public PGReplicationStream startLogicalReplication(String slotName, String startLSN, Map<String, String> options, PGReplicationListener listener) throws SQLException {
+    checkClosed();
+
+    String sql = ReplicationStream.buildStartCommand(slotName, startLSN, options);
+
+    ReplicationStream stream =
+        new ReplicationStream(listener, getServerConnection().getIOExecutor(), getSetting(PROTOCOL_REPLICATION_STATUS_INTERVAL), networkTimeout);
+
+    execute(timeout -> {
+
+      getRequestExecutor().startReplication(sql, stream);
+
+      stream.awaitStart(timeout);
+
+    });
+
+    stream.checkStarted();
+
+    return stream;
+  }
+
   @Override
   public void copyFrom(String sql, InputStream inputStream) throws SQLException {
 
@@ -1796,19 +2054,3 @@ class PreparedStatementDescription extends StatementDescription {
   }
 
 }
-
-class NotificationKey {
-
-  String name;
-  Pattern channelNameFilter;
-
-  NotificationKey(String name, Pattern channelNameFilter) {
-    this.name = name;
-    this.channelNameFilter = channelNameFilter;
-  }
-
-  String getName() {
-    return name;
-  }
-
-}
@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * DataSource level asynchronous notification hub.
+ *
+ * A single connection, opened when the first listener is added, issues
+ * {@code LISTEN}/{@code UNLISTEN} for the union of all subscribed channels
+ * and fans received notifications out to the listeners of each channel.
+ *
+ * If the connection is lost it is reopened, and all channels are listened
+ * for again, automatically. Notifications sent while the hub is reconnecting
+ * are not delivered. Listeners are only reported as closed when the hub
+ * itself is closed.
+ */
+public class PGNotificationHub implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(PGNotificationHub.class.getName());
+
+  static final long MIN_RECONNECT_DELAY_MILLIS = 500;
+  static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+
+  interface ConnectionSource {
+    PGConnection connect() throws SQLException;
+  }
+
+  private static ScheduledThreadPoolExecutor reconnectExecutor;
+
+  private static synchronized ScheduledThreadPoolExecutor getReconnectExecutor() {
+    if (reconnectExecutor == null) {
+      reconnectExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "PG-JDBC Notification Hub");
+        thread.setDaemon(true);
+        return thread;
+      });
+      reconnectExecutor.setKeepAliveTime(10, TimeUnit.SECONDS);
+      reconnectExecutor.allowCoreThreadTimeOut(true);
+      reconnectExecutor.setRemoveOnCancelPolicy(true);
+    }
+    return reconnectExecutor;
+  }
+
+  private ConnectionSource connectionSource;
+  private Map<String, List<PGNotificationListener>> channels = new HashMap<>();
+  private volatile Map<String, List<PGNotificationListener>> published = new HashMap<>();
+  private PGConnection connection;
+  private ScheduledFuture<?> reconnectFuture;
+  private long reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+  private boolean closed;
+
+  PGNotificationHub(ConnectionSource connectionSource) {
+    this.connectionSource = connectionSource;
+  }
+
+  /**
+   * Adds a listener for notifications sent to a channel.
+   *
+   * If this is the first listener for the channel the hub starts listening
+   * to it before returning.
+   *
+   * @param channelName
+   *          Name of channel (case sensitive)
+   * @param listener
+   *          Notification listener
+   * @throws SQLException
+   *          If the hub's connection cannot be opened or the channel
+   *          cannot be listened to
+   */
+  public synchronized void addNotificationListener(String channelName, PGNotificationListener listener) throws SQLException {
+    if (closed) {
+      throw new SQLException("Notification hub closed");
+    }
+
+    List<PGNotificationListener> listeners = channels.get(channelName);
+    if (listeners != null) {
+      listeners.add(listener);
+      return;
+    }
+
+    listeners = new CopyOnWriteArrayList<>();
+    listeners.add(listener);
+    channels.put(channelName, listeners);
+
+    try {
+      if (connection == null) {
+        if (reconnectFuture == null) {
+          connect();
+        }
+      }
+      else {
+        execute(connection, "LISTEN " + Identifiers.escape(channelName));
+      }
+    }
+    catch (SQLException e) {
+      channels.remove(channelName);
+      throw e;
+    }
+    finally {
+      publish();
+    }
+  }
+
+  /**
+   * Removes a listener from a channel.
+   *
+   * If this was the last listener for the channel the hub stops listening
+   * to it.
+   *
+   * @param channelName
+   *          Name of channel
+   * @param listener
+   *          Notification listener to remove
+   */
+  public synchronized void removeNotificationListener(String channelName, PGNotificationListener listener) {
+
+    List<PGNotificationListener> listeners = channels.get(channelName);
+    if (listeners == null || !listeners.remove(listener) || !listeners.isEmpty()) {
+      return;
+    }
+
+    channels.remove(channelName);
+    publish();
+
+    unlisten(channelName);
+  }
+
+  /**
+   * Removes a listener from all channels it is subscribed to.
+   *
+   * @param listener
+   *          Notification listener to remove
+   */
+  public synchronized void removeNotificationListener(PGNotificationListener listener) {
+
+    for (String channelName : new ArrayList<>(channels.keySet())) {
+      removeNotificationListener(channelName, listener);
+    }
+  }
+
+  /**
+   * Closes the hub's connection and reports all listeners as closed.
+   */
+  @Override
+  public void close() {
+
+    List<PGNotificationListener> listeners = new ArrayList<>();
+
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+
+      if (reconnectFuture != null) {
+        reconnectFuture.cancel(false);
+        reconnectFuture = null;
+      }
+
+      disconnect();
+
+      for (List<PGNotificationListener> channelListeners : channels.values()) {
+        for (PGNotificationListener listener : channelListeners) {
+          if (!listeners.contains(listener)) {
+            listeners.add(listener);
+          }
+        }
+      }
+
+      channels.clear();
+      publish();
+    }
+
+    for (PGNotificationListener listener : listeners) {
+      try {
+        listener.closed();
+      }
+      catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception in notification hub listener", t);
+      }
+    }
+  }
+
+  synchronized boolean isConnected() {
+    return connection != null;
+  }
+
+  private void publish() {
+    published = new HashMap<>(channels);
+  }
+
+  private void connect() throws SQLException {
+
+    PGConnection connection = connectionSource.connect();
+    try {
+      connection.addNotificationListener(new ConnectionListener(connection));
+      for (String channelName : channels.keySet()) {
+        execute(connection, "LISTEN " + Identifiers.escape(channelName));
+      }
+    }
+    catch (SQLException e) {
+      closeQuietly(connection);
+      throw e;
+    }
+
+    this.connection = connection;
+    this.reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+  }
+
+  private void disconnect() {
+    if (connection == null) return;
+
+    PGConnection connection = this.connection;
+    this.connection = null;
+
+    closeQuietly(connection);
+  }
+
+  private void unlisten(String channelName) {
+    if (connection == null) return;
+
+    try {
+      execute(connection, "UNLISTEN " + Identifiers.escape(channelName));
+    }
+    catch (SQLException e) {
+      logger.log(Level.WARNING, "Unable to unlisten from notification channel", e);
+    }
+  }
+
+  private synchronized void connectionClosed(PGConnection closedConnection) {
+    if (closed || closedConnection != connection) return;
+
+    connection = null;
+
+    if (!channels.isEmpty()) {
+      scheduleReconnect();
+    }
+  }
+
+  private synchronized void reconnect() {
+    reconnectFuture = null;
+
+    if (closed || connection != null || channels.isEmpty()) return;
+
+    try {
+      connect();
+    }
+    catch (SQLException e) {
+      logger.log(Level.WARNING, "Unable to reconnect notification hub", e);
+      reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MILLIS);
+      scheduleReconnect();
+    }
+  }
+
+  private void scheduleReconnect() {
+    if (reconnectFuture != null) return;
+
+    reconnectFuture = getReconnectExecutor().schedule(this::reconnect, reconnectDelay, TimeUnit.MILLISECONDS);
+  }
+
+  private void dispatch(int processId, String channelName, String payload) {
+
+    List<PGNotificationListener> listeners = published.get(channelName);
+    if (listeners == null) return;
+
+    for (PGNotificationListener listener : listeners) {
+      try {
+        listener.notification(processId, channelName, payload);
+      }
+      catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception in notification hub listener", t);
+      }
+    }
+  }
+
+  private static void execute(PGConnection connection, String sql) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private static void closeQuietly(PGConnection connection) {
+    try {
+      connection.close();
+    }
+    catch (SQLException ignored) {
+      // Nothing to do
+    }
+  }
+
+  /**
+   * Listener registered with each connection the hub opens. Notifications
+   * are delivered on the connection's notification executor, so fan out
+   * preserves the order notifications were received.
+   */
+  private class ConnectionListener implements PGNotificationListener {
+
+    private PGConnection connection;
+
+    ConnectionListener(PGConnection connection) {
+      this.connection = connection;
+    }
+
+    @Override
+    public void notification(int processId, String channelName, String payload) {
+      dispatch(processId, channelName, payload);
+    }
+
+    @Override
+    public void closed() {
+      connectionClosed(connection);
+    }
+
+  }
+
+}
@@ -60,6 +60,7 @@ public class PGPooledConnection implements PooledConnection {
     this.connectionListeners = new ArrayList<>();
     this.statementListeners = new ArrayList<>();
     this.con = con;
+    this.con.enableSessionTracking();
     this.last = null;
     this.autoCommit = autoCommit;
     this.isXA = isXA;
@@ -73,6 +74,14 @@ public class PGPooledConnection implements PooledConnection {
     last = v;
   }
 
+  /**
+   * Physical connection represented by this PooledConnection
+   * @return The connection or {@code null} if closed
+   */
+  PGDirectConnection getPhysicalConnection() {
+    return con;
+  }
+
   /**
    * Is XA
    * @return The value
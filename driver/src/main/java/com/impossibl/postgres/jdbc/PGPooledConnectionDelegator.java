@@ -31,6 +31,10 @@ package com.impossibl.postgres.jdbc;
 import com.impossibl.postgres.api.jdbc.PGAnyType;
 import com.impossibl.postgres.api.jdbc.PGConnection;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationStream;
+
+import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -156,6 +160,20 @@ public class PGPooledConnectionDelegator implements PGConnection {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setNotificationExecutor(Executor executor) {
+    try {
+      checkClosed();
+      delegator.setNotificationExecutor(executor);
+    }
+    catch (SQLException se) {
+      // Nothing to do
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -184,6 +202,21 @@ public class PGPooledConnectionDelegator implements PGConnection {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PGReplicationStream startLogicalReplication(String slotName, String startLSN, Map<String, String> options, PGReplicationListener listener) throws SQLException {
+    try {
+      checkClosed();
+      return delegator.startLogicalReplication(slotName, startLSN, options, listener);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -221,9 +254,15 @@ public class PGPooledConnectionDelegator implements PGConnection {
   public void close() throws SQLException {
     if (delegator != null) {
       SQLException ex = null;
-      if (!owner.isXA() && !delegator.getAutoCommit()) {
+      if (!owner.isXA()) {
         try {
-          delegator.rollback();
+          if (!delegator.getAutoCommit()) {
+            delegator.rollback();
+          }
+          else if (owner.getPhysicalConnection().getTransactionStatus() != Idle) {
+            // Explicit BEGIN left open in auto-commit mode
+            owner.getPhysicalConnection().execute("@TR");
+          }
         }
         catch (SQLException e) {
           ex = e;
@@ -233,6 +272,16 @@ public class PGPooledConnectionDelegator implements PGConnection {
       delegator = null;
 
       owner.setLast(null);
+
+      // Revert session changes for the next user (prepared statements are kept)
+      try {
+        owner.getPhysicalConnection().resetSessionState();
+      }
+      catch (SQLException e) {
+        owner.fireConnectionFatalError(e);
+        throw e;
+      }
+
       owner.fireConnectionClosed();
       if (ex != null) {
         throw ex;
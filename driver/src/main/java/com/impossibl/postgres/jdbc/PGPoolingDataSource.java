@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import static com.impossibl.postgres.jdbc.DataSourceSettings.POOL_BORROW_TIMEOUT;
+import static com.impossibl.postgres.jdbc.DataSourceSettings.POOL_IDLE_MIN;
+import static com.impossibl.postgres.jdbc.DataSourceSettings.POOL_IDLE_TIMEOUT;
+import static com.impossibl.postgres.jdbc.DataSourceSettings.POOL_MAX_LIFETIME;
+import static com.impossibl.postgres.jdbc.DataSourceSettings.POOL_SIZE_MAX;
+import static com.impossibl.postgres.jdbc.Exceptions.UNWRAP_ERROR;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Objects;
+
+import javax.naming.Reference;
+import javax.naming.Referenceable;
+import javax.sql.DataSource;
+
+/**
+ * DataSource implementation that pools its connections.
+ *
+ * Connections are borrowed lock free and validated using the state
+ * the driver tracks for each physical connection, with no test
+ * queries. Physical connections are created, evicted when idle
+ * ({@code pool.idle-timeout}) and retired ({@code pool.max-lifetime}) in the
+ * background.
+ *
+ * The pool is started by the first request for a connection; changes
+ * to the pool's settings after that have no effect. Close the data
+ * source to close its connections.
+ */
+public class PGPoolingDataSource extends AbstractGeneratedDataSource implements DataSource, Referenceable, AutoCloseable {
+
+  private volatile ConnectionPool pool;
+  private boolean closed;
+
+  /**
+   * Constructor
+   */
+  public PGPoolingDataSource() {
+    super();
+  }
+
+  @Override
+  public String getDescription() {
+    return PGDriver.NAME + " - Pooling Data Source";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return getPool().borrow(settings.get(POOL_BORROW_TIMEOUT));
+  }
+
+  /**
+   * Pooled connections are only available for the configured
+   * credentials.
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public Connection getConnection(String user, String password) throws SQLException {
+    if (!Objects.equals(user, getUser()) || !Objects.equals(password, getPassword())) {
+      throw new SQLFeatureNotSupportedException("Pooled connections are only available for the configured user");
+    }
+    return getConnection();
+  }
+
+  private ConnectionPool getPool() throws SQLException {
+    ConnectionPool pool = this.pool;
+    if (pool != null) {
+      return pool;
+    }
+
+    synchronized (this) {
+      if (this.pool == null) {
+        if (closed) {
+          throw new PGSQLSimpleException("Data source has been closed", "08003");
+        }
+
+        String user = getUser();
+        String password = getPassword();
+        this.pool = new ConnectionPool(() -> new PGPooledConnection(createConnection(user, password), true, false),
+            settings.get(POOL_SIZE_MAX), settings.get(POOL_IDLE_MIN),
+            settings.get(POOL_IDLE_TIMEOUT), settings.get(POOL_MAX_LIFETIME));
+      }
+      return this.pool;
+    }
+  }
+
+  /**
+   * Number of physical connections currently held by the pool.
+   *
+   * @return Total connection count
+   */
+  public int getTotalConnections() {
+    ConnectionPool pool = this.pool;
+    return pool != null ? pool.getTotalCount() : 0;
+  }
+
+  /**
+   * Number of physical connections currently available for borrowing.
+   *
+   * @return Idle connection count
+   */
+  public int getIdleConnections() {
+    ConnectionPool pool = this.pool;
+    return pool != null ? pool.getIdleCount() : 0;
+  }
+
+  /**
+   * Number of physical connections currently borrowed.
+   *
+   * @return Active connection count
+   */
+  public int getActiveConnections() {
+    ConnectionPool pool = this.pool;
+    return pool != null ? pool.getActiveCount() : 0;
+  }
+
+  /**
+   * Number of threads currently waiting for a connection.
+   *
+   * @return Waiting thread count
+   */
+  public int getWaitingThreads() {
+    ConnectionPool pool = this.pool;
+    return pool != null ? pool.getWaitingCount() : 0;
+  }
+
+  /**
+   * Closes the pool's idle connections and the notification hub; borrowed
+   * connections are closed when they are returned.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (pool != null) {
+      pool.close();
+    }
+    closeNotificationHub();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (!iface.isAssignableFrom(getClass())) {
+      throw UNWRAP_ERROR;
+    }
+
+    return iface.cast(this);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isAssignableFrom(getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  protected Reference createReference() {
+    return new Reference(getClass().getName(),
+                         PGPoolingDataSourceObjectFactory.class.getName(),
+                         null);
+  }
+}
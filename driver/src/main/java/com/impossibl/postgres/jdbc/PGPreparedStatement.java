@@ -37,6 +37,7 @@ import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.ServerObjectType;
 import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.system.Events;
 import com.impossibl.postgres.types.Type;
 import com.impossibl.postgres.utils.ByteBufs;
 import com.impossibl.postgres.utils.guava.ByteStreams;
@@ -58,6 +59,8 @@ import static com.impossibl.postgres.jdbc.Unwrapping.unwrapRowId;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapXML;
 import static com.impossibl.postgres.protocol.FieldFormat.Text;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
+import static com.impossibl.postgres.system.Events.Kind.EXECUTE;
+import static com.impossibl.postgres.system.Events.Kind.PREPARE;
 import static com.impossibl.postgres.utils.ByteBufs.releaseAll;
 import static com.impossibl.postgres.utils.ByteBufs.retainedDuplicateAll;
 
@@ -244,12 +247,20 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     // First, check statement cache
     StatementDescription cachedDescription = connection.getCachedStatementDescription(sqlText, () -> {
 
-      PrepareResult result = connection.execute(timeout -> {
-        PrepareResult handler = new PrepareResult();
-        connection.getRequestExecutor().prepare(null, sqlText, EMPTY_TYPES, handler);
-        handler.await(timeout, MILLISECONDS);
-        return handler;
-      });
+      Object event = Events.begin(PREPARE);
+
+      PrepareResult result;
+      try {
+        result = connection.execute(timeout -> {
+          PrepareResult handler = new PrepareResult();
+          connection.getRequestExecutor().prepare(null, sqlText, EMPTY_TYPES, handler);
+          handler.await(timeout, MILLISECONDS);
+          return handler;
+        });
+      }
+      finally {
+        Events.endPrepare(event, sqlText, null);
+      }
 
       return new StatementDescription(result.getDescribedParameterTypes(connection), result.getDescribedResultFields());
     });
@@ -286,12 +297,20 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
         String name = connection.isCacheEnabled() ?
             CACHED_STATEMENT_PREFIX + toHexString(key.hashCode()) : NO_CACHE_STATEMENT_PREFIX + toHexString(key.hashCode());
 
-        PrepareResult prep = connection.execute((timeout) -> {
-          PrepareResult handler = new PrepareResult();
-          connection.getRequestExecutor().prepare(name, sqlText, parameterTypes, handler);
-          handler.await(timeout, MILLISECONDS);
-          return handler;
-        });
+        Object event = Events.begin(PREPARE);
+
+        PrepareResult prep;
+        try {
+          prep = connection.execute((timeout) -> {
+            PrepareResult handler = new PrepareResult();
+            connection.getRequestExecutor().prepare(name, sqlText, parameterTypes, handler);
+            handler.await(timeout, MILLISECONDS);
+            return handler;
+          });
+        }
+        finally {
+          Events.endPrepare(event, sqlText, name);
+        }
 
         warningChain = chainWarnings(warningChain, prep);
 
@@ -330,17 +349,27 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     closeResultSets();
     verifyParameterSet();
 
+    Object event = Events.begin(EXECUTE);
+
     boolean res;
+    try {
 
-    if (name == null) {
-      res = super.executeDirect(sqlText, parameterFormats, parameterBuffers, resultFields);
-    }
-    else {
-      res = super.executeStatement(name, parameterFormats, parameterBuffers);
-    }
+      if (name == null) {
+        res = super.executeDirect(sqlText, parameterFormats, parameterBuffers, resultFields);
+      }
+      else {
+        res = super.executeStatement(name, parameterFormats, parameterBuffers);
+      }
+
+      if (cursorName != null) {
+        res = super.executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName, null, null, resultFields);
+      }
 
-    if (cursorName != null) {
-      res = super.executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName, null, null, resultFields);
+    }
+    finally {
+      if (event != null) {
+        Events.endExecute(event, sqlText, name, getResultRowCount());
+      }
     }
 
     if (wantsGeneratedKeys) {
@@ -36,9 +36,11 @@ import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.UpdatableRowData;
 import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.Events;
 import com.impossibl.postgres.system.SettingsContext;
 import com.impossibl.postgres.system.TypeMapContext;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.StringCache;
 import com.impossibl.postgres.utils.guava.ByteStreams;
 import com.impossibl.postgres.utils.guava.CharStreams;
 
@@ -58,7 +60,9 @@ import static com.impossibl.postgres.jdbc.Unwrapping.unwrapBlob;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapClob;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapObject;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapRowId;
+import static com.impossibl.postgres.system.Events.Kind.FETCH;
 import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
+import static com.impossibl.postgres.system.SystemSettings.FIELD_STRING_DEDUP;
 import static com.impossibl.postgres.utils.Nulls.firstNonNull;
 
 import java.io.ByteArrayInputStream;
@@ -86,20 +90,27 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
 
 import io.netty.buffer.ByteBuf;
 
 import static io.netty.util.ReferenceCountUtil.release;
 
 
-class PGResultSet implements ResultSet {
+class PGResultSet implements com.impossibl.postgres.api.jdbc.PGResultSet {
 
   /**
    * Cleans up server resources in the event of leaking resultset
@@ -111,12 +122,12 @@ class PGResultSet implements ResultSet {
 
     PGStatement statement;
     Query query;
-    StackTraceElement[] allocationStackTrace;
+    Throwable allocationSite;
 
-    private Cleanup(PGStatement statement, Query query) {
+    private Cleanup(PGStatement statement, Query query, Throwable allocationSite) {
       this.statement = statement;
       this.query = query;
-      this.allocationStackTrace = new Exception().getStackTrace();
+      this.allocationSite = allocationSite;
     }
 
     @Override
@@ -126,7 +137,7 @@ class PGResultSet implements ResultSet {
 
     @Override
     public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
+      return allocationSite != null ? allocationSite.getStackTrace() : null;
     }
 
     @Override
@@ -168,6 +179,9 @@ class PGResultSet implements ResultSet {
   private final Housekeeper.Ref housekeeper;
   private final Object cleanupKey;
   private PGResultSetMetaData metaData;
+  private RowMapper<?> rowMapper;
+  private final int stringCacheSize;
+  private StringCache[] stringCaches;
 
   private static final ThreadLocal<TypeMapContext> TYPE_MAP_CONTEXTS = ThreadLocal.withInitial(TypeMapContext::new);
 
@@ -208,10 +222,11 @@ class PGResultSet implements ResultSet {
 
     this.context = new SettingsContext(statement.connection, typeMap);
     updateMaxFieldSize(statement.maxFieldSize);
+    this.stringCacheSize = context.getSetting(FIELD_STRING_DEDUP);
 
     this.housekeeper = statement.housekeeper;
     if (this.housekeeper != null)
-      this.cleanupKey = housekeeper.add(this, new Cleanup(statement, query));
+      this.cleanupKey = housekeeper.add(this, new Cleanup(statement, query, housekeeper.captureAllocationSite()));
     else
       this.cleanupKey = null;
   }
@@ -297,6 +312,8 @@ class PGResultSet implements ResultSet {
 
   private Object getObj(int columnIndex, Context context, Class<?> targetClass, Object targetContext) throws PGSQLSimpleException {
 
+    selectStringCache(columnIndex);
+
     Object val;
     try {
       val = scroller.getRowField(columnIndex - 1, context, targetClass, targetContext);
@@ -308,6 +325,40 @@ class PGResultSet implements ResultSet {
     return val;
   }
 
+  /**
+   * Installs the string deduplication cache of the given column (when
+   * enabled) in the result set context before the column is decoded.
+   */
+  private void selectStringCache(int columnIndex) {
+    if (stringCacheSize == 0) {
+      return;
+    }
+    if (stringCaches == null) {
+      stringCaches = new StringCache[scroller.getResultFields().length];
+      for (int idx = 0; idx < stringCaches.length; ++idx) {
+        stringCaches[idx] = new StringCache(stringCacheSize);
+      }
+    }
+    context.setStringCache(stringCaches[columnIndex - 1]);
+  }
+
+  /**
+   * Decodes a field of the current row for a {@link RowMapper}.
+   *
+   * @param fieldIndex Zero based field index
+   */
+  Object getMappedField(int fieldIndex, Class<?> targetClass) throws SQLException {
+    return getObj(fieldIndex + 1, context, targetClass, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> RowMapper<T> getRowMapper(Class<T> type) throws SQLException {
+    if (rowMapper == null || rowMapper.getType() != type) {
+      rowMapper = RowMapper.create(type, scroller.getResultFields());
+    }
+    return (RowMapper<T>) rowMapper;
+  }
+
   void set(int columnIndex, Object source, Object sourceContext) throws SQLException {
     checkClosed();
     checkColumnIndex(columnIndex);
@@ -901,6 +952,69 @@ class PGResultSet implements ResultSet {
     return getVal(columnIndex, context, type, null);
   }
 
+  @Override
+  public <T> T mapTo(Class<T> type) throws SQLException {
+    checkClosed();
+    checkRow();
+
+    return getRowMapper(type).map(this);
+  }
+
+  @Override
+  public <T> Iterator<T> iterator(Class<T> type) throws SQLException {
+    checkClosed();
+
+    RowMapper<T> mapper = getRowMapper(type);
+
+    return new Iterator<T>() {
+
+      Boolean hasNext;
+
+      @Override
+      public boolean hasNext() {
+        if (hasNext == null) {
+          try {
+            hasNext = PGResultSet.this.next();
+          }
+          catch (SQLException e) {
+            throw new IllegalStateException("Error fetching row", e);
+          }
+        }
+        return hasNext;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        hasNext = null;
+        try {
+          return mapper.map(PGResultSet.this);
+        }
+        catch (SQLException e) {
+          throw new IllegalStateException("Error mapping row", e);
+        }
+      }
+
+    };
+  }
+
+  @Override
+  public <T> Stream<T> stream(Class<T> type) throws SQLException {
+
+    Stream<T> stream = StreamSupport.stream(spliteratorUnknownSize(iterator(type), ORDERED | NONNULL), false);
+
+    return stream.onClose(() -> {
+      try {
+        close();
+      }
+      catch (SQLException e) {
+        throw new IllegalStateException("Error closing result set", e);
+      }
+    });
+  }
+
   @Override
   public RowId getRowId(int columnIndex) throws SQLException {
     checkClosed();
@@ -2077,24 +2191,37 @@ class QueryScroller extends ListScroller {
           query.setMaxRows(fetchSize);
         }
 
-        SQLWarning warningChain = query.execute(resultSet.statement.connection);
-        resultSet.addWarnings(warningChain);
+        Object event = Events.begin(FETCH);
+        String portalName = query.getPortalName();
+        long fetched = 0;
 
-        List<ResultBatch> resultBatches = query.getResultBatches();
-        if (resultBatches.size() != 1) {
-          throw new SQLException("Invalid result data");
-        }
+        try {
+
+          SQLWarning warningChain = query.execute(resultSet.statement.connection);
+          resultSet.addWarnings(warningChain);
+
+          List<ResultBatch> resultBatches = query.getResultBatches();
+          if (resultBatches.size() != 1) {
+            throw new SQLException("Invalid result data");
+          }
 
-        try (ResultBatch resultBatch = resultBatches.remove(0)) {
+          try (ResultBatch resultBatch = resultBatches.remove(0)) {
 
-          resultFields = resultBatch.getFields();
-          setResults(resultBatch.takeRows());
+            resultFields = resultBatch.getFields();
+            setResults(resultBatch.takeRows());
+            fetched = results.size();
 
-          resultsIndexOffset += currentRowIndex;
-          currentRowIndex = -1;
+          }
 
-          return next();
         }
+        finally {
+          Events.endFetch(event, portalName, fetched);
+        }
+
+        resultsIndexOffset += currentRowIndex;
+        currentRowIndex = -1;
+
+        return next();
       }
 
     }
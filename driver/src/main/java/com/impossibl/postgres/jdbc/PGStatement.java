@@ -77,13 +77,13 @@ public abstract class PGStatement implements Statement {
     PGDirectConnection connection;
     String name;
     Collection<WeakReference<PGResultSet>> resultSets;
-    StackTraceElement[] allocationStackTrace;
+    Throwable allocationSite;
 
-    private Cleanup(PGDirectConnection connection, String name, Collection<WeakReference<PGResultSet>> resultSets) {
+    private Cleanup(PGDirectConnection connection, String name, Collection<WeakReference<PGResultSet>> resultSets, Throwable allocationSite) {
       this.connection = connection;
       this.name = name;
       this.resultSets = resultSets;
-      this.allocationStackTrace = new Exception().getStackTrace();
+      this.allocationSite = allocationSite;
     }
 
     @Override
@@ -93,7 +93,7 @@ public abstract class PGStatement implements Statement {
 
     @Override
     public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
+      return allocationSite != null ? allocationSite.getStackTrace() : null;
     }
 
     @Override
@@ -156,7 +156,7 @@ public abstract class PGStatement implements Statement {
 
     this.housekeeper = connection.housekeeper;
     if (this.housekeeper != null)
-      this.cleanupKey = this.housekeeper.add(this, new Cleanup(connection, name, activeResultSets));
+      this.cleanupKey = this.housekeeper.add(this, new Cleanup(connection, name, activeResultSets, this.housekeeper.captureAllocationSite()));
     else
       this.cleanupKey = null;
   }
@@ -299,6 +299,23 @@ public abstract class PGStatement implements Statement {
     return !resultBatches.isEmpty() && resultBatches.get(0).hasRowsAffected();
   }
 
+  /**
+   * @return Rows in the first batch of results, or rows affected by it
+   */
+  long getResultRowCount() {
+
+    if (resultBatches == null || resultBatches.isEmpty()) {
+      return 0;
+    }
+
+    ResultBatch resultBatch = resultBatches.get(0);
+    if (resultBatch.hasRows()) {
+      return resultBatch.borrowRows() != null ? resultBatch.borrowRows().size() : 0;
+    }
+
+    return resultBatch.hasRowsAffected() ? resultBatch.getRowsAffected() : 0;
+  }
+
   private boolean shouldUseFetchSize() {
     // Only use if fetch size is requested &
     // we aren't executing a cursor request; cursor
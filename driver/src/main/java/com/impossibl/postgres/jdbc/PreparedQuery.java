@@ -76,6 +76,11 @@ public class PreparedQuery implements Query {
     return status;
   }
 
+  @Override
+  public String getPortalName() {
+    return portalName;
+  }
+
   @Override
   public Long getTimeout() {
     return timeout;
@@ -52,6 +52,11 @@ public interface Query {
 
   Status getStatus();
 
+  /**
+   * @return Name of the query's portal or {@code null} if it has none
+   */
+  String getPortalName();
+
   Long getTimeout();
   void setTimeout(Long timeout);
 
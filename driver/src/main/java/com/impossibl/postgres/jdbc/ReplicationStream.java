@@ -0,0 +1,316 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGReplicationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationStream;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor.ReplicationControl;
+import com.impossibl.postgres.protocol.RequestExecutor.ReplicationHandler;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
+
+import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import io.netty.buffer.ByteBuf;
+
+
+/**
+ * Logical replication stream.
+ *
+ * Receives the decoded replication protocol from the connection and tracks
+ * the WAL locations reported by the application; standby status updates
+ * are sent on a fixed schedule, not per message.
+ */
+class ReplicationStream implements PGReplicationStream, ReplicationHandler {
+
+  private static final Logger logger = Logger.getLogger(ReplicationStream.class.getName());
+
+  private static final long DEFAULT_CLOSE_TIMEOUT = SECONDS.toMillis(30);
+
+  private PGReplicationListener listener;
+  private ScheduledExecutorService timer;
+  private long statusInterval;
+  private long closeTimeout;
+  private volatile ReplicationControl control;
+  private ScheduledFuture<?> statusTask;
+  private volatile long receivedLSN;
+  private volatile long flushedLSN;
+  private volatile long appliedLSN;
+  private volatile Throwable error;
+  private CountDownLatch started = new CountDownLatch(1);
+  private CountDownLatch completed = new CountDownLatch(1);
+  private AtomicBoolean finished = new AtomicBoolean();
+
+  /**
+   * @param closeTimeout Maximum time (in milliseconds) {@link #close()} waits
+   *                     for the server to end the stream before the connection
+   *                     is forcibly closed; zero selects a default.
+   */
+  ReplicationStream(PGReplicationListener listener, ScheduledExecutorService timer, long statusInterval, long closeTimeout) {
+    this.listener = listener;
+    this.timer = timer;
+    this.statusInterval = statusInterval;
+    this.closeTimeout = closeTimeout > 0 ? closeTimeout : DEFAULT_CLOSE_TIMEOUT;
+  }
+
+  static String buildStartCommand(String slotName, String startLSN, Map<String, String> options) {
+
+    StringBuilder sql = new StringBuilder()
+        .append("START_REPLICATION SLOT ").append(Identifiers.escape(slotName))
+        .append(" LOGICAL ").append(PGReplicationStream.formatLSN(PGReplicationStream.parseLSN(startLSN)));
+
+    if (options != null && !options.isEmpty()) {
+      sql.append(" (");
+      boolean first = true;
+      for (Map.Entry<String, String> option : options.entrySet()) {
+        if (!first) {
+          sql.append(", ");
+        }
+        first = false;
+        sql.append(Identifiers.escape(option.getKey()));
+        if (option.getValue() != null) {
+          sql.append(" '").append(option.getValue().replace("'", "''")).append('\'');
+        }
+      }
+      sql.append(')');
+    }
+
+    return sql.toString();
+  }
+
+  /**
+   * Waits for the stream to start, or fail to start.
+   */
+  void awaitStart(long timeout) throws IOException {
+
+    if (!awaitUninterruptibly(timeout, MILLISECONDS, started::await)) {
+      throw new BlockingReadTimeoutException();
+    }
+  }
+
+  /**
+   * Reports the error, if any, that prevented the stream from starting.
+   */
+  void checkStarted() throws SQLException {
+    if (control == null && error != null) {
+      throw makeSQLException(error);
+    }
+  }
+
+  private static SQLException makeSQLException(Throwable error) {
+    if (error instanceof SQLException) {
+      return (SQLException) error;
+    }
+    if (error instanceof Exception) {
+      return ErrorUtils.makeSQLException((Exception) error);
+    }
+    return new SQLException(error);
+  }
+
+  @Override
+  public long getLastReceiveLSN() {
+    return receivedLSN;
+  }
+
+  @Override
+  public void setFlushedLSN(long lsn) {
+    flushedLSN = lsn;
+  }
+
+  @Override
+  public void setAppliedLSN(long lsn) {
+    appliedLSN = lsn;
+  }
+
+  @Override
+  public void forceStatusUpdate() throws SQLException {
+    if (isClosed()) {
+      throw new SQLException("Replication stream closed");
+    }
+
+    try {
+      sendStatusUpdate(false);
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+  }
+
+  @Override
+  public void pause() {
+    ReplicationControl control = this.control;
+    if (control != null) {
+      control.setReading(false);
+    }
+  }
+
+  @Override
+  public void resume() {
+    ReplicationControl control = this.control;
+    if (control != null) {
+      control.setReading(true);
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return finished.get();
+  }
+
+  @Override
+  public void close() throws SQLException {
+
+    if (!finished.get() && control != null) {
+      try {
+        sendStatusUpdate(false);
+        control.stop();
+      }
+      catch (IOException e) {
+        throw makeSQLException(e);
+      }
+    }
+
+    if (!awaitUninterruptibly(closeTimeout, MILLISECONDS, completed::await)) {
+      // Server never ended the stream, abandon the connection
+      if (error == null) {
+        error = new SQLTimeoutException("Timed out waiting for replication stream to close");
+      }
+      if (control != null) {
+        control.abort();
+      }
+      finish();
+    }
+
+    if (error != null) {
+      throw makeSQLException(error);
+    }
+  }
+
+  private void sendStatusUpdate(boolean replyRequested) throws IOException {
+
+    long applied = appliedLSN != 0 ? appliedLSN : flushedLSN;
+
+    control.sendStatusUpdate(receivedLSN, flushedLSN, applied, replyRequested);
+  }
+
+  private void scheduledStatusUpdate() {
+    try {
+      sendStatusUpdate(false);
+    }
+    catch (Throwable t) {
+      logger.log(Level.WARNING, "Unable to send replication status update", t);
+    }
+  }
+
+  private void finish() {
+    if (!finished.compareAndSet(false, true)) return;
+
+    if (statusTask != null) {
+      statusTask.cancel(false);
+    }
+
+    started.countDown();
+    completed.countDown();
+
+    try {
+      listener.closed(error != null ? makeSQLException(error) : null);
+    }
+    catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception in replication listener", t);
+    }
+  }
+
+  /*
+   * Replication handler
+   */
+
+  @Override
+  public void handleStart(ReplicationControl control) {
+    this.control = control;
+    this.statusTask = timer.scheduleAtFixedRate(this::scheduledStatusUpdate, statusInterval, statusInterval, MILLISECONDS);
+    started.countDown();
+  }
+
+  @Override
+  public void handleXLogData(long startLSN, long endLSN, long serverClock, ByteBuf data) throws IOException {
+
+    if (startLSN > receivedLSN) {
+      receivedLSN = startLSN;
+    }
+
+    try {
+      listener.xlogData(startLSN, data.nioBuffer());
+    }
+    catch (Throwable t) {
+      error = t;
+      control.stop();
+    }
+  }
+
+  @Override
+  public void handleKeepalive(long endLSN, long serverClock, boolean replyRequested) throws IOException {
+    if (replyRequested) {
+      sendStatusUpdate(false);
+    }
+  }
+
+  @Override
+  public void handleComplete() {
+  }
+
+  @Override
+  public void handleError(Throwable cause, List<Notice> notices) {
+    if (error == null) {
+      error = cause;
+    }
+    finish();
+  }
+
+  @Override
+  public void handleReady(TransactionStatus transactionStatus) {
+    finish();
+  }
+
+}
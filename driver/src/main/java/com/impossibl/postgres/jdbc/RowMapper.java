@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.protocol.ResultField;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Maps result rows to instances of a record or POJO class.
+ *
+ * The target class is analyzed once (per class loader lifetime) into method
+ * handles for its constructor and properties; a mapper then binds those to
+ * the column indexes of a specific result layout.
+ *
+ * @param <T> Mapped type
+ */
+abstract class RowMapper<T> {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /*
+   * Class#isRecord & Class#getRecordComponents are only available on JDK 16+
+   */
+  private static final Method IS_RECORD;
+  private static final Method GET_RECORD_COMPONENTS;
+  private static final Method GET_COMPONENT_NAME;
+  private static final Method GET_COMPONENT_TYPE;
+
+  static {
+    Method isRecord = null;
+    Method getRecordComponents = null;
+    Method getComponentName = null;
+    Method getComponentType = null;
+    try {
+      isRecord = Class.class.getMethod("isRecord");
+      getRecordComponents = Class.class.getMethod("getRecordComponents");
+      Class<?> componentClass = getRecordComponents.getReturnType().getComponentType();
+      getComponentName = componentClass.getMethod("getName");
+      getComponentType = componentClass.getMethod("getType");
+    }
+    catch (NoSuchMethodException ignored) {
+      isRecord = null;
+    }
+    IS_RECORD = isRecord;
+    GET_RECORD_COMPONENTS = getRecordComponents;
+    GET_COMPONENT_NAME = getComponentName;
+    GET_COMPONENT_TYPE = getComponentType;
+  }
+
+  private static final ClassValue<Target> TARGETS = new ClassValue<Target>() {
+    @Override
+    protected Target computeValue(Class<?> type) {
+      try {
+        return isRecord(type) ? recordTarget(type) : pojoTarget(type);
+      }
+      catch (ReflectiveOperationException | RuntimeException e) {
+        return new Target(e);
+      }
+    }
+  };
+
+  /**
+   * Analyzed constructor &amp; properties of a target class.
+   */
+  private static class Target {
+
+    Exception error;
+    MethodHandle constructor;
+    String[] propertyKeys;
+    Class<?>[] propertyTypes;
+    MethodHandle[] propertySetters;
+
+    Target(Exception error) {
+      this.error = error;
+    }
+
+    Target(MethodHandle constructor, String[] propertyKeys, Class<?>[] propertyTypes, MethodHandle[] propertySetters) {
+      this.constructor = constructor;
+      this.propertyKeys = propertyKeys;
+      this.propertyTypes = propertyTypes;
+      this.propertySetters = propertySetters;
+    }
+
+  }
+
+  private Class<T> type;
+
+  RowMapper(Class<T> type) {
+    this.type = type;
+  }
+
+  Class<T> getType() {
+    return type;
+  }
+
+  /**
+   * Maps the current row of a result set.
+   */
+  abstract T map(PGResultSet resultSet) throws SQLException;
+
+  /**
+   * Creates a mapper from the given result layout to the target class.
+   *
+   * @throws SQLException If the class cannot be mapped or no columns match it
+   */
+  static <T> RowMapper<T> create(Class<T> type, ResultField[] fields) throws SQLException {
+
+    Target target = TARGETS.get(type);
+    if (target.error != null) {
+      throw new PGSQLSimpleException("Unable to map rows to " + type.getName(), target.error);
+    }
+
+    int[] fieldIndexes = new int[target.propertyKeys.length];
+    int matched = 0;
+
+    for (int propertyIdx = 0; propertyIdx < fieldIndexes.length; ++propertyIdx) {
+      fieldIndexes[propertyIdx] = findField(fields, target.propertyKeys[propertyIdx]);
+      if (fieldIndexes[propertyIdx] != -1) {
+        matched++;
+      }
+    }
+
+    if (target.propertySetters == null) {
+
+      if (matched != fieldIndexes.length) {
+        for (int propertyIdx = 0; propertyIdx < fieldIndexes.length; ++propertyIdx) {
+          if (fieldIndexes[propertyIdx] == -1) {
+            throw new PGSQLSimpleException("No column for record component '" + target.propertyKeys[propertyIdx] + "' of " + type.getName());
+          }
+        }
+      }
+
+      return new RecordRowMapper<>(type, target, fieldIndexes);
+    }
+
+    if (matched == 0) {
+      throw new PGSQLSimpleException("No columns match properties of " + type.getName());
+    }
+
+    return new PojoRowMapper<>(type, target, fieldIndexes, matched);
+  }
+
+  private static int findField(ResultField[] fields, String key) {
+    for (int fieldIdx = 0; fieldIdx < fields.length; ++fieldIdx) {
+      if (key.equals(propertyKey(fields[fieldIdx].getName()))) {
+        return fieldIdx;
+      }
+    }
+    return -1;
+  }
+
+  private static String propertyKey(String name) {
+    return name.replace("_", "").toLowerCase(Locale.ROOT);
+  }
+
+  private static Class<?> decodeType(Class<?> propertyType) {
+    return propertyType.isPrimitive() ? methodType(propertyType).wrap().returnType() : propertyType;
+  }
+
+  private static boolean isRecord(Class<?> type) throws ReflectiveOperationException {
+    return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+  }
+
+  private static Target recordTarget(Class<?> type) throws ReflectiveOperationException {
+
+    Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+
+    String[] keys = new String[components.length];
+    Class<?>[] types = new Class<?>[components.length];
+    for (int componentIdx = 0; componentIdx < components.length; ++componentIdx) {
+      keys[componentIdx] = propertyKey((String) GET_COMPONENT_NAME.invoke(components[componentIdx]));
+      types[componentIdx] = (Class<?>) GET_COMPONENT_TYPE.invoke(components[componentIdx]);
+    }
+
+    Constructor<?> constructor = accessible(type.getDeclaredConstructor(types));
+
+    MethodHandle constructorHandle = LOOKUP.unreflectConstructor(constructor)
+        .asSpreader(Object[].class, types.length)
+        .asType(methodType(Object.class, Object[].class));
+
+    return new Target(constructorHandle, keys, types, null);
+  }
+
+  private static Target pojoTarget(Class<?> type) throws ReflectiveOperationException {
+
+    Constructor<?> constructor = accessible(type.getDeclaredConstructor());
+
+    MethodHandle constructorHandle = LOOKUP.unreflectConstructor(constructor)
+        .asType(methodType(Object.class));
+
+    // Setters take precedence over fields of the same name
+    Map<String, MethodHandle> setters = new LinkedHashMap<>();
+    Map<String, Class<?>> types = new LinkedHashMap<>();
+
+    for (Method method : type.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1 ||
+          !method.getName().startsWith("set") || method.getName().length() == 3) {
+        continue;
+      }
+      String key = propertyKey(method.getName().substring(3));
+      if (setters.containsKey(key)) {
+        continue;
+      }
+      setters.put(key, LOOKUP.unreflect(accessible(method)).asType(methodType(void.class, Object.class, Object.class)));
+      types.put(key, method.getParameterTypes()[0]);
+    }
+
+    for (Class<?> cls = type; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+      for (Field field : cls.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) {
+          continue;
+        }
+        String key = propertyKey(field.getName());
+        if (setters.containsKey(key)) {
+          continue;
+        }
+        setters.put(key, LOOKUP.unreflectSetter(accessible(field)).asType(methodType(void.class, Object.class, Object.class)));
+        types.put(key, field.getType());
+      }
+    }
+
+    List<String> keys = new ArrayList<>(setters.keySet());
+
+    return new Target(
+        constructorHandle,
+        keys.toArray(new String[0]),
+        types.values().toArray(new Class<?>[0]),
+        setters.values().toArray(new MethodHandle[0])
+    );
+  }
+
+  private static <A extends AccessibleObject> A accessible(A member) {
+    try {
+      member.setAccessible(true);
+    }
+    catch (RuntimeException ignored) {
+      // Inaccessible members fail when unreflected, with a more specific error
+    }
+    return member;
+  }
+
+  private static SQLException mappingError(Class<?> type, Throwable cause) {
+    if (cause instanceof SQLException) {
+      return (SQLException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new PGSQLSimpleException("Error mapping row to " + type.getName(), cause);
+  }
+
+  private static class RecordRowMapper<T> extends RowMapper<T> {
+
+    private MethodHandle constructor;
+    private int[] fieldIndexes;
+    private Class<?>[] decodeTypes;
+    private Object[] defaults;
+
+    RecordRowMapper(Class<T> type, Target target, int[] fieldIndexes) {
+      super(type);
+      this.constructor = target.constructor;
+      this.fieldIndexes = fieldIndexes;
+      this.decodeTypes = new Class<?>[fieldIndexes.length];
+      this.defaults = new Object[fieldIndexes.length];
+      for (int componentIdx = 0; componentIdx < fieldIndexes.length; ++componentIdx) {
+        Class<?> componentType = target.propertyTypes[componentIdx];
+        decodeTypes[componentIdx] = decodeType(componentType);
+        defaults[componentIdx] = componentType.isPrimitive() ? Array.get(Array.newInstance(componentType, 1), 0) : null;
+      }
+    }
+
+    @Override
+    T map(PGResultSet resultSet) throws SQLException {
+
+      Object[] arguments = new Object[fieldIndexes.length];
+      for (int componentIdx = 0; componentIdx < arguments.length; ++componentIdx) {
+        Object value = resultSet.getMappedField(fieldIndexes[componentIdx], decodeTypes[componentIdx]);
+        arguments[componentIdx] = value != null ? value : defaults[componentIdx];
+      }
+
+      try {
+        return getType().cast((Object) constructor.invokeExact(arguments));
+      }
+      catch (Throwable t) {
+        throw mappingError(getType(), t);
+      }
+    }
+
+  }
+
+  private static class PojoRowMapper<T> extends RowMapper<T> {
+
+    private MethodHandle constructor;
+    private int[] fieldIndexes;
+    private Class<?>[] decodeTypes;
+    private boolean[] primitives;
+    private MethodHandle[] setters;
+
+    PojoRowMapper(Class<T> type, Target target, int[] propertyFieldIndexes, int matched) {
+      super(type);
+      this.constructor = target.constructor;
+      this.fieldIndexes = new int[matched];
+      this.decodeTypes = new Class<?>[matched];
+      this.primitives = new boolean[matched];
+      this.setters = new MethodHandle[matched];
+      for (int propertyIdx = 0, idx = 0; propertyIdx < propertyFieldIndexes.length; ++propertyIdx) {
+        if (propertyFieldIndexes[propertyIdx] == -1) {
+          continue;
+        }
+        fieldIndexes[idx] = propertyFieldIndexes[propertyIdx];
+        decodeTypes[idx] = decodeType(target.propertyTypes[propertyIdx]);
+        primitives[idx] = target.propertyTypes[propertyIdx].isPrimitive();
+        setters[idx] = target.propertySetters[propertyIdx];
+        idx++;
+      }
+    }
+
+    @Override
+    T map(PGResultSet resultSet) throws SQLException {
+
+      try {
+        Object instance = (Object) constructor.invokeExact();
+
+        for (int idx = 0; idx < fieldIndexes.length; ++idx) {
+          Object value = resultSet.getMappedField(fieldIndexes[idx], decodeTypes[idx]);
+          if (value == null && primitives[idx]) {
+            continue;
+          }
+          setters[idx].invokeExact(instance, value);
+        }
+
+        return getType().cast(instance);
+      }
+      catch (Throwable t) {
+        throw mappingError(getType(), t);
+      }
+    }
+
+  }
+
+}
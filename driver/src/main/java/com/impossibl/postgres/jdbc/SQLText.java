@@ -58,6 +58,7 @@ public class SQLText {
   private static final Set<Character> ESCAPE_STRING_SPECIFIERS = new HashSet<>(Arrays.asList('E', 'e'));
 
   private MultiStatementNode root;
+  private int sessionChanges = -1;
 
   public SQLText(String sqlText) throws ParseException {
     this(sqlText, true);
@@ -87,6 +88,23 @@ public class SQLText {
     return (StatementNode) root.get(0);
   }
 
+  StatementNode getStatement(int idx) {
+    return (StatementNode) root.get(idx);
+  }
+
+  /**
+   * Session state changed by executing this SQL, classified on first
+   * request. Parsed SQL is cached so this is done once per unique text.
+   *
+   * @return Bit set of {@link SessionState} changes
+   */
+  int getSessionChanges() {
+    if (sessionChanges == -1) {
+      sessionChanges = SessionState.classify(this);
+    }
+    return sessionChanges;
+  }
+
   public StatementNode getLastStatement() {
     if (root == null || root.getNodeCount() == 0)
       return null;
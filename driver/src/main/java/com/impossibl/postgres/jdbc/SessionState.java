@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.jdbc.SQLTextTree.CompositeNode;
+import com.impossibl.postgres.jdbc.SQLTextTree.IdentifierPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.Node;
+import com.impossibl.postgres.jdbc.SQLTextTree.QuotedIdentifierPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.StatementNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tracks the session level server state a connection's SQL changes, so
+ * a pooled connection can be reset as far as needed (and no further)
+ * before it is reused.
+ *
+ * Each kind of change is reset with its own targeted command instead of
+ * {@code DISCARD ALL}, which keeps the connection's server side prepared
+ * statements (and the driver's caches of them) warm for the next user.
+ *
+ * Statements are classified conservatively by their keywords; changes
+ * made indirectly (e.g. by functions) cannot be seen.
+ */
+class SessionState {
+
+  static final int SETTINGS = 1;
+  static final int AUTHORIZATION = 1 << 1;
+  static final int TEMP_OBJECTS = 1 << 2;
+  static final int LISTENS = 1 << 3;
+  static final int ADVISORY_LOCKS = 1 << 4;
+  static final int HELD_CURSORS = 1 << 5;
+  static final int PREPARED_STATEMENTS = 1 << 6;
+  static final int STATEMENTS_DISCARDED = 1 << 7;
+  // Not a change, only marks SQL that must be scanned for deallocated names
+  static final int STATEMENTS_DEALLOCATED = 1 << 8;
+
+  private int changes;
+  private Set<String> preparedStatementNames = new LinkedHashSet<>();
+
+  /**
+   * Records the changes made by executing the given SQL.
+   *
+   * @param sqlText Parsed SQL being executed
+   * @param sqlChanges Changes of {@code sqlText} as returned by {@link #classify(SQLText)}
+   */
+  void track(SQLText sqlText, int sqlChanges) {
+    if (sqlChanges == 0) {
+      return;
+    }
+    changes |= sqlChanges & ~STATEMENTS_DEALLOCATED;
+    if ((sqlChanges & (PREPARED_STATEMENTS | STATEMENTS_DEALLOCATED | STATEMENTS_DISCARDED)) != 0) {
+      for (int idx = 0; idx < sqlText.getStatementCount(); ++idx) {
+        trackPreparedStatements(sqlText.getStatement(idx));
+      }
+      if (preparedStatementNames.isEmpty()) {
+        changes &= ~PREPARED_STATEMENTS;
+      }
+    }
+  }
+
+  /**
+   * Records changes made by the driver itself.
+   *
+   * @param driverChanges Changes made
+   */
+  void track(int driverChanges) {
+    changes |= driverChanges;
+  }
+
+  boolean isDirty() {
+    return changes != 0;
+  }
+
+  boolean isChanged(int change) {
+    return (changes & change) != 0;
+  }
+
+  /**
+   * Names of the statements prepared (via SQL) and not yet deallocated.
+   * They are reset separately because a tracked {@code PREPARE} may have
+   * failed, leaving no statement to deallocate.
+   *
+   * @return Prepared statement names, usable as SQL identifiers
+   */
+  Collection<String> getPreparedStatementNames() {
+    return preparedStatementNames;
+  }
+
+  /**
+   * Builds the (multi-statement) SQL that reverts the tracked changes.
+   *
+   * @return Reset SQL or {@code null} if nothing needs to be reset
+   */
+  String getResetSQL() {
+
+    List<String> commands = new ArrayList<>();
+
+    if (isChanged(HELD_CURSORS)) {
+      commands.add("CLOSE ALL");
+    }
+    if (isChanged(AUTHORIZATION)) {
+      commands.add("SET SESSION AUTHORIZATION DEFAULT");
+    }
+    if (isChanged(SETTINGS)) {
+      commands.add("RESET ALL");
+    }
+    if (isChanged(LISTENS)) {
+      commands.add("UNLISTEN *");
+    }
+    if (isChanged(TEMP_OBJECTS)) {
+      commands.add("DISCARD TEMP");
+    }
+    // Last, only the final command's results are produced
+    if (isChanged(ADVISORY_LOCKS)) {
+      commands.add("SELECT pg_advisory_unlock_all()");
+    }
+
+    if (commands.isEmpty()) {
+      return null;
+    }
+
+    return String.join(";", commands);
+  }
+
+  void clear() {
+    changes = 0;
+    preparedStatementNames.clear();
+  }
+
+  /**
+   * Determines the kinds of session state executing the given SQL changes.
+   *
+   * @param sqlText Parsed SQL
+   * @return Bit set of changes
+   */
+  static int classify(SQLText sqlText) {
+
+    int changes = 0;
+
+    for (int idx = 0; idx < sqlText.getStatementCount(); ++idx) {
+
+      List<String> words = new ArrayList<>();
+      collectWords(sqlText.getStatement(idx), words);
+      if (words.isEmpty()) {
+        continue;
+      }
+
+      String first = words.get(0);
+      String second = words.size() > 1 ? words.get(1) : "";
+
+      switch (first) {
+        case "set":
+          changes |= classifySet(second, words.size() > 2 ? words.get(2) : "");
+          break;
+
+        case "listen":
+          changes |= LISTENS;
+          break;
+
+        case "prepare":
+          if (!second.equals("transaction")) {
+            changes |= PREPARED_STATEMENTS;
+          }
+          break;
+
+        case "declare":
+          if (words.contains("hold") && !words.contains("without")) {
+            changes |= HELD_CURSORS;
+          }
+          break;
+
+        case "deallocate":
+          if (second.equals("all") || (second.equals("prepare") && words.size() > 2 && words.get(2).equals("all"))) {
+            changes |= STATEMENTS_DISCARDED;
+          }
+          else {
+            changes |= STATEMENTS_DEALLOCATED;
+          }
+          break;
+
+        case "discard":
+          if (second.equals("all")) {
+            changes |= STATEMENTS_DISCARDED;
+          }
+          break;
+
+        default:
+          break;
+      }
+
+      for (String word : words) {
+        switch (word) {
+          case "temp":
+          case "temporary":
+          case "pg_temp":
+            if (first.equals("create") || first.equals("select") || first.equals("with")) {
+              changes |= TEMP_OBJECTS;
+            }
+            break;
+
+          case "pg_advisory_lock":
+          case "pg_advisory_lock_shared":
+          case "pg_try_advisory_lock":
+          case "pg_try_advisory_lock_shared":
+            changes |= ADVISORY_LOCKS;
+            break;
+
+          case "set_config":
+            changes |= SETTINGS;
+            break;
+
+          default:
+            break;
+        }
+      }
+
+    }
+
+    return changes;
+  }
+
+  private static int classifySet(String second, String third) {
+    switch (second) {
+      case "local":
+      case "transaction":
+      case "constraints":
+        // Transaction scoped
+        return 0;
+
+      case "role":
+      case "session_authorization":
+        return AUTHORIZATION;
+
+      case "session":
+        return third.equals("authorization") || third.equals("role") ? AUTHORIZATION : SETTINGS;
+
+      default:
+        return SETTINGS;
+    }
+  }
+
+  private static void collectWords(Node node, List<String> words) {
+    if (node instanceof CompositeNode) {
+      Iterator<Node> nodeIter = ((CompositeNode) node).iterator();
+      while (nodeIter.hasNext()) {
+        collectWords(nodeIter.next(), words);
+      }
+    }
+    else if (node instanceof IdentifierPiece && !(node instanceof QuotedIdentifierPiece)) {
+      words.add(((IdentifierPiece) node).getText().toLowerCase(Locale.ROOT));
+    }
+  }
+
+  private void trackPreparedStatements(StatementNode statement) {
+
+    List<IdentifierPiece> identifiers = new ArrayList<>();
+    Iterator<Node> nodeIter = statement.iterator();
+    while (nodeIter.hasNext() && identifiers.size() < 3) {
+      Node node = nodeIter.next();
+      if (node instanceof IdentifierPiece) {
+        identifiers.add((IdentifierPiece) node);
+      }
+    }
+    if (identifiers.size() < 2) {
+      return;
+    }
+
+    switch (keyword(identifiers.get(0))) {
+      case "prepare":
+        if (!keyword(identifiers.get(1)).equals("transaction")) {
+          preparedStatementNames.add(statementName(identifiers.get(1)));
+        }
+        break;
+
+      case "deallocate":
+        IdentifierPiece target = identifiers.get(1);
+        if (keyword(target).equals("prepare")) {
+          if (identifiers.size() < 3) {
+            break;
+          }
+          target = identifiers.get(2);
+        }
+        if (keyword(target).equals("all")) {
+          preparedStatementNames.clear();
+        }
+        else {
+          preparedStatementNames.remove(statementName(target));
+        }
+        break;
+
+      case "discard":
+        if (keyword(identifiers.get(1)).equals("all")) {
+          preparedStatementNames.clear();
+        }
+        break;
+
+      default:
+        break;
+    }
+  }
+
+  private static String keyword(IdentifierPiece identifier) {
+    if (identifier instanceof QuotedIdentifierPiece) {
+      return "";
+    }
+    return identifier.getText().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Normalized statement name; unquoted names are case insensitive.
+   */
+  private static String statementName(IdentifierPiece identifier) {
+    if (identifier instanceof QuotedIdentifierPiece) {
+      StringBuilder name = new StringBuilder();
+      identifier.build(name);
+      return name.toString();
+    }
+    return identifier.getText().toLowerCase(Locale.ROOT);
+  }
+
+}
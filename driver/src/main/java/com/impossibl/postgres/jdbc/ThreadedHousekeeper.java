@@ -28,12 +28,15 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.system.Events;
+
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -56,6 +59,11 @@ public class ThreadedHousekeeper implements Housekeeper {
   public class Ref implements Housekeeper.Ref {
 
     private AtomicBoolean released = new AtomicBoolean(false);
+    private int allocationTraceSampleRate;
+
+    Ref(int allocationTraceSampleRate) {
+      this.allocationTraceSampleRate = allocationTraceSampleRate;
+    }
 
     @Override
     public ThreadedHousekeeper get() {
@@ -78,15 +86,39 @@ public class ThreadedHousekeeper implements Housekeeper {
       ThreadedHousekeeper.this.remove(cleanupKey);
     }
 
+    @Override
+    public Throwable captureAllocationSite() {
+
+      if (allocationTraceSampleRate == 0) {
+        return null;
+      }
+
+      if (allocationTraceSampleRate == 1 || leakDetected || ThreadLocalRandom.current().nextInt(allocationTraceSampleRate) == 0) {
+        // Resolving the stack to elements is deferred until a leak is reported
+        return new Throwable();
+      }
+
+      return null;
+    }
+
   }
 
-  public static synchronized Ref acquire() {
+  /**
+   * Acquires a reference to the shared housekeeper.
+   *
+   * @param allocationTraceSampleRate
+   *          Allocation sites of 1 in N objects tracked via the reference
+   *          are captured; zero disables capture. Once any leak has been
+   *          detected all allocation sites are captured.
+   * @return Housekeeper reference
+   */
+  public static synchronized Ref acquire(int allocationTraceSampleRate) {
 
     if (instanceRefs == 0) {
       instance = new ThreadedHousekeeper();
     }
     ++instanceRefs;
-    return instance.new Ref();
+    return instance.new Ref(allocationTraceSampleRate);
   }
 
   private static synchronized void release() {
@@ -120,19 +152,34 @@ public class ThreadedHousekeeper implements Housekeeper {
     void cleanup() {
 
       if (logLeaks) {
-        String allocationTrace = printStackTrace(getSimplifiedAllocationStackTrace());
-        logger.log(
-            Level.WARNING,
-            "Cleaning up leaked " + cleanup.getKind() + "\n"
-                + "Allocation occurred @\n" + allocationTrace);
+        StackTraceElement[] allocationTrace = getSimplifiedAllocationStackTrace();
+        if (allocationTrace != null) {
+          logger.log(
+              Level.WARNING,
+              "Cleaning up leaked " + cleanup.getKind() + "\n"
+                  + "Allocation occurred @\n" + printStackTrace(allocationTrace));
+        }
+        else {
+          logger.log(
+              Level.WARNING,
+              "Cleaning up leaked " + cleanup.getKind() + "\n"
+                  + "Allocation site not sampled" + (leakDetected ? "" : ", capturing all allocation sites from now on"));
+        }
       }
 
+      Events.housekeeperCleanup(cleanup.getKind(), cleanup.getAllocationStackTrace() != null);
+
+      leakDetected = true;
+
       cleanup.run();
     }
 
     StackTraceElement[] getSimplifiedAllocationStackTrace() {
 
       StackTraceElement[] allocationTrace = cleanup.getAllocationStackTrace();
+      if (allocationTrace == null) {
+        return null;
+      }
 
       // Find the first non driver related class
       for (int c = 0; c < allocationTrace.length; ++c) {
@@ -172,8 +219,9 @@ public class ThreadedHousekeeper implements Housekeeper {
   }
 
   private boolean logLeaks = true;
+  private volatile boolean leakDetected;
   private ReferenceQueue<Object> cleanupQueue = new ReferenceQueue<>();
-  private Set<HousekeeperReference<?>> cleanupReferences = new HashSet<>();
+  private Set<HousekeeperReference<?>> cleanupReferences = Collections.newSetFromMap(new ConcurrentHashMap<>());
   private AtomicBoolean cleanupThreadEnabled = new AtomicBoolean(true);
   private Thread cleanupThread = new Thread() {
 
@@ -198,9 +246,7 @@ public class ThreadedHousekeeper implements Housekeeper {
           // Ignore...
         }
 
-        synchronized (ThreadedHousekeeper.this) {
-          cleanupReferences.remove(ref);
-        }
+        cleanupReferences.remove(ref);
       }
 
       emptyQueue();
@@ -237,26 +283,25 @@ public class ThreadedHousekeeper implements Housekeeper {
 
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The returned key is the tracking reference itself, making removal
+   * constant time and lock free.
+   */
   @Override
-  public synchronized <T> Object add(T referent, CleanupRunnable cleanup) {
+  public <T> Object add(T referent, CleanupRunnable cleanup) {
     HousekeeperReference<T> ref = new HousekeeperReference<>(cleanup, referent, cleanupQueue);
     cleanupReferences.add(ref);
-    return cleanup;
+    return ref;
   }
 
   @Override
-  public synchronized void remove(Object cleanupKey) {
-
-    Iterator<HousekeeperReference<?>> refIter = cleanupReferences.iterator();
-    while (refIter.hasNext()) {
-      HousekeeperReference<?> ref = refIter.next();
-      if (ref.cleanup == cleanupKey) {
-        ref.clear();
-        refIter.remove();
-        return;
-      }
-    }
+  public void remove(Object cleanupKey) {
 
+    HousekeeperReference<?> ref = (HousekeeperReference<?>) cleanupKey;
+    ref.clear();
+    cleanupReferences.remove(ref);
   }
 
   private void close() {
@@ -66,6 +66,10 @@ public class FieldBuffersRowData extends AbstractReferenceCounted implements Upd
     Type type = context.getRegistry().resolve(field.getTypeRef());
 
     ByteBuf fieldBuffer = fieldBuffers[fieldIdx];
+    if (fieldBuffer == null) {
+      return null;
+    }
+
     fieldBuffer.resetReaderIndex();
 
     Object result;
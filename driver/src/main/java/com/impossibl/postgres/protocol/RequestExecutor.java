@@ -433,6 +433,16 @@ public interface RequestExecutor {
    */
   void lazyExecute(String statementName) throws IOException;
 
+  /**
+   * Executes a query at the earliest convenience, using the "simple" query
+   * protocol. Notices and errors are reported in the same manner as
+   * {@link #lazyExecute(String)}.
+   *
+   * @param sql SQL text of query to execute.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void lazyQuery(String sql) throws IOException;
+
 
   /*****
    * Asynchronous Notification
@@ -465,4 +475,67 @@ public interface RequestExecutor {
 
   void copyTo(String sql, OutputStream stream, CopyToHandler handler) throws IOException;
 
+
+  /*****
+   * Replication
+   */
+
+  /**
+   * Controls an active replication stream. Methods may be called from any
+   * thread.
+   */
+  interface ReplicationControl {
+
+    /**
+     * Sends a standby status update reporting the given WAL locations.
+     */
+    void sendStatusUpdate(long writtenLSN, long flushedLSN, long appliedLSN, boolean replyRequested) throws IOException;
+
+    /**
+     * Enables or disables reading from the connection. While disabled no
+     * further data is received, applying back pressure to the server.
+     */
+    void setReading(boolean reading);
+
+    /**
+     * Requests the server end the stream.
+     */
+    void stop() throws IOException;
+
+    /**
+     * Closes the connection without waiting for the server to end the
+     * stream.
+     */
+    void abort();
+
+  }
+
+  /**
+   * Request handler interface for the {@link #startReplication(String, ReplicationHandler)} request.
+   *
+   * All data callbacks are issued on the connection's I/O thread; buffers
+   * passed to them are only valid for the duration of the call.
+   */
+  interface ReplicationHandler extends SynchronizedHandler {
+
+    void handleStart(ReplicationControl control) throws IOException;
+
+    void handleXLogData(long startLSN, long endLSN, long serverClock, ByteBuf data) throws IOException;
+
+    void handleKeepalive(long endLSN, long serverClock, boolean replyRequested) throws IOException;
+
+    void handleComplete() throws IOException;
+
+  }
+
+  /**
+   * Executes a {@code START_REPLICATION} command and streams the resulting
+   * WAL data to the handler.
+   *
+   * @param sql {@code START_REPLICATION} command text.
+   * @param handler Replication handler to receive the stream.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void startReplication(String sql, ReplicationHandler handler) throws IOException;
+
 }
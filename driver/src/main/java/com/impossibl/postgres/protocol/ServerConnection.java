@@ -28,6 +28,7 @@
  */
 package com.impossibl.postgres.protocol;
 
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.Version;
 
@@ -39,6 +40,7 @@ import java.util.concurrent.ScheduledExecutorService;
 
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelFuture;
+import io.netty.util.Timer;
 
 public interface ServerConnection {
 
@@ -90,4 +92,11 @@ public interface ServerConnection {
 
   ScheduledExecutorService getIOExecutor();
 
+  Timer getTimer();
+
+  /**
+   * @return Metrics recorded for the connection or {@code null} if metrics are disabled
+   */
+  Metrics getMetrics();
+
 }
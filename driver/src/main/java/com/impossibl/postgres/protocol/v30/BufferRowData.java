@@ -34,6 +34,7 @@ import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.UpdatableRowData;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.StringCache;
 
 import static com.impossibl.postgres.utils.ByteBufs.lengthEncode;
 
@@ -62,6 +63,12 @@ public class BufferRowData extends DefaultByteBufHolder implements RowData, Refe
     this.fieldOffsets = fieldOffsets;
   }
 
+  @Override
+  public BufferRowData retain() {
+    super.retain();
+    return this;
+  }
+
   public static BufferRowData encode(Context context, ResultField[] fields, Object[] values) throws IOException {
 
     ByteBuf fieldsBuffer = context.getAllocator().buffer();
@@ -141,7 +148,8 @@ public class BufferRowData extends DefaultByteBufHolder implements RowData, Refe
 
         ByteBuf fieldBuffer = buffer.retainedSlice(offset + 4, length);
         try {
-          String fieldString = fieldBuffer.toString(UTF_8);
+          StringCache stringCache = context.getStringCache();
+          String fieldString = stringCache != null ? stringCache.get(fieldBuffer, length, UTF_8) : fieldBuffer.toString(UTF_8);
           return decoder.decode(context, type, field.getTypeLength(), field.getTypeModifier(), fieldString, targetClass, targetContext);
         }
         finally {
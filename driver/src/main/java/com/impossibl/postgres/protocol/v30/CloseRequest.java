@@ -113,6 +113,11 @@ public class CloseRequest implements ServerRequest {
     return handler != null ? new SyncedHandler() : new LazyHandler();
   }
 
+  @Override
+  public String getObjectName() {
+    return objectName;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
@@ -41,6 +41,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import java.io.IOException;
@@ -123,6 +124,11 @@ public class CopyInRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.COPY;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
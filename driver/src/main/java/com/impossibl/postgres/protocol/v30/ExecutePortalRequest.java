@@ -45,6 +45,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.PortalSuspended;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import static com.impossibl.postgres.protocol.FieldFormats.REQUEST_ALL_TEXT;
@@ -57,8 +58,6 @@ import java.util.List;
 
 import static java.lang.Integer.min;
 
-import io.netty.buffer.ByteBuf;
-
 import static io.netty.util.ReferenceCountUtil.release;
 
 
@@ -115,8 +114,8 @@ class ExecutePortalRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+    public Action rowData(BufferRowData rowData) {
+      rows.add(rowData.retain());
       return Action.Resume;
     }
 
@@ -193,6 +192,16 @@ class ExecutePortalRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.EXECUTE;
+  }
+
+  @Override
+  public String getObjectName() {
+    return portalName;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
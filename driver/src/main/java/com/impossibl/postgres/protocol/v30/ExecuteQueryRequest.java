@@ -48,6 +48,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.PortalSuspended;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import static com.impossibl.postgres.protocol.FieldFormats.REQUEST_ALL_BINARY;
@@ -151,8 +152,8 @@ class ExecuteQueryRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+    public Action rowData(BufferRowData rowData) {
+      rows.add(rowData.retain());
       return Action.Resume;
     }
 
@@ -229,6 +230,16 @@ class ExecuteQueryRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.EXECUTE;
+  }
+
+  @Override
+  public String getObjectName() {
+    return portalName;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
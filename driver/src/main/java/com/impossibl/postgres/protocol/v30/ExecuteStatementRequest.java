@@ -41,6 +41,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.PortalSuspended;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import java.io.IOException;
@@ -102,8 +103,8 @@ public class ExecuteStatementRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+    public Action rowData(BufferRowData rowData) {
+      rows.add(rowData.retain());
       return Action.Resume;
     }
 
@@ -176,6 +177,16 @@ public class ExecuteStatementRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.EXECUTE;
+  }
+
+  @Override
+  public String getObjectName() {
+    return statementName;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
@@ -34,6 +34,7 @@ import com.impossibl.postgres.protocol.RequestExecutor.FunctionCallHandler;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.FunctionResult;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import java.io.IOException;
@@ -95,6 +96,11 @@ public class FunctionCallRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.CALL;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
@@ -35,6 +35,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
+import com.impossibl.postgres.system.Metrics.RequestType;
 
 import static com.impossibl.postgres.protocol.FieldFormats.REQUEST_ALL_TEXT;
 import static com.impossibl.postgres.system.Empty.EMPTY_BUFFERS;
@@ -103,6 +104,11 @@ public class LazyExecuteRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.EXECUTE;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
@@ -29,9 +29,12 @@
 package com.impossibl.postgres.protocol.v30;
 
 import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
+import com.impossibl.postgres.system.Metrics.RequestType;
 
 import java.io.IOException;
 
@@ -51,7 +54,7 @@ public class LazyQueryRequest implements ServerRequest {
     this.query = query;
   }
 
-  class Handler implements CommandComplete, CommandError, ReportNotice {
+  class Handler implements CommandComplete, CommandError, ReportNotice, ReadyForQuery {
 
     @Override
     public String toString() {
@@ -60,13 +63,13 @@ public class LazyQueryRequest implements ServerRequest {
 
     @Override
     public Action commandComplete(String command, Long rowsAffected, Long insertedOid) {
-      return Action.Complete;
+      return Action.Resume;
     }
 
     @Override
     public Action error(Notice notice) {
       // Pass error to next handler, cause it to believe an error occurred in its command
-      return Action.CompletePassing;
+      return Action.ResumePassing;
     }
 
     @Override
@@ -75,6 +78,11 @@ public class LazyQueryRequest implements ServerRequest {
       return Action.ResumePassing;
     }
 
+    @Override
+    public Action readyForQuery(TransactionStatus txnStatus) {
+      return Action.Complete;
+    }
+
     @Override
     public void exception(Throwable cause) {
     }
@@ -86,6 +94,11 @@ public class LazyQueryRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.QUERY;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
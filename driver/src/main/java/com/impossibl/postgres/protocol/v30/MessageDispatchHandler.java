@@ -36,17 +36,27 @@ import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeOid;
 import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.system.Events;
+import com.impossibl.postgres.system.Metrics;
+import com.impossibl.postgres.system.Metrics.RequestType;
 
 import static com.impossibl.postgres.protocol.TransactionStatus.Active;
 import static com.impossibl.postgres.protocol.TransactionStatus.Failed;
 import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
 import static com.impossibl.postgres.protocol.v30.ProtocolHandlers.SYNC;
+import static com.impossibl.postgres.protocol.v30.ProtocolTracer.INBOUND;
+import static com.impossibl.postgres.protocol.v30.ProtocolTracer.OUTBOUND;
+import static com.impossibl.postgres.system.Events.Kind.REQUEST;
+import static com.impossibl.postgres.system.Metrics.Counter.BYTES_IN;
+import static com.impossibl.postgres.system.Metrics.Counter.BYTES_OUT;
+import static com.impossibl.postgres.system.Metrics.Counter.MESSAGES_IN;
+import static com.impossibl.postgres.system.Metrics.Counter.MESSAGES_OUT;
+import static com.impossibl.postgres.system.Metrics.Counter.ROWS_DECODED;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_MESSAGE_SIZE_MAX;
 import static com.impossibl.postgres.utils.ByteBufs.readCString;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Writer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
 import java.util.Deque;
@@ -64,17 +74,42 @@ import io.netty.util.ReferenceCountUtil;
 
 public class MessageDispatchHandler extends ChannelDuplexHandler {
 
+  private static class PendingRequest {
+    ProtocolHandler handler;
+    RequestType type;
+    long started;
+    String objectName;
+    Object event;
+    long rows;
+    long bytes;
+
+    PendingRequest(ProtocolHandler handler, RequestType type, String objectName, long started, Object event) {
+      this.handler = handler;
+      this.type = type;
+      this.objectName = objectName;
+      this.started = started;
+      this.event = event;
+    }
+  }
+
   private TransactionStatus transactionStatus;
   private Deque<ProtocolHandler> protocolHandlers;
+  private Deque<PendingRequest> pendingRequests;
   private ProtocolHandler defaultHandler;
   private Charset charset;
-  private Writer traceWriter;
+  private ProtocolTracer.Ref tracer;
+  private String writingObjectName;
+  private RowDataSpool rowDataSpool;
+  private Metrics metrics;
   private boolean requiresFlush = false;
 
-  MessageDispatchHandler(Charset charset, Writer traceWriter) {
+  MessageDispatchHandler(Charset charset, ProtocolTracer.Ref tracer, RowDataSpool rowDataSpool, Metrics metrics) {
     this.protocolHandlers = new ConcurrentLinkedDeque<>();
+    this.pendingRequests = new ConcurrentLinkedDeque<>();
     this.charset = charset;
-    this.traceWriter = traceWriter;
+    this.tracer = tracer;
+    this.rowDataSpool = rowDataSpool;
+    this.metrics = metrics;
   }
 
   void setDefaultHandler(ProtocolHandler defaultHandler) {
@@ -85,6 +120,10 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     return transactionStatus;
   }
 
+  Metrics getMetrics() {
+    return metrics;
+  }
+
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws IOException {
 
@@ -99,11 +138,22 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
         protocolHandlers.offer(requestProtocolHandler);
 
+        Object event = Events.begin(REQUEST);
+        if (metrics != null || event != null || tracer != null) {
+          pendingRequests.offer(new PendingRequest(requestProtocolHandler, request.getRequestType(), request.getObjectName(), System.nanoTime(), event));
+        }
+
       }
 
       // Execute the request
 
-      request.execute(new ProtocolChannel(ctx.channel(), ctx, charset));
+      writingObjectName = request.getObjectName();
+      try {
+        request.execute(new ProtocolChannel(ctx.channel(), ctx, charset));
+      }
+      finally {
+        writingObjectName = null;
+      }
 
       promise.setSuccess();
     }
@@ -113,7 +163,14 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
       ByteBuf buf = (ByteBuf) msg;
 
-      trace('<', (char) buf.getByte(0));
+      if (tracer != null) {
+        tracer.message(OUTBOUND, buf.getByte(0), buf.readableBytes(), writingObjectName);
+      }
+
+      if (metrics != null) {
+        metrics.increment(MESSAGES_OUT);
+        metrics.add(BYTES_OUT, buf.readableBytes());
+      }
 
       ctx.write(msg,  promise);
 
@@ -124,8 +181,6 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
   @Override
   public void flush(ChannelHandlerContext ctx) throws Exception {
-    trace("\n");
-    flushTrace();
     if (requiresFlush) {
       super.flush(ctx);
       requiresFlush = false;
@@ -137,18 +192,35 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
     ByteBuf msg = (ByteBuf) message;
     try {
+      int size = msg.readableBytes();
+      if (metrics != null) {
+        metrics.increment(MESSAGES_IN);
+        metrics.add(BYTES_IN, size);
+      }
+
       // Parse message header
 
       byte id = msg.readByte();
       int length = msg.readInt() - 4;
       ByteBuf data = msg.readSlice(length);
 
-      trace('>', (char) id);
-
       // Dispatch to current request handler
 
       ProtocolHandler protocolHandler = protocolHandlers.peek();
 
+      PendingRequest pending = pendingRequests.peek();
+      boolean current = pending != null && pending.handler == protocolHandler;
+      if (current) {
+        pending.bytes += size;
+        if (id == ROW_DATA_MSG_ID) {
+          pending.rows++;
+        }
+      }
+
+      if (tracer != null) {
+        tracer.message(INBOUND, id, size, current ? pending.objectName : null);
+      }
+
       dispatch(ctx, id, data, protocolHandler);
 
     }
@@ -159,8 +231,6 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    trace("\n");
-    flushTrace();
     super.channelReadComplete(ctx);
   }
 
@@ -168,6 +238,27 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
   public void channelInactive(ChannelHandlerContext ctx) {
 
     exceptionCaught(ctx, new ClosedChannelException());
+
+    // Requests that never completed still end their events
+    PendingRequest pending;
+    while ((pending = pendingRequests.poll()) != null) {
+      endRequestEvent(pending);
+    }
+
+    if (rowDataSpool != null) {
+      rowDataSpool.close();
+    }
+
+    if (metrics != null) {
+      metrics.close();
+    }
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    if (tracer != null) {
+      tracer.release();
+    }
   }
 
   @Override
@@ -184,6 +275,7 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     // Dispatch to current request handler (if any)
 
     ProtocolHandler handler = protocolHandlers.poll();
+    requestCompleted(handler);
     handler = handler != null ? handler : defaultHandler;
 
     if (handler == null) return;
@@ -228,13 +320,15 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
       return;
     }
 
+    if (tracer != null) {
+      tracer.action(action);
+    }
+
     switch (action) {
       case Resume:
-        trace(".");
         break;
 
       case ResumePassing:
-        trace(".^");
         ProtocolHandler resume = protocolHandlers.pop();
         try {
           dispatch(ctx, id, data.resetReaderIndex(), protocolHandlers.peek());
@@ -245,24 +339,43 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
         break;
 
       case Complete:
-        trace("*");
-        protocolHandlers.pop();
+        requestCompleted(protocolHandlers.pop());
         break;
 
       case CompletePassing:
-        trace("*^");
-        protocolHandlers.pop();
+        requestCompleted(protocolHandlers.pop());
         dispatch(ctx, id, data.resetReaderIndex(), protocolHandlers.peek());
         break;
 
       case Sync:
-        trace("$");
-        protocolHandlers.pop();
+        requestCompleted(protocolHandlers.pop());
         protocolHandlers.addFirst(SYNC);
         break;
     }
   }
 
+  /**
+   * Records the completion of the request owning the given handler; handlers
+   * not created by a request (e.g. {@code SYNC}) are ignored.
+   */
+  private void requestCompleted(ProtocolHandler handler) {
+
+    PendingRequest pending = pendingRequests.peek();
+    if (pending != null && pending.handler == handler) {
+      pendingRequests.poll();
+      if (metrics != null) {
+        metrics.request(pending.type, System.nanoTime() - pending.started);
+      }
+      endRequestEvent(pending);
+    }
+  }
+
+  private static void endRequestEvent(PendingRequest pending) {
+    if (pending.event != null) {
+      Events.endRequest(pending.event, pending.type.name(), pending.rows, pending.bytes);
+    }
+  }
+
   // Backend messages
   private static final byte NEGOTIATE_PROTOCOL_VERSION_ID = 'B';
   private static final byte AUTHENTICATION_MSG_ID = 'R';
@@ -585,7 +698,17 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
   private ProtocolHandler.Action receiveRowData(ByteBuf buffer, ProtocolHandler.DataRow handler) throws IOException {
 
-    return handler.rowData(buffer);
+    if (metrics != null) {
+      metrics.increment(ROWS_DECODED);
+    }
+
+    BufferRowData rowData = rowDataSpool != null ? rowDataSpool.create(buffer) : new BufferRowData(buffer.retain());
+    try {
+      return handler.rowData(rowData);
+    }
+    finally {
+      rowData.release();
+    }
   }
 
   private ProtocolHandler.Action receivePortalSuspended(ProtocolHandler.PortalSuspended handler) throws IOException {
@@ -677,7 +800,7 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
       throw new IOException("Copy-Both Not Handled");
     }
 
-    protocolHandlers.offer(subProtocolHandler);
+    protocolHandlers.offerFirst(subProtocolHandler);
 
     return ProtocolHandler.Action.Resume;
   }
@@ -741,22 +864,15 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
   private ProtocolHandler.Action receiveReadyForQuery(ByteBuf buffer, ProtocolHandler.ReadyForQuery handler) throws IOException {
 
-    TransactionStatus previousTransactionStatus = transactionStatus;
-
     switch (buffer.readByte()) {
       case 'T':
         transactionStatus = Active;
-        trace("[");
         break;
       case 'E':
         transactionStatus = Failed;
-        trace("!");
         break;
       case 'I':
         transactionStatus = Idle;
-        if (previousTransactionStatus != Idle) {
-          trace("]");
-        }
         break;
       default:
         throw new IllegalStateException("invalid transaction status");
@@ -845,32 +961,4 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     return notice;
   }
 
-  private void flushTrace() {
-    if (traceWriter == null) return;
-    try {
-      traceWriter.flush();
-    }
-    catch (IOException ignored) {
-    }
-  }
-
-  private void trace(char dir, char id) {
-    if (traceWriter == null) return;
-    try {
-      traceWriter.append(dir);
-      traceWriter.append(id);
-    }
-    catch (IOException ignored) {
-    }
-  }
-
-  private void trace(CharSequence code) {
-    if (traceWriter == null) return;
-    try {
-      traceWriter.append(code);
-    }
-    catch (IOException ignored) {
-    }
-  }
-
 }
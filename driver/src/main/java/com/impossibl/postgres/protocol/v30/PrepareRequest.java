@@ -38,6 +38,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParameterDescriptions
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParseComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import static com.impossibl.postgres.protocol.ServerObjectType.Statement;
@@ -128,6 +129,16 @@ public class PrepareRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.PREPARE;
+  }
+
+  @Override
+  public String getObjectName() {
+    return statementName;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
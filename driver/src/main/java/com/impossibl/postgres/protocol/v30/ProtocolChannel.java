@@ -67,6 +67,7 @@ public class ProtocolChannel {
   private static final byte COPY_DONE_MSG_ID = 'c';
   private static final byte COPY_FAIL_MSG_ID = 'f';
   private static final byte COPY_DATA_MSG_ID = 'd';
+  private static final byte STANDBY_STATUS_UPDATE_MSG_ID = 'r';
 
   private Channel channel;
   private ChannelOutboundInvoker flusher;
@@ -304,6 +305,24 @@ public class ProtocolChannel {
     return this;
   }
 
+  ProtocolChannel writeStandbyStatusUpdate(long writtenLSN, long flushedLSN, long appliedLSN, long clock, boolean replyRequested) {
+
+    ByteBuf msg = alloc.buffer(39);
+
+    msg.writeByte(COPY_DATA_MSG_ID);
+    msg.writeInt(38);
+    msg.writeByte(STANDBY_STATUS_UPDATE_MSG_ID);
+    msg.writeLong(writtenLSN);
+    msg.writeLong(flushedLSN);
+    msg.writeLong(appliedLSN);
+    msg.writeLong(clock);
+    msg.writeByte(replyRequested ? 1 : 0);
+
+    channel.write(msg, channel.voidPromise());
+
+    return this;
+  }
+
   ProtocolChannel writeCopyDone() throws IOException {
 
     writeMessage(COPY_DONE_MSG_ID);
@@ -107,7 +107,7 @@ public interface ProtocolHandler {
 
   interface DataRow extends ProtocolHandler {
 
-    Action rowData(ByteBuf data) throws IOException;
+    Action rowData(BufferRowData rowData) throws IOException;
 
   }
 
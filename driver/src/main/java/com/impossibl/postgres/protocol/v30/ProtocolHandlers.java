@@ -85,7 +85,7 @@ class ProtocolHandlers {
     }
 
     @Override
-    public Action rowData(ByteBuf data) {
+    public Action rowData(BufferRowData rowData) {
       return Action.Resume;
     }
 
@@ -0,0 +1,529 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.system.SystemSettings.ProtocolTraceFormat;
+
+import static com.impossibl.postgres.system.SystemSettings.ProtocolTraceFormat.BINARY;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Asynchronous tracer for protocol messages and SQL statements.
+ *
+ * Connections record fixed size records into a lock-free, multi-producer
+ * ring buffer; a single background thread drains the ring to the trace
+ * destination. Recording never blocks or performs I/O, when the ring is
+ * full records are dropped and the number dropped is reported in the
+ * trace output.
+ *
+ * Tracers are shared by all connections tracing to the same destination
+ * in the same format, each connection's records are tagged with a tracer
+ * assigned id.
+ */
+public class ProtocolTracer {
+
+  static final byte OUTBOUND = '<';
+  static final byte INBOUND = '>';
+  static final byte ACTION = '=';
+  static final byte SQL_PREPARE = 'P';
+  static final byte SQL_QUERY = 'Q';
+  static final byte SQL_EXECUTE = 'E';
+  static final byte DROPPED = '!';
+
+  static final int DEFAULT_CAPACITY = 8192;
+
+  private static final byte[] BINARY_MAGIC = {'P', 'G', 'T', 'R'};
+  private static final int BINARY_VERSION = 1;
+
+  /**
+   * A connection's reference to a shared tracer.
+   */
+  public class Ref {
+
+    private int connectionId;
+    private AtomicBoolean released = new AtomicBoolean(false);
+
+    private Ref(int connectionId) {
+      this.connectionId = connectionId;
+    }
+
+    ProtocolTracer get() {
+      return ProtocolTracer.this;
+    }
+
+    void message(byte direction, byte messageId, int length, String objectName) {
+      record(connectionId, direction, messageId, length, objectName, null);
+    }
+
+    void action(ProtocolHandler.Action action) {
+      record(connectionId, ACTION, (byte) action.ordinal(), 0, null, null);
+    }
+
+    void sql(byte kind, String statementName, String text) {
+      record(connectionId, kind, (byte) 0, 0, statementName, text);
+    }
+
+    public void release() {
+      if (released.getAndSet(true)) return;
+      ProtocolTracer.this.release();
+    }
+
+  }
+
+  private static Map<String, ProtocolTracer> instances = new HashMap<>();
+  private static Map<String, ProtocolTracer> stopping = new HashMap<>();
+
+  /**
+   * Acquires a reference to the tracer writing to the given file in the
+   * given format, starting it if necessary.
+   *
+   * @param filePath Destination file path or {@code null} for standard output
+   * @param format Format of the trace output
+   * @return Reference to the tracer for a single connection
+   */
+  static synchronized Ref acquire(String filePath, ProtocolTraceFormat format) {
+    String path = filePath != null ? filePath : "";
+    String key = path + "#" + format;
+    ProtocolTracer tracer = instances.get(key);
+    if (tracer == null) {
+
+      // A released tracer may still be writing to the destination
+      ProtocolTracer previous = stopping.remove(path);
+      if (previous != null) {
+        previous.awaitStopped();
+      }
+
+      OutputStream out = System.out;
+      boolean close = false;
+      if (filePath != null) {
+        try {
+          out = new FileOutputStream(filePath, false);
+          close = true;
+        }
+        catch (FileNotFoundException ignored) {
+        }
+      }
+      tracer = new ProtocolTracer(key, path, out, close, format, DEFAULT_CAPACITY);
+      tracer.start();
+      instances.put(key, tracer);
+    }
+    return tracer.addReference();
+  }
+
+  private String key;
+  private String path;
+  private ProtocolTraceFormat format;
+  private DataOutputStream out;
+  private Writer textOut;
+  private boolean close;
+  private long wallClockBase;
+  private long nanoTimeBase;
+  private AtomicInteger connectionIds = new AtomicInteger();
+  private int count = 0;
+
+  private int mask;
+  private AtomicLongArray sequences;
+  private long[] times;
+  private int[] connections;
+  private byte[] directions;
+  private byte[] messageIds;
+  private int[] lengths;
+  private String[] names;
+  private String[] texts;
+  private AtomicLong head = new AtomicLong();
+  private long tail;
+  private AtomicLong dropped = new AtomicLong();
+
+  private volatile boolean running;
+  private AtomicBoolean parked = new AtomicBoolean();
+  private Thread writer;
+
+  ProtocolTracer(String key, String path, OutputStream out, boolean close, ProtocolTraceFormat format, int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a power of two");
+    }
+    this.key = key;
+    this.path = path;
+    this.format = format;
+    this.close = close;
+    this.out = new DataOutputStream(new BufferedOutputStream(out, 0x10000));
+    this.textOut = new OutputStreamWriter(this.out, UTF_8);
+    this.wallClockBase = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    this.nanoTimeBase = System.nanoTime();
+
+    this.mask = capacity - 1;
+    this.sequences = new AtomicLongArray(capacity);
+    for (int c = 0; c < capacity; ++c) {
+      sequences.set(c, c);
+    }
+    this.times = new long[capacity];
+    this.connections = new int[capacity];
+    this.directions = new byte[capacity];
+    this.messageIds = new byte[capacity];
+    this.lengths = new int[capacity];
+    this.names = new String[capacity];
+    this.texts = new String[capacity];
+
+    if (format == BINARY) {
+      try {
+        this.out.write(BINARY_MAGIC);
+        this.out.writeInt(BINARY_VERSION);
+      }
+      catch (IOException ignored) {
+      }
+    }
+  }
+
+  private synchronized Ref addReference() {
+    count++;
+    return new Ref(connectionIds.incrementAndGet());
+  }
+
+  private void release() {
+    synchronized (ProtocolTracer.class) {
+      synchronized (this) {
+        if (--count > 0) return;
+        instances.remove(key, this);
+      }
+      stopping.put(path, this);
+    }
+    stop();
+  }
+
+  /**
+   * Records a single trace record, without blocking.
+   *
+   * @return {@code true} if recorded, {@code false} if dropped because the
+   * ring buffer is full
+   */
+  boolean record(int connectionId, byte direction, byte messageId, int length, String name, String text) {
+
+    long time = System.nanoTime();
+
+    long pos;
+    int idx;
+    while (true) {
+      pos = head.get();
+      idx = (int) pos & mask;
+      long seq = sequences.get(idx);
+      if (seq == pos) {
+        if (head.compareAndSet(pos, pos + 1)) break;
+      }
+      else if (seq < pos) {
+        // Writer hasn't freed the slot, ring is full
+        dropped.incrementAndGet();
+        return false;
+      }
+    }
+
+    times[idx] = time;
+    connections[idx] = connectionId;
+    directions[idx] = direction;
+    messageIds[idx] = messageId;
+    lengths[idx] = length;
+    names[idx] = name;
+    texts[idx] = text;
+
+    // Publish; ordered before the check of the writer's parked flag
+    sequences.set(idx, pos + 1);
+
+    if (parked.get() && parked.compareAndSet(true, false)) {
+      LockSupport.unpark(writer);
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes all published records to the trace output; must only be called
+   * from a single thread.
+   *
+   * @return Number of records written
+   */
+  int drain() throws IOException {
+
+    int drained = 0;
+
+    long dropCount = dropped.getAndSet(0);
+    if (dropCount != 0) {
+      write(System.nanoTime(), 0, DROPPED, (byte) 0, (int) Math.min(dropCount, Integer.MAX_VALUE), null, null);
+      drained++;
+    }
+
+    while (true) {
+      int idx = (int) tail & mask;
+      if (sequences.get(idx) != tail + 1) break;
+
+      write(times[idx], connections[idx], directions[idx], messageIds[idx], lengths[idx], names[idx], texts[idx]);
+      names[idx] = null;
+      texts[idx] = null;
+
+      // Free slot for the next lap
+      sequences.lazySet(idx, tail + mask + 1);
+      tail++;
+      drained++;
+    }
+
+    if (drained != 0) {
+      textOut.flush();
+      out.flush();
+    }
+
+    return drained;
+  }
+
+  private void write(long time, int connectionId, byte direction, byte messageId, int length, String name, String text) throws IOException {
+
+    long epochNanos = wallClockBase + (time - nanoTimeBase);
+
+    if (format == BINARY) {
+      out.writeLong(epochNanos);
+      out.writeInt(connectionId);
+      out.writeByte(direction);
+      out.writeByte(messageId);
+      out.writeInt(length);
+      writeString(out, name);
+      writeString(out, text);
+    }
+    else {
+      writeText(textOut, epochNanos, connectionId, direction, messageId, length, name, text);
+    }
+  }
+
+  private void start() {
+    running = true;
+    writer = new Thread(this::run, "PG-JDBC Trace Writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private void stop() {
+    running = false;
+    LockSupport.unpark(writer);
+  }
+
+  /**
+   * Waits for the writer to drain, and close or flush, its output.
+   */
+  private void awaitStopped() {
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      }
+      catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return {@code true} if a record is published and waiting to be written
+   */
+  private boolean isPending() {
+    return sequences.get((int) tail & mask) == tail + 1 || dropped.get() != 0;
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        if (drain() == 0) {
+          // Block until a producer publishes a record (or we're stopped)
+          parked.set(true);
+          if (running && !isPending()) {
+            LockSupport.park(this);
+          }
+          parked.set(false);
+        }
+      }
+      drain();
+    }
+    catch (IOException ignored) {
+      // Trace destination failed, stop tracing
+    }
+    finally {
+      try {
+        if (close) {
+          out.close();
+        }
+        else {
+          out.flush();
+        }
+      }
+      catch (IOException ignored) {
+      }
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeText(Writer out, long epochNanos, int connectionId, byte direction, byte messageId, int length, String name, String text) throws IOException {
+
+    out.append(Instant.ofEpochSecond(0, epochNanos).toString()).append(' ');
+
+    switch (direction) {
+      case OUTBOUND:
+      case INBOUND:
+        out.append('#').append(Integer.toString(connectionId)).append(' ')
+            .append((char) direction).append(' ').append((char) messageId).append(' ').append(Integer.toString(length));
+        if (name != null) {
+          out.append(' ').append(name);
+        }
+        break;
+
+      case ACTION:
+        out.append('#').append(Integer.toString(connectionId)).append(" = ")
+            .append(ProtocolHandler.Action.values()[messageId].name());
+        break;
+
+      case SQL_PREPARE:
+        out.append('#').append(Integer.toString(connectionId)).append(" P: ").append(name).append(" = ").append(text);
+        break;
+
+      case SQL_QUERY:
+        out.append('#').append(Integer.toString(connectionId)).append(" Q: ").append(text);
+        break;
+
+      case SQL_EXECUTE:
+        out.append('#').append(Integer.toString(connectionId)).append(" Q (").append(name).append("): ").append(text);
+        break;
+
+      case DROPPED:
+        out.append("! ").append(Integer.toString(length)).append(" records dropped");
+        break;
+
+      default:
+        out.append('#').append(Integer.toString(connectionId)).append(" ? ").append((char) direction);
+        break;
+    }
+
+    out.append('\n');
+  }
+
+  /**
+   * Converts a binary trace to text.
+   *
+   * @param in Binary trace input
+   * @param out Text trace output
+   */
+  static void decode(InputStream in, Writer out) throws IOException {
+
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+    byte[] magic = new byte[BINARY_MAGIC.length];
+    data.readFully(magic);
+    int version = data.readInt();
+    if (!Arrays.equals(magic, BINARY_MAGIC) || version != BINARY_VERSION) {
+      throw new IOException("Not a binary protocol trace");
+    }
+
+    while (true) {
+      long epochNanos;
+      try {
+        epochNanos = data.readLong();
+      }
+      catch (EOFException e) {
+        break;
+      }
+      int connectionId = data.readInt();
+      byte direction = data.readByte();
+      byte messageId = data.readByte();
+      int length = data.readInt();
+      String name = readString(data);
+      String text = readString(data);
+      writeText(out, epochNanos, connectionId, direction, messageId, length, name, text);
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Prints a binary trace file, produced with {@code protocol.trace.format=binary},
+   * as text.
+   *
+   * @param args Trace file path
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("usage: ProtocolTracer <trace-file>");
+      System.exit(1);
+    }
+    try (InputStream in = new FileInputStream(args[0])) {
+      decode(in, new OutputStreamWriter(System.out, UTF_8));
+    }
+  }
+
+}
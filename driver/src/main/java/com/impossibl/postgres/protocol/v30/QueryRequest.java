@@ -40,6 +40,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import static com.impossibl.postgres.system.Empty.EMPTY_FIELDS;
@@ -49,8 +50,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import io.netty.buffer.ByteBuf;
-
 import static io.netty.util.ReferenceCountUtil.release;
 
 public class QueryRequest implements ServerRequest {
@@ -89,8 +88,8 @@ public class QueryRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+    public Action rowData(BufferRowData rowData) {
+      rows.add(rowData.retain());
       return Action.Resume;
     }
 
@@ -155,6 +154,11 @@ public class QueryRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.QUERY;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
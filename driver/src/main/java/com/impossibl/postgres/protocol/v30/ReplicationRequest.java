@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.CopyFormat;
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor.ReplicationControl;
+import com.impossibl.postgres.protocol.RequestExecutor.ReplicationHandler;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CopyBothResponse;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CopyData;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CopyDone;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.DataRow;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.Metrics.RequestType;
+import com.impossibl.postgres.system.NoticeException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+/**
+ * Executes a {@code START_REPLICATION} command and decodes the replication
+ * sub-protocol carried by the resulting Copy-Both stream.
+ *
+ * XLogData payloads are handed to the handler as slices of the received
+ * message; nothing is copied or allocated per message.
+ */
+public class ReplicationRequest implements ServerRequest {
+
+  private static final byte XLOG_DATA_MSG_ID = 'w';
+  private static final byte PRIMARY_KEEPALIVE_MSG_ID = 'k';
+
+  private String sql;
+  private ReplicationHandler handler;
+  private List<Notice> notices;
+  private Channel channel;
+
+  ReplicationRequest(String sql, ReplicationHandler handler) {
+    this.sql = sql;
+    this.handler = handler;
+    this.notices = new ArrayList<>();
+  }
+
+  private class Control implements ReplicationControl {
+
+    private AtomicBoolean stopped = new AtomicBoolean();
+
+    @Override
+    public void sendStatusUpdate(long writtenLSN, long flushedLSN, long appliedLSN, boolean replyRequested) {
+      if (stopped.get()) return;
+
+      new ProtocolChannel(channel, StandardCharsets.UTF_8)
+          .writeStandbyStatusUpdate(writtenLSN, flushedLSN, appliedLSN, currentClock(), replyRequested)
+          .flush();
+    }
+
+    @Override
+    public void setReading(boolean reading) {
+      channel.config().setAutoRead(reading);
+    }
+
+    @Override
+    public void stop() throws IOException {
+      if (!stopped.compareAndSet(false, true)) return;
+
+      // Reading must be enabled to receive the server's completion
+      channel.config().setAutoRead(true);
+
+      new ProtocolChannel(channel, StandardCharsets.UTF_8)
+          .writeCopyDone()
+          .flush();
+    }
+
+    @Override
+    public void abort() {
+      stopped.set(true);
+      channel.close();
+    }
+
+  }
+
+  private class Handler implements CopyBothResponse, CopyData, CopyDone, RowDescription, DataRow, EmptyQuery, CommandComplete, CommandError, ReportNotice, ReadyForQuery {
+
+    boolean started = false;
+    boolean copying = false;
+    Control control;
+
+    @Override
+    public ProtocolHandler copyBoth(CopyFormat format, FieldFormat[] columnFormats) throws IOException {
+      started = true;
+      copying = true;
+      control = new Control();
+      handler.handleStart(control);
+      return this;
+    }
+
+    @Override
+    public void copyData(ByteBuf data) throws IOException {
+
+      byte id = data.readByte();
+      switch (id) {
+        case XLOG_DATA_MSG_ID:
+          long startLSN = data.readLong();
+          long endLSN = data.readLong();
+          long serverClock = data.readLong();
+          handler.handleXLogData(startLSN, endLSN, serverClock, data);
+          break;
+
+        case PRIMARY_KEEPALIVE_MSG_ID:
+          long keepaliveEndLSN = data.readLong();
+          long keepaliveServerClock = data.readLong();
+          boolean replyRequested = data.readByte() != 0;
+          handler.handleKeepalive(keepaliveEndLSN, keepaliveServerClock, replyRequested);
+          break;
+
+        default:
+          throw new IOException("Unsupported replication message: " + (char) id);
+      }
+    }
+
+    @Override
+    public void copyDone() throws IOException {
+      copying = false;
+
+      // Server ended the stream, acknowledge it
+      control.stop();
+    }
+
+    @Override
+    public Action rowDescription(ResultField[] fields) {
+      return Action.Resume;
+    }
+
+    @Override
+    public Action rowData(BufferRowData rowData) {
+      return Action.Resume;
+    }
+
+    @Override
+    public Action emptyQuery() {
+      return Action.Resume;
+    }
+
+    @Override
+    public Action notice(Notice notice) {
+      notices.add(notice);
+      return Action.Resume;
+    }
+
+    @Override
+    public Action commandComplete(String command, Long rowsAffected, Long insertedOid) throws IOException {
+      if (!started) {
+        handler.handleError(new IOException("Command Not Initiated: START_REPLICATION"), notices);
+      }
+      else {
+        handler.handleComplete();
+      }
+      return Action.Resume;
+    }
+
+    @Override
+    public Action error(Notice notice) throws IOException {
+      handler.handleError(new NoticeException(notice), notices);
+
+      if (copying) {
+        // Remove the copy handler, ready is delivered to the request handler
+        copying = false;
+        return Action.Complete;
+      }
+
+      return Action.Resume;
+    }
+
+    @Override
+    public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
+      handler.handleReady(txnStatus);
+      return Action.Complete;
+    }
+
+    @Override
+    public void exception(Throwable cause) throws IOException {
+      handler.handleError(cause, notices);
+    }
+
+  }
+
+  /**
+   * Current time in the server's clock format; microseconds since
+   * midnight 2000-01-01 UTC.
+   */
+  static long currentClock() {
+    return (System.currentTimeMillis() - 946_684_800_000L) * 1000L;
+  }
+
+  @Override
+  public ProtocolHandler createHandler() {
+    return new Handler();
+  }
+
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.COPY;
+  }
+
+  @Override
+  public void execute(ProtocolChannel channel) throws IOException {
+
+    this.channel = channel.pipeline().channel();
+
+    channel.writeQuery(sql).flush();
+
+  }
+
+}
@@ -38,14 +38,13 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.DataRow;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.PortalSuspended;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
+import com.impossibl.postgres.system.Metrics.RequestType;
 import com.impossibl.postgres.system.NoticeException;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import io.netty.buffer.ByteBuf;
-
 import static io.netty.util.ReferenceCountUtil.release;
 
 
@@ -77,8 +76,8 @@ public class ResumePortalRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+    public Action rowData(BufferRowData rowData) {
+      rows.add(rowData.retain());
       return Action.Resume;
     }
 
@@ -150,6 +149,16 @@ public class ResumePortalRequest implements ServerRequest {
     return new Handler();
   }
 
+  @Override
+  public RequestType getRequestType() {
+    return RequestType.RESUME;
+  }
+
+  @Override
+  public String getObjectName() {
+    return portalName;
+  }
+
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
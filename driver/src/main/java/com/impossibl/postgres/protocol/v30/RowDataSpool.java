@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.max;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.UnpooledDirectByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.internal.PlatformDependent;
+
+
+/**
+ * Produces the {@link BufferRowData} for each received DataRow while enforcing
+ * a connection wide memory budget.
+ *
+ * Rows are retained in the memory they were received into until the budget
+ * is exhausted. Rows received while the budget is exhausted are appended to
+ * a memory-mapped temporary file and read directly from the mapping. Spilled
+ * rows are indistinguishable from in-memory rows to their consumers.
+ *
+ * The temporary file is created on first spill and is deleted when the spool
+ * is closed. Whenever all spilled rows have been released the file is
+ * truncated and reused.
+ */
+class RowDataSpool {
+
+  private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  private long memoryMax;
+  private AtomicLong memoryUsed;
+  private File directory;
+  private FileChannel file;
+  private Segment segment;
+  private long fileOffset;
+  private int segmentCount;
+  private boolean closed;
+
+  RowDataSpool(long memoryMax, File directory) {
+    this.memoryMax = memoryMax;
+    this.memoryUsed = new AtomicLong();
+    this.directory = directory;
+  }
+
+  /**
+   * Creates the row data for a received DataRow message.
+   *
+   * @param data DataRow message data
+   * @return Row data referencing the message in memory or a spilled copy
+   * of the message; the caller owns the returned row.
+   * @throws IOException If spilling the row to the temporary file fails
+   */
+  BufferRowData create(ByteBuf data) throws IOException {
+
+    int length = data.readableBytes();
+
+    if (memoryUsed.addAndGet(length) <= memoryMax) {
+      return new MemoryRowData(data.retain(), length);
+    }
+
+    memoryUsed.addAndGet(-length);
+
+    return new BufferRowData(spill(data, length));
+  }
+
+  synchronized void close() {
+    if (closed) return;
+    closed = true;
+
+    if (segment != null) {
+      segment.release();
+      segment = null;
+    }
+
+    closeFileIfUnused();
+  }
+
+  private synchronized ByteBuf spill(ByteBuf data, int length) throws IOException {
+
+    if (closed) {
+      throw new IOException("Row data spool closed");
+    }
+
+    if (segment != null && segmentCount == 1 && segment.refCnt() == 1) {
+      // No spilled rows remain alive, start the file from scratch
+      segment.release();
+      segment = null;
+    }
+
+    if (segment == null || segment.remaining() < length) {
+
+      if (segment != null) {
+        segment.release();
+      }
+
+      segment = new Segment(length);
+    }
+
+    return segment.append(data, length);
+  }
+
+  private void openFileIfNeeded() throws IOException {
+    if (file != null) return;
+
+    File path = File.createTempFile("pgjdbc-ng-rows-", ".spool", directory);
+    if (!path.delete()) {
+      throw new IOException("Unable to create row data spool file: " + path);
+    }
+
+    file = FileChannel.open(path.toPath(), CREATE_NEW, READ, WRITE, DELETE_ON_CLOSE);
+    fileOffset = 0;
+  }
+
+  private void closeFileIfUnused() {
+    if (file == null || segmentCount != 0) return;
+
+    try {
+      if (closed) {
+        file.close();
+        file = null;
+      }
+      else {
+        file.truncate(0);
+      }
+    }
+    catch (IOException ignored) {
+      // Nothing can be done, file is removed on exit at the latest
+    }
+
+    fileOffset = 0;
+  }
+
+  private synchronized void segmentReleased() {
+    segmentCount--;
+    closeFileIfUnused();
+  }
+
+  /**
+   * A mapped region of the spool file. Each spilled row retains the segment it
+   * was written to, the mapping is freed when the last row is released.
+   */
+  private class Segment extends AbstractReferenceCounted {
+
+    private MappedByteBuffer buffer;
+
+    Segment(int minimumSize) throws IOException {
+      openFileIfNeeded();
+
+      int size = max(SEGMENT_SIZE, minimumSize);
+
+      this.buffer = file.map(FileChannel.MapMode.READ_WRITE, fileOffset, size);
+
+      fileOffset += size;
+      segmentCount++;
+    }
+
+    int remaining() {
+      return buffer.remaining();
+    }
+
+    ByteBuf append(ByteBuf data, int length) {
+
+      ByteBuffer rowBuffer = buffer.slice();
+      rowBuffer.limit(length);
+
+      data.getBytes(data.readerIndex(), rowBuffer);
+      rowBuffer.flip();
+
+      buffer.position(buffer.position() + length);
+
+      retain();
+
+      return new SegmentByteBuf(this, rowBuffer);
+    }
+
+    @Override
+    protected void deallocate() {
+      PlatformDependent.freeDirectBuffer(buffer);
+      buffer = null;
+      segmentReleased();
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+      return this;
+    }
+
+  }
+
+  /**
+   * Buffer referencing a spilled row inside a segment. Holds a reference to
+   * the segment until it (and all derived buffers) have been released.
+   */
+  private static class SegmentByteBuf extends UnpooledDirectByteBuf {
+
+    private Segment segment;
+
+    SegmentByteBuf(Segment segment, ByteBuffer rowBuffer) {
+      super(UnpooledByteBufAllocator.DEFAULT, rowBuffer, rowBuffer.remaining());
+      this.segment = segment;
+    }
+
+    @Override
+    protected void deallocate() {
+      super.deallocate();
+      segment.release();
+    }
+
+  }
+
+  /**
+   * Row data held in memory. The row keeps its own reference count, its
+   * length is returned to the memory budget when the row is released.
+   */
+  private class MemoryRowData extends BufferRowData {
+
+    private AtomicInteger refCnt;
+    private int length;
+
+    MemoryRowData(ByteBuf buffer, int length) {
+      super(buffer);
+      this.refCnt = new AtomicInteger(1);
+      this.length = length;
+    }
+
+    @Override
+    public int refCnt() {
+      return refCnt.get();
+    }
+
+    @Override
+    public BufferRowData retain() {
+      return retain(1);
+    }
+
+    @Override
+    public BufferRowData retain(int increment) {
+      refCnt.addAndGet(increment);
+      return this;
+    }
+
+    @Override
+    public boolean release() {
+      return release(1);
+    }
+
+    @Override
+    public boolean release(int decrement) {
+      if (refCnt.addAndGet(-decrement) != 0) {
+        return false;
+      }
+      content().release();
+      memoryUsed.addAndGet(-length);
+      return true;
+    }
+
+  }
+
+}
@@ -34,24 +34,22 @@ import com.impossibl.postgres.protocol.ServerObjectType;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeRef;
 import com.impossibl.postgres.system.Configuration;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.Version;
 
+import static com.impossibl.postgres.system.SystemSettings.ProtocolTraceFormat.TEXT;
 import static com.impossibl.postgres.system.SystemSettings.SQL_TRACE;
 import static com.impossibl.postgres.system.SystemSettings.SQL_TRACE_FILE;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 
 import io.netty.buffer.ByteBuf;
@@ -60,6 +58,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.Timer;
 
 
 class ServerConnection implements com.impossibl.postgres.protocol.ServerConnection, RequestExecutor {
@@ -69,6 +68,7 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
   private Version protocolVersion;
   private KeyData keyData;
   private ServerConnectionShared.Ref sharedRef;
+  private Timer timer;
   private SQLTrace sqlTrace;
 
   ServerConnection(Configuration config, Channel channel, ServerInfo serverInfo, Version protocolVersion, KeyData keyData, ServerConnectionShared.Ref sharedRef) {
@@ -77,18 +77,12 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     this.protocolVersion = protocolVersion;
     this.keyData = keyData;
     this.sharedRef = sharedRef;
+    this.timer = sharedRef.get().getTimer();
 
     if (config.getSetting(SQL_TRACE)) {
-      OutputStream out = System.out;
-      String filePath = config.getSetting(SQL_TRACE_FILE);
-      if (filePath != null) {
-        try {
-          out = new FileOutputStream(filePath, false);
-        }
-        catch (FileNotFoundException ignore) {
-        }
-      }
-      sqlTrace = new SQLTrace(new OutputStreamWriter(out));
+      SQLTrace trace = new SQLTrace(ProtocolTracer.acquire(config.getSetting(SQL_TRACE_FILE), TEXT));
+      channel.closeFuture().addListener(closed -> trace.release());
+      sqlTrace = trace;
     }
   }
 
@@ -170,6 +164,16 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     return channel.eventLoop();
   }
 
+  @Override
+  public Timer getTimer() {
+    return timer;
+  }
+
+  @Override
+  public Metrics getMetrics() {
+    return getMessageDispatchHandler().getMetrics();
+  }
+
   @Override
   public TransactionStatus getTransactionStatus() throws IOException {
     if (!channel.isActive()) {
@@ -251,6 +255,14 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     submit(new LazyExecuteRequest(statementName));
   }
 
+  @Override
+  public void lazyQuery(String sql) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.query(sql);
+    }
+    submit(new LazyQueryRequest(sql));
+  }
+
   @Override
   public void call(int functionId, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, RequestExecutor.FunctionCallHandler handler) throws IOException {
     if (sqlTrace != null) {
@@ -275,6 +287,14 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     submit(new CopyOutRequest(sql, stream, handler));
   }
 
+  @Override
+  public void startReplication(String sql, ReplicationHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.query("REPLICATION: " + sql);
+    }
+    submit(new ReplicationRequest(sql, handler));
+  }
+
   @Override
   public void close(ServerObjectType objectType, String objectName) throws IOException {
     submit(new CloseRequest(objectType, objectName, null));
@@ -291,37 +311,29 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
 
 class SQLTrace {
 
-  private Writer out;
+  private ProtocolTracer.Ref tracer;
   private Map<String, String> preparedText;
 
-  SQLTrace(Writer out) {
-    this.out = out;
-    this.preparedText = new HashMap<>();
+  SQLTrace(ProtocolTracer.Ref tracer) {
+    this.tracer = tracer;
+    this.preparedText = new ConcurrentHashMap<>();
   }
 
   void prepare(String statement, String text) {
     preparedText.put(statement, text);
-    try {
-      out.append("P: ").append(statement).append(" = ").append(text).append('\n').flush();
-    }
-    catch (IOException ignore) {
-    }
+    tracer.sql(ProtocolTracer.SQL_PREPARE, statement, text);
   }
 
   void query(String text) {
-    try {
-      out.append("Q: ").append(text).append('\n').flush();
-    }
-    catch (IOException ignore) {
-    }
+    tracer.sql(ProtocolTracer.SQL_QUERY, null, text);
   }
 
   void execute(String statement) {
-    try {
-      out.append("Q (").append(statement).append("): ").append(preparedText.get(statement)).append('\n').flush();
-    }
-    catch (IOException ignore) {
-    }
+    tracer.sql(ProtocolTracer.SQL_EXECUTE, statement, preparedText.get(statement));
+  }
+
+  void release() {
+    tracer.release();
   }
 
 }
@@ -43,6 +43,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.Notification;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParameterStatus;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.system.Configuration;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.NoticeException;
 import com.impossibl.postgres.system.ParameterNames;
 import com.impossibl.postgres.system.ServerInfo;
@@ -54,28 +55,29 @@ import static com.impossibl.postgres.protocol.v30.HostNameVerifier.verifyHostNam
 import static com.impossibl.postgres.system.SystemSettings.APPLICATION_NAME;
 import static com.impossibl.postgres.system.SystemSettings.CREDENTIALS_USERNAME;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
+import static com.impossibl.postgres.system.SystemSettings.METRICS;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_BUFFER_POOLING;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_ENCODING;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_IO_MODE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_IO_THREADS;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_MESSAGE_SIZE_MAX;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_RESULT_MEMORY_MAX;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_RESULT_SPOOL_DIR;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_SOCKET_RECV_BUFFER_SIZE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_SOCKET_SEND_BUFFER_SIZE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_TRACE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_TRACE_FILE;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_TRACE_FORMAT;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_VERSION;
+import static com.impossibl.postgres.system.SystemSettings.REPLICATION;
 import static com.impossibl.postgres.system.SystemSettings.SSL_MODE;
 import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
 import static com.impossibl.postgres.utils.Nulls.firstNonNull;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.lang.ref.WeakReference;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -315,8 +317,6 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     ServerConnectionShared.Ref sharedRef = ServerConnectionShared.acquire(groupType, maxThreads);
 
-    Writer protocolTraceWriter = createProtocolTracer(config);
-
     Bootstrap bootstrap = new Bootstrap()
         .group(sharedRef.get().getEventLoopGroup())
         .channel(channelType)
@@ -325,7 +325,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
           protected void initChannel(SocketChannel ch) {
             ch.pipeline().addLast(
                 new LengthFieldBasedFrameDecoder(maxMessageSize, 1, 4, -4, 0),
-                new MessageDispatchHandler(clientEncoding, protocolTraceWriter)
+                new MessageDispatchHandler(clientEncoding, createProtocolTracer(config), createRowDataSpool(config), createMetrics(config))
             );
           }
         })
@@ -361,8 +361,6 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     ServerConnectionShared.Ref sharedRef = ServerConnectionShared.acquire(groupType, maxThreads);
 
-    Writer protocolTraceWriter = createProtocolTracer(config);
-
     Bootstrap bootstrap = new Bootstrap()
         .group(sharedRef.get().getEventLoopGroup())
         .channel(channelType)
@@ -371,7 +369,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
           protected void initChannel(DomainSocketChannel ch) {
             ch.pipeline().addLast(
                 new LengthFieldBasedFrameDecoder(maxMessageSize, 1, 4, -4, 0),
-                new MessageDispatchHandler(clientEncoding, protocolTraceWriter)
+                new MessageDispatchHandler(clientEncoding, createProtocolTracer(config), createRowDataSpool(config), createMetrics(config))
             );
           }
         });
@@ -399,20 +397,24 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
     bootstrap.option(ChannelOption.ALLOCATOR, usePooledAllocator ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT);
   }
 
-  private Writer createProtocolTracer(Configuration config) {
-    if (config.getSetting(PROTOCOL_TRACE)) {
-      OutputStream out = System.out;
-      String filePath = config.getSetting(PROTOCOL_TRACE_FILE);
-      if (filePath != null) {
-        try {
-          out = new FileOutputStream(filePath, false);
-        }
-        catch (FileNotFoundException ignored) {
-        }
-      }
-      return new BufferedWriter(new OutputStreamWriter(out));
+  private RowDataSpool createRowDataSpool(Configuration config) {
+    Integer memoryMax = config.getSetting(PROTOCOL_RESULT_MEMORY_MAX);
+    if (memoryMax == null) {
+      return null;
+    }
+    String spoolDir = config.getSetting(PROTOCOL_RESULT_SPOOL_DIR);
+    return new RowDataSpool(memoryMax, spoolDir != null ? new File(spoolDir) : null);
+  }
+
+  private Metrics createMetrics(Configuration config) {
+    return config.getSetting(METRICS) ? new Metrics() : null;
+  }
+
+  private ProtocolTracer.Ref createProtocolTracer(Configuration config) {
+    if (!config.getSetting(PROTOCOL_TRACE)) {
+      return null;
     }
-    return null;
+    return ProtocolTracer.acquire(config.getSetting(PROTOCOL_TRACE_FILE), config.getSetting(PROTOCOL_TRACE_FORMAT));
   }
 
   private static ServerConnection startup(Configuration config, Channel channel, Map<String, String> startupParameterStatuses, ServerConnectionShared.Ref sharedRef) throws IOException {
@@ -423,6 +425,11 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
     params.put(ParameterNames.DATABASE, config.getSetting(DATABASE_NAME));
     params.put(ParameterNames.USER, config.getSetting(CREDENTIALS_USERNAME));
 
+    String replication = config.getSetting(REPLICATION);
+    if (replication != null) {
+      params.put(ParameterNames.REPLICATION, replication);
+    }
+
     Version protocolVersion = config.getSetting(PROTOCOL_VERSION);
 
     AtomicReference<Version> startupProtocolVersion = new AtomicReference<>();
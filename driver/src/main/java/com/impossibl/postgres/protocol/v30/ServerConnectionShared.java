@@ -40,6 +40,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.concurrent.ImmediateEventExecutor;
@@ -70,6 +72,7 @@ public class ServerConnectionShared {
   private Class<? extends EventLoopGroup> eventLoopGroupType;
   private int maxThreads;
   private EventLoopGroup eventLoopGroup;
+  private HashedWheelTimer timer;
   private int count = 0;
 
   private ServerConnectionShared(Class<? extends EventLoopGroup> eventLoopGroupType, int maxThreads) {
@@ -93,6 +96,19 @@ public class ServerConnectionShared {
     return eventLoopGroup;
   }
 
+  /**
+   * Shared timing wheel for connection timeouts. Scheduling and cancelling
+   * are constant time and expired timeouts are processed in batches, once
+   * per tick.
+   */
+  synchronized Timer getTimer() {
+    if (timer != null) return timer;
+
+    timer = new HashedWheelTimer(new NamedThreadFactory("PG-JDBC Timer"), 10, TimeUnit.MILLISECONDS, 512);
+
+    return timer;
+  }
+
   private synchronized Ref addReference() {
     count++;
     return new Ref();
@@ -110,6 +126,11 @@ public class ServerConnectionShared {
 
   private Future<?> shutdown() {
 
+    if (timer != null) {
+      timer.stop();
+      timer = null;
+    }
+
     if (eventLoopGroup == null) {
       return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
     }
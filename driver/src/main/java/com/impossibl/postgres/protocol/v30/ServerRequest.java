@@ -28,12 +28,28 @@
  */
 package com.impossibl.postgres.protocol.v30;
 
+import com.impossibl.postgres.system.Metrics.RequestType;
+
 import java.io.IOException;
 
 public interface ServerRequest {
 
   ProtocolHandler createHandler();
 
+  /**
+   * @return Type the request's latency is recorded under
+   */
+  default RequestType getRequestType() {
+    return RequestType.OTHER;
+  }
+
+  /**
+   * @return Name of the statement or portal the request targets, if any
+   */
+  default String getObjectName() {
+    return null;
+  }
+
   void execute(ProtocolChannel channel) throws IOException;
 
 }
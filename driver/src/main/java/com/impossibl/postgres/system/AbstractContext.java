@@ -28,6 +28,8 @@
  */
 package com.impossibl.postgres.system;
 
+import com.impossibl.postgres.utils.StringCache;
+
 public abstract class AbstractContext implements Context {
 
   @Override
@@ -35,4 +37,9 @@ public abstract class AbstractContext implements Context {
     return setting.getSystem();
   }
 
+  @Override
+  public StringCache getStringCache() {
+    return null;
+  }
+
 }
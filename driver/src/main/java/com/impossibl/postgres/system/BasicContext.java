@@ -65,8 +65,12 @@ import com.impossibl.postgres.utils.Timer;
 import static com.impossibl.postgres.system.Empty.EMPTY_BUFFERS;
 import static com.impossibl.postgres.system.Empty.EMPTY_FORMATS;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
+import static com.impossibl.postgres.system.Empty.EMPTY_VALUES;
+import static com.impossibl.postgres.system.Events.Kind.TYPE_LOAD;
+import static com.impossibl.postgres.system.Metrics.Counter.TYPE_LOADS;
 import static com.impossibl.postgres.system.SystemSettings.APPLICATION_NAME;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
+import static com.impossibl.postgres.system.SystemSettings.REPLICATION;
 import static com.impossibl.postgres.system.SystemSettings.SESSION_USER;
 import static com.impossibl.postgres.system.SystemSettings.STANDARD_CONFORMING_STRINGS;
 import static com.impossibl.postgres.utils.guava.Strings.nullToEmpty;
@@ -149,26 +153,59 @@ public class BasicContext extends AbstractContext {
     }
   }
 
+  private interface Loader<T extends Type> {
+    T load() throws IOException;
+  }
+
   private class RegistryTypeLoader implements Registry.TypeLoader {
 
+    private Object beginLoad() {
+      Metrics metrics = serverConnection.getMetrics();
+      if (metrics != null) {
+        metrics.increment(TYPE_LOADS);
+      }
+      return Events.begin(TYPE_LOAD);
+    }
+
+    private void endLoad(Object event, Type type, Object requested) {
+      if (event == null) return;
+      Events.endTypeLoad(event, type != null ? type.getQualifiedName().toString() : requested.toString());
+    }
+
+    /**
+     * Counts the load and records its event, ending the event whether the
+     * load succeeds or fails.
+     */
+    private <T extends Type> T recordLoad(Object requested, Loader<T> loader) throws IOException {
+      Object event = beginLoad();
+      T type = null;
+      try {
+        type = loader.load();
+        return type;
+      }
+      finally {
+        endLoad(event, type, requested);
+      }
+    }
+
     @Override
     public Type load(int oid) throws IOException {
-      return BasicContext.this.loadType(oid);
+      return recordLoad(oid, () -> BasicContext.this.loadType(oid));
     }
 
     @Override
     public CompositeType loadRelation(int relationOid) throws IOException {
-      return BasicContext.this.loadRelationType(relationOid);
+      return recordLoad(relationOid, () -> BasicContext.this.loadRelationType(relationOid));
     }
 
     @Override
     public Type load(QualifiedName name) throws IOException {
-      return BasicContext.this.loadType(name.toString());
+      return recordLoad(name, () -> BasicContext.this.loadType(name.toString()));
     }
 
     @Override
     public Type load(String name) throws IOException {
-      return BasicContext.this.loadType(name);
+      return recordLoad(name, () -> BasicContext.this.loadType(name));
     }
 
   }
@@ -195,6 +232,7 @@ public class BasicContext extends AbstractContext {
   private ServerConnection serverConnection;
   private ServerConnectionListener serverConnectionListener;
   private Map<String, QueryDescription> utilQueries;
+  private boolean simpleQueryOnly;
 
   public BasicContext(SocketAddress address, Settings settings) throws IOException {
     this.typeMap = new HashMap<>();
@@ -212,6 +250,8 @@ public class BasicContext extends AbstractContext {
     this.serverConnectionListener = new ServerConnectionListener();
     this.serverConnection = ServerConnectionFactory.getDefault().connect(this, address, serverConnectionListener);
     this.utilQueries = new HashMap<>();
+    // Replication connections (walsenders) only accept the simple query protocol
+    this.simpleQueryOnly = settings.get(REPLICATION) != null;
   }
 
   protected ChannelFuture shutdown() {
@@ -575,6 +615,14 @@ public class BasicContext extends AbstractContext {
     return utilQueries.containsKey(name);
   }
 
+  /**
+   * Forgets all prepared utility queries, used after the server has
+   * discarded them (e.g. via {@code DISCARD ALL}).
+   */
+  protected void clearUtilQueries() {
+    utilQueries.clear();
+  }
+
   public void prepareUtilQuery(String name, String sql, String... parameterTypeNames) throws IOException {
 
     Type[] parameterTypes = new Type[parameterTypeNames.length];
@@ -587,6 +635,12 @@ public class BasicContext extends AbstractContext {
 
   private void prepareUtilQuery(String name, String sql, Type[] parameterTypes) throws IOException {
 
+    if (simpleQueryOnly) {
+      // Nothing can be prepared, remember the text for execution via simple query
+      utilQueries.put(name, new QueryDescription(null, sql, parameterTypes, null));
+      return;
+    }
+
     PrepareResult handler = new PrepareResult();
 
     serverConnection.getRequestExecutor().prepare(name, sql, parameterTypes, handler);
@@ -618,7 +672,7 @@ public class BasicContext extends AbstractContext {
 
   public void query(String queryTxt, long timeout) throws IOException {
 
-    if (queryTxt.charAt(0) == '@') {
+    if (queryTxt.charAt(0) == '@' && !simpleQueryOnly) {
 
       QueryDescription pq = prepareQuery(queryTxt);
 
@@ -628,7 +682,7 @@ public class BasicContext extends AbstractContext {
 
       QueryResult handler = new QueryResult();
 
-      serverConnection.getRequestExecutor().query(queryTxt, handler);
+      serverConnection.getRequestExecutor().query(simpleQueryText(queryTxt, EMPTY_VALUES), handler);
 
       handler.await(timeout, MILLISECONDS);
 
@@ -653,7 +707,7 @@ public class BasicContext extends AbstractContext {
    */
   protected ResultBatch queryBatch(String queryTxt, long timeout) throws IOException {
 
-    if (queryTxt.charAt(0) == '@') {
+    if (queryTxt.charAt(0) == '@' && !simpleQueryOnly) {
 
       QueryDescription pq = prepareQuery(queryTxt);
 
@@ -663,7 +717,7 @@ public class BasicContext extends AbstractContext {
 
       QueryResult handler = new QueryResult();
 
-      serverConnection.getRequestExecutor().query(queryTxt, handler);
+      serverConnection.getRequestExecutor().query(simpleQueryText(queryTxt, EMPTY_VALUES), handler);
 
       handler.await(timeout, MILLISECONDS);
 
@@ -672,11 +726,56 @@ public class BasicContext extends AbstractContext {
 
   }
 
+  /**
+   * Produces text suitable for the simple query protocol, resolving utility
+   * query references and inlining parameter values as literals.
+   */
+  private String simpleQueryText(String queryTxt, Object[] paramValues) throws IOException {
+
+    if (queryTxt.charAt(0) == '@') {
+      queryTxt = prepareQuery(queryTxt).sql;
+    }
+
+    // Replace in reverse so "$1" doesn't match the prefix of "$10"
+    for (int paramIdx = paramValues.length - 1; paramIdx >= 0; --paramIdx) {
+      Object paramValue = paramValues[paramIdx];
+      String literal = paramValue != null ? quoteLiteral(paramValue.toString()) : "NULL";
+      queryTxt = queryTxt.replace("$" + (paramIdx + 1), literal);
+    }
+
+    return queryTxt;
+  }
+
+  private String quoteLiteral(String value) {
+
+    StringBuilder literal = new StringBuilder(value.length() + 2).append('\'');
+    boolean escapeBackslash = !getSetting(STANDARD_CONFORMING_STRINGS, true);
+    for (int charIdx = 0; charIdx < value.length(); ++charIdx) {
+      char ch = value.charAt(charIdx);
+      if (ch == '\'' || (ch == '\\' && escapeBackslash)) {
+        literal.append(ch);
+      }
+      literal.append(ch);
+    }
+    return literal.append('\'').toString();
+  }
+
   /**
    * Queries a single result batch (the first) via a parameterized query. The batch must be released.
    */
   public ResultBatch queryBatchPrepared(String queryTxt, Object[] paramValues, long timeout) throws IOException {
 
+    if (simpleQueryOnly) {
+
+      QueryResult handler = new QueryResult();
+
+      serverConnection.getRequestExecutor().query(simpleQueryText(queryTxt, paramValues), handler);
+
+      handler.await(timeout, MILLISECONDS);
+
+      return handler.getBatch();
+    }
+
     QueryDescription pq = prepareQuery(queryTxt);
 
     FieldFormat[] paramFormats = EMPTY_FORMATS;
@@ -33,6 +33,7 @@ import com.impossibl.postgres.datetime.IntervalFormat;
 import com.impossibl.postgres.protocol.RequestExecutor;
 import com.impossibl.postgres.protocol.ServerConnection;
 import com.impossibl.postgres.types.Registry;
+import com.impossibl.postgres.utils.StringCache;
 
 import java.nio.charset.Charset;
 import java.text.NumberFormat;
@@ -80,6 +81,8 @@ public interface Context extends Configuration {
 
   Map<String, Class<?>> getCustomTypeMap();
 
+  StringCache getStringCache();
+
   Context unwrap();
 
 }
@@ -33,6 +33,7 @@ import com.impossibl.postgres.datetime.IntervalFormat;
 import com.impossibl.postgres.protocol.RequestExecutor;
 import com.impossibl.postgres.protocol.ServerConnection;
 import com.impossibl.postgres.types.Registry;
+import com.impossibl.postgres.utils.StringCache;
 
 import java.nio.charset.Charset;
 import java.text.NumberFormat;
@@ -147,6 +148,11 @@ class DecoratorContext extends AbstractContext {
     return base.getCustomTypeMap();
   }
 
+  @Override
+  public StringCache getStringCache() {
+    return base.getStringCache();
+  }
+
   @Override
   public <T> T getSetting(Setting<T> setting) {
     return base.getSetting(setting);
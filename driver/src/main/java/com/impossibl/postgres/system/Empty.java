@@ -40,5 +40,6 @@ public class Empty {
   public static final FieldFormat[] EMPTY_FORMATS = new FieldFormat[0];
   public static final ResultField[] EMPTY_FIELDS = new ResultField[0];
   public static final ByteBuf[] EMPTY_BUFFERS = new ByteBuf[0];
+  public static final Object[] EMPTY_VALUES = new Object[0];
 
 }
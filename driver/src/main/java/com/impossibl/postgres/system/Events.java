@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Driver activity events recorded by JDK Flight Recorder.
+ *
+ * Events are only recorded when the running JVM provides Flight Recorder
+ * (Java 8u262+ / Java 11+) and a recording has the event enabled;
+ * otherwise all methods are no-ops. Per event thresholds & stack trace
+ * capture are configured via the standard Flight Recorder settings for
+ * the event names (e.g. {@code com.impossibl.postgres.Execute}).
+ *
+ * Events are started via {@link #begin(Kind)}, which returns an opaque
+ * event or {@code null} when the event is not being recorded, and
+ * completed by passing the started event to the matching {@code end}
+ * method.
+ */
+public final class Events {
+
+  private static final Logger logger = Logger.getLogger(Events.class.getName());
+
+  public enum Kind {
+    REQUEST,
+    PREPARE,
+    EXECUTE,
+    FETCH,
+    TYPE_LOAD
+  }
+
+  interface Recorder {
+
+    Object begin(Kind kind);
+
+    void endRequest(Object event, String requestType, long rows, long bytes);
+
+    void endPrepare(Object event, String sql, String statementName);
+
+    void endExecute(Object event, String sql, String statementName, long rows);
+
+    void endFetch(Object event, String portalName, long rows);
+
+    void endTypeLoad(Object event, String typeName);
+
+    void housekeeperCleanup(String kind, boolean allocationTraced);
+
+  }
+
+  private static final Recorder RECORDER = loadRecorder();
+
+  private Events() {
+  }
+
+  private static Recorder loadRecorder() {
+    try {
+      Class.forName("jdk.jfr.Event");
+    }
+    catch (Throwable t) {
+      return null;
+    }
+
+    try {
+      // Compiled separately, as building it requires a JDK providing jdk.jfr
+      return Class.forName(Events.class.getPackage().getName() + ".FlightRecorderEvents")
+          .asSubclass(Recorder.class)
+          .getDeclaredConstructor()
+          .newInstance();
+    }
+    catch (Throwable t) {
+      logger.log(Level.FINE, "Flight Recorder events unavailable", t);
+      return null;
+    }
+  }
+
+  public static boolean isAvailable() {
+    return RECORDER != null;
+  }
+
+  /**
+   * Starts an event of the given kind.
+   *
+   * @param kind Kind of event to start
+   * @return Started event or {@code null} if the event is not being recorded
+   */
+  public static Object begin(Kind kind) {
+    return RECORDER != null ? RECORDER.begin(kind) : null;
+  }
+
+  public static void endRequest(Object event, String requestType, long rows, long bytes) {
+    if (event != null) {
+      RECORDER.endRequest(event, requestType, rows, bytes);
+    }
+  }
+
+  public static void endPrepare(Object event, String sql, String statementName) {
+    if (event != null) {
+      RECORDER.endPrepare(event, sql, statementName);
+    }
+  }
+
+  public static void endExecute(Object event, String sql, String statementName, long rows) {
+    if (event != null) {
+      RECORDER.endExecute(event, sql, statementName, rows);
+    }
+  }
+
+  public static void endFetch(Object event, String portalName, long rows) {
+    if (event != null) {
+      RECORDER.endFetch(event, portalName, rows);
+    }
+  }
+
+  public static void endTypeLoad(Object event, String typeName) {
+    if (event != null) {
+      RECORDER.endTypeLoad(event, typeName);
+    }
+  }
+
+  public static void housekeeperCleanup(String kind, boolean allocationTraced) {
+    if (RECORDER != null) {
+      RECORDER.housekeeperCleanup(kind, allocationTraced);
+    }
+  }
+
+}
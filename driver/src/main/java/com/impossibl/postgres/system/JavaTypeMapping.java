@@ -30,6 +30,7 @@ package com.impossibl.postgres.system;
 
 import com.impossibl.postgres.api.data.ACLItem;
 import com.impossibl.postgres.api.data.CidrAddr;
+import com.impossibl.postgres.api.data.HStore;
 import com.impossibl.postgres.api.data.InetAddr;
 import com.impossibl.postgres.api.data.Interval;
 import com.impossibl.postgres.api.data.Range;
@@ -152,7 +153,7 @@ public class JavaTypeMapping {
     else if (cls == UUID.class) {
       return reg.loadBaseType("uuid");
     }
-    else if (cls == Map.class) {
+    else if (cls == Map.class || cls == HStore.class) {
       return reg.loadStableType("hstore");
     }
     else if (cls == BitSet.class) {
@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a single connection, collected when the {@code metrics}
+ * setting is enabled.
+ *
+ * All counters are striped ({@link LongAdder}) so recording costs a few
+ * nanoseconds and never contends between the I/O thread and application
+ * threads.
+ */
+public class Metrics implements MetricsMXBean {
+
+  public enum RequestType {
+    PREPARE,
+    EXECUTE,
+    QUERY,
+    RESUME,
+    COPY,
+    CALL,
+    OTHER
+  }
+
+  public enum Cache {
+    PARSED_SQL,
+    DESCRIPTION,
+    PREPARED_STATEMENT
+  }
+
+  public enum Counter {
+    BYTES_IN,
+    BYTES_OUT,
+    MESSAGES_IN,
+    MESSAGES_OUT,
+    ROWS_DECODED,
+    TYPE_LOADS,
+    TIMEOUTS,
+    CANCELS
+  }
+
+  /**
+   * Latency histogram buckets. Bucket {@code n} counts requests that took
+   * less than 2<sup>n</sup> microseconds, the last bucket counts all
+   * remaining requests.
+   */
+  public static final int LATENCY_BUCKETS = 32;
+
+  private static final RequestType[] REQUEST_TYPES = RequestType.values();
+  private static final Cache[] CACHES = Cache.values();
+
+  private final LongAdder[] counters = newAdders(Counter.values().length);
+  private final LongAdder[] cacheHits = newAdders(CACHES.length);
+  private final LongAdder[] cacheMisses = newAdders(CACHES.length);
+  private final LongAdder[] cacheEvictions = newAdders(CACHES.length);
+  private final LongAdder[] requestCounts = newAdders(REQUEST_TYPES.length);
+  private final LongAdder[] requestNanos = newAdders(REQUEST_TYPES.length);
+  private final LongAdder[][] requestLatencies = new LongAdder[REQUEST_TYPES.length][];
+  private boolean closed;
+  private MetricsAggregate aggregate;
+
+  public Metrics() {
+    for (int c = 0; c < requestLatencies.length; ++c) {
+      requestLatencies[c] = newAdders(LATENCY_BUCKETS);
+    }
+  }
+
+  private static LongAdder[] newAdders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int c = 0; c < count; ++c) {
+      adders[c] = new LongAdder();
+    }
+    return adders;
+  }
+
+  static int latencyBucket(long nanos) {
+    long micros = nanos / 1000;
+    return Math.min(64 - Long.numberOfLeadingZeros(micros), LATENCY_BUCKETS - 1);
+  }
+
+  public void increment(Counter counter) {
+    counters[counter.ordinal()].increment();
+  }
+
+  public void add(Counter counter, long value) {
+    counters[counter.ordinal()].add(value);
+  }
+
+  public void cacheHit(Cache cache) {
+    cacheHits[cache.ordinal()].increment();
+  }
+
+  public void cacheMiss(Cache cache) {
+    cacheMisses[cache.ordinal()].increment();
+  }
+
+  public void cacheEviction(Cache cache) {
+    cacheEvictions[cache.ordinal()].increment();
+  }
+
+  public void request(RequestType type, long nanos) {
+    int idx = type.ordinal();
+    requestCounts[idx].increment();
+    requestNanos[idx].add(nanos);
+    requestLatencies[idx][latencyBucket(nanos)].increment();
+  }
+
+  public long get(Counter counter) {
+    return counters[counter.ordinal()].sum();
+  }
+
+  /**
+   * Marks the owning connection as closed; the aggregate, if any, folds
+   * the counters into its totals and forgets this instance.
+   */
+  public void close() {
+    MetricsAggregate aggregate;
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+      aggregate = this.aggregate;
+    }
+    if (aggregate != null) {
+      aggregate.retire(this);
+    }
+  }
+
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Associates the aggregate to notify when closed.
+   *
+   * @return {@code false} if already closed, in which case the aggregate
+   * is not notified.
+   */
+  synchronized boolean setAggregate(MetricsAggregate aggregate) {
+    if (closed) return false;
+    this.aggregate = aggregate;
+    return true;
+  }
+
+  /**
+   * Adds all counters of this instance to the given target.
+   *
+   * @param target Metrics to accumulate into
+   */
+  public void addTo(Metrics target) {
+    addTo(counters, target.counters);
+    addTo(cacheHits, target.cacheHits);
+    addTo(cacheMisses, target.cacheMisses);
+    addTo(cacheEvictions, target.cacheEvictions);
+    addTo(requestCounts, target.requestCounts);
+    addTo(requestNanos, target.requestNanos);
+    for (int c = 0; c < requestLatencies.length; ++c) {
+      addTo(requestLatencies[c], target.requestLatencies[c]);
+    }
+  }
+
+  private static void addTo(LongAdder[] source, LongAdder[] target) {
+    for (int c = 0; c < source.length; ++c) {
+      target[c].add(source[c].sum());
+    }
+  }
+
+  private static Map<String, Long> sums(LongAdder[] adders, Enum<?>[] keys) {
+    Map<String, Long> sums = new LinkedHashMap<>();
+    for (Enum<?> key : keys) {
+      sums.put(key.name(), adders[key.ordinal()].sum());
+    }
+    return sums;
+  }
+
+  @Override
+  public Map<String, Long> getRequestCounts() {
+    return sums(requestCounts, REQUEST_TYPES);
+  }
+
+  @Override
+  public Map<String, Double> getRequestMeanLatencies() {
+    Map<String, Double> means = new LinkedHashMap<>();
+    for (RequestType type : REQUEST_TYPES) {
+      long count = requestCounts[type.ordinal()].sum();
+      means.put(type.name(), count != 0 ? requestNanos[type.ordinal()].sum() / (count * 1000.0) : 0.0);
+    }
+    return means;
+  }
+
+  @Override
+  public Map<String, long[]> getRequestLatencyHistograms() {
+    Map<String, long[]> histograms = new LinkedHashMap<>();
+    for (RequestType type : REQUEST_TYPES) {
+      LongAdder[] buckets = requestLatencies[type.ordinal()];
+      long[] histogram = new long[buckets.length];
+      for (int c = 0; c < buckets.length; ++c) {
+        histogram[c] = buckets[c].sum();
+      }
+      histograms.put(type.name(), histogram);
+    }
+    return histograms;
+  }
+
+  @Override
+  public long getBytesIn() {
+    return get(Counter.BYTES_IN);
+  }
+
+  @Override
+  public long getBytesOut() {
+    return get(Counter.BYTES_OUT);
+  }
+
+  @Override
+  public long getMessagesIn() {
+    return get(Counter.MESSAGES_IN);
+  }
+
+  @Override
+  public long getMessagesOut() {
+    return get(Counter.MESSAGES_OUT);
+  }
+
+  @Override
+  public long getRowsDecoded() {
+    return get(Counter.ROWS_DECODED);
+  }
+
+  @Override
+  public Map<String, Long> getCacheHits() {
+    return sums(cacheHits, CACHES);
+  }
+
+  @Override
+  public Map<String, Long> getCacheMisses() {
+    return sums(cacheMisses, CACHES);
+  }
+
+  @Override
+  public Map<String, Long> getCacheEvictions() {
+    return sums(cacheEvictions, CACHES);
+  }
+
+  @Override
+  public long getTypeLoads() {
+    return get(Counter.TYPE_LOADS);
+  }
+
+  @Override
+  public long getTimeouts() {
+    return get(Counter.TIMEOUTS);
+  }
+
+  @Override
+  public long getCancels() {
+    return get(Counter.CANCELS);
+  }
+
+}
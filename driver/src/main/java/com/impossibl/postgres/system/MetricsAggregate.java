@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Totals of a set of connection {@link Metrics}, e.g. all the connections
+ * created by a DataSource.
+ *
+ * Connections record only into their own counters; totals are computed
+ * when read. Counters of a connection are folded into a retired total when
+ * it closes, so they remain accounted for without holding on to the
+ * connection's metrics.
+ */
+public class MetricsAggregate implements MetricsMXBean {
+
+  private final Metrics retired = new Metrics();
+  private final Set<Metrics> live = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  public void add(Metrics metrics) {
+    live.add(metrics);
+    if (!metrics.setAggregate(this)) {
+      retire(metrics);
+    }
+  }
+
+  /**
+   * Folds the counters of a closed connection into the retired total.
+   */
+  synchronized void retire(Metrics metrics) {
+    if (live.remove(metrics)) {
+      metrics.addTo(retired);
+    }
+  }
+
+  /**
+   * @return Number of connections currently contributing to the totals
+   */
+  int getLiveCount() {
+    return live.size();
+  }
+
+  /**
+   * @return Snapshot of the current totals
+   */
+  public synchronized Metrics snapshot() {
+
+    Metrics snapshot = new Metrics();
+
+    for (Metrics metrics : live) {
+      metrics.addTo(snapshot);
+    }
+
+    retired.addTo(snapshot);
+
+    return snapshot;
+  }
+
+  @Override
+  public Map<String, Long> getRequestCounts() {
+    return snapshot().getRequestCounts();
+  }
+
+  @Override
+  public Map<String, Double> getRequestMeanLatencies() {
+    return snapshot().getRequestMeanLatencies();
+  }
+
+  @Override
+  public Map<String, long[]> getRequestLatencyHistograms() {
+    return snapshot().getRequestLatencyHistograms();
+  }
+
+  @Override
+  public long getBytesIn() {
+    return snapshot().getBytesIn();
+  }
+
+  @Override
+  public long getBytesOut() {
+    return snapshot().getBytesOut();
+  }
+
+  @Override
+  public long getMessagesIn() {
+    return snapshot().getMessagesIn();
+  }
+
+  @Override
+  public long getMessagesOut() {
+    return snapshot().getMessagesOut();
+  }
+
+  @Override
+  public long getRowsDecoded() {
+    return snapshot().getRowsDecoded();
+  }
+
+  @Override
+  public Map<String, Long> getCacheHits() {
+    return snapshot().getCacheHits();
+  }
+
+  @Override
+  public Map<String, Long> getCacheMisses() {
+    return snapshot().getCacheMisses();
+  }
+
+  @Override
+  public Map<String, Long> getCacheEvictions() {
+    return snapshot().getCacheEvictions();
+  }
+
+  @Override
+  public long getTypeLoads() {
+    return snapshot().getTypeLoads();
+  }
+
+  @Override
+  public long getTimeouts() {
+    return snapshot().getTimeouts();
+  }
+
+  @Override
+  public long getCancels() {
+    return snapshot().getCancels();
+  }
+
+}
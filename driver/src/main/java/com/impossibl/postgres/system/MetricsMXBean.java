@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import java.util.Map;
+
+/**
+ * JMX view of connection (or DataSource) metrics.
+ *
+ * Request, latency and cache values are keyed by the names of
+ * {@link Metrics.RequestType} and {@link Metrics.Cache} respectively.
+ */
+public interface MetricsMXBean {
+
+  Map<String, Long> getRequestCounts();
+
+  /**
+   * @return Mean request latency in microseconds, by request type
+   */
+  Map<String, Double> getRequestMeanLatencies();
+
+  /**
+   * Latency histograms, by request type. Bucket {@code n} counts requests
+   * that completed in less than 2<sup>n</sup> microseconds.
+   *
+   * @return Latency histograms by request type
+   */
+  Map<String, long[]> getRequestLatencyHistograms();
+
+  long getBytesIn();
+
+  long getBytesOut();
+
+  long getMessagesIn();
+
+  long getMessagesOut();
+
+  long getRowsDecoded();
+
+  Map<String, Long> getCacheHits();
+
+  Map<String, Long> getCacheMisses();
+
+  Map<String, Long> getCacheEvictions();
+
+  long getTypeLoads();
+
+  long getTimeouts();
+
+  long getCancels();
+
+}
@@ -40,5 +40,6 @@ public class ParameterNames {
   public static final String TIME_ZONE = "TimeZone";
   public static final String DATE_STYLE = "DateStyle";
   public static final String INTERVAL_STYLE = "IntervalStyle";
+  public static final String REPLICATION = "replication";
 
 }
@@ -28,12 +28,15 @@
  */
 package com.impossibl.postgres.system;
 
+import com.impossibl.postgres.utils.StringCache;
+
 import java.util.Map;
 
 public class SettingsContext extends DecoratorContext {
 
   private Settings settings;
   private Map<String, Class<?>> typeMap;
+  private StringCache stringCache;
 
   public SettingsContext(Context context, Map<String, Class<?>> typeMap) {
     super(context);
@@ -54,6 +57,16 @@ public class SettingsContext extends DecoratorContext {
     return super.getSetting(setting);
   }
 
+  @Override
+  public StringCache getStringCache() {
+    if (stringCache == null) return super.getStringCache();
+    return stringCache;
+  }
+
+  public void setStringCache(StringCache stringCache) {
+    this.stringCache = stringCache;
+  }
+
   public <T> void setSetting(Setting<T> setting, T value) {
     settings.set(setting, value);
   }
@@ -89,6 +89,15 @@ public class SystemSettings {
   )
   public static final Setting<String> CREDENTIALS_PASSWORD = Setting.declare();
 
+  @Setting.Info(
+      name = ParameterNames.REPLICATION,
+      group = "system",
+      desc =
+          "Starts the connection in replication mode.\n\n" +
+          "Use `database` to connect for logical replication; required by `PGConnection.startLogicalReplication`."
+  )
+  public static final Setting<String> REPLICATION = Setting.declare();
+
   @Setting.Info(
       name = "field.format",
       group = "system",
@@ -105,6 +114,18 @@ public class SystemSettings {
   )
   public static final Setting<Integer> FIELD_LENGTH_MAX = Setting.declare();
 
+  @Setting.Info(
+      name = "field.string.dedup",
+      group = "system",
+      desc =
+          "Size of the per column cache used to deduplicate decoded string values (`0` disables).\n\n" +
+          "Useful for low cardinality columns (e.g. enums, status or country codes); the cache disables " +
+          "itself for columns where it has a low hit rate.",
+      def = "0",
+      min = 0
+  )
+  public static final Setting<Integer> FIELD_STRING_DEDUP = Setting.declare();
+
   @Setting.Info(
       name = "param.format",
       group = "system",
@@ -188,6 +209,14 @@ public class SystemSettings {
   )
   public static final Setting<String> SSL_HOME_DIR = Setting.declare();
 
+  @Setting.Info(
+      desc = "Enables collection of connection metrics and their registration as JMX MBeans",
+      def = "false",
+      name = "metrics",
+      group = "system"
+  )
+  public static final Setting<Boolean> METRICS = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables SQL trace output",
       def = "false",
@@ -313,6 +342,39 @@ public class SystemSettings {
   )
   public static final Setting<Integer> PROTOCOL_MESSAGE_SIZE_MAX = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Maximum number of bytes of result rows a connection holds in memory.\n\n" +
+          "Rows received after the limit has been reached are spooled to a memory-mapped temporary file until\n" +
+          "enough in-memory rows have been released. When not set, all rows are held in memory.",
+      name = "protocol.result.memory.max",
+      min = 0,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_RESULT_MEMORY_MAX = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Directory for result spool files.\n\n" +
+          "Defaults to the directory specified by the `java.io.tmpdir` system property.\n\n" +
+          "NOTE: `protocol.result.memory.max` must be set for results to be spooled",
+      name = "protocol.result.spool.dir",
+      group = "protocol"
+  )
+  public static final Setting<String> PROTOCOL_RESULT_SPOOL_DIR = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Interval, in milliseconds, between standby status updates sent by replication streams.\n\n" +
+          "Progress reported by the application is batched and sent on this interval; updates are also sent\n" +
+          "whenever the server requests a reply.",
+      name = "protocol.replication.status.interval",
+      def = "10000",
+      min = 1,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_REPLICATION_STATUS_INTERVAL = Setting.declare();
+
   @Setting.Info(
       desc = "Enable or disable message trace output",
       def = "false",
@@ -330,6 +392,30 @@ public class SystemSettings {
   )
   public static final Setting<String> PROTOCOL_TRACE_FILE = Setting.declare();
 
+  public enum ProtocolTraceFormat {
+
+    @Setting.Description(
+        "One human readable line per message, handler action or SQL statement."
+    )
+    TEXT,
+
+    @Setting.Description(
+        "Compact binary records, converted to text with <code>java com.impossibl.postgres.protocol.v30.ProtocolTracer &lt;file&gt;</code>."
+    )
+    BINARY,
+  }
+
+  @Setting.Info(
+      desc =
+          "Format of message trace output.\n\n" +
+          "Trace records are written by a background thread; when it falls behind, records are dropped " +
+          "(and the drop reported) rather than delaying the connection",
+      def = "text",
+      name = "protocol.trace.format",
+      group = "protocol"
+  )
+  public static final Setting<ProtocolTraceFormat> PROTOCOL_TRACE_FORMAT = Setting.declare();
+
 
   @Setting.Group.Info(
       id = "server", desc = "Server reported settings", global = false
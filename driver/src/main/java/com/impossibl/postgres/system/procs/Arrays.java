@@ -100,7 +100,7 @@ public class Arrays extends SimpleProcProvider {
       //
 
       int dimensionCount = buffer.readInt();
-      /* int flags = */ buffer.readInt();
+      int flags = buffer.readInt();
       Type elementType = context.getRegistry().loadType(buffer.readInt());
 
       if (!atype.getElementType().equals(elementType)) {
@@ -123,20 +123,16 @@ public class Arrays extends SimpleProcProvider {
       //Array & Elements
       //
 
-      int totalItems = strideOfDimensions(dimensions);
-
-      ByteBuf[] elementBufs = new ByteBuf[totalItems];
-      for (int elementIdx = 0; elementIdx < totalItems; ++elementIdx) {
-        int elementLength = buffer.readInt();
-        if (elementLength != -1) {
-          elementBufs[elementIdx] = buffer.readRetainedSlice(elementLength);
-        }
-        else {
-          elementBufs[elementIdx] = null;
+      // Single dimension arrays of fixed width elements decode directly into primitive arrays
+      if (dimensionCount <= 1 && targetClass.isArray() && targetClass.getComponentType().isPrimitive()) {
+        Object array = PrimitiveArrays.decode(elementType, targetClass.getComponentType(), buffer, dimensionCount == 0 ? 0 : dimensions[0]);
+        if (array != null) {
+          return array;
         }
       }
 
-      return convertOutput(new PGBuffersArray(context, atype, FieldFormat.Binary, elementBufs, dimensions), targetClass);
+      // Elements are located & decoded on demand from the remainder of the buffer
+      return convertOutput(new PGBuffersArray(context, atype, buffer.readRetainedSlice(buffer.readableBytes()), dimensions, flags != 0), targetClass);
     }
 
   }
@@ -217,6 +213,10 @@ public class Arrays extends SimpleProcProvider {
 
     void writeElements(Context context, Type type, Object val, ByteBuf buffer) throws IOException {
 
+      if (val.getClass().getComponentType().isPrimitive() && PrimitiveArrays.encode(type, val, buffer)) {
+        return;
+      }
+
       int len = Array.getLength(val);
 
       for (int c = 0; c < len; ++c) {
@@ -241,6 +241,10 @@ public class Arrays extends SimpleProcProvider {
 
     boolean hasNulls(Object value) {
 
+      if (value.getClass().getComponentType().isPrimitive()) {
+        return false;
+      }
+
       for (int c = 0, sz = Array.getLength(value); c < sz; ++c) {
         if (Array.get(value, c) == null)
           return true;
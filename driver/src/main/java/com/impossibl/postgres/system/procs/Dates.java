@@ -37,12 +37,14 @@ import static com.impossibl.postgres.system.procs.DatesTimes.JAVA_DATE_POSITIVE_
 import static com.impossibl.postgres.system.procs.DatesTimes.NEG_INFINITY;
 import static com.impossibl.postgres.system.procs.DatesTimes.POS_INFINITY;
 import static com.impossibl.postgres.system.procs.DatesTimes.javaEpochToPg;
+import static com.impossibl.postgres.system.procs.DatesTimes.localToSQL;
 import static com.impossibl.postgres.system.procs.DatesTimes.pgEpochToJava;
 
 import java.io.IOException;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.temporal.TemporalAccessor;
 import java.util.Calendar;
 
@@ -52,6 +54,9 @@ import io.netty.buffer.ByteBuf;
 
 public class Dates extends SimpleProcProvider {
 
+  // 1582-10-15, first day of the Gregorian calendar used by java.util.GregorianCalendar
+  private static final long GREGORIAN_CUTOVER_EPOCH_DAY = -141427;
+
   public Dates() {
     super(new TxtEncoder(), new TxtDecoder(), new BinEncoder(), new BinDecoder(), "date_");
   }
@@ -114,7 +119,7 @@ public class Dates extends SimpleProcProvider {
     throw new ConversionException(type, targetClass);
   }
 
-  private static Object convertOutput(Context context, Type type, LocalDate date, Class<?> targetClass, Calendar targetCalendar) throws ConversionException {
+  private static Object convertOutput(Context context, Type type, LocalDate date, Class<?> targetClass, Object targetContext) throws ConversionException {
 
     if (targetClass == LocalDate.class) {
       return date;
@@ -124,6 +129,17 @@ public class Dates extends SimpleProcProvider {
       return context.getClientDateFormat().getPrinter().format(date);
     }
 
+    // Without a target calendar, Gregorian dates are converted arithmetically
+    if (targetContext == null && date.toEpochDay() >= GREGORIAN_CUTOVER_EPOCH_DAY &&
+        (targetClass == Timestamp.class || targetClass == Date.class)) {
+      Object value = localToSQL(DAYS.toSeconds(date.toEpochDay()), 0, ZoneId.systemDefault(), targetClass);
+      if (value != null) {
+        return value;
+      }
+    }
+
+    Calendar targetCalendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
+
     if (targetClass == Timestamp.class) {
       targetCalendar.clear();
       targetCalendar.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
@@ -153,8 +169,6 @@ public class Dates extends SimpleProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Calendar calendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
-
       int daysPg = buffer.readInt();
 
       if (daysPg == Integer.MAX_VALUE || daysPg == Integer.MIN_VALUE) {
@@ -163,7 +177,7 @@ public class Dates extends SimpleProcProvider {
 
       LocalDate date = LocalDate.ofEpochDay(pgEpochToJava(daysPg, DAYS));
 
-      return convertOutput(context, type, date, targetClass, calendar);
+      return convertOutput(context, type, date, targetClass, targetContext);
     }
 
   }
@@ -208,8 +222,6 @@ public class Dates extends SimpleProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, CharSequence buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Calendar calendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
-
       if (buffer.equals(POS_INFINITY) || buffer.equals(NEG_INFINITY)) {
         return convertInfinityOutput(buffer.equals(POS_INFINITY), type, targetClass);
       }
@@ -218,7 +230,7 @@ public class Dates extends SimpleProcProvider {
 
       LocalDate date = LocalDate.from(parsed);
 
-      return convertOutput(context, type, date, targetClass, calendar);
+      return convertOutput(context, type, date, targetClass, targetContext);
     }
 
   }
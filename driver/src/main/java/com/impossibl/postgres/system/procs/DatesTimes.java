@@ -28,10 +28,24 @@
  */
 package com.impossibl.postgres.system.procs;
 
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Calendar;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 
@@ -58,4 +72,172 @@ class DatesTimes {
     return value - timeUnit.convert(PG_EPOCH_SECS, SECONDS);
   }
 
+  /**
+   * Zone of a target/source calendar context, defaulting to the zone
+   * {@link Calendar#getInstance()} would use without allocating a calendar.
+   */
+  static ZoneId zoneOf(Object calendar) {
+    return calendar != null ? ((Calendar) calendar).getTimeZone().toZoneId() : ZoneId.systemDefault();
+  }
+
+  /**
+   * Range of local (wall clock) epoch seconds during which a zone has
+   * a single unambiguous offset, i.e. between the gaps & overlaps of two
+   * consecutive transitions.
+   */
+  static final class OffsetSpan {
+
+    final long localStart;
+    final long localEnd;
+    final int offset;
+
+    OffsetSpan(long localStart, long localEnd, int offset) {
+      this.localStart = localStart;
+      this.localEnd = localEnd;
+      this.offset = offset;
+    }
+
+    boolean contains(long localSecs) {
+      return localSecs >= localStart && localSecs < localEnd;
+    }
+
+  }
+
+  // Most recently used span of each zone; values decoded in sequence are
+  // almost always in the same span.
+  private static final ConcurrentMap<ZoneId, OffsetSpan> OFFSET_SPANS = new ConcurrentHashMap<>();
+
+  /**
+   * Finds the offset span containing a local epoch second.
+   *
+   * @return Span containing {@code localSecs} or {@code null} if the local
+   * time is in a gap or overlap.
+   */
+  static OffsetSpan localOffsetSpan(ZoneId zone, long localSecs) {
+
+    OffsetSpan span = OFFSET_SPANS.get(zone);
+    if (span != null && span.contains(localSecs)) {
+      return span;
+    }
+
+    span = computeOffsetSpan(zone.getRules(), localSecs);
+    if (span != null) {
+      OFFSET_SPANS.put(zone, span);
+    }
+
+    return span;
+  }
+
+  /**
+   * Finds the offset span containing an instant.
+   *
+   * @return Span containing {@code epochSecs} or {@code null} if its
+   * local time is in an overlap.
+   */
+  static OffsetSpan instantOffsetSpan(ZoneId zone, long epochSecs) {
+
+    OffsetSpan span = OFFSET_SPANS.get(zone);
+    if (span != null && span.contains(epochSecs + span.offset)) {
+      return span;
+    }
+
+    int offset = zone.getRules().getOffset(Instant.ofEpochSecond(epochSecs)).getTotalSeconds();
+
+    span = localOffsetSpan(zone, epochSecs + offset);
+
+    return span != null && span.offset == offset ? span : null;
+  }
+
+  private static OffsetSpan computeOffsetSpan(ZoneRules rules, long localSecs) {
+
+    if (rules.isFixedOffset()) {
+      return new OffsetSpan(Long.MIN_VALUE, Long.MAX_VALUE, rules.getOffset(Instant.EPOCH).getTotalSeconds());
+    }
+
+    int guess = rules.getOffset(Instant.ofEpochSecond(localSecs)).getTotalSeconds();
+    Instant instant = Instant.ofEpochSecond(localSecs - guess);
+    ZoneOffset offset = rules.getOffset(instant);
+    instant = Instant.ofEpochSecond(localSecs - offset.getTotalSeconds());
+    if (!rules.getOffset(instant).equals(offset)) {
+      return null;
+    }
+
+    ZoneOffsetTransition previous = rules.previousTransition(instant.plusSeconds(1));
+    ZoneOffsetTransition next = rules.nextTransition(instant);
+
+    long start = previous != null ?
+        previous.toEpochSecond() + Math.max(previous.getOffsetBefore().getTotalSeconds(), previous.getOffsetAfter().getTotalSeconds()) :
+        Long.MIN_VALUE;
+    long end = next != null ?
+        next.toEpochSecond() + Math.min(next.getOffsetBefore().getTotalSeconds(), next.getOffsetAfter().getTotalSeconds()) :
+        Long.MAX_VALUE;
+
+    if (localSecs < start || localSecs >= end) {
+      return null;
+    }
+
+    return new OffsetSpan(start, end, offset.getTotalSeconds());
+  }
+
+  /**
+   * Converts a local date/time, in epoch seconds & nanoseconds, to the requested
+   * {@link Timestamp}, {@link Date} or {@link Time} in the given zone.
+   *
+   * @return Converted value or {@code null} if the zone's offset is ambiguous
+   * for the value and the caller must use a full conversion.
+   */
+  static Object localToSQL(long localSecs, int nanos, ZoneId zone, Class<?> targetClass) {
+
+    // Values in a gap are shifted by the full conversion, which can change their date & time of day
+    OffsetSpan span = localOffsetSpan(zone, localSecs);
+    if (span == null) {
+      return null;
+    }
+
+    if (targetClass == Timestamp.class) {
+      return timestamp(localSecs - span.offset, nanos);
+    }
+
+    if (targetClass == Date.class) {
+      long midnight = floorDiv(localSecs, DAYS.toSeconds(1)) * DAYS.toSeconds(1);
+      span = localOffsetSpan(zone, midnight);
+      return span != null ? new Date(SECONDS.toMillis(midnight - span.offset)) : null;
+    }
+
+    if (targetClass == Time.class) {
+      long timeOfDay = floorMod(localSecs, DAYS.toSeconds(1));
+      span = localOffsetSpan(zone, timeOfDay);
+      return span != null ? new Time(SECONDS.toMillis(timeOfDay - span.offset) + NANOSECONDS.toMillis(nanos)) : null;
+    }
+
+    return null;
+  }
+
+  /**
+   * Converts an instant, in epoch seconds & nanoseconds, to the requested
+   * {@link Timestamp}, {@link Date} or {@link Time} in the given zone.
+   *
+   * @return Converted value or {@code null} if the zone's offset is ambiguous
+   * for the value and the caller must use a full conversion.
+   */
+  static Object instantToSQL(long epochSecs, int nanos, ZoneId zone, Class<?> targetClass) {
+
+    if (targetClass == Timestamp.class) {
+      return timestamp(epochSecs, nanos);
+    }
+
+    OffsetSpan span = instantOffsetSpan(zone, epochSecs);
+    if (span == null) {
+      return null;
+    }
+
+    return localToSQL(epochSecs + span.offset, nanos, zone, targetClass);
+  }
+
+  private static Timestamp timestamp(long epochSecs, int nanos) {
+    Timestamp timestamp = new Timestamp(SECONDS.toMillis(epochSecs));
+    timestamp.setNanos(nanos);
+    return timestamp;
+  }
+
 }
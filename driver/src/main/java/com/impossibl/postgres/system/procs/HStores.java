@@ -28,6 +28,7 @@
  */
 package com.impossibl.postgres.system.procs;
 
+import com.impossibl.postgres.api.data.HStore;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.types.Type;
 import com.impossibl.postgres.utils.TypeLiteral;
@@ -36,11 +37,14 @@ import static com.impossibl.postgres.utils.ByteBufs.lengthDecodeBinary;
 import static com.impossibl.postgres.utils.ByteBufs.lengthEncodeBinary;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Map;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 
 public class HStores extends SimpleProcProvider {
 
@@ -52,6 +56,26 @@ public class HStores extends SimpleProcProvider {
     return new HashMap<>(Math.max(2, size));
   }
 
+  private static HStore toHStore(Map<String, String> map, Charset charset) {
+
+    ByteBuf buffer = Unpooled.buffer();
+
+    buffer.writeInt(map.size());
+    for (Map.Entry<String, String> e : map.entrySet()) {
+      byte[] key = e.getKey().getBytes(charset);
+      buffer.writeInt(key.length).writeBytes(key);
+      if (e.getValue() != null) {
+        byte[] value = e.getValue().getBytes(charset);
+        buffer.writeInt(value.length).writeBytes(value);
+      }
+      else {
+        buffer.writeInt(-1);
+      }
+    }
+
+    return new HStore(ByteBufUtil.getBytes(buffer), charset);
+  }
+
   static class BinDecoder extends AutoConvertingBinaryDecoder<Map<String, String>> {
 
     BinDecoder() {
@@ -63,6 +87,18 @@ public class HStores extends SimpleProcProvider {
       return new TypeLiteral<Map<String, String>>() { }.getRawType();
     }
 
+    @Override
+    protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
+
+      if (targetClass == HStore.class) {
+        byte[] data = new byte[buffer.readableBytes()];
+        buffer.readBytes(data);
+        return new HStore(data, context.getCharset());
+      }
+
+      return super.decodeValue(context, type, typeLength, typeModifier, buffer, targetClass, targetContext);
+    }
+
     @Override
     protected Map<String, String> decodeNativeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
@@ -120,6 +156,16 @@ public class HStores extends SimpleProcProvider {
       return new TypeLiteral<Map<String, String>>() { }.getRawType();
     }
 
+    @Override
+    protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, CharSequence buffer, Class<?> targetClass, Object targetContext) throws IOException, ParseException {
+
+      if (targetClass == HStore.class) {
+        return toHStore(parse(buffer), context.getCharset());
+      }
+
+      return super.decodeValue(context, type, typeLength, typeModifier, buffer, targetClass, targetContext);
+    }
+
     @Override
     protected Map<String, String> decodeNativeValue(Context context, Type type, Short typeLength, Integer typeModifier, CharSequence buffer, Class<?> targetClass, Object targetContext) throws IOException, ParseException {
 
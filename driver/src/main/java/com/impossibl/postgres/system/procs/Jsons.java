@@ -29,27 +29,78 @@
 package com.impossibl.postgres.system.procs;
 
 import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.types.Type.Codec;
+import com.impossibl.postgres.utils.guava.ByteStreams;
 
 import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
 import static com.impossibl.postgres.system.procs.Strings.TEXT_DECODER;
 import static com.impossibl.postgres.system.procs.Strings.TEXT_ENCODER;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 
 import static java.lang.Math.min;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 
 
+/**
+ * Codecs for {@code json} &amp; {@code jsonb}.
+ *
+ * Besides {@link String}, binary values can be decoded to an
+ * {@link InputStream} or {@link Reader} reading directly from the field's
+ * buffer, a {@link ByteBuffer} or a {@code byte[]}; {@link InputStream},
+ * {@link ByteBuffer} &amp; {@code byte[]} values are accepted for
+ * parameters. Neither direction builds an intermediate {@link String}.
+ */
 public class Jsons extends SimpleProcProvider {
 
+  private static final byte JSONB_VERSION = 1;
+  private static final int STREAM_CHUNK_SIZE = 8192;
+
+  private static final BinEncoder JSON_BINARY_ENCODER = new BinEncoder(false);
+  private static final BinDecoder JSON_BINARY_DECODER = new BinDecoder(false);
+
   public Jsons() {
-    super(TEXT_ENCODER, TEXT_DECODER, new BinEncoder(), new BinDecoder(), "jsonb_");
+    super(TEXT_ENCODER, TEXT_DECODER, new BinEncoder(), new BinDecoder(), "jsonb_", "json_");
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <Buffer> Codec.Encoder<Buffer> findEncoder(String name, ServerInfo serverInfo, Class<? extends Buffer> bufferType) {
+    if (bufferType == ByteBuf.class && name.equals("json_recv")) {
+      return (Codec.Encoder<Buffer>) JSON_BINARY_ENCODER;
+    }
+    return super.findEncoder(name, serverInfo, bufferType);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <Buffer> Codec.Decoder<Buffer> findDecoder(String name, ServerInfo serverInfo, Class<? extends Buffer> bufferType) {
+    if (bufferType == ByteBuf.class && name.equals("json_send")) {
+      return (Codec.Decoder<Buffer>) JSON_BINARY_DECODER;
+    }
+    return super.findDecoder(name, serverInfo, bufferType);
   }
 
   public static class BinDecoder extends BaseBinaryDecoder {
 
+    private boolean versioned;
+
+    public BinDecoder() {
+      this(true);
+    }
+
+    BinDecoder(boolean versioned) {
+      this.versioned = versioned;
+    }
+
     @Override
     public Class<?> getDefaultClass() {
       return String.class;
@@ -58,50 +109,91 @@ public class Jsons extends SimpleProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      int length = buffer.readableBytes();
-      if (length < 1) {
-        throw new IOException("Invalid length for jsonb");
-      }
+      if (versioned) {
 
-      int version = buffer.readByte();
-      if (version != 1) {
-        throw new IOException("Invalid version for jsonb");
-      }
+        if (buffer.readableBytes() < 1) {
+          throw new IOException("Invalid length for jsonb");
+        }
 
-      length -= 1;
+        int version = buffer.readByte();
+        if (version != JSONB_VERSION) {
+          throw new IOException("Invalid version for jsonb");
+        }
 
-      byte[] bytes;
+      }
+
+      int length = buffer.readableBytes();
 
       Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
-      if (maxLength != null) {
-        bytes = new byte[min(maxLength, length)];
+      int readLength = maxLength != null ? min(maxLength, length) : length;
+
+      Object result;
+
+      if (targetClass == InputStream.class) {
+        result = new ByteBufInputStream(buffer.readRetainedSlice(readLength), true);
+      }
+      else if (targetClass == Reader.class) {
+        result = new InputStreamReader(new ByteBufInputStream(buffer.readRetainedSlice(readLength), true), context.getCharset());
+      }
+      else if (targetClass == ByteBuffer.class) {
+        ByteBuffer bytes = ByteBuffer.allocate(readLength);
+        buffer.readBytes(bytes);
+        bytes.flip();
+        result = bytes;
+      }
+      else if (targetClass == byte[].class) {
+        byte[] bytes = new byte[readLength];
+        buffer.readBytes(bytes);
+        result = bytes;
       }
       else {
-        bytes = new byte[length];
+        result = buffer.readCharSequence(readLength, context.getCharset()).toString();
       }
 
-      buffer.readBytes(bytes);
-      buffer.skipBytes(length - bytes.length);
+      buffer.skipBytes(length - readLength);
 
-      return new String(bytes, context.getCharset());
+      return result;
     }
 
   }
 
   public static class BinEncoder extends BaseBinaryEncoder {
 
-    byte[] toBytes(Object val, Context context) {
-      return val.toString().getBytes(context.getCharset());
+    private boolean versioned;
+
+    public BinEncoder() {
+      this(true);
+    }
+
+    BinEncoder(boolean versioned) {
+      this.versioned = versioned;
     }
 
     @Override
     protected void encodeValue(Context context, Type type, Object value, Object sourceContext, ByteBuf buffer) throws IOException {
 
-      byte[] bytes = toBytes(value, context);
-
-      buffer.writeByte(1);
+      if (versioned) {
+        buffer.writeByte(JSONB_VERSION);
+      }
 
-      buffer.writeBytes(bytes);
+      if (value instanceof ByteBuffer) {
+        buffer.writeBytes(((ByteBuffer) value).duplicate());
+      }
+      else if (value instanceof byte[]) {
+        buffer.writeBytes((byte[]) value);
+      }
+      else if (value instanceof InputStream) {
+        InputStream in = (InputStream) value;
+        if (sourceContext instanceof Long) {
+          in = ByteStreams.limit(in, (Long) sourceContext);
+        }
+        while (buffer.writeBytes(in, STREAM_CHUNK_SIZE) != -1) {
+          // Copy until exhausted
+        }
+      }
+      else {
+        buffer.writeCharSequence(value.toString(), context.getCharset());
+      }
     }
 
   }
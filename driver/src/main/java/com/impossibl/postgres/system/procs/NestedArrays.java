@@ -63,6 +63,12 @@ public class NestedArrays {
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
       NestedArrayType atype = (NestedArrayType) type;
+
+      if (!(buffer instanceof CompositeByteBuf)) {
+        // Contiguous length prefixed elements, sliced from a binary array
+        return new PGBuffersArray(context, atype, buffer.readRetainedSlice(buffer.readableBytes()), atype.getDimensions(), true);
+      }
+
       CompositeByteBuf compBuf = (CompositeByteBuf)buffer;
 
       ByteBuf[] elementBufs = new ByteBuf[compBuf.numComponents()];
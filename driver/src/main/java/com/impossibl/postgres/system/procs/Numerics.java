@@ -47,6 +47,7 @@ public class Numerics extends SimpleProcProvider {
   private static final short NUMERIC_POS = (short) 0x0000;
   private static final short NUMERIC_NEG = (short) 0x4000;
   private static final short DEC_DIGITS = 4;
+  private static final int NBASE = 10000;
 
   public Numerics() {
     super(new TxtEncoder(), new TxtDecoder(), new BinEncoder(), new BinDecoder(), "numeric_");
@@ -152,6 +153,20 @@ public class Numerics extends SimpleProcProvider {
         return Double.NaN;
       }
 
+      // Fast path: accumulate directly into a scaled long when the value fits,
+      // a local accumulator because this decoder is shared between connections
+      ScaledLongAccumulator accumulator = new ScaledLongAccumulator();
+      if (accumulator.accumulate(buffer, digitCount, info[0], info[1], info[2])) {
+
+        buffer.skipBytes(digitCount * 2);
+
+        if (length != buffer.readerIndex() - readStart) {
+          throw new IOException("invalid length");
+        }
+
+        return accumulator.toNumber(targetClass);
+      }
+
       short[] digits = new short[digitCount];
       for (int d = 0; d < digits.length; ++d)
         digits[d] = buffer.readShort();
@@ -250,6 +265,131 @@ public class Numerics extends SimpleProcProvider {
 
   }
 
+  /**
+   * Mutable accumulator that packs NBASE digits into an unscaled {@code long}
+   * and a decimal scale, avoiding the intermediate string and
+   * {@link BigInteger} produced by the general decoding path.
+   *
+   * Each call to {@link #accumulate} resets the accumulated state, but
+   * instances are not thread safe. Decoders are shared between connections,
+   * so they allocate one per value; it does not escape the decode call.
+   */
+  static final class ScaledLongAccumulator {
+
+    private static final long[] LONG_POWERS_OF_TEN = {
+      1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+      10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+      1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L,
+    };
+
+    // Powers of ten exactly representable as double & float respectively
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+      1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f,
+    };
+
+    private static final long MAX_DOUBLE_EXACT = 1L << 53;
+    private static final long MAX_FLOAT_EXACT = 1L << 24;
+    private static final long MAX_BEFORE_DIGIT = (Long.MAX_VALUE - (NBASE - 1)) / NBASE;
+
+    private long unscaled;
+    private int scale;
+
+    /**
+     * Accumulates the digits starting at the buffer's reader index without
+     * advancing it.
+     *
+     * @return {@code true} if the value was accumulated exactly, {@code false}
+     * if it does not fit in a scaled {@code long}.
+     */
+    boolean accumulate(ByteBuf buffer, int digitCount, int weight, int sign, int displayScale) {
+
+      unscaled = 0;
+      scale = displayScale;
+
+      if (digitCount == 0) {
+        return true;
+      }
+
+      long value = 0;
+      for (int d = 0, idx = buffer.readerIndex(); d < digitCount; ++d, idx += 2) {
+        if (value > MAX_BEFORE_DIGIT) {
+          return false;
+        }
+        value = value * NBASE + buffer.getShort(idx);
+      }
+
+      // Align last digit group with the display scale
+      int exponent = (weight - digitCount + 1) * DEC_DIGITS + displayScale;
+      if (exponent > 0) {
+        if (exponent >= LONG_POWERS_OF_TEN.length || value > Long.MAX_VALUE / LONG_POWERS_OF_TEN[exponent]) {
+          return false;
+        }
+        value *= LONG_POWERS_OF_TEN[exponent];
+      }
+      else if (exponent < 0) {
+        // Digits past the display scale are truncated, matching the string path
+        value = -exponent < LONG_POWERS_OF_TEN.length ? value / LONG_POWERS_OF_TEN[-exponent] : 0;
+      }
+
+      unscaled = sign == NUMERIC_NEG ? -value : value;
+      return true;
+    }
+
+    long longValue() {
+      if (scale == 0) {
+        return unscaled;
+      }
+      return scale < LONG_POWERS_OF_TEN.length ? unscaled / LONG_POWERS_OF_TEN[scale] : 0;
+    }
+
+    double doubleValue() {
+      if (Math.abs(unscaled) <= MAX_DOUBLE_EXACT && scale < DOUBLE_POWERS_OF_TEN.length) {
+        // Both operands are exact, so the division is correctly rounded
+        return unscaled / DOUBLE_POWERS_OF_TEN[scale];
+      }
+      return bigDecimalValue().doubleValue();
+    }
+
+    float floatValue() {
+      if (Math.abs(unscaled) <= MAX_FLOAT_EXACT && scale < FLOAT_POWERS_OF_TEN.length) {
+        return unscaled / FLOAT_POWERS_OF_TEN[scale];
+      }
+      return bigDecimalValue().floatValue();
+    }
+
+    BigDecimal bigDecimalValue() {
+      return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Produces the representation cheapest to convert to the requested class.
+     */
+    Number toNumber(Class<?> targetClass) {
+
+      if (targetClass == Long.class || targetClass == long.class ||
+          targetClass == Integer.class || targetClass == int.class ||
+          targetClass == Short.class || targetClass == short.class ||
+          targetClass == Byte.class || targetClass == byte.class) {
+        return longValue();
+      }
+
+      if (targetClass == Double.class || targetClass == double.class) {
+        return doubleValue();
+      }
+
+      if (targetClass == Float.class || targetClass == float.class) {
+        return floatValue();
+      }
+
+      return bigDecimalValue();
+    }
+
+  }
+
   /**
    * Encodes a string of the plain form xxxx.xxx into an NBASE packed sequence
    * of shorts.
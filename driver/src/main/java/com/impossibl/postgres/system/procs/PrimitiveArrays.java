@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.api.jdbc.PGType;
+import com.impossibl.postgres.types.Type;
+
+import io.netty.buffer.ByteBuf;
+
+
+/**
+ * Direct conversion between binary encoded elements of the fixed width
+ * types ({@code bool}, {@code int2}, {@code int4}, {@code int8},
+ * {@code float4} and {@code float8}) and primitive Java arrays, bypassing
+ * per element codecs and boxing.
+ *
+ * Besides exact matches, lossless widening is supported (e.g. {@code int2}
+ * elements into {@code long[]}). Anything else is left to the general
+ * codecs.
+ */
+public class PrimitiveArrays {
+
+  private static final int BOOL = PGType.BOOL.getVendorTypeNumber();
+  private static final int INT2 = PGType.INT2.getVendorTypeNumber();
+  private static final int INT4 = PGType.INT4.getVendorTypeNumber();
+  private static final int INT8 = PGType.INT8.getVendorTypeNumber();
+  private static final int FLOAT4 = PGType.FLOAT4.getVendorTypeNumber();
+  private static final int FLOAT8 = PGType.FLOAT8.getVendorTypeNumber();
+
+  /**
+   * Binary width of elements of {@code elementType}.
+   *
+   * @return Element width or {@code -1} if {@code elementType} is not one
+   * of the fixed width types.
+   */
+  public static int elementWidth(Type elementType) {
+
+    int id = elementType.getId();
+
+    if (id == BOOL) {
+      return 1;
+    }
+    if (id == INT2) {
+      return 2;
+    }
+    if (id == INT4 || id == FLOAT4) {
+      return 4;
+    }
+    if (id == INT8 || id == FLOAT8) {
+      return 8;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Binary width of elements that can be decoded directly into, or encoded
+   * directly from, a primitive array of {@code componentType}.
+   *
+   * @return Element width or {@code -1} if the combination is not supported.
+   */
+  static int elementWidth(Type elementType, Class<?> componentType) {
+
+    int id = elementType.getId();
+
+    if (componentType == boolean.class) {
+      return id == BOOL ? 1 : -1;
+    }
+    if (componentType == short.class) {
+      return id == INT2 ? 2 : -1;
+    }
+    if (componentType == int.class) {
+      return id == INT2 ? 2 : id == INT4 ? 4 : -1;
+    }
+    if (componentType == long.class) {
+      return id == INT2 ? 2 : id == INT4 ? 4 : id == INT8 ? 8 : -1;
+    }
+    if (componentType == float.class) {
+      return id == FLOAT4 ? 4 : -1;
+    }
+    if (componentType == double.class) {
+      return id == FLOAT4 ? 4 : id == FLOAT8 ? 8 : -1;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Decodes {@code count} length prefixed elements, as laid out in a binary
+   * array, into a new primitive array.
+   *
+   * @return Primitive array or {@code null} if the conversion is not supported
+   * or an element is {@code NULL}; the buffer is only advanced on success.
+   */
+  public static Object decode(Type elementType, Class<?> componentType, ByteBuf buffer, int count) {
+
+    int width = elementWidth(elementType, componentType);
+    if (width == -1) {
+      return null;
+    }
+
+    int stride = 4 + width;
+    int start = buffer.readerIndex();
+    if (buffer.readableBytes() < count * stride) {
+      return null;
+    }
+
+    for (int c = 0, idx = start; c < count; ++c, idx += stride) {
+      if (buffer.getInt(idx) != width) {
+        return null;
+      }
+    }
+
+    int first = start + 4;
+    Object result;
+
+    if (componentType == int.class) {
+      int[] values = new int[count];
+      for (int c = 0, idx = first; c < count; ++c, idx += stride) {
+        values[c] = width == 2 ? buffer.getShort(idx) : buffer.getInt(idx);
+      }
+      result = values;
+    }
+    else if (componentType == long.class) {
+      long[] values = new long[count];
+      for (int c = 0, idx = first; c < count; ++c, idx += stride) {
+        values[c] = width == 8 ? buffer.getLong(idx) : width == 4 ? buffer.getInt(idx) : buffer.getShort(idx);
+      }
+      result = values;
+    }
+    else if (componentType == double.class) {
+      double[] values = new double[count];
+      for (int c = 0, idx = first; c < count; ++c, idx += stride) {
+        values[c] = width == 8 ? buffer.getDouble(idx) : buffer.getFloat(idx);
+      }
+      result = values;
+    }
+    else if (componentType == float.class) {
+      float[] values = new float[count];
+      for (int c = 0, idx = first; c < count; ++c, idx += stride) {
+        values[c] = buffer.getFloat(idx);
+      }
+      result = values;
+    }
+    else if (componentType == short.class) {
+      short[] values = new short[count];
+      for (int c = 0, idx = first; c < count; ++c, idx += stride) {
+        values[c] = buffer.getShort(idx);
+      }
+      result = values;
+    }
+    else {
+      boolean[] values = new boolean[count];
+      for (int c = 0, idx = first; c < count; ++c, idx += stride) {
+        values[c] = buffer.getByte(idx) != 0;
+      }
+      result = values;
+    }
+
+    buffer.skipBytes(count * stride);
+
+    return result;
+  }
+
+  /**
+   * Decodes a range of individually buffered binary elements into a new
+   * primitive array.
+   *
+   * @return Primitive array or {@code null} if the conversion is not supported
+   * or an element is {@code NULL}.
+   */
+  public static Object decode(Type elementType, Class<?> componentType, ByteBuf[] elementBuffers, int offset, int count) {
+
+    int width = elementWidth(elementType, componentType);
+    if (width == -1) {
+      return null;
+    }
+
+    for (int c = 0; c < count; ++c) {
+      ByteBuf elementBuffer = elementBuffers[offset + c];
+      if (elementBuffer == null || elementBuffer.readableBytes() != width) {
+        return null;
+      }
+    }
+
+    if (componentType == int.class) {
+      int[] values = new int[count];
+      for (int c = 0; c < count; ++c) {
+        ByteBuf elementBuffer = elementBuffers[offset + c];
+        int idx = elementBuffer.readerIndex();
+        values[c] = width == 2 ? elementBuffer.getShort(idx) : elementBuffer.getInt(idx);
+      }
+      return values;
+    }
+
+    if (componentType == long.class) {
+      long[] values = new long[count];
+      for (int c = 0; c < count; ++c) {
+        ByteBuf elementBuffer = elementBuffers[offset + c];
+        int idx = elementBuffer.readerIndex();
+        values[c] = width == 8 ? elementBuffer.getLong(idx) : width == 4 ? elementBuffer.getInt(idx) : elementBuffer.getShort(idx);
+      }
+      return values;
+    }
+
+    if (componentType == double.class) {
+      double[] values = new double[count];
+      for (int c = 0; c < count; ++c) {
+        ByteBuf elementBuffer = elementBuffers[offset + c];
+        int idx = elementBuffer.readerIndex();
+        values[c] = width == 8 ? elementBuffer.getDouble(idx) : elementBuffer.getFloat(idx);
+      }
+      return values;
+    }
+
+    if (componentType == float.class) {
+      float[] values = new float[count];
+      for (int c = 0; c < count; ++c) {
+        ByteBuf elementBuffer = elementBuffers[offset + c];
+        values[c] = elementBuffer.getFloat(elementBuffer.readerIndex());
+      }
+      return values;
+    }
+
+    if (componentType == short.class) {
+      short[] values = new short[count];
+      for (int c = 0; c < count; ++c) {
+        ByteBuf elementBuffer = elementBuffers[offset + c];
+        values[c] = elementBuffer.getShort(elementBuffer.readerIndex());
+      }
+      return values;
+    }
+
+    boolean[] values = new boolean[count];
+    for (int c = 0; c < count; ++c) {
+      ByteBuf elementBuffer = elementBuffers[offset + c];
+      values[c] = elementBuffer.getByte(elementBuffer.readerIndex()) != 0;
+    }
+    return values;
+  }
+
+  /**
+   * Encodes the elements of a primitive array as length prefixed binary
+   * values of {@code elementType}, widening as necessary.
+   *
+   * @return {@code true} if encoded, {@code false} if the conversion is not
+   * supported and nothing was written.
+   */
+  static boolean encode(Type elementType, Object array, ByteBuf buffer) {
+
+    int id = elementType.getId();
+    int width;
+    if (id == BOOL) {
+      width = 1;
+    }
+    else if (id == INT2) {
+      width = 2;
+    }
+    else if (id == INT4 || id == FLOAT4) {
+      width = 4;
+    }
+    else if (id == INT8 || id == FLOAT8) {
+      width = 8;
+    }
+    else {
+      return false;
+    }
+
+    if (array instanceof int[] && (id == INT4 || id == INT8)) {
+      int[] values = (int[]) array;
+      buffer.ensureWritable(values.length * (4 + width));
+      for (int value : values) {
+        buffer.writeInt(width);
+        if (width == 8) {
+          buffer.writeLong(value);
+        }
+        else {
+          buffer.writeInt(value);
+        }
+      }
+      return true;
+    }
+
+    if (array instanceof long[] && id == INT8) {
+      long[] values = (long[]) array;
+      buffer.ensureWritable(values.length * (4 + width));
+      for (long value : values) {
+        buffer.writeInt(width);
+        buffer.writeLong(value);
+      }
+      return true;
+    }
+
+    if (array instanceof double[] && id == FLOAT8) {
+      double[] values = (double[]) array;
+      buffer.ensureWritable(values.length * (4 + width));
+      for (double value : values) {
+        buffer.writeInt(width);
+        buffer.writeDouble(value);
+      }
+      return true;
+    }
+
+    if (array instanceof float[] && (id == FLOAT4 || id == FLOAT8)) {
+      float[] values = (float[]) array;
+      buffer.ensureWritable(values.length * (4 + width));
+      for (float value : values) {
+        buffer.writeInt(width);
+        if (width == 8) {
+          buffer.writeDouble(value);
+        }
+        else {
+          buffer.writeFloat(value);
+        }
+      }
+      return true;
+    }
+
+    if (array instanceof short[] && (id == INT2 || id == INT4 || id == INT8)) {
+      short[] values = (short[]) array;
+      buffer.ensureWritable(values.length * (4 + width));
+      for (short value : values) {
+        buffer.writeInt(width);
+        if (width == 8) {
+          buffer.writeLong(value);
+        }
+        else if (width == 4) {
+          buffer.writeInt(value);
+        }
+        else {
+          buffer.writeShort(value);
+        }
+      }
+      return true;
+    }
+
+    if (array instanceof boolean[] && id == BOOL) {
+      boolean[] values = (boolean[]) array;
+      buffer.ensureWritable(values.length * (4 + width));
+      for (boolean value : values) {
+        buffer.writeInt(width);
+        buffer.writeByte(value ? 1 : 0);
+      }
+      return true;
+    }
+
+    return false;
+  }
+
+}
@@ -0,0 +1,396 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.ServerInfo;
+import com.impossibl.postgres.types.Modifiers;
+import com.impossibl.postgres.types.Registry;
+import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.types.Type.Codec;
+
+import static com.impossibl.postgres.system.CustomTypes.lookupCustomType;
+import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
+import static com.impossibl.postgres.utils.ByteBufs.lengthEncode;
+import static com.impossibl.postgres.utils.ByteBufs.lengthEncodeBinary;
+
+import java.io.IOException;
+import java.sql.Struct;
+
+import static java.lang.Integer.min;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Base for type specific record codecs, as generated by the UDT generator.
+ *
+ * Composite types all share the {@code record_send} &amp; {@code record_recv} procs,
+ * which decode through {@link com.impossibl.postgres.jdbc.PGStruct} or
+ * {@link com.impossibl.postgres.jdbc.PGSQLInput}. Providers extending this class are
+ * matched by the qualified name of a single composite type (e.g.
+ * {@code public.address_send}) and read/write the record attributes directly
+ * to/from the mapped Java class, via {@link Input} &amp; {@link Output}. Other
+ * target classes, or records whose attributes do not match the generated
+ * attribute types (e.g. after the type was altered), are handled by the generic
+ * record codec.
+ *
+ * @param <T> Java class the composite type is mapped to
+ */
+public abstract class RecordProcProvider<T> extends BaseProcProvider {
+
+  private Class<T> javaType;
+  private String[] attributeTypeNames;
+  private volatile AttributeTypes resolvedAttributeTypes;
+  private Codec.Decoder<ByteBuf> binDecoder = new BinDecoder();
+  private Codec.Encoder<ByteBuf> binEncoder = new BinEncoder();
+  private Codec.Decoder<ByteBuf> recordDecoder = new Records.BinDecoder();
+  private Codec.Encoder<ByteBuf> recordEncoder = new Records.BinEncoder();
+
+  /**
+   * @param namespace Schema name of the composite type
+   * @param localName Name of the composite type
+   * @param javaType Java class the type is decoded to &amp; encoded from
+   * @param attributeTypeNames Qualified names of the attribute types, in attribute order
+   */
+  protected RecordProcProvider(String namespace, String localName, Class<T> javaType, String... attributeTypeNames) {
+    super(new String[] {namespace + "." + localName + "_"});
+    this.javaType = javaType;
+    this.attributeTypeNames = attributeTypeNames;
+  }
+
+  /**
+   * Decodes the attributes of a record, in attribute order.
+   */
+  protected abstract T decodeAttributes(Input in) throws IOException;
+
+  /**
+   * Encodes the attributes of a record, in attribute order.
+   */
+  protected abstract void encodeAttributes(Output out, T value) throws IOException;
+
+  /**
+   * Reads the attributes of a binary record, in order, directly from the
+   * record buffer.
+   */
+  protected static final class Input {
+
+    private Context context;
+    private ByteBuf buffer;
+
+    Input(Context context, ByteBuf buffer) {
+      this.context = context;
+      this.buffer = buffer;
+    }
+
+    public Context getContext() {
+      return context;
+    }
+
+    private boolean readHeader() {
+      buffer.skipBytes(4);
+      return readLength() != -1;
+    }
+
+    private int readLength() {
+      return buffer.readInt();
+    }
+
+    public Boolean readBoolean() {
+      return readHeader() ? buffer.readBoolean() : null;
+    }
+
+    public Short readShort() {
+      return readHeader() ? buffer.readShort() : null;
+    }
+
+    public Integer readInt() {
+      return readHeader() ? buffer.readInt() : null;
+    }
+
+    public Long readLong() {
+      return readHeader() ? buffer.readLong() : null;
+    }
+
+    public Float readFloat() {
+      return readHeader() ? buffer.readFloat() : null;
+    }
+
+    public Double readDouble() {
+      return readHeader() ? buffer.readDouble() : null;
+    }
+
+    public String readString() {
+
+      buffer.skipBytes(4);
+
+      int length = readLength();
+      if (length == -1) {
+        return null;
+      }
+
+      String value = buffer.readCharSequence(length, context.getCharset()).toString();
+      Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
+      if (maxLength != null) {
+        value = value.substring(0, min(maxLength, value.length()));
+      }
+
+      return value;
+    }
+
+    /**
+     * Reads an attribute using the codec of its type.
+     */
+    public <A> A readObject(Class<A> targetClass) throws IOException {
+
+      Type attributeType = context.getRegistry().loadType(buffer.readInt());
+
+      int length = readLength();
+      if (length == -1) {
+        return null;
+      }
+
+      Object value = attributeType.getBinaryCodec().getDecoder()
+          .decode(context, attributeType, attributeType.getLength(), null, buffer.readSlice(length), targetClass, null);
+
+      return targetClass.cast(value);
+    }
+
+  }
+
+  /**
+   * Writes the attributes of a binary record, in order, directly to the
+   * record buffer.
+   */
+  protected static final class Output {
+
+    private Context context;
+    private Type[] attributeTypes;
+    private ByteBuf buffer;
+    private int attributeIdx;
+
+    Output(Context context, Type[] attributeTypes, ByteBuf buffer) {
+      this.context = context;
+      this.attributeTypes = attributeTypes;
+      this.buffer = buffer;
+    }
+
+    public Context getContext() {
+      return context;
+    }
+
+    private boolean writeHeader(Object value, int length) {
+      buffer.writeInt(attributeTypes[attributeIdx++].getId());
+      buffer.writeInt(value != null ? length : -1);
+      return value != null;
+    }
+
+    public void writeBoolean(Boolean value) {
+      if (writeHeader(value, 1)) {
+        buffer.writeBoolean(value);
+      }
+    }
+
+    public void writeShort(Short value) {
+      if (writeHeader(value, 2)) {
+        buffer.writeShort(value);
+      }
+    }
+
+    public void writeInt(Integer value) {
+      if (writeHeader(value, 4)) {
+        buffer.writeInt(value);
+      }
+    }
+
+    public void writeLong(Long value) {
+      if (writeHeader(value, 8)) {
+        buffer.writeLong(value);
+      }
+    }
+
+    public void writeFloat(Float value) {
+      if (writeHeader(value, 4)) {
+        buffer.writeFloat(value);
+      }
+    }
+
+    public void writeDouble(Double value) {
+      if (writeHeader(value, 8)) {
+        buffer.writeDouble(value);
+      }
+    }
+
+    public void writeString(String value) throws IOException {
+      buffer.writeInt(attributeTypes[attributeIdx++].getId());
+      lengthEncode(buffer, value, () -> buffer.writeCharSequence(value, context.getCharset()));
+    }
+
+    /**
+     * Writes an attribute using the codec of its type.
+     */
+    public void writeObject(Object value) throws IOException {
+      Type attributeType = attributeTypes[attributeIdx++];
+      buffer.writeInt(attributeType.getId());
+      lengthEncodeBinary(attributeType.getBinaryCodec().getEncoder(), context, attributeType, value, null, buffer);
+    }
+
+  }
+
+  /**
+   * Attribute types resolved for a specific registry; type ids differ
+   * between servers.
+   */
+  private static final class AttributeTypes {
+
+    final Registry registry;
+    final Type[] types;
+
+    AttributeTypes(Registry registry, Type[] types) {
+      this.registry = registry;
+      this.types = types;
+    }
+
+  }
+
+  private Type[] resolveAttributeTypes(Context context) throws IOException {
+
+    AttributeTypes resolved = resolvedAttributeTypes;
+    if (resolved == null || resolved.registry != context.getRegistry()) {
+      resolved = new AttributeTypes(context.getRegistry(), loadAttributeTypes(context));
+      resolvedAttributeTypes = resolved;
+    }
+
+    return resolved.types;
+  }
+
+  /**
+   * Checks that the record's attribute type ids match the generated
+   * attribute types, without consuming the buffer.
+   */
+  private boolean matchesAttributeTypes(Context context, ByteBuf buffer) throws IOException {
+
+    int idx = buffer.readerIndex();
+    if (buffer.getInt(idx) != attributeTypeNames.length) {
+      return false;
+    }
+    idx += 4;
+
+    Type[] attributeTypes = resolveAttributeTypes(context);
+    for (Type attributeType : attributeTypes) {
+      if (idx + 8 > buffer.writerIndex() || buffer.getInt(idx) != attributeType.getId()) {
+        return false;
+      }
+      int length = buffer.getInt(idx + 4);
+      idx += 8 + Math.max(length, 0);
+    }
+
+    return idx <= buffer.writerIndex();
+  }
+
+  private Type[] loadAttributeTypes(Context context) throws IOException {
+
+    Type[] attributeTypes = new Type[attributeTypeNames.length];
+    for (int c = 0; c < attributeTypes.length; ++c) {
+      Type attributeType = context.getRegistry().loadStableType(attributeTypeNames[c]);
+      if (attributeType == null) {
+        throw new IOException("Unable to load attribute type: " + attributeTypeNames[c]);
+      }
+      attributeTypes[c] = attributeType;
+    }
+
+    return attributeTypes;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <Buffer> Codec.Encoder<Buffer> findEncoder(String name, ServerInfo serverInfo, Class<? extends Buffer> bufferType) {
+    if (bufferType == ByteBuf.class && name.endsWith("recv") && hasName(name, "recv", serverInfo)) {
+      return (Codec.Encoder<Buffer>) binEncoder;
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <Buffer> Codec.Decoder<Buffer> findDecoder(String name, ServerInfo serverInfo, Class<? extends Buffer> bufferType) {
+    if (bufferType == ByteBuf.class && name.endsWith("send") && hasName(name, "send", serverInfo)) {
+      return (Codec.Decoder<Buffer>) binDecoder;
+    }
+    return null;
+  }
+
+  @Override
+  public Modifiers.Parser findModifierParser(String name, ServerInfo serverInfo) {
+    return null;
+  }
+
+  private class BinDecoder extends BaseBinaryDecoder {
+
+    @Override
+    public Class<?> getDefaultClass() {
+      return Struct.class;
+    }
+
+    @Override
+    protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
+
+      Class<?> mappedClass = targetClass;
+      if (Struct.class.isAssignableFrom(mappedClass)) {
+        mappedClass = lookupCustomType(type, context.getCustomTypeMap(), mappedClass);
+      }
+
+      if (mappedClass != javaType || !matchesAttributeTypes(context, buffer)) {
+        return recordDecoder.decode(context, type, typeLength, typeModifier, buffer, targetClass, targetContext);
+      }
+
+      buffer.skipBytes(4);
+
+      return decodeAttributes(new Input(context, buffer));
+    }
+
+  }
+
+  private class BinEncoder extends BaseBinaryEncoder {
+
+    @Override
+    protected void encodeValue(Context context, Type type, Object value, Object sourceContext, ByteBuf buffer) throws IOException {
+
+      if (!javaType.isInstance(value)) {
+        recordEncoder.encode(context, type, value, sourceContext, buffer);
+        return;
+      }
+
+      buffer.writeInt(attributeTypeNames.length);
+
+      encodeAttributes(new Output(context, resolveAttributeTypes(context), buffer), javaType.cast(value));
+    }
+
+  }
+
+}
@@ -32,6 +32,7 @@ import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.system.JavaTypeMapping;
 import com.impossibl.postgres.types.Modifiers;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.StringCache;
 
 import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
 import static com.impossibl.postgres.types.Modifiers.LENGTH;
@@ -57,7 +58,7 @@ public class Strings extends SimpleProcProvider {
 
   public Strings() {
     super(TEXT_ENCODER, TEXT_DECODER, BINARY_ENCODER, BINARY_DECODER, new ModParser(),
-        "text", "varchar", "bpchar", "char", "enum_", "json_", "cstring_", "citext", "unknown",  "regproc", "regtype", "regclass", "regoper");
+        "text", "varchar", "bpchar", "char", "enum_", "cstring_", "citext", "unknown",  "regproc", "regtype", "regclass", "regoper");
   }
 
   private static Bools.TxtDecoder boolDecoder = new Bools.TxtDecoder();
@@ -194,12 +195,18 @@ public class Strings extends SimpleProcProvider {
     protected String decodeNativeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
       int length = buffer.readableBytes();
-      byte[] bytes = new byte[length];
 
-      buffer.readBytes(bytes);
-      buffer.skipBytes(length - bytes.length);
+      CharSequence value;
+      StringCache stringCache = context.getStringCache();
+      if (stringCache != null) {
+        value = stringCache.get(buffer, length, context.getCharset());
+      }
+      else {
+        byte[] bytes = new byte[length];
+        buffer.readBytes(bytes);
+        value = new String(bytes, context.getCharset());
+      }
 
-      CharSequence value = new String(bytes, context.getCharset());
       Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
       if (maxLength != null) {
         value = value.subSequence(0, min(maxLength, value.length()));
@@ -38,8 +38,10 @@ import static com.impossibl.postgres.system.procs.DatesTimes.JAVA_DATE_POSITIVE_
 import static com.impossibl.postgres.system.procs.DatesTimes.NEG_INFINITY;
 import static com.impossibl.postgres.system.procs.DatesTimes.POS_INFINITY;
 import static com.impossibl.postgres.system.procs.DatesTimes.UTC_ID;
+import static com.impossibl.postgres.system.procs.DatesTimes.instantToSQL;
 import static com.impossibl.postgres.system.procs.DatesTimes.javaEpochToPg;
 import static com.impossibl.postgres.system.procs.DatesTimes.pgEpochToJava;
+import static com.impossibl.postgres.system.procs.DatesTimes.zoneOf;
 
 import java.io.IOException;
 import java.sql.Date;
@@ -140,7 +142,7 @@ public class TimestampsWithTZ extends SettingSelectProcProvider {
     throw new ConversionException(type, targetClass);
   }
 
-  private static Object convertOutput(Context context, Type type, ZonedDateTime dateTime, Class<?> targetClass, Calendar targetCalendar) throws ConversionException {
+  private static Object convertOutput(Context context, Type type, ZonedDateTime dateTime, Class<?> targetClass, Object targetContext) throws ConversionException {
 
     if (targetClass == OffsetDateTime.class) {
       return dateTime.toOffsetDateTime();
@@ -150,7 +152,7 @@ public class TimestampsWithTZ extends SettingSelectProcProvider {
       return context.getClientTimestampFormat().getPrinter().format(dateTime);
     }
 
-    ZoneId targetZoneId = targetCalendar.getTimeZone().toZoneId();
+    ZoneId targetZoneId = zoneOf(targetContext);
     ZonedDateTime zonedDateTime = dateTime.withZoneSameInstant(targetZoneId);
 
     if (targetClass == Time.class) {
@@ -182,8 +184,6 @@ public class TimestampsWithTZ extends SettingSelectProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Calendar calendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
-
       long micros = buffer.readLong();
 
       if (micros == Long.MAX_VALUE || micros == Long.MIN_VALUE) {
@@ -199,9 +199,16 @@ public class TimestampsWithTZ extends SettingSelectProcProvider {
         secs--;
       }
 
+      if (targetClass == Timestamp.class || targetClass == Date.class || targetClass == Time.class) {
+        Object value = instantToSQL(secs, (int) nanos, zoneOf(targetContext), targetClass);
+        if (value != null) {
+          return value;
+        }
+      }
+
       ZonedDateTime dateTime = Instant.ofEpochSecond(secs, (int) nanos).atZone(context.getTimeZoneId());
 
-      return convertOutput(context, type, dateTime, targetClass, calendar);
+      return convertOutput(context, type, dateTime, targetClass, targetContext);
     }
 
   }
@@ -247,8 +254,6 @@ public class TimestampsWithTZ extends SettingSelectProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, CharSequence buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Calendar calendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
-
       if (buffer.equals(POS_INFINITY) || buffer.equals(NEG_INFINITY)) {
         return convertInfinityOutput(buffer.equals(POS_INFINITY), type, targetClass);
       }
@@ -260,10 +265,10 @@ public class TimestampsWithTZ extends SettingSelectProcProvider {
         dateTime = OffsetDateTime.from(parsed).toZonedDateTime().withZoneSameInstant(UTC_ID);
       }
       else {
-        dateTime = LocalDateTime.from(parsed).atZone(calendar.getTimeZone().toZoneId());
+        dateTime = LocalDateTime.from(parsed).atZone(zoneOf(targetContext));
       }
 
-      return convertOutput(context, type, dateTime, targetClass, calendar);
+      return convertOutput(context, type, dateTime, targetClass, targetContext);
     }
 
   }
@@ -38,7 +38,9 @@ import static com.impossibl.postgres.system.procs.DatesTimes.JAVA_DATE_POSITIVE_
 import static com.impossibl.postgres.system.procs.DatesTimes.NEG_INFINITY;
 import static com.impossibl.postgres.system.procs.DatesTimes.POS_INFINITY;
 import static com.impossibl.postgres.system.procs.DatesTimes.javaEpochToPg;
+import static com.impossibl.postgres.system.procs.DatesTimes.localToSQL;
 import static com.impossibl.postgres.system.procs.DatesTimes.pgEpochToJava;
+import static com.impossibl.postgres.system.procs.DatesTimes.zoneOf;
 
 import java.io.IOException;
 import java.sql.Date;
@@ -140,7 +142,7 @@ public class TimestampsWithoutTZ extends SettingSelectProcProvider {
     throw new ConversionException(type, targetClass);
   }
 
-  private static Object convertOutput(Context context, Type type, LocalDateTime dateTime, Class<?> targetClass, Calendar targetCalendar) throws ConversionException {
+  private static Object convertOutput(Context context, Type type, LocalDateTime dateTime, Class<?> targetClass, Object targetContext) throws ConversionException {
 
     if (targetClass == LocalDateTime.class) {
       return dateTime;
@@ -154,7 +156,7 @@ public class TimestampsWithoutTZ extends SettingSelectProcProvider {
       return context.getClientTimestampFormat().getPrinter().format(dateTime);
     }
 
-    ZoneId targetZoneId = targetCalendar.getTimeZone().toZoneId();
+    ZoneId targetZoneId = zoneOf(targetContext);
     ZonedDateTime zonedDateTime = dateTime.atOffset(ZoneOffset.UTC).atZoneSimilarLocal(targetZoneId);
 
     if (targetClass == Time.class) {
@@ -186,8 +188,6 @@ public class TimestampsWithoutTZ extends SettingSelectProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Calendar calendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
-
       long micros = buffer.readLong();
 
       if (micros == Long.MAX_VALUE || micros == Long.MIN_VALUE) {
@@ -203,9 +203,16 @@ public class TimestampsWithoutTZ extends SettingSelectProcProvider {
         secs--;
       }
 
+      if (targetClass == Timestamp.class || targetClass == Date.class || targetClass == Time.class) {
+        Object value = localToSQL(secs, (int) nanos, zoneOf(targetContext), targetClass);
+        if (value != null) {
+          return value;
+        }
+      }
+
       LocalDateTime localDateTime = LocalDateTime.ofEpochSecond(secs, (int) nanos, ZoneOffset.UTC);
 
-      return convertOutput(context, type, localDateTime, targetClass, calendar);
+      return convertOutput(context, type, localDateTime, targetClass, targetContext);
     }
 
   }
@@ -251,8 +258,6 @@ public class TimestampsWithoutTZ extends SettingSelectProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, CharSequence buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Calendar calendar = targetContext != null ? (Calendar) targetContext : Calendar.getInstance();
-
       if (buffer.equals(POS_INFINITY) || buffer.equals(NEG_INFINITY)) {
         return convertInfinityOutput(buffer.equals(POS_INFINITY), type, targetClass);
       }
@@ -261,7 +266,7 @@ public class TimestampsWithoutTZ extends SettingSelectProcProvider {
 
       LocalDateTime localDateTime = LocalDateTime.from(parsed);
 
-      return convertOutput(context, type, localDateTime, targetClass, calendar);
+      return convertOutput(context, type, localDateTime, targetClass, targetContext);
     }
 
   }
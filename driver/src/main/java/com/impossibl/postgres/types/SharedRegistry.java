@@ -398,6 +398,22 @@ public class SharedRegistry {
     );
   }
 
+  /**
+   * Loads a codec specific to a single composite type, given its name. Type
+   * specific procs are named by the qualified type name (e.g. "public.address_send").
+   *
+   * @param typeName Name of the composite type
+   * @param recordCodec Generic record codec used when no type specific procs exist
+   * @return A matching Codec instance
+   */
+  Type.BinaryCodec loadRecordBinaryCodec(QualifiedName typeName, Type.BinaryCodec recordCodec) {
+    String baseName = typeName.getNamespace() + "." + typeName.getLocalName() + "_";
+    return new Type.BinaryCodec(
+        loadDecoderProc(baseName + "send", recordCodec.getDecoder(), ByteBuf.class),
+        loadEncoderProc(baseName + "recv", recordCodec.getEncoder(), ByteBuf.class)
+    );
+  }
+
   /*
    * Loads a matching encoder given its proc-name
    */
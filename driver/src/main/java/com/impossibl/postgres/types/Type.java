@@ -351,6 +351,9 @@ public abstract class Type implements TypeRef {
     relationId = source.getRelationId();
     textCodec = registry.getShared().loadTextCodec(source.getNamespace(), source.getInputId(), source.getOutputId());
     binaryCodec = registry.getShared().loadBinaryCodec(source.getNamespace(), source.getReceiveId(), source.getSendId());
+    if (relationId != 0) {
+      binaryCodec = registry.getShared().loadRecordBinaryCodec(name, binaryCodec);
+    }
     modifierParser = registry.getShared().loadModifierParser(source.getModInId());
     preferredParameterFormat = PARAM_FORMAT_PREF.getSystem();
     preferredResultFormat = FIELD_FORMAT_PREF.getSystem();
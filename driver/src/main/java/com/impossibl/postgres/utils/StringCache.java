@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.utils;
+
+import java.nio.charset.Charset;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Bounded cache that canonicalizes strings decoded from a stream of
+ * field values.
+ *
+ * Lookups hash and compare the raw encoded bytes so repeated values
+ * are returned without being decoded or allocated again. The table is
+ * direct mapped; a colliding value simply replaces the previous entry.
+ *
+ * The hit rate is sampled periodically and the cache disables itself
+ * for good when it is not paying for itself (e.g. for high cardinality
+ * columns), after which values are decoded as normal.
+ *
+ * Instances are not thread safe and are expected to be used with a
+ * single charset.
+ */
+public class StringCache {
+
+  /**
+   * Longest (encoded) value that is considered for caching.
+   */
+  public static final int MAX_VALUE_LENGTH = 64;
+
+  private static final int SAMPLE_SIZE = 1024;
+  private static final int MIN_HIT_PERCENT = 50;
+
+  private byte[][] keys;
+  private String[] values;
+  private int mask;
+  private int lookups;
+  private int hits;
+  private boolean disabled;
+
+  public StringCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    int capacity = Integer.highestOneBit(maxSize);
+    if (capacity < maxSize) {
+      capacity <<= 1;
+    }
+    this.keys = new byte[capacity][];
+    this.values = new String[capacity];
+    this.mask = capacity - 1;
+  }
+
+  public boolean isDisabled() {
+    return disabled;
+  }
+
+  /**
+   * Reads {@code length} bytes from {@code buffer} and returns the
+   * string they encode, reusing a previously returned instance when
+   * the same bytes have been seen before.
+   *
+   * @param buffer Buffer to read from; its reader index is advanced past the value
+   * @param length Number of bytes to read
+   * @param charset Charset the value is encoded in
+   * @return Decoded (possibly canonical) string
+   */
+  public String get(ByteBuf buffer, int length, Charset charset) {
+
+    if (disabled || length > MAX_VALUE_LENGTH) {
+      return decode(buffer, length, charset);
+    }
+
+    int start = buffer.readerIndex();
+
+    int hash = 1;
+    for (int idx = start, end = start + length; idx < end; ++idx) {
+      hash = 31 * hash + buffer.getByte(idx);
+    }
+    int slot = (hash ^ (hash >>> 16)) & mask;
+
+    String value;
+
+    byte[] key = keys[slot];
+    if (key != null && matches(key, buffer, start, length)) {
+      buffer.skipBytes(length);
+      value = values[slot];
+      hits++;
+    }
+    else {
+      key = new byte[length];
+      buffer.readBytes(key);
+      value = new String(key, charset);
+      keys[slot] = key;
+      values[slot] = value;
+    }
+
+    if (++lookups == SAMPLE_SIZE) {
+      sample();
+    }
+
+    return value;
+  }
+
+  private void sample() {
+    if (hits * 100 < lookups * MIN_HIT_PERCENT) {
+      disabled = true;
+      keys = null;
+      values = null;
+    }
+    lookups = 0;
+    hits = 0;
+  }
+
+  private static boolean matches(byte[] key, ByteBuf buffer, int start, int length) {
+    if (key.length != length) {
+      return false;
+    }
+    for (int idx = 0; idx < length; ++idx) {
+      if (key[idx] != buffer.getByte(start + idx)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String decode(ByteBuf buffer, int length, Charset charset) {
+    String value = buffer.toString(buffer.readerIndex(), length, charset);
+    buffer.skipBytes(length);
+    return value;
+  }
+
+}
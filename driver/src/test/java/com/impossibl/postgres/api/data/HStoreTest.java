@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class HStoreTest {
+
+  private static HStore encode(Map<String, String> map) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      byte[] key = entry.getKey().getBytes(UTF_8);
+      out.writeInt(key.length);
+      out.write(key);
+      if (entry.getValue() == null) {
+        out.writeInt(-1);
+      }
+      else {
+        byte[] value = entry.getValue().getBytes(UTF_8);
+        out.writeInt(value.length);
+        out.write(value);
+      }
+    }
+    return new HStore(bytes.toByteArray(), UTF_8);
+  }
+
+  @Test
+  public void testLookup() throws IOException {
+
+    Map<String, String> expected = new LinkedHashMap<>();
+    for (int idx = 0; idx < 500; ++idx) {
+      expected.put("tag" + idx, idx % 7 == 0 ? null : "value " + idx);
+    }
+    expected.put("", "empty key");
+    expected.put("\u043a\u043b\u044e\u0447", "\u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435");
+
+    HStore hstore = encode(expected);
+
+    assertEquals(expected.size(), hstore.size());
+    for (Map.Entry<String, String> entry : expected.entrySet()) {
+      assertTrue(entry.getKey(), hstore.containsKey(entry.getKey()));
+      assertEquals(entry.getKey(), entry.getValue(), hstore.get(entry.getKey()));
+    }
+
+    assertFalse(hstore.containsKey("tag500"));
+    assertFalse(hstore.containsKey("tag"));
+    assertFalse(hstore.containsKey(7));
+    assertFalse(hstore.containsKey(null));
+    assertNull(hstore.get("missing"));
+  }
+
+  @Test
+  public void testMap() throws IOException {
+
+    Map<String, String> expected = new HashMap<>();
+    expected.put("a", "1");
+    expected.put("b", null);
+    expected.put("c", "\"quoted\"");
+
+    HStore hstore = encode(expected);
+
+    assertEquals(expected, hstore);
+    assertEquals(hstore, expected);
+    assertEquals(expected.hashCode(), hstore.hashCode());
+    assertEquals(expected.keySet(), hstore.keySet());
+    assertTrue(hstore.containsValue(null));
+    assertTrue(hstore.containsValue("1"));
+    assertEquals(expected, new HashMap<>(hstore));
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+
+    HStore hstore = encode(new HashMap<>());
+
+    assertTrue(hstore.isEmpty());
+    assertFalse(hstore.containsKey("a"));
+    assertFalse(hstore.entrySet().iterator().hasNext());
+    assertTrue(new HStore(new byte[0], UTF_8).isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() throws IOException {
+    encode(new HashMap<>()).put("a", "b");
+  }
+
+}
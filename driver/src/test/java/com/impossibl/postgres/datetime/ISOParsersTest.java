@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.datetime;
+
+import com.impossibl.postgres.api.data.Interval;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.chrono.IsoEra;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(JUnit4.class)
+public class ISOParsersTest {
+
+  @Test
+  public void testParseTimestamp() {
+
+    assertEquals(LocalDateTime.of(2021, 6, 15, 13, 45, 30, 123456000), ISOParsers.parseTimestamp("2021-06-15 13:45:30.123456"));
+    assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59, 59), ISOParsers.parseTimestamp("1969-12-31 23:59:59"));
+    assertEquals(LocalDateTime.of(2000, 1, 1, 0, 0), ISOParsers.parseTimestamp("2000-01-01 00:00"));
+    assertEquals(OffsetDateTime.of(2021, 6, 15, 13, 45, 30, 500000000, ZoneOffset.ofHours(-5)),
+        ISOParsers.parseTimestamp("2021-06-15 13:45:30.5-05"));
+    assertEquals(OffsetDateTime.of(2021, 6, 15, 13, 45, 30, 0, ZoneOffset.ofHoursMinutes(5, 30)),
+        ISOParsers.parseTimestamp("2021-06-15 13:45:30+05:30"));
+    assertEquals(OffsetDateTime.of(1900, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHoursMinutesSeconds(5, 53, 28)),
+        ISOParsers.parseTimestamp("1900-01-01 00:00:00+05:53:28"));
+
+    assertNull(ISOParsers.parseTimestamp("0044-03-15 12:00:00 BC"));
+    assertEquals(LocalDateTime.of(294276, 12, 31, 23, 59, 59, 999999000), ISOParsers.parseTimestamp("294276-12-31 23:59:59.999999"));
+    assertNull(ISOParsers.parseTimestamp("2021-06-15 24:00:00"));
+    assertNull(ISOParsers.parseTimestamp("2021-13-15 12:00:00"));
+    assertNull(ISOParsers.parseTimestamp("2021-06-15 12:00:00."));
+    assertNull(ISOParsers.parseTimestamp("2021-06-15T12:00:00"));
+    assertNull(ISOParsers.parseTimestamp("infinity"));
+  }
+
+  @Test
+  public void testTimestampFormatFallback() {
+
+    TemporalAccessor bc = new ISOTimestampFormat().getParser().parse("0044-03-15 12:00:00 BC");
+    assertEquals(IsoEra.BCE.getValue(), bc.get(ChronoField.ERA));
+    assertEquals(LocalDateTime.of(-43, 3, 15, 12, 0), LocalDateTime.from(bc));
+
+    assertEquals(LocalDateTime.of(10000, 1, 1, 0, 0), LocalDateTime.from(new ISOTimestampFormat().getParser().parse("10000-01-01 00:00:00")));
+  }
+
+  @Test
+  public void testParseDate() {
+
+    assertEquals(LocalDate.of(2021, 6, 15), ISOParsers.parseDate("2021-06-15"));
+    assertEquals(LocalDate.of(2020, 2, 29), ISOParsers.parseDate("2020-02-29"));
+
+    assertNull(ISOParsers.parseDate("2021-02-29"));
+    assertNull(ISOParsers.parseDate("0001-01-01 BC"));
+    assertNull(ISOParsers.parseDate("0000-01-01"));
+
+    assertEquals(LocalDate.of(0, 1, 1), LocalDate.from(new ISODateFormat().getParser().parse("0001-01-01 BC")));
+  }
+
+  @Test
+  public void testParseTime() {
+
+    assertEquals(LocalTime.of(13, 45, 30, 123456000), ISOParsers.parseTime("13:45:30.123456"));
+    assertEquals(LocalTime.of(13, 45), ISOParsers.parseTime("13:45"));
+    assertEquals(OffsetTime.of(13, 45, 30, 0, ZoneOffset.ofHours(2)), ISOParsers.parseTime("13:45:30+02"));
+    assertEquals(OffsetTime.of(13, 45, 30, 0, ZoneOffset.ofHoursMinutes(-3, -30)), ISOParsers.parseTime("13:45:30-03:30"));
+
+    assertNull(ISOParsers.parseTime("24:00:00"));
+    assertNull(ISOParsers.parseTime("13:45:30.1234567890"));
+
+    assertEquals(LocalTime.MIDNIGHT, LocalTime.from(new ISOTimeFormat().getParser().parse("24:00:00")));
+  }
+
+  @Test
+  public void testParseInterval() {
+
+    IntervalFormat.Parser parser = new PostgresIntervalFormat().getParser();
+
+    assertEquals(Interval.of(Period.of(1, 2, -3), Duration.ofHours(4).plusMinutes(5).plusSeconds(6).plusMillis(789)),
+        parser.parse("1 year 2 mons -3 days +04:05:06.789"));
+    assertEquals(Interval.of(Period.ofDays(-1), Duration.ofHours(-2).plusMinutes(-3).plusSeconds(-4)),
+        parser.parse("-1 days -02:03:04"));
+    assertEquals(Interval.of(Duration.ofMillis(-1500)), parser.parse("-00:00:01.5"));
+    assertEquals(Interval.of(Duration.ofHours(1234)), parser.parse("1234:00:00"));
+    assertEquals(Interval.of(Duration.ZERO), parser.parse("00:00:00"));
+    assertEquals(Interval.of(Period.ofDays(1)), parser.parse("1 day"));
+    assertEquals(Interval.of(Period.of(3, 3, 0)), parser.parse("3 years 3 mons"));
+
+    // Verbose form
+    assertEquals(Interval.of(Period.of(-1, -2, 0), Duration.ZERO), parser.parse("@ 1 year 2 mons ago"));
+  }
+
+}
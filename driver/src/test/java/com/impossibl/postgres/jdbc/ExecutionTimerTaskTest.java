@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ExecutionTimerTaskTest {
+
+  private HashedWheelTimer timer = new HashedWheelTimer(10, MILLISECONDS);
+
+  @After
+  public void after() {
+    timer.stop();
+  }
+
+  private static class LatchTask extends ExecutionTimerTask {
+
+    CountDownLatch ran = new CountDownLatch(1);
+
+    @Override
+    protected void go() {
+      ran.countDown();
+    }
+
+  }
+
+  @Test
+  public void testExpiredTaskRuns() throws InterruptedException {
+
+    LatchTask task = new LatchTask();
+    task.schedule(timer, 20, MILLISECONDS);
+
+    assertTrue(task.ran.await(5, SECONDS));
+  }
+
+  @Test
+  public void testCancelledTaskDoesNotRun() throws InterruptedException {
+
+    LatchTask task = new LatchTask();
+    Timeout timeout = task.schedule(timer, 50, MILLISECONDS);
+    timeout.cancel();
+    task.cancel();
+
+    Thread.sleep(200);
+
+    assertEquals(1, task.ran.getCount());
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGReplicationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationStream;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class LogicalReplicationTest {
+
+  private static final long START_LSN = 0x16B3748L;
+
+  private StubServer server;
+  private List<String> received = new CopyOnWriteArrayList<>();
+  private List<Long> receivedLSNs = new CopyOnWriteArrayList<>();
+  private CountDownLatch allReceived = new CountDownLatch(2);
+  private CountDownLatch closed = new CountDownLatch(1);
+  private volatile SQLException closedCause;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("START_REPLICATION SLOT")) {
+        return StubResult.replication(START_LSN, "BEGIN 1".getBytes(UTF_8), "COMMIT 1".getBytes(UTF_8));
+      }
+      if (sql.equals("IDENTIFY_SYSTEM")) {
+        return StubResult.rows(new StubResult.Column[] {StubResult.column("systemid", StubTypes.TEXT)}, new Object[] {"1"});
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    Properties properties = new Properties();
+    properties.setProperty("user", "test");
+    properties.setProperty("password", "test");
+    properties.setProperty("replication", "database");
+    return DriverManager.getConnection(server.getUrl("stub"), properties);
+  }
+
+  private PGReplicationListener listener() {
+    return new PGReplicationListener() {
+
+      @Override
+      public void xlogData(long startLSN, ByteBuffer data) {
+        receivedLSNs.add(startLSN);
+        received.add(UTF_8.decode(data).toString());
+        allReceived.countDown();
+      }
+
+      @Override
+      public void closed(SQLException cause) {
+        closedCause = cause;
+        closed.countDown();
+      }
+
+    };
+  }
+
+  @Test
+  public void testStream() throws Exception {
+
+    try (Connection connection = connect()) {
+
+      PGReplicationStream stream =
+          connection.unwrap(PGConnection.class).startLogicalReplication("test_slot", "0/0", null, listener());
+
+      assertTrue(allReceived.await(5, SECONDS));
+      assertEquals("BEGIN 1", received.get(0));
+      assertEquals("COMMIT 1", received.get(1));
+      assertEquals(START_LSN, (long) receivedLSNs.get(0));
+      assertEquals(START_LSN + "BEGIN 1".length(), (long) receivedLSNs.get(1));
+      assertEquals(START_LSN + "BEGIN 1".length(), stream.getLastReceiveLSN());
+
+      stream.close();
+
+      assertTrue(stream.isClosed());
+      assertTrue(closed.await(5, SECONDS));
+      assertNull(closedCause);
+
+      // Connection is usable for further replication commands
+      try (Statement statement = connection.createStatement()) {
+        try (ResultSet resultSet = statement.executeQuery("IDENTIFY_SYSTEM")) {
+          assertTrue(resultSet.next());
+          assertEquals("1", resultSet.getString(1));
+        }
+      }
+    }
+  }
+
+}
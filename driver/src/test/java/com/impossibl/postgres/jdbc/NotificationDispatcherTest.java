@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class NotificationDispatcherTest {
+
+  private static class RecordingListener implements PGNotificationListener {
+
+    List<String> received = new ArrayList<>();
+    CountDownLatch closed = new CountDownLatch(1);
+
+    @Override
+    public void notification(int processId, String channelName, String payload) {
+      received.add(channelName + ":" + payload);
+    }
+
+    @Override
+    public void closed() {
+      received.add("closed");
+      closed.countDown();
+    }
+
+  }
+
+  @Test
+  public void testChannelMatching() {
+
+    NotificationDispatcher dispatcher = new NotificationDispatcher();
+    dispatcher.setExecutor(Runnable::run);
+
+    RecordingListener exact = new RecordingListener();
+    RecordingListener pattern = new RecordingListener();
+    RecordingListener all = new RecordingListener();
+
+    dispatcher.add("", "cache_users", exact);
+    dispatcher.add("", "cache_.*", pattern);
+    dispatcher.add("", null, all);
+
+    dispatcher.dispatch(1, "cache_users", "1");
+    dispatcher.dispatch(1, "cache_groups", "2");
+    dispatcher.dispatch(1, "other", "3");
+
+    assertEquals(singletonList("cache_users:1"), exact.received);
+    assertEquals(asList("cache_users:1", "cache_groups:2"), pattern.received);
+    assertEquals(asList("cache_users:1", "cache_groups:2", "other:3"), all.received);
+  }
+
+  @Test
+  public void testRemoval() {
+
+    NotificationDispatcher dispatcher = new NotificationDispatcher();
+    dispatcher.setExecutor(Runnable::run);
+
+    RecordingListener named = new RecordingListener();
+    RecordingListener unnamed = new RecordingListener();
+
+    dispatcher.add("named", "test", named);
+    dispatcher.add("", "test", unnamed);
+
+    dispatcher.removeAll("named");
+    dispatcher.dispatch(1, "test", "1");
+
+    dispatcher.removeAll(unnamed);
+    dispatcher.dispatch(1, "test", "2");
+
+    assertEquals(emptyList(), named.received);
+    assertEquals(singletonList("test:1"), unnamed.received);
+    assertTrue(dispatcher.isEmpty());
+  }
+
+  @Test
+  public void testOrderedDeliveryAndClose() throws InterruptedException {
+
+    NotificationDispatcher dispatcher = new NotificationDispatcher();
+
+    RecordingListener listener = new RecordingListener();
+    dispatcher.add("", "test", listener);
+
+    List<String> expected = new ArrayList<>();
+    for (int c = 0; c < 1000; ++c) {
+      dispatcher.dispatch(1, "test", Integer.toString(c));
+      expected.add("test:" + c);
+    }
+    expected.add("closed");
+
+    dispatcher.close();
+
+    assertTrue(listener.closed.await(5, SECONDS));
+    assertEquals(expected, listener.received);
+  }
+
+}
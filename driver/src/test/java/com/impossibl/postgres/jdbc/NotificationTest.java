@@ -50,7 +50,6 @@ import org.junit.runners.JUnit4;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 
 
 @RunWith(JUnit4.class)
@@ -59,21 +58,20 @@ public class NotificationTest {
   @Test
   public void testExplicitCloseReportsClose() throws Exception {
 
-    AtomicBoolean flag = new AtomicBoolean();
+    CountDownLatch latch = new CountDownLatch(1);
     try (PGConnection connection = TestUtil.openDB().unwrap(PGConnection.class)) {
 
       connection.addNotificationListener(new PGNotificationListener() {
         @Override
         public void closed() {
-          flag.set(true);
+          latch.countDown();
         }
       });
 
     }
 
-    Thread.sleep(50);
-
-    assertTrue(flag.get());
+    // Delivered asynchronously
+    assertTrue(awaitUninterruptibly(10L, SECONDS, latch::await));
 
   }
 
@@ -114,12 +112,12 @@ public class NotificationTest {
 
     try (PGConnection conn = TestUtil.openDB().unwrap(PGConnection.class)) {
 
-      final AtomicBoolean flag = new AtomicBoolean(false);
+      final CountDownLatch latch = new CountDownLatch(1);
+      final AtomicBoolean failed = new AtomicBoolean(false);
       PGNotificationListener notificationListener = new PGNotificationListener() {
 
         @Override
         public void notification(int processId, String channelName, String payload) {
-          flag.set(true);
 
           try (Connection conn = TestUtil.openDB()) {
             try (Statement statement = conn.createStatement()) {
@@ -127,8 +125,10 @@ public class NotificationTest {
             }
           }
           catch (Exception e) {
-            fail("Should not fail");
+            failed.set(true);
           }
+
+          latch.countDown();
         }
 
       };
@@ -142,7 +142,9 @@ public class NotificationTest {
 
       }
 
-      assertTrue(flag.get());
+      // Delivered asynchronously
+      assertTrue(awaitUninterruptibly(10L, SECONDS, latch::await));
+      assertFalse("Should not fail", failed.get());
     }
 
   }
@@ -152,13 +154,12 @@ public class NotificationTest {
 
     try (PGConnection conn = TestUtil.openDB().unwrap(PGConnection.class)) {
 
-      final AtomicBoolean flag = new AtomicBoolean(false);
+      final CountDownLatch latch = new CountDownLatch(1);
       PGNotificationListener notificationListener = new PGNotificationListener() {
 
         @Override
         public void notification(int processId, String channelName, String payload) {
-          flag.set(true);
-
+          latch.countDown();
         }
 
       };
@@ -172,7 +173,8 @@ public class NotificationTest {
 
       }
 
-      assertTrue(flag.get());
+      // Delivered asynchronously
+      assertTrue(awaitUninterruptibly(10L, SECONDS, latch::await));
     }
 
   }
@@ -182,12 +184,12 @@ public class NotificationTest {
 
     try (PGConnection conn = TestUtil.openDB().unwrap(PGConnection.class)) {
 
-      final AtomicBoolean validFlag = new AtomicBoolean(false);
+      final CountDownLatch validLatch = new CountDownLatch(1);
       PGNotificationListener validNotificationListener = new PGNotificationListener() {
 
         @Override
         public void notification(int processId, String channelName, String payload) {
-          validFlag.set(true);
+          validLatch.countDown();
         }
 
       };
@@ -204,12 +206,12 @@ public class NotificationTest {
       };
       conn.addNotificationListener("2.*", invalidNotificationListener);
 
-      final AtomicBoolean allFlag = new AtomicBoolean(false);
+      final CountDownLatch allLatch = new CountDownLatch(1);
       PGNotificationListener allNotificationListener = new PGNotificationListener() {
 
         @Override
         public void notification(int processId, String channelName, String payload) {
-          allFlag.set(true);
+          allLatch.countDown();
         }
 
       };
@@ -223,9 +225,10 @@ public class NotificationTest {
 
       }
 
-      assertTrue(validFlag.get());
+      // Delivered asynchronously, filtering happens before dispatch
+      assertTrue(awaitUninterruptibly(10L, SECONDS, validLatch::await));
+      assertTrue(awaitUninterruptibly(10L, SECONDS, allLatch::await));
       assertFalse(invalidFlag.get());
-      assertTrue(allFlag.get());
     }
 
   }
@@ -244,6 +247,8 @@ public class NotificationTest {
     conn.addNotificationListener(listener);
     conn.close();
 
+    // Delivered asynchronously, wait a little longer to catch duplicates
+    assertTrue(awaitUninterruptibly(10L, SECONDS, listener.closedLatch::await));
     Thread.sleep(50);
 
     return listener;
@@ -270,6 +275,7 @@ public class NotificationTest {
 class Listener implements PGNotificationListener {
 
   AtomicInteger closeCount = new AtomicInteger(0);
+  CountDownLatch closedLatch = new CountDownLatch(1);
 
   @Override
   public void notification(int processId, String channelName, String payload) {
@@ -280,6 +286,7 @@ class Listener implements PGNotificationListener {
   public void closed() {
     NotificationTest.log("closed");
     closeCount.incrementAndGet();
+    closedLatch.countDown();
   }
 
 }
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+import static com.impossibl.postgres.stub.StubTypes.arrayOf;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.copyOfRange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Binary arrays are backed by the array's buffer &amp; decoded on access,
+ * these check windows of arrays decode exactly as the whole array does.
+ */
+@RunWith(JUnit4.class)
+public class PGBuffersArrayTest {
+
+  private static final int LENGTH = 100_000;
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("ints", arrayOf(StubTypes.INT4)),
+    column("texts", arrayOf(StubTypes.TEXT)),
+    column("matrix", arrayOf(StubTypes.INT4)),
+    column("empty", arrayOf(StubTypes.INT4)),
+    column("longs", arrayOf(StubTypes.INT8)),
+    column("names", arrayOf(StubTypes.NAME)),
+    column("chars", arrayOf(StubTypes.BPCHAR)),
+  };
+
+  private static final List<Integer> INTS = new ArrayList<>();
+  private static final Long[] LONGS = LongStream.range(0, 1000).map(value -> value * value).boxed().toArray(Long[]::new);
+  private static final String[] TEXTS = {"a", null, "", "a \"quoted\" {value}", "last"};
+  private static final String[] NAMES = {"a", "bb", "ccc"};
+  private static final Integer[][] MATRIX = {{1, 2, 3}, {4, null, 6}};
+
+  static {
+    for (int idx = 0; idx < LENGTH; ++idx) {
+      INTS.add(idx % 10 == 3 ? null : idx);
+    }
+  }
+
+  private StubServer server;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT arrays")) {
+        return StubResult.rows(COLUMNS, new Object[] {INTS, TEXTS, MATRIX, new int[0], LONGS, NAMES, NAMES});
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+  }
+
+  @Test
+  public void testWindows() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT arrays")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+
+          Array ints = rs.getArray("ints");
+          assertEquals(LENGTH, ((PGArray) ints).getLength());
+          assertArrayEquals(INTS.subList(50_000, 50_010).toArray(), (Object[]) ints.getArray(50_001, 10));
+          assertArrayEquals(INTS.subList(LENGTH - 3, LENGTH).toArray(), (Object[]) ints.getArray(LENGTH - 2, 3));
+          assertArrayEquals(INTS.toArray(), (Object[]) ints.getArray());
+          try {
+            ints.getArray(LENGTH, 2);
+            fail("Expected invalid slice");
+          }
+          catch (SQLException e) {
+            // Expected
+          }
+
+          try (ResultSet elements = ints.getResultSet(11, 5)) {
+            for (int idx = 10; idx < 15; ++idx) {
+              assertTrue(elements.next());
+              assertEquals(idx + 1, elements.getInt("INDEX"));
+              assertEquals(INTS.get(idx), elements.getObject("VALUE"));
+            }
+            assertFalse(elements.next());
+          }
+          ints.free();
+
+          Array texts = rs.getArray("texts");
+          assertArrayEquals(new String[] {null, "", TEXTS[3]}, (Object[]) texts.getArray(2, 3));
+          assertArrayEquals(TEXTS, (Object[]) texts.getArray());
+          texts.free();
+
+          assertArrayEquals(new Integer[0], (Object[]) rs.getArray("empty").getArray());
+
+          // Fixed width elements without NULLs
+          Array longs = rs.getArray("longs");
+          assertArrayEquals(copyOfRange(LONGS, 500, 510), (Object[]) longs.getArray(501, 10));
+          assertArrayEquals(new Long[] {LONGS[998], LONGS[999]}, (Object[]) longs.getArray(999, 2));
+          assertArrayEquals(Stream.of(LONGS).mapToLong(Long::longValue).toArray(), (long[]) ((PGArray) longs).getArray(long.class));
+          try (ResultSet elements = longs.getResultSet(1000, 1)) {
+            assertTrue(elements.next());
+            assertEquals((long) LONGS[999], elements.getLong("VALUE"));
+          }
+          longs.free();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testVariableWidthWithCatalogLength() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT arrays")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+
+          // name has a catalog length of 64 but is sent with its actual length
+          Array names = rs.getArray("names");
+          assertArrayEquals(NAMES, (Object[]) names.getArray());
+          assertArrayEquals(new String[] {"ccc"}, (Object[]) names.getArray(3, 1));
+          names.free();
+
+          Array chars = rs.getArray("chars");
+          assertArrayEquals(NAMES, (Object[]) chars.getArray());
+          assertArrayEquals(new String[] {"bb", "ccc"}, (Object[]) chars.getArray(2, 2));
+          chars.free();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMultiDimensional() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT arrays")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+
+          Array matrix = rs.getArray("matrix");
+          assertEquals(2, ((PGArray) matrix).getLength());
+          assertArrayEquals(MATRIX, (Object[]) matrix.getArray());
+          assertArrayEquals(new Integer[][] {MATRIX[1]}, (Object[]) matrix.getArray(2, 1));
+
+          try (ResultSet rows = matrix.getResultSet(2, 1)) {
+            assertTrue(rows.next());
+            assertEquals(2, rows.getInt("INDEX"));
+            Array row = rows.getArray("VALUE");
+            assertArrayEquals(MATRIX[1], (Object[]) row.getArray());
+            assertNull(((Object[]) row.getArray(2, 1))[0]);
+            assertFalse(rows.next());
+          }
+          matrix.free();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class PGNotificationHubTest {
+
+  private static class RecordingListener implements PGNotificationListener {
+
+    List<String> received = new ArrayList<>();
+    CountDownLatch closed = new CountDownLatch(1);
+
+    @Override
+    public void notification(int processId, String channelName, String payload) {
+      received.add(channelName + ":" + payload);
+    }
+
+    @Override
+    public void closed() {
+      closed.countDown();
+    }
+
+  }
+
+  /**
+   * Minimal connection that records executed SQL and exposes its
+   * notification listener so tests can drive it.
+   */
+  private static class FakeConnection {
+
+    List<String> executed = new ArrayList<>();
+    PGNotificationListener listener;
+    boolean closed;
+
+    PGConnection proxy() {
+      return (PGConnection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PGConnection.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "addNotificationListener":
+            listener = (PGNotificationListener) args[args.length - 1];
+            return null;
+          case "createStatement":
+            return statement();
+          case "close":
+            closed = true;
+            listener.closed();
+            return null;
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+    }
+
+    Statement statement() {
+      return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "execute":
+            executed.add((String) args[0]);
+            return false;
+          case "close":
+            return null;
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+    }
+
+  }
+
+  @Test
+  public void testListensToUnionOfChannels() throws SQLException {
+
+    FakeConnection connection = new FakeConnection();
+    PGNotificationHub hub = new PGNotificationHub(connection::proxy);
+
+    RecordingListener first = new RecordingListener();
+    RecordingListener second = new RecordingListener();
+
+    hub.addNotificationListener("orders", first);
+    hub.addNotificationListener("orders", second);
+    hub.addNotificationListener("Users", second);
+
+    assertEquals(asList("LISTEN \"orders\"", "LISTEN \"Users\""), connection.executed);
+
+    connection.listener.notification(1, "orders", "1");
+    connection.listener.notification(1, "Users", "2");
+    connection.listener.notification(1, "other", "3");
+
+    assertEquals(singletonList("orders:1"), first.received);
+    assertEquals(asList("orders:1", "Users:2"), second.received);
+
+    hub.removeNotificationListener("orders", first);
+    assertEquals(2, connection.executed.size());
+
+    hub.removeNotificationListener(second);
+    assertEquals(asList("LISTEN \"orders\"", "LISTEN \"Users\"", "UNLISTEN \"orders\"", "UNLISTEN \"Users\""), connection.executed);
+
+    hub.close();
+  }
+
+  @Test
+  public void testResubscribesOnReconnect() throws Exception {
+
+    BlockingQueue<FakeConnection> connections = new LinkedBlockingQueue<>();
+    PGNotificationHub hub = new PGNotificationHub(() -> {
+      FakeConnection connection = new FakeConnection();
+      connections.add(connection);
+      return connection.proxy();
+    });
+
+    RecordingListener listener = new RecordingListener();
+    hub.addNotificationListener("a", listener);
+    hub.addNotificationListener("b", listener);
+
+    FakeConnection original = connections.take();
+
+    // Simulate connection loss
+    original.listener.closed();
+    assertFalse(hub.isConnected());
+
+    FakeConnection reconnected = connections.poll(5, SECONDS);
+    assertNotNull(reconnected);
+    while (!hub.isConnected()) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(asList("LISTEN \"a\"", "LISTEN \"b\""), reconnected.executed);
+
+    reconnected.listener.notification(1, "b", "x");
+    assertEquals(singletonList("b:x"), listener.received);
+
+    hub.close();
+  }
+
+  @Test
+  public void testCloseReportsListeners() throws SQLException {
+
+    FakeConnection connection = new FakeConnection();
+    PGNotificationHub hub = new PGNotificationHub(connection::proxy);
+
+    RecordingListener listener = new RecordingListener();
+    hub.addNotificationListener("a", listener);
+
+    hub.close();
+
+    assertTrue(connection.closed);
+    assertEquals(0, listener.closed.getCount());
+    assertFalse(hub.isConnected());
+  }
+
+}
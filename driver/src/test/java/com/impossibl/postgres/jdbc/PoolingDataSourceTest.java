@@ -0,0 +1,499 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class PoolingDataSourceTest {
+
+  private StubServer server;
+  private PGPoolingDataSource dataSource;
+  private List<String> executed = new CopyOnWriteArrayList<>();
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (parameters != null) {
+        executed.add(sql);
+      }
+      if (sql.startsWith("SELECT pg_advisory") || sql.equals("SELECT 1")) {
+        return StubResult.rows(new StubResult.Column[] {StubResult.column("result", StubTypes.INT4)}, new Object[] {1});
+      }
+      if (sql.startsWith("PREPARE") || sql.startsWith("EXECUTE")) {
+        return StubResult.command(sql.split(" ", 2)[0]);
+      }
+      if (sql.equals("DEALLOCATE missing")) {
+        return StubResult.error("26000", "prepared statement \"missing\" does not exist");
+      }
+      return null;
+    });
+    server.start();
+
+    dataSource = new PGPoolingDataSource();
+    dataSource.setUrl(server.getUrl("stub"));
+    dataSource.setUser("test");
+    dataSource.setPassword("test");
+  }
+
+  @After
+  public void after() {
+    dataSource.close();
+    server.close();
+  }
+
+  private static PGDirectConnection physical(Connection connection) throws SQLException {
+    return connection.unwrap(PGDirectConnection.class);
+  }
+
+  private static void await(int expected, IntSupplier actual) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (actual.getAsInt() != expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, actual.getAsInt());
+  }
+
+  @Test
+  public void testReusesConnection() throws SQLException {
+
+    PGDirectConnection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = physical(connection);
+      assertEquals(1, dataSource.getActiveConnections());
+    }
+
+    assertEquals(1, dataSource.getTotalConnections());
+    assertEquals(1, dataSource.getIdleConnections());
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertSame(first, physical(connection));
+    }
+
+    assertEquals(1, dataSource.getTotalConnections());
+  }
+
+  @Test
+  public void testBorrowTimeout() throws Exception {
+
+    dataSource.setPoolSizeMax(1);
+    dataSource.setPoolBorrowTimeout(100);
+
+    try (Connection connection = dataSource.getConnection()) {
+      try {
+        dataSource.getConnection().close();
+        fail("Expected timeout");
+      }
+      catch (SQLTimeoutException e) {
+        // Expected
+      }
+    }
+
+    dataSource.getConnection().close();
+    assertEquals(1, dataSource.getTotalConnections());
+  }
+
+  @Test
+  public void testHandoffToWaiter() throws Exception {
+
+    dataSource.setPoolSizeMax(1);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<PGDirectConnection> waiter;
+      PGDirectConnection first;
+      try (Connection connection = dataSource.getConnection()) {
+        first = physical(connection);
+        waiter = executor.submit(() -> {
+          try (Connection waited = dataSource.getConnection()) {
+            return physical(waited);
+          }
+        });
+        await(1, dataSource::getWaitingThreads);
+      }
+
+      assertSame(first, waiter.get(5, TimeUnit.SECONDS));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentBorrowing() throws Exception {
+
+    dataSource.setPoolSizeMax(3);
+
+    AtomicInteger borrowed = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; ++thread) {
+        futures.add(executor.submit(() -> {
+          for (int idx = 0; idx < 100; ++idx) {
+            try (Connection connection = dataSource.getConnection()) {
+              assertTrue(dataSource.getActiveConnections() <= 3);
+              borrowed.incrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(800, borrowed.get());
+    assertTrue(dataSource.getTotalConnections() <= 3);
+    assertEquals(0, dataSource.getActiveConnections());
+  }
+
+  @Test
+  public void testRollsBackOpenTransaction() throws SQLException {
+
+    PGDirectConnection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = physical(connection);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("BEGIN");
+      }
+      assertEquals(TransactionStatus.Active, first.getTransactionStatus());
+    }
+
+    assertEquals(TransactionStatus.Idle, first.getTransactionStatus());
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertSame(first, physical(connection));
+    }
+  }
+
+  @Test
+  public void testReplacesClosedConnection() throws SQLException {
+
+    PGDirectConnection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = physical(connection);
+    }
+
+    first.close();
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertNotSame(first, physical(connection));
+    }
+
+    assertEquals(1, dataSource.getTotalConnections());
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception {
+
+    dataSource.setPoolIdleTimeout(50);
+
+    Connection first = dataSource.getConnection();
+    Connection second = dataSource.getConnection();
+    first.close();
+    second.close();
+    assertEquals(2, dataSource.getTotalConnections());
+
+    await(0, dataSource::getTotalConnections);
+  }
+
+  @Test
+  public void testMinimumIdle() throws Exception {
+
+    dataSource.setPoolIdleMin(2);
+    dataSource.setPoolIdleTimeout(50);
+
+    dataSource.getConnection().close();
+
+    await(2, dataSource::getIdleConnections);
+
+    Thread.sleep(200);
+    assertEquals(2, dataSource.getTotalConnections());
+  }
+
+  @Test
+  public void testAbandonedPoolIsCollected() throws Exception {
+
+    ConnectionPool pool = new ConnectionPool(() -> new PGPooledConnection(dataSource.createConnection("test", "test"), true, false),
+        4, 2, 50, 0);
+    await(2, pool::getIdleCount);
+
+    WeakReference<ConnectionPool> poolRef = new WeakReference<>(pool);
+    pool = null;
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (poolRef.get() != null && System.nanoTime() < deadline) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(poolRef.get());
+  }
+
+  @Test
+  public void testCredentialsMustMatch() throws SQLException {
+
+    dataSource.getConnection("test", "test").close();
+
+    try {
+      dataSource.getConnection("other", "test");
+      fail("Expected unsupported");
+    }
+    catch (SQLFeatureNotSupportedException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testClose() throws SQLException {
+
+    Connection connection = dataSource.getConnection();
+    dataSource.getConnection().close();
+
+    dataSource.close();
+
+    try {
+      dataSource.getConnection();
+      fail("Expected closed");
+    }
+    catch (SQLException e) {
+      assertEquals("08003", e.getSQLState());
+    }
+
+    assertEquals(1, dataSource.getTotalConnections());
+    connection.close();
+    assertEquals(0, dataSource.getTotalConnections());
+  }
+
+  @Test
+  public void testCloseClosesNotificationHub() throws Exception {
+
+    CountDownLatch closed = new CountDownLatch(1);
+    dataSource.getNotificationHub().addNotificationListener("a", new PGNotificationListener() {
+      @Override
+      public void closed() {
+        closed.countDown();
+      }
+    });
+
+    dataSource.close();
+
+    assertTrue(closed.await(5, TimeUnit.SECONDS));
+    try {
+      dataSource.getNotificationHub().addNotificationListener("b", new PGNotificationListener() { });
+      fail("Expected closed");
+    }
+    catch (SQLException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testCleanSessionIsNotReset() throws SQLException {
+
+    PGDirectConnection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = physical(connection);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SELECT 1");
+      }
+    }
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertSame(first, physical(connection));
+    }
+
+    assertFalse(executed.contains("RESET ALL"));
+    assertFalse(executed.stream().anyMatch(sql -> sql.startsWith("DISCARD") || sql.startsWith("DEALLOCATE")));
+  }
+
+  @Test
+  public void testDirtySessionIsReset() throws SQLException {
+
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SET search_path TO other");
+        statement.execute("LISTEN events");
+        statement.execute("SELECT pg_advisory_lock(1)");
+      }
+    }
+
+    assertTrue(executed.contains("RESET ALL"));
+    assertTrue(executed.contains("UNLISTEN *"));
+    assertTrue(executed.contains("SELECT pg_advisory_unlock_all()"));
+    assertFalse(executed.stream().anyMatch(sql -> sql.startsWith("DISCARD") || sql.startsWith("DEALLOCATE")));
+
+    executed.clear();
+
+    // Reset once, the next (clean) use costs nothing
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SELECT 1");
+      }
+    }
+
+    assertFalse(executed.contains("RESET ALL"));
+    assertEquals(1, dataSource.getTotalConnections());
+  }
+
+  @Test
+  public void testTransactionScopedSettingsAreNotReset() throws SQLException {
+
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SET LOCAL search_path TO other");
+      }
+      connection.commit();
+    }
+
+    assertFalse(executed.contains("RESET ALL"));
+  }
+
+  @Test
+  public void testDeallocatedStatementsAreNotReset() throws SQLException {
+
+    PGDirectConnection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = physical(connection);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("PREPARE fetch_test AS SELECT 1");
+        statement.execute("EXECUTE fetch_test");
+        statement.execute("DEALLOCATE fetch_test");
+      }
+    }
+
+    assertEquals(1, executed.stream().filter(sql -> sql.startsWith("DEALLOCATE")).count());
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertSame(first, physical(connection));
+    }
+  }
+
+  @Test
+  public void testMissingPreparedStatementIsTolerated() throws SQLException {
+
+    PGDirectConnection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = physical(connection);
+      // Tracked when parsed, whether or not it is executed
+      connection.prepareStatement("PREPARE missing AS SELECT 1").close();
+    }
+
+    assertTrue(executed.contains("DEALLOCATE missing"));
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertSame(first, physical(connection));
+    }
+  }
+
+  @Test
+  public void testOpenTransactionIsRolledBackBeforeReset() throws SQLException {
+
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SET search_path TO other");
+        statement.execute("BEGIN");
+      }
+    }
+
+    int rollback = executed.indexOf("ROLLBACK");
+    assertTrue(rollback != -1);
+    assertTrue(executed.indexOf("RESET ALL") > rollback);
+  }
+
+  @Test
+  public void testCreatesConnectionsConcurrently() throws Exception {
+
+    // Each creation only completes once all three are in progress
+    CountDownLatch creating = new CountDownLatch(3);
+    ConnectionPool pool = new ConnectionPool(() -> {
+      creating.countDown();
+      try {
+        if (!creating.await(5, TimeUnit.SECONDS)) {
+          throw new SQLException("Connections created serially");
+        }
+      }
+      catch (InterruptedException e) {
+        throw new SQLException(e);
+      }
+      Connection connection = DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+      return new PGPooledConnection(physical(connection), true, false);
+    }, 3, 3, 0, 0);
+
+    try {
+      await(3, pool::getIdleCount);
+    }
+    finally {
+      pool.close();
+    }
+  }
+
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGReplicationListener;
+import com.impossibl.postgres.api.jdbc.PGReplicationStream;
+import com.impossibl.postgres.protocol.RequestExecutor.ReplicationControl;
+import com.impossibl.postgres.protocol.TransactionStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.Collections.singletonList;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ReplicationStreamTest {
+
+  private static class RecordingControl implements ReplicationControl {
+
+    List<long[]> updates = Collections.synchronizedList(new ArrayList<>());
+    boolean reading = true;
+    boolean stopped;
+    boolean aborted;
+
+    @Override
+    public void sendStatusUpdate(long writtenLSN, long flushedLSN, long appliedLSN, boolean replyRequested) {
+      updates.add(new long[] {writtenLSN, flushedLSN, appliedLSN});
+    }
+
+    @Override
+    public void setReading(boolean reading) {
+      this.reading = reading;
+    }
+
+    @Override
+    public void stop() {
+      stopped = true;
+    }
+
+    @Override
+    public void abort() {
+      aborted = true;
+    }
+
+  }
+
+  private static class RecordingListener implements PGReplicationListener {
+
+    List<String> received = new ArrayList<>();
+    boolean closed;
+    SQLException cause;
+
+    @Override
+    public void xlogData(long startLSN, ByteBuffer data) {
+      received.add(PGReplicationStream.formatLSN(startLSN) + ":" + StandardCharsets.UTF_8.decode(data));
+    }
+
+    @Override
+    public void closed(SQLException cause) {
+      this.closed = true;
+      this.cause = cause;
+    }
+
+  }
+
+  private ScheduledExecutorService timer;
+
+  @Before
+  public void before() {
+    timer = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void after() {
+    timer.shutdownNow();
+  }
+
+  @Test
+  public void testLSNFormatting() {
+    assertEquals(0x16B374D848L, PGReplicationStream.parseLSN("16/B374D848"));
+    assertEquals("16/B374D848", PGReplicationStream.formatLSN(0x16B374D848L));
+    assertEquals("0/0", PGReplicationStream.formatLSN(PGReplicationStream.parseLSN("0/0")));
+  }
+
+  @Test
+  public void testStartCommand() {
+    Map<String, String> options = new LinkedHashMap<>();
+    options.put("include-xids", "0");
+    options.put("filter", "it's");
+
+    assertEquals("START_REPLICATION SLOT \"slot\" LOGICAL 0/1A",
+        ReplicationStream.buildStartCommand("slot", "0/1a", null));
+    assertEquals("START_REPLICATION SLOT \"slot\" LOGICAL 1/0 (\"include-xids\" '0', \"filter\" 'it''s')",
+        ReplicationStream.buildStartCommand("slot", "1/0", options));
+  }
+
+  @Test
+  public void testStreamAndStatusUpdates() throws Exception {
+
+    RecordingListener listener = new RecordingListener();
+    RecordingControl control = new RecordingControl();
+
+    ReplicationStream stream = new ReplicationStream(listener, timer, 60_000, 0);
+    stream.handleStart(control);
+    stream.checkStarted();
+
+    ByteBuf data = Unpooled.copiedBuffer("BEGIN", StandardCharsets.UTF_8);
+    stream.handleXLogData(0x100, 0x200, 0, data);
+    data.release();
+
+    assertEquals(singletonList("0/100:BEGIN"), listener.received);
+    assertEquals(0x100, stream.getLastReceiveLSN());
+
+    // Progress is batched until the next update
+    stream.setFlushedLSN(0x100);
+    assertTrue(control.updates.isEmpty());
+
+    stream.handleKeepalive(0x200, 0, true);
+    assertEquals(1, control.updates.size());
+    assertEquals(0x100, control.updates.get(0)[1]);
+    assertEquals(0x100, control.updates.get(0)[2]);
+
+    stream.pause();
+    assertFalse(control.reading);
+    stream.resume();
+    assertTrue(control.reading);
+
+    stream.handleComplete();
+    stream.handleReady(TransactionStatus.Idle);
+    stream.close();
+
+    assertTrue(stream.isClosed());
+    assertTrue(listener.closed);
+    assertNull(listener.cause);
+  }
+
+  @Test
+  public void testListenerFailureStopsStream() throws Exception {
+
+    RecordingControl control = new RecordingControl();
+
+    ReplicationStream stream = new ReplicationStream(new PGReplicationListener() {
+      @Override
+      public void xlogData(long startLSN, ByteBuffer data) {
+        throw new IllegalStateException("failed");
+      }
+    }, timer, 60_000, 0);
+    stream.handleStart(control);
+
+    stream.handleXLogData(0x100, 0x100, 0, Unpooled.EMPTY_BUFFER);
+    assertTrue(control.stopped);
+
+    stream.handleReady(TransactionStatus.Idle);
+
+    assertThrows(SQLException.class, stream::close);
+  }
+
+  @Test
+  public void testCloseTimeoutAbortsConnection() throws Exception {
+
+    RecordingControl control = new RecordingControl();
+    RecordingListener listener = new RecordingListener();
+
+    ReplicationStream stream = new ReplicationStream(listener, timer, 60_000, 100);
+    stream.handleStart(control);
+
+    // Server never acknowledges the stop
+    assertThrows(SQLTimeoutException.class, stream::close);
+
+    assertTrue(control.stopped);
+    assertTrue(control.aborted);
+    assertTrue(stream.isClosed());
+    assertTrue(listener.closed);
+    assertTrue(listener.cause instanceof SQLTimeoutException);
+  }
+
+}
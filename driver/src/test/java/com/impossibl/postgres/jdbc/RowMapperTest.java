@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGResultSet;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RowMapperTest {
+
+  public static class Person {
+
+    private int id;
+    private String firstName;
+    private Double score;
+    private LocalDate born;
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public void setFirstName(String firstName) {
+      this.firstName = firstName;
+    }
+
+    public void setScore(Double score) {
+      this.score = score;
+    }
+
+    public void setBorn(LocalDate born) {
+      this.born = born;
+    }
+
+  }
+
+  static class PersonFields {
+
+    long id;
+    String firstName;
+    double score;
+
+  }
+
+  static class Unrelated {
+
+    String other;
+
+  }
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("id", StubTypes.INT4),
+    column("first_name", StubTypes.TEXT),
+    column("score", StubTypes.FLOAT8),
+    column("born", StubTypes.DATE),
+    column("unmapped", StubTypes.TEXT),
+  };
+
+  private StubServer server;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT people")) {
+        return StubResult.rows(COLUMNS,
+            new Object[] {1, "Ada", 9.5, LocalDate.of(1815, 12, 10), "x"},
+            new Object[] {2, "Grace", null, null, null},
+            new Object[] {3, "Alan", 7.25, LocalDate.of(1912, 6, 23), "y"});
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+  }
+
+  @Test
+  public void testMapToSetters() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT people")) {
+        try (PGResultSet rs = statement.executeQuery().unwrap(PGResultSet.class)) {
+
+          assertTrue(rs.next());
+          Person person = rs.mapTo(Person.class);
+          assertEquals(1, person.id);
+          assertEquals("Ada", person.firstName);
+          assertEquals(Double.valueOf(9.5), person.score);
+          assertEquals(LocalDate.of(1815, 12, 10), person.born);
+
+          assertTrue(rs.next());
+          person = rs.mapTo(Person.class);
+          assertEquals(2, person.id);
+          assertEquals("Grace", person.firstName);
+          assertNull(person.score);
+          assertNull(person.born);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMapToFields() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT people")) {
+        try (PGResultSet rs = statement.executeQuery().unwrap(PGResultSet.class)) {
+
+          assertTrue(rs.next());
+          PersonFields person = rs.mapTo(PersonFields.class);
+          assertEquals(1L, person.id);
+          assertEquals("Ada", person.firstName);
+          assertEquals(9.5, person.score, 0);
+
+          // NULL leaves primitives at their default
+          assertTrue(rs.next());
+          person = rs.mapTo(PersonFields.class);
+          assertEquals(2L, person.id);
+          assertEquals(0, person.score, 0);
+
+          // Switching target classes on the same result set
+          assertTrue(rs.next());
+          assertEquals("Alan", rs.mapTo(Person.class).firstName);
+          assertEquals("Alan", rs.mapTo(PersonFields.class).firstName);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIterator() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT people")) {
+        try (PGResultSet rs = statement.executeQuery().unwrap(PGResultSet.class)) {
+
+          Iterator<Person> iterator = rs.iterator(Person.class);
+          assertEquals("Ada", iterator.next().firstName);
+          assertTrue(iterator.hasNext());
+          assertTrue(iterator.hasNext());
+          assertEquals("Grace", iterator.next().firstName);
+          assertEquals("Alan", iterator.next().firstName);
+          assertFalse(iterator.hasNext());
+
+          try {
+            iterator.next();
+            fail("Expected NoSuchElementException");
+          }
+          catch (NoSuchElementException expected) {
+            // expected
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStream() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT people")) {
+
+        ResultSet rs = statement.executeQuery();
+        try (Stream<PersonFields> people = rs.unwrap(PGResultSet.class).stream(PersonFields.class)) {
+          List<String> names = people.map(person -> person.firstName).collect(Collectors.toList());
+          assertEquals(3, names.size());
+          assertEquals("Grace", names.get(1));
+        }
+
+        assertTrue(rs.isClosed());
+      }
+    }
+  }
+
+  @Test
+  public void testNoMatchingColumns() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT people")) {
+        try (PGResultSet rs = statement.executeQuery().unwrap(PGResultSet.class)) {
+          assertTrue(rs.next());
+          rs.mapTo(Unrelated.class);
+          fail("Expected SQLException");
+        }
+        catch (SQLException expected) {
+          assertTrue(expected.getMessage().contains(Unrelated.class.getName()));
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+import com.impossibl.postgres.system.SystemSettings;
+
+import static com.impossibl.postgres.system.Metrics.Counter.TIMEOUTS;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class ServerQueryTimeoutTest {
+
+  private StubServer server;
+  private List<String> executed = new CopyOnWriteArrayList<>();
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (parameters != null) {
+        executed.add(sql);
+      }
+      if (sql.equals("SELECT 1")) {
+        return StubResult.rows(new StubResult.Column[] {StubResult.column("result", StubTypes.INT4)}, new Object[] {1});
+      }
+      if (sql.equals("SELECT fail")) {
+        return StubResult.error("42703", "column \"fail\" does not exist");
+      }
+      if (sql.equals("SELECT cancelled")) {
+        return StubResult.error("57014", "canceling statement due to user request");
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    Properties properties = new Properties();
+    properties.setProperty("user", "test");
+    properties.setProperty("password", "test");
+    properties.setProperty(JDBCSettings.QUERY_TIMEOUT_MODE.getName(), "server");
+    properties.setProperty(SystemSettings.METRICS.getName(), "true");
+    return DriverManager.getConnection(server.getUrl("stub"), properties);
+  }
+
+  private boolean timeoutSet() {
+    return executed.stream().anyMatch(sql -> sql.contains("statement_timeout"));
+  }
+
+  @Test
+  public void testFailureWithoutTimeoutKeepsState() throws SQLException {
+
+    try (Connection connection = connect()) {
+      connection.setAutoCommit(false);
+
+      try (Statement statement = connection.createStatement()) {
+        try {
+          statement.execute("SELECT fail");
+          fail("Expected error");
+        }
+        catch (SQLException e) {
+          assertEquals("42703", e.getSQLState());
+        }
+        connection.rollback();
+
+        statement.execute("SELECT 1");
+        connection.commit();
+      }
+    }
+
+    assertFalse(timeoutSet());
+  }
+
+  @Test
+  public void testCancelBeforeTimeoutNotCounted() throws SQLException {
+
+    try (Connection connection = connect()) {
+
+      try (Statement statement = connection.createStatement()) {
+        statement.setQueryTimeout(30);
+        try {
+          statement.execute("SELECT cancelled");
+          fail("Expected error");
+        }
+        catch (SQLException e) {
+          assertEquals("57014", e.getSQLState());
+        }
+      }
+
+      assertEquals(0, connection.unwrap(PGDirectConnection.class).metrics.get(TIMEOUTS));
+    }
+  }
+
+  @Test
+  public void testReleaseSavepointKeepsState() throws SQLException {
+
+    try (Connection connection = connect()) {
+      connection.setAutoCommit(false);
+
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SELECT 1");
+        Savepoint savepoint = connection.setSavepoint();
+        statement.execute("SELECT 1");
+        connection.releaseSavepoint(savepoint);
+        statement.execute("SELECT 1");
+        connection.commit();
+      }
+    }
+
+    assertFalse(timeoutSet());
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+
+import static java.util.Collections.singletonList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class SessionStateTest {
+
+  private static int classify(String sql) throws ParseException {
+    return SessionState.classify(new SQLText(sql));
+  }
+
+  @Test
+  public void testClassify() throws ParseException {
+
+    assertEquals(0, classify("SELECT * FROM tests WHERE name = 'set'"));
+    assertEquals(0, classify("INSERT INTO \"temp\" VALUES (1)"));
+    assertEquals(0, classify("SET LOCAL search_path TO other"));
+    assertEquals(0, classify("SET TRANSACTION ISOLATION LEVEL SERIALIZABLE"));
+    assertEquals(0, classify("PREPARE TRANSACTION 'tx1'"));
+
+    assertEquals(SessionState.SETTINGS, classify("SET search_path TO other"));
+    assertEquals(SessionState.SETTINGS, classify("SELECT set_config('search_path', 'other', false)"));
+    assertEquals(SessionState.AUTHORIZATION, classify("SET ROLE admin"));
+    assertEquals(SessionState.AUTHORIZATION, classify("SET SESSION AUTHORIZATION 'admin'"));
+    assertEquals(SessionState.LISTENS, classify("LISTEN events"));
+    assertEquals(SessionState.TEMP_OBJECTS, classify("CREATE TEMP TABLE scratch (id int)"));
+    assertEquals(SessionState.TEMP_OBJECTS, classify("SELECT * INTO TEMPORARY scratch FROM tests"));
+    assertEquals(SessionState.ADVISORY_LOCKS, classify("SELECT pg_try_advisory_lock(1)"));
+    assertEquals(SessionState.HELD_CURSORS, classify("DECLARE c CURSOR WITH HOLD FOR SELECT 1"));
+    assertEquals(SessionState.PREPARED_STATEMENTS, classify("PREPARE fetch_test AS SELECT 1"));
+    assertEquals(SessionState.STATEMENTS_DISCARDED, classify("DISCARD ALL"));
+    assertEquals(SessionState.STATEMENTS_DISCARDED, classify("DEALLOCATE ALL"));
+
+    assertEquals(SessionState.SETTINGS | SessionState.LISTENS, classify("SET search_path TO other; LISTEN events"));
+  }
+
+  @Test
+  public void testResetSQL() throws ParseException {
+
+    SessionState state = new SessionState();
+    assertFalse(state.isDirty());
+    assertNull(state.getResetSQL());
+
+    SQLText sqlText = new SQLText("SELECT pg_advisory_lock(1); PREPARE \"Fetch\" AS SELECT 1; SET search_path TO other");
+    state.track(sqlText, SessionState.classify(sqlText));
+    assertTrue(state.isDirty());
+
+    assertEquals("RESET ALL;SELECT pg_advisory_unlock_all()", state.getResetSQL());
+    assertEquals(singletonList("\"Fetch\""), new ArrayList<>(state.getPreparedStatementNames()));
+
+    state.clear();
+    assertFalse(state.isDirty());
+    assertNull(state.getResetSQL());
+  }
+
+  @Test
+  public void testDeallocatedStatementsAreForgotten() throws ParseException {
+
+    SessionState state = new SessionState();
+
+    track(state, "PREPARE fetch_test AS SELECT 1; PREPARE \"Other\" AS SELECT 2");
+    track(state, "EXECUTE fetch_test");
+    track(state, "DEALLOCATE Fetch_Test");
+    assertEquals(singletonList("\"Other\""), new ArrayList<>(state.getPreparedStatementNames()));
+
+    track(state, "DEALLOCATE PREPARE \"Other\"");
+    assertTrue(state.getPreparedStatementNames().isEmpty());
+    assertFalse(state.isDirty());
+
+    track(state, "PREPARE fetch_test AS SELECT 1; DEALLOCATE ALL");
+    assertTrue(state.getPreparedStatementNames().isEmpty());
+    assertTrue(state.isChanged(SessionState.STATEMENTS_DISCARDED));
+  }
+
+  private static void track(SessionState state, String sql) throws ParseException {
+    SQLText sqlText = new SQLText(sql);
+    state.track(sqlText, SessionState.classify(sqlText));
+  }
+
+}
@@ -42,6 +42,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Properties;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -578,6 +579,46 @@ public class StatementTest {
     stmt.close();
   }
 
+  @Test
+  public void testSetQueryTimeoutServerMode() throws SQLException {
+
+    Properties props = new Properties();
+    props.setProperty(JDBCSettings.QUERY_TIMEOUT_MODE.getName(), "server");
+
+    try (Connection con = TestUtil.openDB(props)) {
+      try (Statement stmt = con.createStatement()) {
+
+        try {
+          stmt.setQueryTimeout(1);
+          stmt.execute("select pg_sleep(10)");
+          fail("Should have received cancel exception");
+        }
+        catch (SQLException sqle) {
+          assertEquals("57014", sqle.getSQLState());
+        }
+
+        try (ResultSet rs = stmt.executeQuery("show statement_timeout")) {
+          assertTrue(rs.next());
+          assertEquals("1s", rs.getString(1));
+        }
+
+        stmt.setQueryTimeout(0);
+        stmt.execute("select pg_sleep(1.5)");
+
+        con.setAutoCommit(false);
+        stmt.setQueryTimeout(1);
+        try {
+          stmt.execute("select pg_sleep(10)");
+          fail("Should have received cancel exception");
+        }
+        catch (SQLException sqle) {
+          assertEquals("57014", sqle.getSQLState());
+        }
+        con.rollback();
+      }
+    }
+  }
+
   @Test
   public void testResultSetTwice() throws SQLException {
     Statement stmt = con.createStatement();
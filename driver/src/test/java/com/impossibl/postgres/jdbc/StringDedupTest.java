@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class StringDedupTest {
+
+  private static final String[] STATUSES = {"active", "pending", "closed"};
+  private static final int ROW_COUNT = 3000;
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("status", StubTypes.TEXT),
+    column("name", StubTypes.TEXT),
+  };
+
+  private StubServer server;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT accounts")) {
+        Object[][] rows = new Object[ROW_COUNT][];
+        for (int row = 0; row < ROW_COUNT; ++row) {
+          rows[row] = new Object[] {STATUSES[row % STATUSES.length], "name-" + row};
+        }
+        return StubResult.rows(COLUMNS, rows);
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect(String dedup, String format) throws SQLException {
+    Properties properties = new Properties();
+    properties.setProperty("user", "test");
+    properties.setProperty("password", "test");
+    properties.setProperty("field.format", format);
+    if (dedup != null) {
+      properties.setProperty("field.string.dedup", dedup);
+    }
+    return DriverManager.getConnection(server.getUrl("stub"), properties);
+  }
+
+  private List<String[]> query(Connection connection) throws SQLException {
+    List<String[]> rows = new ArrayList<>();
+    try (Statement statement = connection.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT accounts")) {
+        while (rs.next()) {
+          rows.add(new String[] {rs.getString(1), rs.getString(2)});
+        }
+      }
+    }
+    return rows;
+  }
+
+  private void checkDeduplicated(String format) throws SQLException {
+
+    try (Connection connection = connect("64", format)) {
+
+      List<String[]> rows = query(connection);
+      assertEquals(ROW_COUNT, rows.size());
+
+      for (int row = 0; row < ROW_COUNT; ++row) {
+        assertEquals(STATUSES[row % STATUSES.length], rows.get(row)[0]);
+        assertEquals("name-" + row, rows.get(row)[1]);
+        assertSame(rows.get(row % STATUSES.length)[0], rows.get(row)[0]);
+      }
+    }
+  }
+
+  @Test
+  public void testBinaryDeduplicated() throws SQLException {
+    checkDeduplicated("binary");
+  }
+
+  @Test
+  public void testTextDeduplicated() throws SQLException {
+    checkDeduplicated("text");
+  }
+
+  @Test
+  public void testDisabledByDefault() throws SQLException {
+
+    try (Connection connection = connect(null, "binary")) {
+
+      List<String[]> rows = query(connection);
+      assertTrue(rows.size() > STATUSES.length);
+      assertEquals(rows.get(0)[0], rows.get(STATUSES.length)[0]);
+      assertNotSame(rows.get(0)[0], rows.get(STATUSES.length)[0]);
+    }
+  }
+
+}
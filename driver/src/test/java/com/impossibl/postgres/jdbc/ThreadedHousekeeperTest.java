@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ThreadedHousekeeperTest {
+
+  private static class TestCleanup implements CleanupRunnable {
+
+    AtomicBoolean ran = new AtomicBoolean();
+    Throwable allocationSite;
+
+    TestCleanup(Throwable allocationSite) {
+      this.allocationSite = allocationSite;
+    }
+
+    @Override
+    public String getKind() {
+      return "test object";
+    }
+
+    @Override
+    public StackTraceElement[] getAllocationStackTrace() {
+      return allocationSite != null ? allocationSite.getStackTrace() : null;
+    }
+
+    @Override
+    public void run() {
+      ran.set(true);
+    }
+
+  }
+
+  @Test
+  public void testSampleRates() {
+
+    ThreadedHousekeeper.Ref disabled = ThreadedHousekeeper.acquire(0);
+    ThreadedHousekeeper.Ref all = ThreadedHousekeeper.acquire(1);
+    try {
+      assertNull(disabled.captureAllocationSite());
+      assertNotNull(all.captureAllocationSite());
+    }
+    finally {
+      disabled.release();
+      all.release();
+    }
+  }
+
+  @Test
+  public void testRemove() {
+
+    ThreadedHousekeeper.Ref housekeeper = ThreadedHousekeeper.acquire(1);
+    try {
+      Object referent = new Object();
+      int referentId = System.identityHashCode(referent);
+      TestCleanup cleanup = new TestCleanup(housekeeper.captureAllocationSite());
+
+      Object key = housekeeper.add(referent, cleanup);
+      assertFalse(housekeeper.get().testCheckCleaned(referentId));
+
+      housekeeper.remove(key);
+      assertTrue(housekeeper.get().testCheckCleaned(referentId));
+      assertFalse(cleanup.ran.get());
+    }
+    finally {
+      housekeeper.release();
+    }
+  }
+
+  @Test
+  public void testLeakEnablesCapture() throws InterruptedException {
+
+    ThreadedHousekeeper.Ref housekeeper = ThreadedHousekeeper.acquire(Integer.MAX_VALUE);
+    try {
+      housekeeper.get().setLogLeakedReferences(false);
+
+      TestCleanup cleanup = new TestCleanup(null);
+      Object referent = new Object();
+      int referentId = System.identityHashCode(referent);
+      housekeeper.add(referent, cleanup);
+      referent = null;
+
+      for (int c = 0; c < 10 && !housekeeper.get().testCheckCleaned(referentId); ++c) {
+        Thread.sleep(50);
+      }
+
+      assertTrue(cleanup.ran.get());
+      assertNotNull(housekeeper.captureAllocationSite());
+    }
+    finally {
+      housekeeper.release();
+    }
+  }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.system.Metrics;
+import com.impossibl.postgres.system.Metrics.RequestType;
+
+import static com.impossibl.postgres.system.Metrics.Counter.BYTES_IN;
+import static com.impossibl.postgres.system.Metrics.Counter.BYTES_OUT;
+import static com.impossibl.postgres.system.Metrics.Counter.MESSAGES_IN;
+import static com.impossibl.postgres.system.Metrics.Counter.MESSAGES_OUT;
+import static com.impossibl.postgres.system.Metrics.Counter.ROWS_DECODED;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MessageDispatchHandlerTest {
+
+  private static class TestRequest implements ServerRequest {
+
+    private static class Handler implements ProtocolHandler.DataRow, ProtocolHandler.ReadyForQuery {
+
+      @Override
+      public Action rowData(BufferRowData rowData) {
+        return Action.Resume;
+      }
+
+      @Override
+      public Action readyForQuery(TransactionStatus txnStatus) {
+        return Action.Complete;
+      }
+
+      @Override
+      public void exception(Throwable cause) {
+      }
+
+    }
+
+    @Override
+    public ProtocolHandler createHandler() {
+      return new Handler();
+    }
+
+    @Override
+    public RequestType getRequestType() {
+      return RequestType.QUERY;
+    }
+
+    @Override
+    public void execute(ProtocolChannel channel) {
+      channel.writeSync().flush();
+    }
+
+  }
+
+  private static ByteBuf message(char id, byte... data) {
+    ByteBuf msg = Unpooled.buffer();
+    msg.writeByte(id);
+    msg.writeInt(4 + data.length);
+    msg.writeBytes(data);
+    return msg;
+  }
+
+  @Test
+  public void testMetrics() {
+
+    Metrics metrics = new Metrics();
+    EmbeddedChannel channel = new EmbeddedChannel(new MessageDispatchHandler(UTF_8, null, null, metrics));
+
+    channel.writeOutbound(new TestRequest());
+
+    assertEquals(1, metrics.get(MESSAGES_OUT));
+    assertEquals(5, metrics.get(BYTES_OUT));
+    assertEquals(0, (long) metrics.getRequestCounts().get(RequestType.QUERY.name()));
+
+    channel.writeInbound(message('D', (byte) 0, (byte) 0));
+    channel.writeInbound(message('D', (byte) 0, (byte) 0));
+    channel.writeInbound(message('Z', (byte) 'I'));
+
+    assertEquals(3, metrics.get(MESSAGES_IN));
+    assertEquals(7 + 7 + 6, metrics.get(BYTES_IN));
+    assertEquals(2, metrics.get(ROWS_DECODED));
+    assertEquals(1, (long) metrics.getRequestCounts().get(RequestType.QUERY.name()));
+    assertEquals(0, (long) metrics.getRequestCounts().get(RequestType.OTHER.name()));
+
+    channel.finishAndReleaseAll();
+
+    assertTrue(metrics.isClosed());
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import static com.impossibl.postgres.protocol.v30.ProtocolTracer.INBOUND;
+import static com.impossibl.postgres.protocol.v30.ProtocolTracer.OUTBOUND;
+import static com.impossibl.postgres.protocol.v30.ProtocolTracer.SQL_PREPARE;
+import static com.impossibl.postgres.system.SystemSettings.ProtocolTraceFormat.BINARY;
+import static com.impossibl.postgres.system.SystemSettings.ProtocolTraceFormat.TEXT;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ProtocolTracerTest {
+
+  @Test
+  public void testConcurrentRecording() throws Exception {
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ProtocolTracer tracer = new ProtocolTracer("test", "test", out, false, TEXT, 64);
+
+    int producers = 4;
+    int records = 500;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; ++p) {
+      int connectionId = p + 1;
+      Thread thread = new Thread(() -> {
+        for (int r = 0; r < records; ++r) {
+          while (!tracer.record(connectionId, OUTBOUND, (byte) 'Q', r, null, null)) {
+            Thread.yield();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (Thread thread : threads) {
+      while (thread.isAlive()) {
+        tracer.drain();
+      }
+    }
+    tracer.drain();
+
+    String[] lines = out.toString("UTF-8").split("\n");
+    long traced = 0;
+    for (String line : lines) {
+      if (line.contains(" < Q ")) {
+        traced++;
+      }
+    }
+    assertEquals(producers * records, traced);
+  }
+
+  @Test
+  public void testDropsWhenFull() throws Exception {
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ProtocolTracer tracer = new ProtocolTracer("test", "test", out, false, TEXT, 4);
+
+    for (int c = 0; c < 4; ++c) {
+      assertTrue(tracer.record(1, INBOUND, (byte) 'D', 10, "S1", null));
+    }
+    assertFalse(tracer.record(1, INBOUND, (byte) 'D', 10, "S1", null));
+    assertFalse(tracer.record(1, INBOUND, (byte) 'D', 10, "S1", null));
+
+    assertEquals(5, tracer.drain());
+    assertTrue(out.toString("UTF-8").contains("! 2 records dropped"));
+
+    assertTrue(tracer.record(1, INBOUND, (byte) 'C', 10, "S1", null));
+    assertEquals(1, tracer.drain());
+  }
+
+  private static String awaitContent(File file, String expected) throws IOException, InterruptedException {
+    for (int attempt = 0; attempt < 500; ++attempt) {
+      String content = new String(Files.readAllBytes(file.toPath()), UTF_8);
+      if (content.contains(expected)) {
+        return content;
+      }
+      Thread.sleep(10);
+    }
+    return new String(Files.readAllBytes(file.toPath()), UTF_8);
+  }
+
+  @Test
+  public void testWriterWakesForRecords() throws Exception {
+
+    File file = File.createTempFile("trace", ".txt");
+    file.deleteOnExit();
+
+    ProtocolTracer.Ref ref = ProtocolTracer.acquire(file.getPath(), TEXT);
+    try {
+      // Let the writer go idle before recording
+      Thread.sleep(50);
+      ref.sql(ProtocolTracer.SQL_QUERY, null, "SELECT 1");
+      assertTrue(awaitContent(file, "Q: SELECT 1").contains("Q: SELECT 1"));
+
+      ref.sql(ProtocolTracer.SQL_QUERY, null, "SELECT 2");
+      assertTrue(awaitContent(file, "Q: SELECT 2").contains("Q: SELECT 2"));
+    }
+    finally {
+      ref.release();
+    }
+  }
+
+  @Test
+  public void testSharedByPathAndFormat() throws Exception {
+
+    File file = File.createTempFile("trace", ".txt");
+    file.deleteOnExit();
+
+    ProtocolTracer.Ref text = ProtocolTracer.acquire(file.getPath(), TEXT);
+    ProtocolTracer.Ref binary = ProtocolTracer.acquire(file.getPath(), BINARY);
+    ProtocolTracer.Ref textAgain = ProtocolTracer.acquire(file.getPath(), TEXT);
+    try {
+      assertNotSame(text.get(), binary.get());
+      assertSame(text.get(), textAgain.get());
+    }
+    finally {
+      text.release();
+      binary.release();
+      textAgain.release();
+    }
+  }
+
+  @Test
+  public void testReacquireWaitsForPreviousWriter() throws Exception {
+
+    File file = File.createTempFile("trace", ".txt");
+    file.deleteOnExit();
+
+    ProtocolTracer.Ref first = ProtocolTracer.acquire(file.getPath(), TEXT);
+    for (int c = 0; c < 1000; ++c) {
+      first.sql(ProtocolTracer.SQL_QUERY, null, "SELECT old");
+    }
+    first.release();
+
+    ProtocolTracer.Ref second = ProtocolTracer.acquire(file.getPath(), TEXT);
+    try {
+      second.sql(ProtocolTracer.SQL_QUERY, null, "SELECT new");
+      String content = awaitContent(file, "Q: SELECT new");
+      // Previous trace was completely written before being truncated
+      assertFalse(content.contains("SELECT old"));
+      assertTrue(content.contains("Q: SELECT new"));
+    }
+    finally {
+      second.release();
+    }
+  }
+
+  @Test
+  public void testBinaryDecodesToText() throws Exception {
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ProtocolTracer tracer = new ProtocolTracer("test", "test", out, false, BINARY, 16);
+
+    tracer.record(3, OUTBOUND, (byte) 'P', 42, "S1", null);
+    tracer.record(3, SQL_PREPARE, (byte) 0, 0, "S1", "SELECT '\u03a9'");
+    tracer.record(3, ProtocolTracer.ACTION, (byte) ProtocolHandler.Action.Complete.ordinal(), 0, null, null);
+    assertEquals(3, tracer.drain());
+
+    StringWriter text = new StringWriter();
+    ProtocolTracer.decode(new ByteArrayInputStream(out.toByteArray()), text);
+
+    String[] lines = text.toString().split("\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[0].endsWith(" #3 < P 42 S1"));
+    assertTrue(lines[1].endsWith(" #3 P: S1 = SELECT '\u03a9'"));
+    assertTrue(lines[2].endsWith(" #3 = Complete"));
+  }
+
+}
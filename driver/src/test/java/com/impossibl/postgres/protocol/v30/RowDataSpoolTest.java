@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class RowDataSpoolTest {
+
+  private RowDataSpool spool;
+
+  @Before
+  public void before() {
+    spool = new RowDataSpool(16, null);
+  }
+
+  @After
+  public void after() {
+    spool.close();
+  }
+
+  private static ByteBuf row(String text) {
+    return Unpooled.copiedBuffer(text, UTF_8);
+  }
+
+  @Test
+  public void testRowsWithinBudgetStayInMemory() throws IOException {
+
+    ByteBuf data = row("0123456789");
+    BufferRowData rowData = spool.create(data);
+    try {
+      assertTrue(rowData.content().hasArray());
+      assertEquals(2, data.refCnt());
+    }
+    finally {
+      rowData.release();
+      data.release();
+    }
+  }
+
+  @Test
+  public void testRowsExceedingBudgetAreSpilled() throws IOException {
+
+    ByteBuf first = row("0123456789");
+    ByteBuf second = row("abcdefghij");
+
+    BufferRowData firstRowData = spool.create(first);
+    BufferRowData secondRowData = spool.create(second);
+    try {
+      assertFalse(secondRowData.content().hasArray());
+      assertEquals(1, second.refCnt());
+      assertEquals("abcdefghij", secondRowData.content().toString(UTF_8));
+    }
+    finally {
+      firstRowData.release();
+      secondRowData.release();
+      first.release();
+      second.release();
+    }
+  }
+
+  @Test
+  public void testReleasedRowsReturnMemoryToBudget() throws IOException {
+
+    ByteBuf first = row("0123456789");
+    ByteBuf second = row("abcdefghij");
+
+    spool.create(first).release();
+
+    BufferRowData secondRowData = spool.create(second);
+    try {
+      assertTrue(secondRowData.content().hasArray());
+    }
+    finally {
+      secondRowData.release();
+      first.release();
+      second.release();
+    }
+  }
+
+  @Test
+  public void testSpilledRowsOutliveSpool() throws IOException {
+
+    ByteBuf data = row("0123456789abcdefghij");
+
+    BufferRowData rowData = spool.create(data);
+    spool.close();
+    try {
+      assertEquals("0123456789abcdefghij", rowData.content().toString(UTF_8));
+    }
+    finally {
+      rowData.release();
+      data.release();
+    }
+  }
+
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.stub;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class StubServerTest {
+
+  private static final StubResult.Column[] ITEM_COLUMNS = {
+    column("id", StubTypes.INT4),
+    column("name", StubTypes.TEXT),
+    column("price", StubTypes.FLOAT8),
+  };
+
+  private StubServer server;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT id, name, price FROM items")) {
+        return StubResult.generated(ITEM_COLUMNS, 1050, (rowIdx, columnIdx) -> {
+          switch (columnIdx) {
+            case 0: return (int) rowIdx;
+            case 1: return "item-" + rowIdx;
+            default: return rowIdx % 10 == 0 ? null : rowIdx * 1.5;
+          }
+        });
+      }
+      if (sql.startsWith("SELECT name FROM items WHERE id = $1")) {
+        Object[][] rows = parameters == null ? new Object[0][] : new Object[][] {{"item-" + parameters[0]}};
+        return StubResult.rows(new StubResult.Column[] {column("name", StubTypes.TEXT)}, rows);
+      }
+      if (sql.startsWith("INSERT INTO items")) {
+        return StubResult.command("INSERT 0 1");
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+  }
+
+  @Test
+  public void testQuery() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (Statement statement = connection.createStatement()) {
+        try (ResultSet rs = statement.executeQuery("SELECT id, name, price FROM items")) {
+          int count = 0;
+          while (rs.next()) {
+            assertEquals(count, rs.getInt(1));
+            assertEquals("item-" + count, rs.getString(2));
+            if (count % 10 == 0) {
+              rs.getDouble(3);
+              assertTrue(rs.wasNull());
+            }
+            else {
+              assertEquals(count * 1.5, rs.getDouble(3), 0.0);
+            }
+            count++;
+          }
+          assertEquals(1050, count);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPreparedStatementParameters() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM items WHERE id = ?")) {
+        for (int id = 0; id < 10; ++id) {
+          statement.setInt(1, id);
+          try (ResultSet rs = statement.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals("item-" + id, rs.getString(1));
+            assertFalse(rs.next());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFetchSize() throws SQLException {
+
+    try (Connection connection = connect()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement("SELECT id, name, price FROM items")) {
+        statement.setFetchSize(100);
+        try (ResultSet rs = statement.executeQuery()) {
+          int count = 0;
+          while (rs.next()) {
+            assertEquals(count++, rs.getInt(1));
+          }
+          assertEquals(1050, count);
+        }
+      }
+      connection.commit();
+    }
+  }
+
+  @Test
+  public void testBatch() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO items(id, name) VALUES (?, ?)")) {
+        for (int id = 0; id < 500; ++id) {
+          statement.setInt(1, id);
+          statement.setString(2, "item-" + id);
+          statement.addBatch();
+        }
+        int[] counts = statement.executeBatch();
+        assertEquals(500, counts.length);
+        for (int count : counts) {
+          assertEquals(1, count);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCopy() throws SQLException {
+
+    try (Connection connection = connect()) {
+      PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+      pgConnection.copyFrom("COPY items FROM STDIN", new ByteArrayInputStream("1\ta\n2\tb\n3\tc".getBytes(UTF_8)));
+
+      server.addResponder((sql, parameters) ->
+          sql.startsWith("COPY items TO STDOUT") ? StubResult.rows(ITEM_COLUMNS, new Object[] {1, "a", null}, new Object[] {2, "b", 2.5}) : null
+      );
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      pgConnection.copyTo("COPY items TO STDOUT", out);
+      assertArrayEquals("1\ta\t\\N\n2\tb\t2.5\n".getBytes(UTF_8), out.toByteArray());
+    }
+  }
+
+  @Test
+  public void testUnknownStatementFails() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.executeQuery("SELECT * FROM missing");
+        fail("Expected exception");
+      }
+      catch (SQLException e) {
+        assertEquals("42601", e.getSQLState());
+      }
+
+      // Connection remains usable
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SET search_path = public");
+      }
+    }
+  }
+
+  @Test
+  public void testPasswordAuthentication() throws SQLException {
+
+    server.setPassword("secret");
+
+    try (Connection ignored = DriverManager.getConnection(server.getUrl("stub"), "test", "wrong")) {
+      fail("Expected exception");
+    }
+    catch (SQLException e) {
+      assertEquals("28P01", e.getSQLState());
+    }
+
+    try (Connection connection = DriverManager.getConnection(server.getUrl("stub"), "test", "secret")) {
+      assertTrue(connection.isValid(5));
+    }
+  }
+
+}
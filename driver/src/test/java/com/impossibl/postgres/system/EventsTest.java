@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+
+import static com.impossibl.postgres.system.Events.Kind.EXECUTE;
+import static com.impossibl.postgres.system.Events.Kind.PREPARE;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(JUnit4.class)
+public class EventsTest {
+
+  @Test
+  public void testDisabledEventsAreNotStarted() {
+    assertNull(Events.begin(EXECUTE));
+  }
+
+  @Test
+  public void testRecordedEvents() throws Exception {
+
+    assumeTrue(Events.isAvailable());
+
+    StringBuilder longSql = new StringBuilder("SELECT ");
+    while (longSql.length() < FlightRecorderEvents.MAX_SQL_LENGTH) {
+      longSql.append("1, ");
+    }
+    longSql.append("1");
+
+    Path file = Files.createTempFile("events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("com.impossibl.postgres.Prepare").withThreshold(Duration.ZERO);
+      recording.enable("com.impossibl.postgres.Execute").withThreshold(Duration.ofHours(1));
+      recording.start();
+
+      Object prepare = Events.begin(PREPARE);
+      Events.endPrepare(prepare, longSql.toString(), "S1");
+
+      Object execute = Events.begin(EXECUTE);
+      Events.endExecute(execute, "SELECT 1", "S1", 1);
+
+      recording.stop();
+      recording.dump(file);
+
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertEquals(1, events.size());
+
+      RecordedEvent event = events.get(0);
+      assertEquals("com.impossibl.postgres.Prepare", event.getEventType().getName());
+      assertEquals("S1", event.getString("statementName"));
+      assertEquals(FlightRecorderEvents.MAX_SQL_LENGTH + 3, event.getString("sql").length());
+      assertTrue(event.getString("sql").endsWith("..."));
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testFailedExecutionRecorded() throws Exception {
+
+    assumeTrue(Events.isAvailable());
+
+    StubServer server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.equals("SELECT fail")) {
+        // Describes successfully, fails when executed
+        return parameters == null ? StubResult.command("SELECT") : StubResult.error("57014", "canceling statement");
+      }
+      return null;
+    });
+    server.start();
+
+    Path file = Files.createTempFile("events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("com.impossibl.postgres.Execute").withThreshold(Duration.ZERO);
+      recording.start();
+
+      try (Connection connection = DriverManager.getConnection(server.getUrl("stub"), "test", "test")) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT fail")) {
+          statement.execute();
+          fail("Expected error");
+        }
+        catch (SQLException e) {
+          // Expected
+        }
+      }
+
+      recording.stop();
+      recording.dump(file);
+
+      long failed = RecordingFile.readAllEvents(file).stream()
+          .filter(event -> event.getEventType().getName().equals("com.impossibl.postgres.Execute"))
+          .filter(event -> "SELECT fail".equals(event.getString("sql")))
+          .count();
+      assertEquals(1, failed);
+    }
+    finally {
+      Files.delete(file);
+      server.close();
+    }
+  }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import com.impossibl.postgres.system.Metrics.Cache;
+import com.impossibl.postgres.system.Metrics.RequestType;
+
+import static com.impossibl.postgres.system.Metrics.Counter.BYTES_IN;
+
+import java.lang.management.ManagementFactory;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+  @Test
+  public void testLatencyBuckets() {
+    assertEquals(0, Metrics.latencyBucket(0));
+    assertEquals(0, Metrics.latencyBucket(999));
+    assertEquals(1, Metrics.latencyBucket(MICROSECONDS.toNanos(1)));
+    assertEquals(2, Metrics.latencyBucket(MICROSECONDS.toNanos(3)));
+    assertEquals(11, Metrics.latencyBucket(MICROSECONDS.toNanos(1024)));
+    assertEquals(Metrics.LATENCY_BUCKETS - 1, Metrics.latencyBucket(SECONDS.toNanos(100000)));
+  }
+
+  @Test
+  public void testRequests() {
+
+    Metrics metrics = new Metrics();
+    metrics.request(RequestType.EXECUTE, MICROSECONDS.toNanos(2));
+    metrics.request(RequestType.EXECUTE, MICROSECONDS.toNanos(4));
+    metrics.request(RequestType.PREPARE, MICROSECONDS.toNanos(1));
+
+    assertEquals(2, (long) metrics.getRequestCounts().get("EXECUTE"));
+    assertEquals(1, (long) metrics.getRequestCounts().get("PREPARE"));
+    assertEquals(0, (long) metrics.getRequestCounts().get("COPY"));
+    assertEquals(3.0, metrics.getRequestMeanLatencies().get("EXECUTE"), 0.0);
+
+    long[] histogram = metrics.getRequestLatencyHistograms().get("EXECUTE");
+    assertEquals(Metrics.LATENCY_BUCKETS, histogram.length);
+    assertEquals(1, histogram[2]);
+    assertEquals(1, histogram[3]);
+  }
+
+  @Test
+  public void testAggregateRetiresClosed() {
+
+    Metrics first = new Metrics();
+    Metrics second = new Metrics();
+
+    MetricsAggregate aggregate = new MetricsAggregate();
+    aggregate.add(first);
+    aggregate.add(second);
+
+    first.add(BYTES_IN, 10);
+    second.add(BYTES_IN, 5);
+    first.cacheHit(Cache.DESCRIPTION);
+    assertEquals(15, aggregate.getBytesIn());
+
+    first.close();
+    assertEquals(15, aggregate.getBytesIn());
+
+    // Closed connection's counters are retired exactly once
+    first.add(BYTES_IN, 100);
+    second.add(BYTES_IN, 5);
+    assertEquals(20, aggregate.getBytesIn());
+    assertEquals(1, (long) aggregate.getCacheHits().get("DESCRIPTION"));
+  }
+
+  @Test
+  public void testAggregateReleasesClosedWithoutReads() {
+
+    MetricsAggregate aggregate = new MetricsAggregate();
+
+    for (int c = 0; c < 100; ++c) {
+      Metrics metrics = new Metrics();
+      aggregate.add(metrics);
+      metrics.add(BYTES_IN, 1);
+      metrics.close();
+    }
+
+    Metrics closed = new Metrics();
+    closed.add(BYTES_IN, 1);
+    closed.close();
+    aggregate.add(closed);
+
+    assertEquals(0, aggregate.getLiveCount());
+    assertEquals(101, aggregate.getBytesIn());
+  }
+
+  @Test
+  public void testMXBeanRegistration() throws Exception {
+
+    Metrics metrics = new Metrics();
+    metrics.request(RequestType.RESUME, 0);
+    metrics.cacheMiss(Cache.PARSED_SQL);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.impossibl.postgres:type=Test,name=MetricsTest");
+    server.registerMBean(metrics, name);
+    try {
+      assertEquals(0L, server.getAttribute(name, "BytesIn"));
+
+      TabularData requestCounts = (TabularData) server.getAttribute(name, "RequestCounts");
+      assertEquals(1L, requestCounts.get(new Object[] {"RESUME"}).get("value"));
+
+      TabularData cacheMisses = (TabularData) server.getAttribute(name, "CacheMisses");
+      assertEquals(1L, cacheMisses.get(new Object[] {"PARSED_SQL"}).get("value"));
+
+      TabularData histograms = (TabularData) server.getAttribute(name, "RequestLatencyHistograms");
+      long[] histogram = (long[]) histograms.get(new Object[] {"RESUME"}).get("value");
+      assertEquals(1, histogram[0]);
+    }
+    finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import static com.impossibl.postgres.system.procs.DatesTimes.instantToSQL;
+import static com.impossibl.postgres.system.procs.DatesTimes.localToSQL;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class DatesTimesTest {
+
+  private static final String[] ZONES = {
+    "UTC", "+05:30", "America/New_York", "Europe/London", "Australia/Lord_Howe", "Pacific/Apia", "Asia/Kolkata",
+  };
+
+  private static final long[] STARTS = {
+    LocalDateTime.of(1900, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC),
+    LocalDateTime.of(1969, 6, 1, 0, 0).toEpochSecond(ZoneOffset.UTC),
+    LocalDateTime.of(2011, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC),
+    LocalDateTime.of(2045, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC),
+  };
+
+  private static final LocalDate EPOCH_DAY = LocalDate.of(1970, 1, 1);
+  private static final long STEP = MINUTES.toSeconds(17);
+  private static final long RANGE = DAYS.toSeconds(400);
+  private static final int NANOS = 123456789;
+
+  @Test
+  public void testLocalToSQL() {
+
+    for (String zoneName : ZONES) {
+      ZoneId zone = ZoneId.of(zoneName);
+      int converted = 0;
+      int total = 0;
+
+      for (long start : STARTS) {
+        for (long local = start; local < start + RANGE; local += STEP, total++) {
+
+          // Reference conversion used by TimestampsWithoutTZ
+          ZonedDateTime zoned = LocalDateTime.ofEpochSecond(local, NANOS, ZoneOffset.UTC).atOffset(ZoneOffset.UTC).atZoneSimilarLocal(zone);
+
+          Object timestamp = localToSQL(local, NANOS, zone, Timestamp.class);
+          if (timestamp != null) {
+            assertEquals(zoned.toString(), Timestamp.from(zoned.toInstant()), timestamp);
+            converted++;
+          }
+
+          Object date = localToSQL(local, NANOS, zone, Date.class);
+          if (date != null) {
+            assertEquals(zoned.toString(), new Date(zoned.truncatedTo(ChronoUnit.DAYS).toInstant().toEpochMilli()), date);
+          }
+
+          Object time = localToSQL(local, NANOS, zone, Time.class);
+          if (time != null) {
+            assertEquals(zoned.toString(), new Time(ZonedDateTime.of(EPOCH_DAY, zoned.toLocalTime(), zone).toInstant().toEpochMilli()), time);
+          }
+        }
+      }
+
+      // Only values in gaps & overlaps should need a full conversion
+      assertTrue(zoneName, converted > total * 0.99);
+    }
+  }
+
+  @Test
+  public void testInstantToSQL() {
+
+    for (String zoneName : ZONES) {
+      ZoneId zone = ZoneId.of(zoneName);
+
+      for (long start : STARTS) {
+        for (long epoch = start; epoch < start + RANGE; epoch += STEP) {
+
+          // Reference conversion used by TimestampsWithTZ
+          ZonedDateTime zoned = Instant.ofEpochSecond(epoch, NANOS).atZone(zone);
+
+          assertEquals(Timestamp.from(zoned.toInstant()), instantToSQL(epoch, NANOS, zone, Timestamp.class));
+
+          Object date = instantToSQL(epoch, NANOS, zone, Date.class);
+          if (date != null) {
+            assertEquals(zoned.toString(), new Date(zoned.truncatedTo(ChronoUnit.DAYS).toInstant().toEpochMilli()), date);
+          }
+
+          Object time = instantToSQL(epoch, NANOS, zone, Time.class);
+          if (time != null) {
+            assertEquals(zoned.toString(), new Time(ZonedDateTime.of(EPOCH_DAY, zoned.toLocalTime(), zone).toInstant().toEpochMilli()), time);
+          }
+        }
+      }
+    }
+  }
+
+}
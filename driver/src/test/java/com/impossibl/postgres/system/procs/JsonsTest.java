@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.api.jdbc.PGType;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+import com.impossibl.postgres.utils.guava.ByteStreams;
+import com.impossibl.postgres.utils.guava.CharStreams;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class JsonsTest {
+
+  private static final String DOCUMENT;
+
+  static {
+    StringBuilder document = new StringBuilder("[");
+    for (int idx = 0; idx < 20_000; ++idx) {
+      document.append(idx == 0 ? "" : ",").append("{\"id\":").append(idx).append(",\"name\":\"caf\u00e9 \u2615 ").append(idx).append("\"}");
+    }
+    DOCUMENT = document.append("]").toString();
+  }
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("json", StubTypes.JSON),
+    column("jsonb", StubTypes.JSONB),
+  };
+
+  private StubServer server;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT documents")) {
+        return StubResult.rows(COLUMNS, new Object[] {DOCUMENT, DOCUMENT});
+      }
+      if (sql.startsWith("SELECT $1, $2")) {
+        return StubResult.rows(COLUMNS, parameters != null ? new Object[][] {parameters} : new Object[0][]);
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+  }
+
+  @Test
+  public void testDecode() throws SQLException, IOException {
+
+    byte[] bytes = DOCUMENT.getBytes(UTF_8);
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT documents")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+
+          for (String column : new String[] {"json", "jsonb"}) {
+
+            assertEquals(DOCUMENT, rs.getString(column));
+            assertEquals(DOCUMENT, rs.getObject(column));
+            assertArrayEquals(bytes, rs.getObject(column, byte[].class));
+
+            try (InputStream in = rs.getObject(column, InputStream.class)) {
+              assertArrayEquals(bytes, ByteStreams.toByteArray(in));
+            }
+
+            try (Reader in = rs.getObject(column, Reader.class)) {
+              assertEquals(DOCUMENT, CharStreams.toString(in));
+            }
+
+            ByteBuffer buffer = rs.getObject(column, ByteBuffer.class);
+            assertEquals(ByteBuffer.wrap(bytes), buffer);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStreamOutlivesRow() throws SQLException, IOException {
+
+    InputStream in;
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT documents")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+          in = rs.getObject("jsonb", InputStream.class);
+        }
+      }
+    }
+
+    try {
+      assertEquals(DOCUMENT, new String(ByteStreams.toByteArray(in), UTF_8));
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testEncode() throws SQLException {
+
+    byte[] bytes = DOCUMENT.getBytes(UTF_8);
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT ?, ?")) {
+
+        statement.setObject(1, new ByteArrayInputStream(bytes), PGType.JSON);
+        statement.setObject(2, ByteBuffer.wrap(bytes), PGType.JSONB);
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+          assertEquals(DOCUMENT, rs.getString(1));
+          assertEquals(DOCUMENT, rs.getString(2));
+        }
+
+        statement.setObject(1, DOCUMENT, PGType.JSON);
+        statement.setObject(2, bytes, PGType.JSONB);
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+          assertEquals(DOCUMENT, rs.getString(1));
+          assertEquals(DOCUMENT, rs.getString(2));
+        }
+      }
+    }
+  }
+
+}
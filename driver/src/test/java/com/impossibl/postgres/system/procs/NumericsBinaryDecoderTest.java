@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class NumericsBinaryDecoderTest {
+
+  private static final String[] VALUES = {
+    "0", "0.00", "1", "-1", "1.5", "0.0001", "-0.00001", "10000", "100000000", "12345.6789",
+    "-1234567890123.4567", "99999999999999.9999", "922337203685477.5807", "9007199254740993.1",
+    "3.14159265358979323846", "0.000000000000000000000000000001", "16777217.5",
+    "123456789012345678901234567890.12", "-98765432109876543210",
+  };
+
+  private Object decode(String value, Class<?> targetClass) throws IOException {
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      new Numerics.BinEncoder().encode(null, null, new BigDecimal(value), null, buffer);
+      Object decoded = new Numerics.BinDecoder().decode(null, null, null, null, buffer, targetClass, null);
+      assertEquals(0, buffer.readableBytes());
+      return decoded;
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+  @Test
+  public void testDecodeBigDecimal() throws IOException {
+
+    for (String value : VALUES) {
+      BigDecimal decoded = (BigDecimal) decode(value, BigDecimal.class);
+      assertEquals(value, new BigDecimal(value), decoded);
+      assertEquals(value, new BigDecimal(value).scale(), decoded.scale());
+      assertEquals(value, new BigDecimal(value), decode(value, Number.class));
+    }
+  }
+
+  @Test
+  public void testDecodeDouble() throws IOException {
+
+    for (String value : VALUES) {
+      assertEquals(value, new BigDecimal(value).doubleValue(), (double) decode(value, double.class), 0.0);
+      assertEquals(value, new BigDecimal(value).floatValue(), (float) decode(value, Float.class), 0.0f);
+    }
+  }
+
+  @Test
+  public void testDecodeIntegral() throws IOException {
+
+    for (String value : VALUES) {
+      BigDecimal expected = new BigDecimal(value);
+      if (expected.toBigInteger().bitLength() < 64) {
+        assertEquals(value, expected.toBigInteger().longValueExact(), (long) decode(value, long.class));
+      }
+      if (expected.toBigInteger().bitLength() < 32) {
+        assertEquals(value, expected.intValue(), (int) decode(value, Integer.class));
+      }
+    }
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testDecodeLongOverflow() throws IOException {
+    decode("-98765432109876543210", Long.class);
+  }
+
+  @Test
+  public void testDecodeNaN() throws IOException {
+
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      new Numerics.BinEncoder().encode(null, null, Double.NaN, null, buffer);
+      assertTrue(Double.isNaN((Double) new Numerics.BinDecoder().decode(null, null, null, null, buffer, Double.class, null)));
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+}
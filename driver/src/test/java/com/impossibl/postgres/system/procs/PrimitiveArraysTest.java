@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.jdbc.PGArray;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+import com.impossibl.postgres.types.BaseType;
+import com.impossibl.postgres.types.Type.Category;
+
+import static com.impossibl.postgres.protocol.FieldFormat.Binary;
+import static com.impossibl.postgres.stub.StubResult.column;
+import static com.impossibl.postgres.stub.StubTypes.arrayOf;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class PrimitiveArraysTest {
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("ints", arrayOf(StubTypes.INT4)),
+    column("longs", arrayOf(StubTypes.INT8)),
+    column("shorts", arrayOf(StubTypes.INT2)),
+    column("floats", arrayOf(StubTypes.FLOAT4)),
+    column("doubles", arrayOf(StubTypes.FLOAT8)),
+    column("bools", arrayOf(StubTypes.BOOL)),
+    column("nullable", arrayOf(StubTypes.INT4)),
+    column("empty", arrayOf(StubTypes.INT4)),
+  };
+
+  private static final int[] INTS = {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+  private static final long[] LONGS = {1, -2, Long.MAX_VALUE, Long.MIN_VALUE};
+  private static final short[] SHORTS = {1, -2, Short.MAX_VALUE, Short.MIN_VALUE};
+  private static final float[] FLOATS = {1.5f, -2.25f, Float.MAX_VALUE, Float.NaN};
+  private static final double[] DOUBLES = {1.5, -2.25, Double.MAX_VALUE, Double.NEGATIVE_INFINITY};
+  private static final boolean[] BOOLS = {true, false, true};
+
+  private static final Procs PROCS = new Procs(null, PrimitiveArraysTest.class.getClassLoader());
+
+  private StubServer server;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT arrays")) {
+        return StubResult.rows(COLUMNS, new Object[] {INTS, LONGS, SHORTS, FLOATS, DOUBLES, BOOLS, Arrays.asList(1, null, 3), new int[0]});
+      }
+      if (sql.startsWith("SELECT $1, $2, $3")) {
+        StubResult.Column[] columns = {
+          column("ints", arrayOf(StubTypes.INT4)), column("longs", arrayOf(StubTypes.INT8)), column("doubles", arrayOf(StubTypes.FLOAT8)),
+        };
+        return StubResult.rows(columns, parameters != null ? new Object[][] {parameters} : new Object[0][]);
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+  }
+
+  @Test
+  public void testDecode() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT arrays")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+
+          assertArrayEquals(INTS, rs.getObject("ints", int[].class));
+          assertArrayEquals(LONGS, rs.getObject("longs", long[].class));
+          assertArrayEquals(SHORTS, rs.getObject("shorts", short[].class));
+          assertArrayEquals(FLOATS, rs.getObject("floats", float[].class), 0.0f);
+          assertArrayEquals(DOUBLES, rs.getObject("doubles", double[].class), 0.0);
+          assertArrayEquals(BOOLS, rs.getObject("bools", boolean[].class));
+          assertArrayEquals(new int[0], rs.getObject("empty", int[].class));
+
+          // Widening
+          assertArrayEquals(Arrays.stream(INTS).asLongStream().toArray(), rs.getObject("ints", long[].class));
+          assertArrayEquals(new int[] {1, -2, Short.MAX_VALUE, Short.MIN_VALUE}, rs.getObject("shorts", int[].class));
+          assertArrayEquals(new double[] {1.5, -2.25, Float.MAX_VALUE, Double.NaN}, rs.getObject("floats", double[].class), 0.0);
+
+          // Via java.sql.Array
+          assertArrayEquals(INTS, (int[]) ((PGArray) rs.getArray("ints")).getArray(int.class));
+          assertArrayEquals(DOUBLES, (double[]) ((PGArray) rs.getArray("doubles")).getArray(double.class), 0.0);
+
+          // Boxed & general paths are unchanged
+          assertArrayEquals(new Integer[] {1, null, 3}, rs.getObject("nullable", Integer[].class));
+          assertArrayEquals(new Integer[] {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 0}, (Integer[]) rs.getArray("ints").getArray());
+          assertArrayEquals(new String[] {"1", "-2", "32767", "-32768"}, rs.getObject("shorts", String[].class));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTextDecode() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (Statement statement = connection.createStatement()) {
+        try (ResultSet rs = statement.executeQuery("SELECT arrays")) {
+          assertTrue(rs.next());
+
+          assertArrayEquals(INTS, rs.getObject("ints", int[].class));
+          assertArrayEquals(DOUBLES, rs.getObject("doubles", double[].class), 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEncode() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT ?, ?, ?")) {
+        statement.setObject(1, INTS, Types.ARRAY);
+        statement.setObject(2, LONGS, Types.ARRAY);
+        statement.setObject(3, DOUBLES, Types.ARRAY);
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+          assertArrayEquals(INTS, rs.getObject(1, int[].class));
+          assertArrayEquals(LONGS, rs.getObject(2, long[].class));
+          assertArrayEquals(DOUBLES, rs.getObject(3, double[].class), 0.0);
+        }
+      }
+    }
+  }
+
+  private static BaseType type(int id, String name, int length) {
+    return new BaseType(id, name, (short) length, (byte) length, Category.Numeric, ',', 0, PROCS, Binary, Binary);
+  }
+
+  @Test
+  public void testEncodeWidening() {
+
+    BaseType int8 = type(20, "int8", 8);
+    BaseType float8 = type(701, "float8", 8);
+
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      assertTrue(PrimitiveArrays.encode(int8, INTS, buffer));
+      assertArrayEquals(Arrays.stream(INTS).asLongStream().toArray(), (long[]) PrimitiveArrays.decode(int8, long.class, buffer, INTS.length));
+      assertEquals(0, buffer.readableBytes());
+
+      assertTrue(PrimitiveArrays.encode(float8, FLOATS, buffer));
+      double[] doubles = (double[]) PrimitiveArrays.decode(float8, double.class, buffer, FLOATS.length);
+      assertArrayEquals(new double[] {1.5, -2.25, Float.MAX_VALUE, Double.NaN}, doubles, 0.0);
+      assertEquals(0, buffer.readableBytes());
+
+      // Narrowing is never performed
+      int written = buffer.writerIndex();
+      assertFalse(PrimitiveArrays.encode(type(23, "int4", 4), LONGS, buffer));
+      assertNull(PrimitiveArrays.decode(int8, int.class, buffer, 0));
+      assertEquals(written, buffer.writerIndex());
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+}
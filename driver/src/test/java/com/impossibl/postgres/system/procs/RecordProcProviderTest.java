@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.api.jdbc.PGAnyType;
+import com.impossibl.postgres.jdbc.PGDirectConnection;
+import com.impossibl.postgres.stub.StubResult;
+import com.impossibl.postgres.stub.StubServer;
+import com.impossibl.postgres.stub.StubTypes;
+import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.ConversionException;
+import com.impossibl.postgres.types.Type;
+
+import static com.impossibl.postgres.stub.StubResult.column;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RecordProcProviderTest {
+
+  /**
+   * Mapped class of {@code public.stub_composite}; deliberately not {@code SQLData},
+   * so the generic record codec cannot produce it.
+   */
+  public static class StubComposite {
+
+    Integer id;
+    String name;
+    String[] tags;
+
+  }
+
+  /**
+   * Equivalent of the codec generated for {@link StubComposite} by the UDT generator.
+   */
+  public static class StubCompositeProcProvider extends RecordProcProvider<StubComposite> {
+
+    public StubCompositeProcProvider() {
+      super("public", "stub_composite", StubComposite.class, "pg_catalog.int4", "pg_catalog.text", "pg_catalog._text");
+    }
+
+    @Override
+    protected StubComposite decodeAttributes(Input in) throws IOException {
+      StubComposite value = new StubComposite();
+      value.id = in.readInt();
+      value.name = in.readString();
+      value.tags = in.readObject(String[].class);
+      return value;
+    }
+
+    @Override
+    protected void encodeAttributes(Output out, StubComposite value) throws IOException {
+      out.writeInt(value.id);
+      out.writeString(value.name);
+      out.writeObject(value.tags);
+    }
+
+  }
+
+  /**
+   * Codec generated before {@code public.stub_composite}'s {@code id} was altered
+   * from {@code int8} to {@code int4}.
+   */
+  public static class OutdatedProcProvider extends RecordProcProvider<StubComposite> {
+
+    boolean decoded;
+
+    public OutdatedProcProvider() {
+      super("public", "stub_composite", StubComposite.class, "pg_catalog.int8", "pg_catalog.text", "pg_catalog._text");
+    }
+
+    @Override
+    protected StubComposite decodeAttributes(Input in) throws IOException {
+      decoded = true;
+      StubComposite value = new StubComposite();
+      value.id = in.readLong().intValue();
+      value.name = in.readString();
+      value.tags = in.readObject(String[].class);
+      return value;
+    }
+
+    @Override
+    protected void encodeAttributes(Output out, StubComposite value) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  private static final PGAnyType STUB_COMPOSITE = new PGAnyType() {
+
+    @Override
+    public String getName() {
+      return "public.stub_composite";
+    }
+
+    @Override
+    public String getVendor() {
+      return "Test";
+    }
+
+    @Override
+    public Integer getVendorTypeNumber() {
+      return null;
+    }
+
+    @Override
+    public Class getJavaType() {
+      return StubComposite.class;
+    }
+
+  };
+
+  private static final StubResult.Column[] COLUMNS = {
+    column("value", StubTypes.COMPOSITE),
+  };
+
+  private StubServer server;
+  private Object[] received;
+
+  @Before
+  public void before() throws InterruptedException {
+    server = new StubServer();
+    server.addResponder((sql, parameters) -> {
+      if (sql.startsWith("SELECT composites")) {
+        return StubResult.rows(COLUMNS,
+            new Object[] {new Object[] {5, "caf\u00e9", asList("a", null, "c")}},
+            new Object[] {new Object[] {null, null, null}});
+      }
+      if (sql.startsWith("SELECT $1")) {
+        if (parameters != null) {
+          received = (Object[]) parameters[0];
+        }
+        return StubResult.rows(COLUMNS, new Object[0][]);
+      }
+      return null;
+    });
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.close();
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(server.getUrl("stub"), "test", "test");
+  }
+
+  @Test
+  public void testDecode() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT composites")) {
+        try (ResultSet rs = statement.executeQuery()) {
+
+          assertTrue(rs.next());
+          StubComposite value = rs.getObject(1, StubComposite.class);
+          assertEquals(Integer.valueOf(5), value.id);
+          assertEquals("caf\u00e9", value.name);
+          assertArrayEquals(new String[] {"a", null, "c"}, value.tags);
+
+          assertTrue(rs.next());
+          value = rs.getObject(1, StubComposite.class);
+          assertNull(value.id);
+          assertNull(value.name);
+          assertNull(value.tags);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeCustomTypeMap() throws SQLException {
+
+    try (Connection connection = connect()) {
+      connection.setTypeMap(Collections.singletonMap("public.stub_composite", StubComposite.class));
+      try (PreparedStatement statement = connection.prepareStatement("SELECT composites")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+          assertEquals("caf\u00e9", ((StubComposite) rs.getObject(1)).name);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeStructFallback() throws SQLException {
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT composites")) {
+        try (ResultSet rs = statement.executeQuery()) {
+          assertTrue(rs.next());
+          Object[] attributes = ((Struct) rs.getObject(1)).getAttributes();
+          assertEquals(5, attributes[0]);
+          assertEquals("caf\u00e9", attributes[1]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeMismatchedAttributesFallback() throws Exception {
+
+    try (Connection connection = connect()) {
+
+      Context context = connection.unwrap(PGDirectConnection.class);
+      Type type = context.getRegistry().loadStableType("public.stub_composite");
+
+      // Record as sent by the server, with an int4 id
+      byte[] name = "caf\u00e9".getBytes(UTF_8);
+      ByteBuf buffer = Unpooled.buffer();
+      buffer.writeInt(3);
+      buffer.writeInt(context.getRegistry().loadStableType("pg_catalog.int4").getId()).writeInt(4).writeInt(5);
+      buffer.writeInt(context.getRegistry().loadStableType("pg_catalog.text").getId()).writeInt(name.length).writeBytes(name);
+      buffer.writeInt(context.getRegistry().loadStableType("pg_catalog._text").getId()).writeInt(-1);
+
+      OutdatedProcProvider provider = new OutdatedProcProvider();
+      Type.Codec.Decoder<ByteBuf> decoder = provider.findDecoder("public.stub_composite_send", context.getServerInfo(), ByteBuf.class);
+      // Generic codec handles the record, which cannot produce the mapped class
+      try {
+        decoder.decode(context, type, type.getLength(), null, buffer, StubComposite.class, null);
+        fail("Expected conversion error");
+      }
+      catch (ConversionException e) {
+        // Expected
+      }
+      assertFalse(provider.decoded);
+
+      buffer.readerIndex(0);
+      Object[] attributes = ((Struct) decoder.decode(context, type, type.getLength(), null, buffer, Struct.class, null)).getAttributes();
+      assertEquals(5, attributes[0]);
+      assertEquals("caf\u00e9", attributes[1]);
+    }
+  }
+
+  @Test
+  public void testEncode() throws SQLException {
+
+    StubComposite value = new StubComposite();
+    value.id = 7;
+    value.name = "caf\u00e9";
+    value.tags = new String[] {"x", "y"};
+
+    try (Connection connection = connect()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+        statement.setObject(1, value, STUB_COMPOSITE);
+        statement.executeQuery().close();
+      }
+    }
+
+    assertEquals(asList(7, "caf\u00e9", asList("x", "y")), asList(received));
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class StringCacheTest {
+
+  private static String get(StringCache cache, String value) {
+    ByteBuf buffer = Unpooled.copiedBuffer(value, UTF_8);
+    try {
+      String result = cache.get(buffer, buffer.readableBytes(), UTF_8);
+      assertFalse(buffer.isReadable());
+      return result;
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+  @Test
+  public void testCanonicalizes() {
+
+    StringCache cache = new StringCache(16);
+
+    String first = get(cache, "Stra\u00dfe");
+    assertEquals("Stra\u00dfe", first);
+    assertSame(first, get(cache, "Stra\u00dfe"));
+    assertEquals("strasse", get(cache, "strasse"));
+    assertEquals("", get(cache, ""));
+  }
+
+  @Test
+  public void testSkipsLongValues() {
+
+    StringCache cache = new StringCache(16);
+
+    StringBuilder value = new StringBuilder();
+    for (int idx = 0; idx <= StringCache.MAX_VALUE_LENGTH; ++idx) {
+      value.append('x');
+    }
+
+    String first = get(cache, value.toString());
+    assertEquals(value.toString(), first);
+    assertNotSame(first, get(cache, value.toString()));
+  }
+
+  @Test
+  public void testBounded() {
+
+    StringCache cache = new StringCache(4);
+
+    // More distinct values than slots must still decode correctly
+    for (int round = 0; round < 3; ++round) {
+      for (int idx = 0; idx < 100; ++idx) {
+        assertEquals("value-" + (idx % 10), get(cache, "value-" + (idx % 10)));
+      }
+    }
+  }
+
+  @Test
+  public void testDisablesOnLowHitRate() {
+
+    StringCache lowCardinality = new StringCache(64);
+    StringCache highCardinality = new StringCache(64);
+
+    for (int idx = 0; idx < 5000; ++idx) {
+      assertEquals("code-" + (idx % 8), get(lowCardinality, "code-" + (idx % 8)));
+      assertEquals("id-" + idx, get(highCardinality, "id-" + idx));
+    }
+
+    assertFalse(lowCardinality.isDisabled());
+    assertTrue(highCardinality.isDisabled());
+    assertEquals("id-1", get(highCardinality, "id-1"));
+  }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.stub;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Response the stub server produces for a single SQL statement.
+ *
+ * Results are either a command completion (optionally carrying rows, as
+ * {@code SELECT} does), a replication stream, or an error. Rows are produced on demand from a
+ * {@link RowGenerator}, allowing very large results without holding them
+ * in memory.
+ */
+public class StubResult {
+
+  /**
+   * Produces the value of a column for a given row; values are
+   * encoded according to the type of their column, {@code null} values are
+   * sent as SQL NULLs.
+   */
+  public interface RowGenerator {
+
+    Object getValue(long rowIdx, int columnIdx);
+
+  }
+
+  public static class Column {
+
+    private String name;
+    private int typeOid;
+
+    Column(String name, int typeOid) {
+      this.name = name;
+      this.typeOid = typeOid;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getTypeOid() {
+      return typeOid;
+    }
+
+  }
+
+  private static final Column[] NO_COLUMNS = {};
+
+  private Column[] columns;
+  private long rowCount;
+  private RowGenerator generator;
+  private String commandTag;
+  private String errorCode;
+  private String errorMessage;
+  private long replicationStartLSN;
+  private List<byte[]> replicationData;
+
+  private StubResult(Column[] columns, long rowCount, RowGenerator generator, String commandTag) {
+    this.columns = columns;
+    this.rowCount = rowCount;
+    this.generator = generator;
+    this.commandTag = commandTag;
+  }
+
+  public static Column column(String name, int typeOid) {
+    return new Column(name, typeOid);
+  }
+
+  /**
+   * Completes with the given tag (e.g. {@code INSERT 0 1}) and no rows.
+   */
+  public static StubResult command(String commandTag) {
+    return new StubResult(NO_COLUMNS, 0, null, commandTag);
+  }
+
+  /**
+   * Returns a fixed set of rows.
+   */
+  public static StubResult rows(Column[] columns, List<Object[]> rows) {
+    return new StubResult(columns, rows.size(), (rowIdx, columnIdx) -> rows.get((int) rowIdx)[columnIdx], "SELECT");
+  }
+
+  public static StubResult rows(Column[] columns, Object[]... rows) {
+    return rows(columns, Arrays.asList(rows));
+  }
+
+  /**
+   * Returns {@code rowCount} rows whose values are produced by
+   * {@code generator} as they are sent.
+   */
+  public static StubResult generated(Column[] columns, long rowCount, RowGenerator generator) {
+    return new StubResult(columns, rowCount, generator, "SELECT");
+  }
+
+  /**
+   * Starts a replication stream (as {@code START_REPLICATION} does) sending
+   * each payload as an {@code XLogData} message, starting at the given WAL
+   * location. The stream ends when the client sends {@code CopyDone}.
+   */
+  public static StubResult replication(long startLSN, byte[]... payloads) {
+    StubResult result = new StubResult(NO_COLUMNS, 0, null, "START_REPLICATION");
+    result.replicationStartLSN = startLSN;
+    result.replicationData = Arrays.asList(payloads);
+    return result;
+  }
+
+  /**
+   * Fails the statement with an {@code ErrorResponse}.
+   */
+  public static StubResult error(String sqlState, String message) {
+    StubResult result = new StubResult(NO_COLUMNS, 0, null, null);
+    result.errorCode = sqlState;
+    result.errorMessage = message;
+    return result;
+  }
+
+  public Column[] getColumns() {
+    return columns;
+  }
+
+  public boolean hasRows() {
+    return columns.length != 0;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  Object getValue(long rowIdx, int columnIdx) {
+    return generator.getValue(rowIdx, columnIdx);
+  }
+
+  /**
+   * Tag sent in {@code CommandComplete}; row returning results append the
+   * number of rows actually sent.
+   */
+  String getCommandTag(long rowsSent) {
+    return hasRows() ? commandTag + " " + rowsSent : commandTag;
+  }
+
+  public boolean isReplication() {
+    return replicationData != null;
+  }
+
+  long getReplicationStartLSN() {
+    return replicationStartLSN;
+  }
+
+  List<byte[]> getReplicationData() {
+    return replicationData;
+  }
+
+  public boolean isError() {
+    return errorCode != null;
+  }
+
+  String getErrorCode() {
+    return errorCode;
+  }
+
+  String getErrorMessage() {
+    return errorMessage;
+  }
+
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.stub;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * In-process server speaking enough of the PostgreSQL v3 protocol for the
+ * driver to connect and execute statements, without a real server.
+ *
+ * The server answers startup &amp; (optional cleartext password)
+ * authentication, the driver's type loading &amp; settings queries,
+ * transaction control statements, and the simple &amp; extended query
+ * protocols including {@code COPY}. Results of all other statements are
+ * produced by registered {@link Responder}s; statements no responder
+ * handles fail with a syntax error.
+ *
+ * Intended for tests &amp; benchmarks that need to isolate driver overhead
+ * from server cost.
+ */
+public class StubServer implements AutoCloseable {
+
+  /**
+   * Produces results for SQL statements.
+   */
+  public interface Responder {
+
+    /**
+     * Produces the result of a statement.
+     *
+     * @param sql Text of the statement
+     * @param parameters Bound parameter values or {@code null} when the
+     *                   statement is only being described, in which case
+     *                   only the columns of the returned result are used.
+     * @return Result of the statement or {@code null} if not handled by this
+     * responder.
+     */
+    StubResult respond(String sql, Object[] parameters);
+
+  }
+
+  private static final String SERVER_VERSION = "13.0";
+
+  private Map<String, String> parameterStatuses = new LinkedHashMap<>();
+  private List<Responder> responders = new CopyOnWriteArrayList<>();
+  private String password;
+  private AtomicInteger processIds = new AtomicInteger(1000);
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Channel serverChannel;
+
+  public StubServer() {
+    parameterStatuses.put("server_version", SERVER_VERSION);
+    parameterStatuses.put("server_encoding", "UTF8");
+    parameterStatuses.put("client_encoding", "UTF8");
+    parameterStatuses.put("DateStyle", "ISO, MDY");
+    parameterStatuses.put("IntervalStyle", "postgres");
+    parameterStatuses.put("TimeZone", "UTC");
+    parameterStatuses.put("integer_datetimes", "on");
+    parameterStatuses.put("standard_conforming_strings", "on");
+    parameterStatuses.put("is_superuser", "off");
+  }
+
+  /**
+   * Sets a parameter reported to connections during startup; must be
+   * called before {@link #start()}.
+   */
+  public void setParameterStatus(String name, String value) {
+    parameterStatuses.put(name, value);
+  }
+
+  Map<String, String> getParameterStatuses() {
+    return Collections.unmodifiableMap(parameterStatuses);
+  }
+
+  /**
+   * Requires connections to authenticate with the given cleartext
+   * password; by default all connections are trusted.
+   */
+  public void setPassword(String password) {
+    this.password = password;
+  }
+
+  String getPassword() {
+    return password;
+  }
+
+  /**
+   * Adds a responder; responders are consulted in the order they were
+   * added, before the server's built-in responses.
+   */
+  public void addResponder(Responder responder) {
+    responders.add(responder);
+  }
+
+  public StubServer start() throws InterruptedException {
+
+    bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("PG-Stub Acceptor", true));
+    workerGroup = new NioEventLoopGroup(0, new DefaultThreadFactory("PG-Stub I/O", true));
+
+    serverChannel = new ServerBootstrap()
+        .group(bossGroup, workerGroup)
+        .channel(NioServerSocketChannel.class)
+        .childOption(ChannelOption.TCP_NODELAY, true)
+        .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(256 * 1024, 512 * 1024))
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel ch) {
+            StubSession session = new StubSession(StubServer.this, processIds.incrementAndGet());
+            ch.pipeline().addLast(new StubSession.Decoder(session), session);
+          }
+        })
+        .bind(InetAddress.getLoopbackAddress(), 0)
+        .sync()
+        .channel();
+
+    return this;
+  }
+
+  public int getPort() {
+    return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+  }
+
+  /**
+   * JDBC URL connecting to the given database on this server.
+   */
+  public String getUrl(String database) {
+    return "jdbc:pgsql://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort() + "/" + database;
+  }
+
+  @Override
+  public void close() {
+    if (serverChannel != null) {
+      serverChannel.close().syncUninterruptibly();
+      serverChannel = null;
+    }
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+      workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+      bossGroup = null;
+      workerGroup = null;
+    }
+  }
+
+  StubResult respond(String sql, Object[] parameters) {
+
+    for (Responder responder : responders) {
+      StubResult result = responder.respond(sql, parameters);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    StubResult result = respondBuiltIn(sql.trim(), parameters);
+    if (result != null) {
+      return result;
+    }
+
+    return StubResult.error("42601", "Stub server has no response for: " + sql);
+  }
+
+  private StubResult respondBuiltIn(String sql, Object[] parameters) {
+
+    if (sql.contains("pg_catalog.pg_type t")) {
+      return respondTypes(sql, parameters);
+    }
+
+    if (sql.contains("pg_settings")) {
+      return StubResult.rows(
+          new StubResult.Column[] {StubResult.column("name", StubTypes.TEXT), StubResult.column("setting", StubTypes.TEXT)},
+          new Object[] {"lc_monetary", "C"}
+      );
+    }
+
+    String upperSql = sql.toUpperCase(Locale.ROOT);
+    String keyword = upperSql.split("\\s+", 2)[0];
+    switch (keyword) {
+      case "BEGIN":
+        return StubResult.command("BEGIN");
+      case "START":
+        return StubResult.command("START TRANSACTION");
+      case "COMMIT":
+      case "END":
+        return StubResult.command("COMMIT");
+      case "ROLLBACK":
+      case "ABORT":
+        return StubResult.command("ROLLBACK");
+      case "SET":
+      case "RESET":
+      case "SAVEPOINT":
+      case "RELEASE":
+      case "LISTEN":
+      case "UNLISTEN":
+      case "NOTIFY":
+      case "DEALLOCATE":
+        return StubResult.command(keyword);
+      case "DISCARD":
+        return StubResult.command(upperSql);
+      case "SHOW":
+        return respondShow(sql.substring(keyword.length()).trim());
+      default:
+        return null;
+    }
+  }
+
+  private StubResult respondShow(String name) {
+
+    String value;
+    if (name.equalsIgnoreCase("TRANSACTION ISOLATION LEVEL")) {
+      name = "transaction_isolation";
+      value = "read committed";
+    }
+    else {
+      value = "";
+      for (Map.Entry<String, String> parameterStatus : parameterStatuses.entrySet()) {
+        if (parameterStatus.getKey().equalsIgnoreCase(name)) {
+          value = parameterStatus.getValue();
+        }
+      }
+    }
+
+    return StubResult.rows(new StubResult.Column[] {StubResult.column(name, StubTypes.TEXT)}, new Object[] {value});
+  }
+
+  /**
+   * Answers the driver's type table queries (see {@code PGTypeTable}).
+   */
+  private StubResult respondTypes(String sql, Object[] parameters) {
+
+    List<StubTypes.TypeInfo> types;
+    if (parameters == null || sql.contains("typrelid = $1")) {
+      // Describing, or loading a composite type; the stub has none
+      types = emptyList();
+    }
+    else if (sql.contains("regtype")) {
+      StubTypes.TypeInfo type = StubTypes.getType(parameters[0].toString());
+      types = type != null ? singletonList(type) : emptyList();
+    }
+    else if (sql.contains("$1")) {
+      StubTypes.TypeInfo type = StubTypes.getType(Integer.parseInt(parameters[0].toString()));
+      types = type != null ? singletonList(type) : emptyList();
+    }
+    else {
+      types = StubTypes.getTypes();
+    }
+
+    List<Object[]> rows = new ArrayList<>(types.size());
+    for (StubTypes.TypeInfo type : types) {
+      rows.add(type.toTypeTableRow());
+    }
+
+    return StubResult.rows(StubTypes.TYPE_TABLE_COLUMNS, rows);
+  }
+
+}
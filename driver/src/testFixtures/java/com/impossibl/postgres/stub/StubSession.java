@@ -0,0 +1,1055 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.stub;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+/**
+ * Server side of a single stub connection.
+ *
+ * Frontend messages are queued and processed in order. Row producing
+ * executions stream their rows in large chunks and pause whenever the
+ * channel stops being writable, so arbitrarily large results never buffer
+ * in memory.
+ */
+class StubSession extends ChannelInboundHandlerAdapter {
+
+  private static final int PROTOCOL_VERSION_3 = 196608;
+  private static final int SSL_REQUEST_CODE = 80877103;
+  private static final int CANCEL_REQUEST_CODE = 80877102;
+  private static final int OUTPUT_CHUNK_SIZE = 64 * 1024;
+  private static final Object[] NO_PARAMETERS = {};
+
+  private static final short TEXT_FORMAT = 0;
+
+  /**
+   * A single frontend message; {@code id} is zero for messages sent
+   * before startup completes, which carry no identifier.
+   */
+  static class Message {
+
+    final byte id;
+    final ByteBuf body;
+
+    Message(byte id, ByteBuf body) {
+      this.id = id;
+      this.body = body;
+    }
+
+  }
+
+  /**
+   * Splits the inbound stream into {@link Message}s.
+   */
+  static class Decoder extends ByteToMessageDecoder {
+
+    private StubSession session;
+
+    Decoder(StubSession session) {
+      this.session = session;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+
+      int headerLength = session.awaitingStartup ? 4 : 5;
+      if (in.readableBytes() < headerLength) {
+        return;
+      }
+
+      int start = in.readerIndex();
+      byte id = session.awaitingStartup ? 0 : in.getByte(start);
+      int length = in.getInt(start + headerLength - 4);
+      if (in.readableBytes() < headerLength - 4 + length) {
+        return;
+      }
+
+      in.skipBytes(headerLength);
+      out.add(new Message(id, in.readRetainedSlice(length - 4)));
+    }
+
+  }
+
+  private static class Statement {
+
+    String sql;
+    int[] parameterTypes;
+    StubResult description;
+
+  }
+
+  private static class Portal {
+
+    String sql;
+    Statement statement;
+    Object[] parameters;
+    short[] resultFormats;
+    StubResult result;
+    long position;
+    boolean copy;
+
+  }
+
+  private static class Execution {
+
+    Portal portal;
+    long limit;
+    long sent;
+    boolean simple;
+
+  }
+
+  private StubServer server;
+  private int processId;
+  private ChannelHandlerContext ctx;
+  private boolean awaitingStartup = true;
+  private boolean awaitingPassword;
+  private String user;
+  private Map<String, String> startupParameters;
+  private boolean replication;
+  private Map<String, Statement> statements = new HashMap<>();
+  private Map<String, Portal> portals = new HashMap<>();
+  private Deque<Message> inbound = new ArrayDeque<>();
+  private Deque<String> simpleStatements = new ArrayDeque<>();
+  private Execution execution;
+  private boolean skipTillSync;
+  private boolean copyIn;
+  private long copyInRows;
+  private byte copyInLastByte;
+  private boolean copyBoth;
+  private byte transactionStatus = 'I';
+  private ByteBuf out;
+
+  StubSession(StubServer server, int processId) {
+    this.server = server;
+    this.processId = processId;
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) {
+    this.ctx = ctx;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    inbound.add((Message) msg);
+    process();
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+    if (ctx.channel().isWritable() && execution != null) {
+      process();
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) {
+    for (Message message : inbound) {
+      message.body.release();
+    }
+    inbound.clear();
+    if (out != null) {
+      out.release();
+      out = null;
+    }
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    ctx.close();
+  }
+
+  private void process() {
+
+    while (ctx.channel().isActive()) {
+
+      if (execution != null) {
+        if (!stream()) {
+          // Paused until the channel is writable again
+          ctx.channel().config().setAutoRead(false);
+          flushOutput();
+          return;
+        }
+        continue;
+      }
+
+      Message message = inbound.poll();
+      if (message == null) {
+        break;
+      }
+
+      try {
+        handle(message);
+      }
+      catch (RuntimeException e) {
+        error("XX000", e.toString());
+      }
+      finally {
+        message.body.release();
+      }
+    }
+
+    ctx.channel().config().setAutoRead(true);
+    flushOutput();
+  }
+
+  private void handle(Message message) {
+
+    ByteBuf body = message.body;
+
+    if (awaitingStartup) {
+      startup(body);
+      return;
+    }
+
+    if (awaitingPassword) {
+      password(body);
+      return;
+    }
+
+    if (copyIn) {
+      copy(message.id, body);
+      return;
+    }
+
+    if (copyBoth) {
+      replicate(message.id, body);
+      return;
+    }
+
+    if (skipTillSync && message.id != 'S') {
+      return;
+    }
+
+    if (replication && isExtendedQuery(message.id)) {
+      // Walsenders only accept the simple query protocol
+      extendedError("08P01", "extended query protocol not supported in a replication connection");
+      return;
+    }
+
+    switch (message.id) {
+      case 'Q':
+        query(readCString(body));
+        break;
+      case 'P':
+        parse(body);
+        break;
+      case 'B':
+        bind(body);
+        break;
+      case 'D':
+        describe(body.readByte(), readCString(body));
+        break;
+      case 'E':
+        execute(readCString(body), body.readInt());
+        break;
+      case 'C':
+        close(body.readByte(), readCString(body));
+        break;
+      case 'H':
+        flushOutput();
+        break;
+      case 'S':
+        sync();
+        break;
+      case 'X':
+        flushOutput();
+        ctx.close();
+        break;
+      default:
+        extendedError("0A000", "Stub server does not support message '" + (char) message.id + "'");
+        break;
+    }
+  }
+
+  /*
+   * Startup & authentication
+   */
+
+  private void startup(ByteBuf body) {
+
+    int code = body.readInt();
+    switch (code) {
+      case SSL_REQUEST_CODE:
+        ctx.writeAndFlush(ctx.alloc().buffer(1).writeByte('N'));
+        return;
+
+      case CANCEL_REQUEST_CODE:
+        ctx.close();
+        return;
+
+      case PROTOCOL_VERSION_3:
+        break;
+
+      default:
+        fatal("0A000", "Unsupported frontend protocol " + (code >> 16) + "." + (code & 0xffff));
+        return;
+    }
+
+    Map<String, String> parameters = new HashMap<>();
+    while (body.isReadable()) {
+      String name = readCString(body);
+      if (name.isEmpty()) {
+        break;
+      }
+      parameters.put(name, readCString(body));
+    }
+
+    awaitingStartup = false;
+    startupParameters = parameters;
+    user = parameters.getOrDefault("user", "");
+    replication = parameters.containsKey("replication");
+
+    if (server.getPassword() != null) {
+      // AuthenticationCleartextPassword
+      int msg = beginMessage('R');
+      out.writeInt(3);
+      endMessage(msg);
+      awaitingPassword = true;
+      return;
+    }
+
+    authenticated(parameters);
+  }
+
+  private void password(ByteBuf body) {
+
+    if (!server.getPassword().equals(readCString(body))) {
+      fatal("28P01", "password authentication failed for user \"" + user + "\"");
+      return;
+    }
+
+    awaitingPassword = false;
+
+    authenticated(startupParameters);
+  }
+
+  private void authenticated(Map<String, String> startupParameters) {
+
+    // AuthenticationOk
+    int msg = beginMessage('R');
+    out.writeInt(0);
+    endMessage(msg);
+
+    Map<String, String> parameterStatuses = new HashMap<>(server.getParameterStatuses());
+    parameterStatuses.put("session_authorization", user);
+    if (startupParameters.containsKey("application_name")) {
+      parameterStatuses.put("application_name", startupParameters.get("application_name"));
+    }
+
+    for (Map.Entry<String, String> parameterStatus : parameterStatuses.entrySet()) {
+      msg = beginMessage('S');
+      writeCString(parameterStatus.getKey());
+      writeCString(parameterStatus.getValue());
+      endMessage(msg);
+    }
+
+    msg = beginMessage('K');
+    out.writeInt(processId);
+    out.writeInt(processId * 31);
+    endMessage(msg);
+
+    readyForQuery();
+  }
+
+  /*
+   * Simple query protocol
+   */
+
+  private void query(String sql) {
+
+    List<String> statements = splitStatements(sql);
+    if (statements.isEmpty()) {
+      endMessage(beginMessage('I'));
+      readyForQuery();
+      return;
+    }
+
+    simpleStatements.addAll(statements);
+    nextSimpleStatement();
+  }
+
+  private void nextSimpleStatement() {
+
+    while (execution == null && !copyIn && !copyBoth) {
+
+      String sql = simpleStatements.poll();
+      if (sql == null) {
+        readyForQuery();
+        return;
+      }
+
+      String upperSql = sql.toUpperCase(Locale.ROOT);
+      boolean copy = upperSql.startsWith("COPY");
+      if (copy && upperSql.contains("FROM STDIN")) {
+        copyIn = true;
+        copyInRows = 0;
+        copyInLastByte = 0;
+        writeCopyResponse('G', 1);
+        return;
+      }
+
+      StubResult result = server.respond(sql, NO_PARAMETERS);
+      if (result.isError()) {
+        simpleStatements.clear();
+        error(result.getErrorCode(), result.getErrorMessage());
+        readyForQuery();
+        return;
+      }
+
+      if (result.isReplication()) {
+        startReplication(result);
+        return;
+      }
+
+      Portal portal = new Portal();
+      portal.sql = sql;
+      portal.result = result;
+      portal.resultFormats = new short[] {TEXT_FORMAT};
+      portal.copy = copy;
+
+      if (copy) {
+        writeCopyResponse('H', result.getColumns().length);
+      }
+      else if (result.hasRows()) {
+        writeRowDescription(result.getColumns(), portal.resultFormats);
+      }
+
+      startExecution(portal, 0, true);
+    }
+  }
+
+  private void copy(byte id, ByteBuf body) {
+
+    switch (id) {
+      case 'd':
+        if (body.isReadable()) {
+          copyInRows += countLines(body);
+          copyInLastByte = body.getByte(body.writerIndex() - 1);
+        }
+        break;
+
+      case 'c':
+        copyIn = false;
+        if (copyInLastByte != 0 && copyInLastByte != '\n') {
+          // Final row without a line terminator
+          copyInRows++;
+        }
+        commandComplete("COPY " + copyInRows);
+        nextSimpleStatement();
+        break;
+
+      case 'f':
+        copyIn = false;
+        simpleStatements.clear();
+        error("57014", "COPY from stdin failed: " + readCString(body));
+        readyForQuery();
+        break;
+
+      case 'H':
+      case 'S':
+        break;
+
+      default:
+        copyIn = false;
+        simpleStatements.clear();
+        error("08P01", "unexpected message type 0x" + Integer.toHexString(id) + " during COPY from stdin");
+        readyForQuery();
+        break;
+    }
+  }
+
+  /*
+   * Replication protocol
+   */
+
+  private void startReplication(StubResult result) {
+
+    copyBoth = true;
+    writeCopyResponse('W', 0);
+
+    long lsn = result.getReplicationStartLSN();
+    for (byte[] payload : result.getReplicationData()) {
+      // XLogData
+      int msg = beginMessage('d');
+      out.writeByte('w');
+      out.writeLong(lsn);
+      out.writeLong(lsn + payload.length);
+      out.writeLong(0);
+      out.writeBytes(payload);
+      endMessage(msg);
+      lsn += payload.length;
+    }
+  }
+
+  private void replicate(byte id, ByteBuf body) {
+
+    switch (id) {
+      case 'd':
+        // Standby status updates; nothing is tracked
+        break;
+
+      case 'c':
+        copyBoth = false;
+        endMessage(beginMessage('c'));
+        commandComplete("START_REPLICATION");
+        nextSimpleStatement();
+        break;
+
+      case 'H':
+      case 'S':
+        break;
+
+      default:
+        copyBoth = false;
+        simpleStatements.clear();
+        error("08P01", "unexpected message type 0x" + Integer.toHexString(id) + " during replication");
+        readyForQuery();
+        break;
+    }
+  }
+
+  /*
+   * Extended query protocol
+   */
+
+  private void parse(ByteBuf body) {
+
+    Statement statement = new Statement();
+    String name = readCString(body);
+    statement.sql = readCString(body);
+
+    int suggestedCount = body.readUnsignedShort();
+    int parameterCount = Math.max(suggestedCount, countParameters(statement.sql));
+    statement.parameterTypes = new int[parameterCount];
+    for (int paramIdx = 0; paramIdx < parameterCount; ++paramIdx) {
+      int type = paramIdx < suggestedCount ? body.readInt() : 0;
+      statement.parameterTypes[paramIdx] = type != 0 ? type : StubTypes.TEXT;
+    }
+
+    statement.description = server.respond(statement.sql, null);
+    if (statement.description.isError()) {
+      extendedError(statement.description.getErrorCode(), statement.description.getErrorMessage());
+      return;
+    }
+
+    statements.put(name, statement);
+
+    endMessage(beginMessage('1'));
+  }
+
+  private void bind(ByteBuf body) {
+
+    String portalName = readCString(body);
+    String statementName = readCString(body);
+
+    Statement statement = statements.get(statementName);
+    if (statement == null) {
+      extendedError("26000", "prepared statement \"" + statementName + "\" does not exist");
+      return;
+    }
+
+    short[] parameterFormats = readFormats(body);
+
+    Object[] parameters = new Object[body.readUnsignedShort()];
+    for (int paramIdx = 0; paramIdx < parameters.length; ++paramIdx) {
+      int length = body.readInt();
+      if (length < 0) {
+        continue;
+      }
+      ByteBuf value = body.readSlice(length);
+      short format = parameterFormats.length == 0 ? 0 : parameterFormats[parameterFormats.length == 1 ? 0 : paramIdx];
+      if (format == TEXT_FORMAT) {
+        parameters[paramIdx] = value.toString(UTF_8);
+      }
+      else {
+        int type = paramIdx < statement.parameterTypes.length ? statement.parameterTypes[paramIdx] : 0;
+        parameters[paramIdx] = StubTypes.decodeBinary(type, value);
+      }
+    }
+
+    Portal portal = new Portal();
+    portal.sql = statement.sql;
+    portal.statement = statement;
+    portal.parameters = parameters;
+    portal.resultFormats = readFormats(body);
+    portals.put(portalName, portal);
+
+    endMessage(beginMessage('2'));
+  }
+
+  private void describe(byte target, String name) {
+
+    if (target == 'S') {
+      Statement statement = statements.get(name);
+      if (statement == null) {
+        extendedError("26000", "prepared statement \"" + name + "\" does not exist");
+        return;
+      }
+
+      int msg = beginMessage('t');
+      out.writeShort(statement.parameterTypes.length);
+      for (int type : statement.parameterTypes) {
+        out.writeInt(type);
+      }
+      endMessage(msg);
+
+      writeRowDescription(statement.description, new short[0]);
+    }
+    else {
+      Portal portal = portals.get(name);
+      if (portal == null) {
+        extendedError("34000", "portal \"" + name + "\" does not exist");
+        return;
+      }
+
+      writeRowDescription(portal.statement.description, portal.resultFormats);
+    }
+  }
+
+  private void execute(String portalName, int maxRows) {
+
+    Portal portal = portals.get(portalName);
+    if (portal == null) {
+      extendedError("34000", "portal \"" + portalName + "\" does not exist");
+      return;
+    }
+
+    if (portal.result == null) {
+      portal.result = server.respond(portal.statement.sql, portal.parameters);
+      if (portal.result.isError()) {
+        extendedError(portal.result.getErrorCode(), portal.result.getErrorMessage());
+        return;
+      }
+    }
+
+    startExecution(portal, maxRows, false);
+  }
+
+  private void close(byte target, String name) {
+
+    if (target == 'S') {
+      statements.remove(name);
+    }
+    else {
+      portals.remove(name);
+    }
+
+    endMessage(beginMessage('3'));
+  }
+
+  private void sync() {
+
+    skipTillSync = false;
+    portals.remove("");
+
+    readyForQuery();
+  }
+
+  /*
+   * Result streaming
+   */
+
+  private void startExecution(Portal portal, int maxRows, boolean simple) {
+
+    execution = new Execution();
+    execution.portal = portal;
+    execution.limit = maxRows > 0 ? maxRows : Long.MAX_VALUE;
+    execution.simple = simple;
+  }
+
+  /**
+   * Streams rows of the current execution.
+   *
+   * @return {@code true} if the execution completed, {@code false} if it was
+   * paused because the channel is no longer writable.
+   */
+  private boolean stream() {
+
+    Portal portal = execution.portal;
+    boolean simple = execution.simple;
+    StubResult result = portal.result;
+    StubResult.Column[] columns = result.getColumns();
+
+    while (portal.position < result.getRowCount() && execution.sent < execution.limit) {
+
+      if (out != null && out.readableBytes() >= OUTPUT_CHUNK_SIZE) {
+        writeOutput();
+        if (!ctx.channel().isWritable()) {
+          return false;
+        }
+      }
+
+      if (portal.copy) {
+        writeCopyRow(result, portal.position, columns);
+      }
+      else {
+        writeDataRow(result, portal.position, columns, portal.resultFormats);
+      }
+
+      portal.position++;
+      execution.sent++;
+    }
+
+    execution = null;
+
+    if (portal.position < result.getRowCount()) {
+      endMessage(beginMessage('s'));
+      return true;
+    }
+
+    if (portal.copy) {
+      endMessage(beginMessage('c'));
+      commandComplete("COPY " + portal.position);
+    }
+    else {
+      commandComplete(result.getCommandTag(portal.position));
+    }
+
+    updateTransactionStatus(portal.sql, result);
+
+    if (simple) {
+      nextSimpleStatement();
+    }
+
+    return true;
+  }
+
+  private void updateTransactionStatus(String sql, StubResult result) {
+
+    if (result.hasRows()) {
+      return;
+    }
+
+    String tag = result.getCommandTag(0);
+    if (tag.equals("BEGIN") || tag.equals("START TRANSACTION")) {
+      transactionStatus = 'T';
+    }
+    else if (tag.equals("ROLLBACK") && sql.toUpperCase(Locale.ROOT).contains(" TO ")) {
+      // Rolling back to a savepoint leaves the transaction open
+      transactionStatus = 'T';
+    }
+    else if (tag.equals("COMMIT") || tag.equals("ROLLBACK")) {
+      transactionStatus = 'I';
+    }
+  }
+
+  /*
+   * Message writing
+   */
+
+  private void writeRowDescription(StubResult result, short[] formats) {
+
+    if (!result.hasRows()) {
+      endMessage(beginMessage('n'));
+      return;
+    }
+
+    writeRowDescription(result.getColumns(), formats);
+  }
+
+  private void writeRowDescription(StubResult.Column[] columns, short[] formats) {
+
+    int msg = beginMessage('T');
+    out.writeShort(columns.length);
+    for (int columnIdx = 0; columnIdx < columns.length; ++columnIdx) {
+      StubResult.Column column = columns[columnIdx];
+      writeCString(column.getName());
+      out.writeInt(0);
+      out.writeShort(0);
+      out.writeInt(column.getTypeOid());
+      out.writeShort(StubTypes.getLength(column.getTypeOid()));
+      out.writeInt(-1);
+      out.writeShort(format(formats, columnIdx));
+    }
+    endMessage(msg);
+  }
+
+  private void writeDataRow(StubResult result, long rowIdx, StubResult.Column[] columns, short[] formats) {
+
+    int msg = beginMessage('D');
+    out.writeShort(columns.length);
+    for (int columnIdx = 0; columnIdx < columns.length; ++columnIdx) {
+
+      Object value = result.getValue(rowIdx, columnIdx);
+      if (value == null) {
+        out.writeInt(-1);
+        continue;
+      }
+
+      int typeOid = columns[columnIdx].getTypeOid();
+
+      int lengthIdx = out.writerIndex();
+      out.writeInt(0);
+      if (format(formats, columnIdx) == TEXT_FORMAT) {
+        ByteBufUtil.writeUtf8(out, StubTypes.encodeText(typeOid, value));
+      }
+      else {
+        StubTypes.encodeBinary(typeOid, value, out);
+      }
+      out.setInt(lengthIdx, out.writerIndex() - lengthIdx - 4);
+    }
+    endMessage(msg);
+  }
+
+  private void writeCopyRow(StubResult result, long rowIdx, StubResult.Column[] columns) {
+
+    int msg = beginMessage('d');
+    for (int columnIdx = 0; columnIdx < columns.length; ++columnIdx) {
+      if (columnIdx != 0) {
+        out.writeByte('\t');
+      }
+      Object value = result.getValue(rowIdx, columnIdx);
+      if (value == null) {
+        out.writeByte('\\').writeByte('N');
+      }
+      else {
+        ByteBufUtil.writeUtf8(out, StubTypes.encodeText(columns[columnIdx].getTypeOid(), value));
+      }
+    }
+    out.writeByte('\n');
+    endMessage(msg);
+  }
+
+  private void writeCopyResponse(char id, int columnCount) {
+
+    int msg = beginMessage(id);
+    out.writeByte(0);
+    out.writeShort(columnCount);
+    for (int columnIdx = 0; columnIdx < columnCount; ++columnIdx) {
+      out.writeShort(0);
+    }
+    endMessage(msg);
+  }
+
+  private void commandComplete(String tag) {
+
+    int msg = beginMessage('C');
+    writeCString(tag);
+    endMessage(msg);
+  }
+
+  private void readyForQuery() {
+
+    int msg = beginMessage('Z');
+    out.writeByte(transactionStatus);
+    endMessage(msg);
+
+    flushOutput();
+  }
+
+  private void extendedError(String code, String message) {
+    error(code, message);
+    skipTillSync = true;
+  }
+
+  private void error(String code, String message) {
+
+    if (transactionStatus == 'T') {
+      transactionStatus = 'E';
+    }
+
+    writeError("ERROR", code, message);
+  }
+
+  private void fatal(String code, String message) {
+
+    writeError("FATAL", code, message);
+
+    flushOutput();
+    ctx.close();
+  }
+
+  private void writeError(String severity, String code, String message) {
+
+    int msg = beginMessage('E');
+    out.writeByte('S');
+    writeCString(severity);
+    out.writeByte('V');
+    writeCString(severity);
+    out.writeByte('C');
+    writeCString(code);
+    out.writeByte('M');
+    writeCString(message);
+    out.writeByte(0);
+    endMessage(msg);
+  }
+
+  private int beginMessage(char id) {
+
+    if (out == null) {
+      out = ctx.alloc().buffer(OUTPUT_CHUNK_SIZE + 1024);
+    }
+
+    out.writeByte(id);
+
+    int lengthIdx = out.writerIndex();
+    out.writeInt(0);
+
+    return lengthIdx;
+  }
+
+  private void endMessage(int lengthIdx) {
+    out.setInt(lengthIdx, out.writerIndex() - lengthIdx);
+  }
+
+  private void writeOutput() {
+    if (out != null) {
+      ctx.write(out, ctx.voidPromise());
+      out = null;
+    }
+  }
+
+  private void flushOutput() {
+    writeOutput();
+    ctx.flush();
+  }
+
+  /*
+   * Utilities
+   */
+
+  private void writeCString(String value) {
+    ByteBufUtil.writeUtf8(out, value);
+    out.writeByte(0);
+  }
+
+  private static String readCString(ByteBuf buffer) {
+    int end = buffer.bytesBefore((byte) 0);
+    String value = buffer.readCharSequence(end, UTF_8).toString();
+    buffer.skipBytes(1);
+    return value;
+  }
+
+  private static short[] readFormats(ByteBuf buffer) {
+    short[] formats = new short[buffer.readUnsignedShort()];
+    for (int formatIdx = 0; formatIdx < formats.length; ++formatIdx) {
+      formats[formatIdx] = buffer.readShort();
+    }
+    return formats;
+  }
+
+  private static short format(short[] formats, int columnIdx) {
+    if (formats.length == 0) {
+      return TEXT_FORMAT;
+    }
+    return formats[formats.length == 1 ? 0 : columnIdx];
+  }
+
+  private static boolean isExtendedQuery(byte id) {
+    return id == 'P' || id == 'B' || id == 'D' || id == 'E' || id == 'C';
+  }
+
+  private static long countLines(ByteBuf buffer) {
+    long lines = 0;
+    for (int idx = buffer.readerIndex(); idx < buffer.writerIndex(); ++idx) {
+      if (buffer.getByte(idx) == '\n') {
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Highest numbered {@code $n} placeholder outside of quoted text.
+   */
+  private static int countParameters(String sql) {
+
+    int count = 0;
+    char quote = 0;
+    for (int idx = 0; idx < sql.length(); ++idx) {
+      char ch = sql.charAt(idx);
+      if (quote != 0) {
+        if (ch == quote) {
+          quote = 0;
+        }
+      }
+      else if (ch == '\'' || ch == '"') {
+        quote = ch;
+      }
+      else if (ch == '$') {
+        int end = idx + 1;
+        while (end < sql.length() && Character.isDigit(sql.charAt(end))) {
+          end++;
+        }
+        if (end > idx + 1) {
+          count = Math.max(count, Integer.parseInt(sql.substring(idx + 1, end)));
+          idx = end - 1;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Splits a simple query into its statements at semicolons outside of
+   * quoted text, dropping empty statements.
+   */
+  private static List<String> splitStatements(String sql) {
+
+    List<String> statements = new ArrayList<>();
+    char quote = 0;
+    int start = 0;
+    for (int idx = 0; idx <= sql.length(); ++idx) {
+      char ch = idx < sql.length() ? sql.charAt(idx) : ';';
+      if (quote != 0) {
+        if (ch == quote) {
+          quote = 0;
+        }
+      }
+      else if (ch == '\'' || ch == '"') {
+        quote = ch;
+      }
+      else if (ch == ';') {
+        String statement = sql.substring(start, Math.min(idx, sql.length())).trim();
+        if (!statement.isEmpty()) {
+          statements.add(statement);
+        }
+        start = idx + 1;
+      }
+    }
+    return statements;
+  }
+
+}
@@ -0,0 +1,671 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.stub;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * Type catalog &amp; value codecs of the stub server.
+ *
+ * The catalog holds the built-in types the driver needs to bootstrap a
+ * connection plus the common scalar types (and their arrays). Values can
+ * be encoded in text &amp; binary format for the scalar types and arrays
+ * of them, given as (possibly nested) Java arrays or {@link List}s. A single
+ * composite type ({@code public.stub_composite}) is included, its values
+ * given as {@code Object[]} of attribute values.
+ */
+public class StubTypes {
+
+  public static final int BOOL = 16;
+  public static final int BYTEA = 17;
+  public static final int CHAR = 18;
+  public static final int NAME = 19;
+  public static final int INT8 = 20;
+  public static final int INT2 = 21;
+  public static final int INT4 = 23;
+  public static final int REGPROC = 24;
+  public static final int TEXT = 25;
+  public static final int OID = 26;
+  public static final int JSON = 114;
+  public static final int FLOAT4 = 700;
+  public static final int FLOAT8 = 701;
+  public static final int UNKNOWN = 705;
+  public static final int BPCHAR = 1042;
+  public static final int VARCHAR = 1043;
+  public static final int DATE = 1082;
+  public static final int TIME = 1083;
+  public static final int TIMESTAMP = 1114;
+  public static final int TIMESTAMPTZ = 1184;
+  public static final int INTERVAL = 1186;
+  public static final int NUMERIC = 1700;
+  public static final int RECORD = 2249;
+  public static final int VOID = 2278;
+  public static final int UUID_ = 2950;
+  public static final int JSONB = 3802;
+  public static final int COMPOSITE = 16386;
+
+  /**
+   * Row of the stub's "pg_type" catalog.
+   */
+  public static class TypeInfo {
+
+    final int oid;
+    final String name;
+    final short length;
+    final String discriminator;
+    final String category;
+    final int elementOid;
+    final int arrayOid;
+    final String input;
+    final String output;
+    final String receive;
+    final String send;
+    final String modIn;
+    final String modOut;
+    final String alignment;
+    final String namespace;
+    final int relationId;
+    final int[] attributeOids;
+
+    TypeInfo(int oid, String name, int length, String discriminator, String category, int elementOid, int arrayOid,
+             String input, String output, String receive, String send, String modIn, String modOut, String alignment) {
+      this(oid, name, length, discriminator, category, elementOid, arrayOid, input, output, receive, send, modIn, modOut,
+          alignment, "pg_catalog", 0, null);
+    }
+
+    TypeInfo(int oid, String name, int length, String discriminator, String category, int elementOid, int arrayOid,
+             String input, String output, String receive, String send, String modIn, String modOut, String alignment,
+             String namespace, int relationId, int[] attributeOids) {
+      this.oid = oid;
+      this.name = name;
+      this.length = (short) length;
+      this.discriminator = discriminator;
+      this.category = category;
+      this.elementOid = elementOid;
+      this.arrayOid = arrayOid;
+      this.input = input;
+      this.output = output;
+      this.receive = receive;
+      this.send = send;
+      this.modIn = modIn;
+      this.modOut = modOut;
+      this.alignment = alignment;
+      this.namespace = namespace;
+      this.relationId = relationId;
+      this.attributeOids = attributeOids;
+    }
+
+    public int getOid() {
+      return oid;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Produces the columns selected by the driver's type table query.
+     */
+    Object[] toTypeTableRow() {
+      return new Object[] {
+        oid, name, length, discriminator, category, ",", relationId, elementOid, arrayOid,
+        input, output, receive, send, modIn, modOut,
+        alignment, namespace, 0, -1, false, null, null
+      };
+    }
+
+  }
+
+  static final StubResult.Column[] TYPE_TABLE_COLUMNS = {
+    StubResult.column("oid", OID),
+    StubResult.column("typname", NAME),
+    StubResult.column("typlen", INT2),
+    StubResult.column("typtype", CHAR),
+    StubResult.column("typcategory", CHAR),
+    StubResult.column("typdelim", CHAR),
+    StubResult.column("typrelid", OID),
+    StubResult.column("typelem", OID),
+    StubResult.column("typarray", OID),
+    StubResult.column("typinput", TEXT),
+    StubResult.column("typoutput", TEXT),
+    StubResult.column("typreceive", TEXT),
+    StubResult.column("typsend", TEXT),
+    StubResult.column("typmodin", TEXT),
+    StubResult.column("typmodout", TEXT),
+    StubResult.column("typalign", CHAR),
+    StubResult.column("nspname", NAME),
+    StubResult.column("typbasetype", OID),
+    StubResult.column("typtypmod", INT4),
+    StubResult.column("typnotnull", BOOL),
+    StubResult.column("pg_get_expr", TEXT),
+    StubResult.column("rngsubtype", OID),
+  };
+
+  private static final Map<Integer, TypeInfo> TYPES_BY_OID = new HashMap<>();
+  private static final Map<String, TypeInfo> TYPES_BY_NAME = new HashMap<>();
+
+  static {
+    base(BOOL, "bool", 1, "B", 1000, "boolin", "boolout", "boolrecv", "boolsend", "c");
+    base(BYTEA, "bytea", -1, "U", 1001, "byteain", "byteaout", "bytearecv", "byteasend", "i");
+    base(CHAR, "char", 1, "S", 1002, "charin", "charout", "charrecv", "charsend", "c");
+    base(NAME, "name", 64, "S", 1003, "namein", "nameout", "namerecv", "namesend", "c");
+    base(INT8, "int8", 8, "N", 1016, "int8in", "int8out", "int8recv", "int8send", "d");
+    base(INT2, "int2", 2, "N", 1005, "int2in", "int2out", "int2recv", "int2send", "s");
+    base(INT4, "int4", 4, "N", 1007, "int4in", "int4out", "int4recv", "int4send", "i");
+    base(REGPROC, "regproc", 4, "N", 1008, "regprocin", "regprocout", "regprocrecv", "regprocsend", "i");
+    base(TEXT, "text", -1, "S", 1009, "textin", "textout", "textrecv", "textsend", "i");
+    base(OID, "oid", 4, "N", 1028, "oidin", "oidout", "oidrecv", "oidsend", "i");
+    base(JSON, "json", -1, "U", 199, "json_in", "json_out", "json_recv", "json_send", "i");
+    base(FLOAT4, "float4", 4, "N", 1021, "float4in", "float4out", "float4recv", "float4send", "i");
+    base(FLOAT8, "float8", 8, "N", 1022, "float8in", "float8out", "float8recv", "float8send", "d");
+    base(BPCHAR, "bpchar", -1, "S", 1014, "bpcharin", "bpcharout", "bpcharrecv", "bpcharsend", "bpchartypmodin", "bpchartypmodout", "i");
+    base(VARCHAR, "varchar", -1, "S", 1015, "varcharin", "varcharout", "varcharrecv", "varcharsend", "varchartypmodin", "varchartypmodout", "i");
+    base(DATE, "date", 4, "D", 1182, "date_in", "date_out", "date_recv", "date_send", "i");
+    base(TIME, "time", 8, "D", 1183, "time_in", "time_out", "time_recv", "time_send", "timetypmodin", "timetypmodout", "d");
+    base(TIMESTAMP, "timestamp", 8, "D", 1115, "timestamp_in", "timestamp_out", "timestamp_recv", "timestamp_send", "timestamptypmodin", "timestamptypmodout", "d");
+    base(TIMESTAMPTZ, "timestamptz", 8, "D", 1185, "timestamptz_in", "timestamptz_out", "timestamptz_recv", "timestamptz_send", "timestamptztypmodin", "timestamptztypmodout", "d");
+    base(INTERVAL, "interval", 16, "T", 1187, "interval_in", "interval_out", "interval_recv", "interval_send", "intervaltypmodin", "intervaltypmodout", "d");
+    base(NUMERIC, "numeric", -1, "N", 1231, "numeric_in", "numeric_out", "numeric_recv", "numeric_send", "numerictypmodin", "numerictypmodout", "i");
+    base(UUID_, "uuid", 16, "U", 2951, "uuid_in", "uuid_out", "uuid_recv", "uuid_send", "c");
+    base(JSONB, "jsonb", -1, "U", 3807, "jsonb_in", "jsonb_out", "jsonb_recv", "jsonb_send", "i");
+    add(new TypeInfo(UNKNOWN, "unknown", -2, "p", "X", 0, 0, "unknownin", "unknownout", "unknownrecv", "unknownsend", "-", "-", "c"));
+    add(new TypeInfo(VOID, "void", 4, "p", "P", 0, 0, "void_in", "void_out", "void_recv", "void_send", "-", "-", "i"));
+    add(new TypeInfo(RECORD, "record", -1, "p", "P", 0, 2287, "record_in", "record_out", "record_recv", "record_send", "-", "-", "d"));
+    add(new TypeInfo(2287, "_record", -1, "p", "P", RECORD, 0, "array_in", "array_out", "array_recv", "array_send", "-", "-", "d"));
+    // public.stub_composite (id int4, name text, tags text[])
+    add(new TypeInfo(COMPOSITE, "stub_composite", -1, "c", "C", 0, 0, "record_in", "record_out", "record_recv", "record_send", "-", "-", "d",
+        "public", 16384, new int[] {INT4, TEXT, 1009}));
+  }
+
+  private static void base(int oid, String name, int length, String category, int arrayOid,
+                           String input, String output, String receive, String send, String alignment) {
+    base(oid, name, length, category, arrayOid, input, output, receive, send, "-", "-", alignment);
+  }
+
+  private static void base(int oid, String name, int length, String category, int arrayOid,
+                           String input, String output, String receive, String send, String modIn, String modOut,
+                           String alignment) {
+    add(new TypeInfo(oid, name, length, "b", category, 0, arrayOid, input, output, receive, send, modIn, modOut, alignment));
+    add(new TypeInfo(arrayOid, "_" + name, -1, "b", "A", oid, 0, "array_in", "array_out", "array_recv", "array_send",
+        modIn, modOut, alignment.equals("d") ? "d" : "i"));
+  }
+
+  private static void add(TypeInfo typeInfo) {
+    TYPES_BY_OID.put(typeInfo.oid, typeInfo);
+    TYPES_BY_NAME.put(typeInfo.name, typeInfo);
+  }
+
+  private static final long PG_EPOCH_SECONDS = 946684800L;
+  private static final long PG_EPOCH_DAYS = 10957L;
+  private static final int NUMERIC_NEG = 0x4000;
+
+  private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+      .append(DateTimeFormatter.ISO_LOCAL_DATE)
+      .appendLiteral(' ')
+      .appendPattern("HH:mm:ss")
+      .optionalStart()
+      .appendFraction(ChronoField.MICRO_OF_SECOND, 0, 6, true)
+      .toFormatter();
+
+  private StubTypes() {
+  }
+
+  public static TypeInfo getType(int oid) {
+    return TYPES_BY_OID.get(oid);
+  }
+
+  /**
+   * Looks up a type by name, accepting names qualified with the
+   * {@code pg_catalog} schema and quoted names.
+   */
+  public static TypeInfo getType(String name) {
+    name = name.trim();
+    if (name.startsWith("pg_catalog.")) {
+      name = name.substring("pg_catalog.".length());
+    }
+    else if (name.startsWith("public.")) {
+      name = name.substring("public.".length());
+    }
+    if (name.startsWith("\"") && name.endsWith("\"")) {
+      name = name.substring(1, name.length() - 1);
+    }
+    return TYPES_BY_NAME.get(name);
+  }
+
+  /**
+   * OID of the array type whose elements are of type {@code elementOid}.
+   */
+  public static int arrayOf(int elementOid) {
+    return TYPES_BY_OID.get(elementOid).arrayOid;
+  }
+
+  private static int elementOf(int oid) {
+    TypeInfo typeInfo = TYPES_BY_OID.get(oid);
+    return typeInfo != null && typeInfo.category.equals("A") ? typeInfo.elementOid : 0;
+  }
+
+  private static int[] attributesOf(int oid) {
+    TypeInfo typeInfo = TYPES_BY_OID.get(oid);
+    return typeInfo != null ? typeInfo.attributeOids : null;
+  }
+
+  private static List<?> toList(Object array) {
+    if (array instanceof List) {
+      return (List<?>) array;
+    }
+    List<Object> elements = new ArrayList<>();
+    for (int idx = 0, length = Array.getLength(array); idx < length; ++idx) {
+      elements.add(Array.get(array, idx));
+    }
+    return elements;
+  }
+
+  public static List<TypeInfo> getTypes() {
+    List<TypeInfo> types = new ArrayList<>(TYPES_BY_OID.values());
+    types.sort((a, b) -> Integer.compare(a.oid, b.oid));
+    return Collections.unmodifiableList(types);
+  }
+
+  static short getLength(int oid) {
+    TypeInfo typeInfo = TYPES_BY_OID.get(oid);
+    return typeInfo != null ? typeInfo.length : -1;
+  }
+
+  static boolean isText(int oid) {
+    switch (oid) {
+      case TEXT:
+      case NAME:
+      case CHAR:
+      case BPCHAR:
+      case VARCHAR:
+      case JSON:
+      case UNKNOWN:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Encodes a non-null value in text format.
+   */
+  static String encodeText(int oid, Object value) {
+    int elementOid = elementOf(oid);
+    if (elementOid != 0) {
+      StringBuilder text = new StringBuilder("{");
+      for (Object element : toList(value)) {
+        if (text.length() > 1) {
+          text.append(',');
+        }
+        if (element == null) {
+          text.append("NULL");
+        }
+        else if (isNested(element)) {
+          text.append(encodeText(oid, element));
+        }
+        else if (isText(elementOid)) {
+          text.append('"').append(encodeText(elementOid, element).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        else {
+          text.append(encodeText(elementOid, element));
+        }
+      }
+      return text.append('}').toString();
+    }
+    int[] attributeOids = attributesOf(oid);
+    if (attributeOids != null) {
+      Object[] attributes = (Object[]) value;
+      StringBuilder text = new StringBuilder("(");
+      for (int attributeIdx = 0; attributeIdx < attributes.length; ++attributeIdx) {
+        if (attributeIdx > 0) {
+          text.append(',');
+        }
+        if (attributes[attributeIdx] != null) {
+          String attributeText = encodeText(attributeOids[attributeIdx], attributes[attributeIdx]);
+          text.append('"').append(attributeText.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+      }
+      return text.append(')').toString();
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value ? "t" : "f";
+    }
+    if (value instanceof byte[]) {
+      return "\\x" + ByteBufUtil.hexDump((byte[]) value);
+    }
+    if (value instanceof LocalDateTime) {
+      return TIMESTAMP_FORMAT.format((LocalDateTime) value);
+    }
+    if (value instanceof OffsetDateTime) {
+      return TIMESTAMP_FORMAT.format(((OffsetDateTime) value).withOffsetSameInstant(ZoneOffset.UTC)) + "+00";
+    }
+    if (value instanceof Instant) {
+      return TIMESTAMP_FORMAT.format(LocalDateTime.ofInstant((Instant) value, ZoneOffset.UTC)) + "+00";
+    }
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    }
+    return value.toString();
+  }
+
+  /**
+   * Encodes a non-null value in binary format.
+   *
+   * @throws IllegalArgumentException If binary encoding is not supported for the type
+   */
+  static void encodeBinary(int oid, Object value, ByteBuf buffer) {
+    switch (oid) {
+      case BOOL:
+        buffer.writeByte((Boolean) value ? 1 : 0);
+        break;
+      case INT2:
+        buffer.writeShort(((Number) value).shortValue());
+        break;
+      case INT4:
+      case OID:
+      case REGPROC:
+        buffer.writeInt(((Number) value).intValue());
+        break;
+      case INT8:
+        buffer.writeLong(((Number) value).longValue());
+        break;
+      case FLOAT4:
+        buffer.writeFloat(((Number) value).floatValue());
+        break;
+      case FLOAT8:
+        buffer.writeDouble(((Number) value).doubleValue());
+        break;
+      case BYTEA:
+        buffer.writeBytes((byte[]) value);
+        break;
+      case UUID_:
+        UUID uuid = (UUID) value;
+        buffer.writeLong(uuid.getMostSignificantBits());
+        buffer.writeLong(uuid.getLeastSignificantBits());
+        break;
+      case DATE:
+        buffer.writeInt((int) (((LocalDate) value).toEpochDay() - PG_EPOCH_DAYS));
+        break;
+      case TIMESTAMP:
+        buffer.writeLong(toPgMicros(((LocalDateTime) value).toInstant(ZoneOffset.UTC)));
+        break;
+      case TIMESTAMPTZ:
+        buffer.writeLong(toPgMicros(value instanceof Instant ? (Instant) value : ((OffsetDateTime) value).toInstant()));
+        break;
+      case NUMERIC:
+        encodeNumeric(new BigDecimal(value.toString()), buffer);
+        break;
+      case JSONB:
+        buffer.writeByte(1);
+        ByteBufUtil.writeUtf8(buffer, value.toString());
+        break;
+      default:
+        int elementOid = elementOf(oid);
+        if (elementOid != 0) {
+          encodeBinaryArray(elementOid, toList(value), buffer);
+          break;
+        }
+        if (attributesOf(oid) != null) {
+          encodeBinaryRecord(attributesOf(oid), (Object[]) value, buffer);
+          break;
+        }
+        if (!isText(oid)) {
+          throw new IllegalArgumentException("Binary encoding not supported for type " + oid);
+        }
+        ByteBufUtil.writeUtf8(buffer, value.toString());
+        break;
+    }
+  }
+
+  /**
+   * Decodes a bound parameter value; types the stub does not know are
+   * returned as raw bytes.
+   */
+  static Object decodeBinary(int oid, ByteBuf buffer) {
+    switch (oid) {
+      case BOOL:
+        return buffer.readByte() != 0;
+      case INT2:
+        return buffer.readShort();
+      case INT4:
+      case OID:
+      case REGPROC:
+        return buffer.readInt();
+      case INT8:
+        return buffer.readLong();
+      case FLOAT4:
+        return buffer.readFloat();
+      case FLOAT8:
+        return buffer.readDouble();
+      case UUID_:
+        return new UUID(buffer.readLong(), buffer.readLong());
+      case DATE:
+        return LocalDate.ofEpochDay(buffer.readInt() + PG_EPOCH_DAYS);
+      case TIMESTAMP:
+        return LocalDateTime.ofInstant(fromPgMicros(buffer.readLong()), ZoneOffset.UTC);
+      case TIMESTAMPTZ:
+        return OffsetDateTime.ofInstant(fromPgMicros(buffer.readLong()), ZoneOffset.UTC);
+      case NUMERIC:
+        return decodeNumeric(buffer);
+      case JSONB:
+        buffer.skipBytes(1);
+        return buffer.toString(UTF_8);
+      default:
+        if (elementOf(oid) != 0) {
+          return decodeBinaryArray(buffer);
+        }
+        if (attributesOf(oid) != null) {
+          return decodeBinaryRecord(buffer);
+        }
+        if (isText(oid)) {
+          return buffer.toString(UTF_8);
+        }
+        return ByteBufUtil.getBytes(buffer);
+    }
+  }
+
+  private static boolean isNested(Object element) {
+    return element instanceof List || (element != null && element.getClass().isArray() && !(element instanceof byte[]));
+  }
+
+  private static void encodeBinaryArray(int elementOid, List<?> elements, ByteBuf buffer) {
+    List<Integer> dimensions = new ArrayList<>();
+    List<Object> flattened = new ArrayList<>();
+    if (!elements.isEmpty()) {
+      dimensions.add(elements.size());
+      for (Object first = elements.get(0); isNested(first); first = toList(first).isEmpty() ? null : toList(first).get(0)) {
+        dimensions.add(toList(first).size());
+      }
+    }
+    flatten(elements, dimensions.size(), flattened);
+    buffer.writeInt(dimensions.size());
+    buffer.writeInt(flattened.contains(null) ? 1 : 0);
+    buffer.writeInt(elementOid);
+    for (int dimension : dimensions) {
+      buffer.writeInt(dimension);
+      buffer.writeInt(1);
+    }
+    for (Object element : flattened) {
+      if (element == null) {
+        buffer.writeInt(-1);
+        continue;
+      }
+      int lengthIdx = buffer.writerIndex();
+      buffer.writeInt(0);
+      encodeBinary(elementOid, element, buffer);
+      buffer.setInt(lengthIdx, buffer.writerIndex() - lengthIdx - 4);
+    }
+  }
+
+  private static void flatten(List<?> elements, int dimensionCount, List<Object> flattened) {
+    for (Object element : elements) {
+      if (dimensionCount > 1) {
+        flatten(toList(element), dimensionCount - 1, flattened);
+      }
+      else {
+        flattened.add(element);
+      }
+    }
+  }
+
+  private static List<Object> decodeBinaryArray(ByteBuf buffer) {
+    int dimensionCount = buffer.readInt();
+    buffer.skipBytes(4);
+    int elementOid = buffer.readInt();
+    int count = 1;
+    for (int dimension = 0; dimension < dimensionCount; ++dimension) {
+      count *= buffer.readInt();
+      buffer.skipBytes(4);
+    }
+    List<Object> elements = new ArrayList<>(dimensionCount == 0 ? 0 : count);
+    for (int idx = 0; idx < count && dimensionCount > 0; ++idx) {
+      int length = buffer.readInt();
+      elements.add(length < 0 ? null : decodeBinary(elementOid, buffer.readSlice(length)));
+    }
+    return elements;
+  }
+
+  private static void encodeBinaryRecord(int[] attributeOids, Object[] attributes, ByteBuf buffer) {
+    buffer.writeInt(attributes.length);
+    for (int attributeIdx = 0; attributeIdx < attributes.length; ++attributeIdx) {
+      buffer.writeInt(attributeOids[attributeIdx]);
+      if (attributes[attributeIdx] == null) {
+        buffer.writeInt(-1);
+        continue;
+      }
+      int lengthIdx = buffer.writerIndex();
+      buffer.writeInt(0);
+      encodeBinary(attributeOids[attributeIdx], attributes[attributeIdx], buffer);
+      buffer.setInt(lengthIdx, buffer.writerIndex() - lengthIdx - 4);
+    }
+  }
+
+  private static Object[] decodeBinaryRecord(ByteBuf buffer) {
+    Object[] attributes = new Object[buffer.readInt()];
+    for (int attributeIdx = 0; attributeIdx < attributes.length; ++attributeIdx) {
+      int attributeOid = buffer.readInt();
+      int length = buffer.readInt();
+      attributes[attributeIdx] = length < 0 ? null : decodeBinary(attributeOid, buffer.readSlice(length));
+    }
+    return attributes;
+  }
+
+  private static long toPgMicros(Instant instant) {
+    return (instant.getEpochSecond() - PG_EPOCH_SECONDS) * 1_000_000L + instant.getNano() / 1000;
+  }
+
+  private static Instant fromPgMicros(long micros) {
+    return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L) + PG_EPOCH_SECONDS, Math.floorMod(micros, 1_000_000L) * 1000);
+  }
+
+  private static void encodeNumeric(BigDecimal value, ByteBuf buffer) {
+
+    int dscale = Math.max(value.scale(), 0);
+    String plain = value.abs().setScale(dscale).toPlainString();
+
+    int point = plain.indexOf('.');
+    String integral = point < 0 ? plain : plain.substring(0, point);
+    String fraction = point < 0 ? "" : plain.substring(point + 1);
+
+    // Align both parts on base 10000 digit boundaries
+    StringBuilder digitsText = new StringBuilder();
+    for (int pad = (4 - integral.length() % 4) % 4; pad > 0; --pad) {
+      digitsText.append('0');
+    }
+    digitsText.append(integral);
+    int integralDigits = digitsText.length() / 4;
+    digitsText.append(fraction);
+    while (digitsText.length() % 4 != 0) {
+      digitsText.append('0');
+    }
+
+    List<Short> digits = new ArrayList<>();
+    for (int idx = 0; idx < digitsText.length(); idx += 4) {
+      digits.add(Short.parseShort(digitsText.substring(idx, idx + 4)));
+    }
+
+    int weight = integralDigits - 1;
+    while (!digits.isEmpty() && digits.get(0) == 0) {
+      digits.remove(0);
+      weight--;
+    }
+    while (!digits.isEmpty() && digits.get(digits.size() - 1) == 0) {
+      digits.remove(digits.size() - 1);
+    }
+    if (digits.isEmpty()) {
+      weight = 0;
+    }
+
+    buffer.writeShort(digits.size());
+    buffer.writeShort(weight);
+    buffer.writeShort(value.signum() < 0 ? NUMERIC_NEG : 0);
+    buffer.writeShort(dscale);
+    for (short digit : digits) {
+      buffer.writeShort(digit);
+    }
+  }
+
+  private static BigDecimal decodeNumeric(ByteBuf buffer) {
+
+    int digitCount = buffer.readUnsignedShort();
+    int weight = buffer.readShort();
+    int sign = buffer.readUnsignedShort();
+    int dscale = buffer.readUnsignedShort();
+
+    BigInteger unscaled = BigInteger.ZERO;
+    for (int idx = 0; idx < digitCount; ++idx) {
+      unscaled = unscaled.multiply(BigInteger.valueOf(10000)).add(BigInteger.valueOf(buffer.readShort()));
+    }
+
+    BigDecimal value = new BigDecimal(unscaled).scaleByPowerOfTen((weight - digitCount + 1) * 4).setScale(dscale);
+    return sign == NUMERIC_NEG ? value.negate() : value;
+  }
+
+}
@@ -0,0 +1,175 @@
+package com.impossibl.jdbc.spy;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-method call latency statistics.
+ *
+ * Statistics are recorded into a single buffer preallocated for all methods
+ * (see {@link Methods}); recording a call is a handful of atomic updates and
+ * never allocates. Latencies are kept in a log2 histogram of microseconds,
+ * percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyStatistics {
+
+  static final int BUCKETS = 32;
+
+  private static final int COUNT = 0;
+  private static final int FAILURES = 1;
+  private static final int TOTAL = 2;
+  private static final int MAX = 3;
+  private static final int HISTOGRAM = 4;
+  private static final int STRIDE = HISTOGRAM + BUCKETS;
+
+  public static class Summary {
+
+    private String method;
+    private long count;
+    private long failures;
+    private long totalNanos;
+    private long maxNanos;
+    private long p50Nanos;
+    private long p99Nanos;
+
+    Summary(String method, long count, long failures, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+      this.method = method;
+      this.count = count;
+      this.failures = failures;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.p50Nanos = p50Nanos;
+      this.p99Nanos = p99Nanos;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMeanNanos() {
+      return count != 0 ? totalNanos / count : 0;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getP50Nanos() {
+      return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+      return p99Nanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%s count=%d failures=%d total=%.3fms mean=%.3fms p50<=%.3fms p99<=%.3fms max=%.3fms",
+          method, count, failures, millis(totalNanos), millis(getMeanNanos()), millis(p50Nanos), millis(p99Nanos), millis(maxNanos));
+    }
+
+  }
+
+  private AtomicLongArray stats;
+
+  public LatencyStatistics() {
+    this.stats = new AtomicLongArray(Methods.getCount() * STRIDE);
+  }
+
+  /**
+   * Records a single call.
+   *
+   * @param methodId Id of the called method
+   * @param elapsedNanos Duration of the call
+   * @param failed {@code true} if the call threw
+   */
+  public void record(int methodId, long elapsedNanos, boolean failed) {
+    int base = methodId * STRIDE;
+    stats.incrementAndGet(base + COUNT);
+    if (failed) {
+      stats.incrementAndGet(base + FAILURES);
+    }
+    stats.addAndGet(base + TOTAL, elapsedNanos);
+    long max;
+    do {
+      max = stats.get(base + MAX);
+    }
+    while (elapsedNanos > max && !stats.compareAndSet(base + MAX, max, elapsedNanos));
+    stats.incrementAndGet(base + HISTOGRAM + bucket(elapsedNanos));
+  }
+
+  /**
+   * @return Summaries of all called methods, ordered by total time spent
+   */
+  public List<Summary> getSummaries() {
+    List<Summary> summaries = new ArrayList<>();
+    for (int methodId = 0; methodId < Methods.getCount(); ++methodId) {
+      int base = methodId * STRIDE;
+      long count = stats.get(base + COUNT);
+      if (count == 0) continue;
+      summaries.add(new Summary(Methods.getName(methodId), count, stats.get(base + FAILURES), stats.get(base + TOTAL),
+          stats.get(base + MAX), percentile(base, count, 0.50), percentile(base, count, 0.99)));
+    }
+    summaries.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+    return summaries;
+  }
+
+  /**
+   * Writes all summaries, one per line.
+   */
+  public void writeTo(Writer out) throws IOException {
+    for (Summary summary : getSummaries()) {
+      out.append(summary.toString()).append('\n');
+    }
+    out.flush();
+  }
+
+  public void reset() {
+    for (int c = 0; c < stats.length(); ++c) {
+      stats.set(c, 0);
+    }
+  }
+
+  private long percentile(int base, long count, double percentile) {
+    long rank = (long) Math.ceil(count * percentile);
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+      seen += stats.get(base + HISTOGRAM + bucket);
+      if (seen >= rank) {
+        return TimeUnit.MICROSECONDS.toNanos(1L << (bucket + 1));
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Bucket {@code n} holds latencies less than {@code 2^(n+1)} microseconds.
+   */
+  static int bucket(long elapsedNanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+    if (micros <= 1) return 0;
+    return Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+}
@@ -0,0 +1,37 @@
+package com.impossibl.jdbc.spy;
+
+/**
+ * Common base of all generated Listener interfaces.
+ *
+ * Relays call {@link #enter(int)} before, and {@link #exit(int, long, Throwable)}
+ * after, each call to their target. The method specific listener callback is
+ * only invoked when {@code exit} returns {@code true}; allowing listeners to
+ * skip the cost of the callback (and its parameters) for uninteresting calls.
+ *
+ * Method ids can be resolved to names using {@link Methods#getName(int)}.
+ */
+public interface Listener {
+
+  /**
+   * Called before a relayed call.
+   *
+   * @param methodId Id of the called method
+   * @return Value passed to {@link #exit(int, long, Throwable)}
+   */
+  default long enter(int methodId) {
+    return 0;
+  }
+
+  /**
+   * Called after a relayed call.
+   *
+   * @param methodId Id of the called method
+   * @param entered Value returned from {@link #enter(int)}
+   * @param cause Exception thrown by the call or {@code null} if it succeeded
+   * @return {@code true} if the method specific listener callback should be invoked
+   */
+  default boolean exit(int methodId, long entered, Throwable cause) {
+    return true;
+  }
+
+}
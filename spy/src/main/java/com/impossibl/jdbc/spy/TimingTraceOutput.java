@@ -0,0 +1,132 @@
+package com.impossibl.jdbc.spy;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Low overhead tracer that times calls and only traces those that are slow
+ * or fail.
+ *
+ * Each sampled call records its method, elapsed time and outcome into the
+ * shared {@link #getStatistics() statistics}; the trace, including its
+ * parameters, is only built when the call exceeds the slow threshold or
+ * throws.
+ *
+ * Properties (in addition to those of {@link FileTraceOutput}):
+ *
+ * <ul>
+ *   <li>{@code spy.tracer.sample} - Time 1 in N calls (default 1)</li>
+ *   <li>{@code spy.tracer.slow} - Threshold, in milliseconds, for tracing a call (default 100)</li>
+ *   <li>{@code spy.tracer.summary} - Destination ({@code @out}, {@code @err} or file name) of the
+ *   per-method latency summary, written at JVM shutdown</li>
+ * </ul>
+ */
+public class TimingTraceOutput extends FileTraceOutput {
+
+  private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  private static final LatencyStatistics STATISTICS = new LatencyStatistics();
+  private static final AtomicBoolean SUMMARY_HOOK_INSTALLED = new AtomicBoolean();
+  private static final ThreadLocal<long[]> ELAPSED = ThreadLocal.withInitial(() -> new long[1]);
+
+  private int sampleRate;
+  private long slowNanos;
+
+  public TimingTraceOutput(Properties info) throws SQLException {
+    super(info);
+
+    this.sampleRate = Math.max(Integer.parseInt(getProperty(info, "spy.tracer.sample", "1")), 1);
+    this.slowNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(getProperty(info, "spy.tracer.slow", "100")));
+
+    String summary = getProperty(info, "spy.tracer.summary", null);
+    if (summary != null && SUMMARY_HOOK_INSTALLED.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> writeSummary(summary), "SPY Latency Summary"));
+    }
+  }
+
+  /**
+   * @return Latency statistics of all calls timed by any instance
+   */
+  public static LatencyStatistics getStatistics() {
+    return STATISTICS;
+  }
+
+  @Override
+  public long enter(int methodId) {
+    if (sampleRate != 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+      return NOT_SAMPLED;
+    }
+    return System.nanoTime();
+  }
+
+  @Override
+  public boolean exit(int methodId, long entered, Throwable cause) {
+    if (entered == NOT_SAMPLED) {
+      if (cause == null) return false;
+      ELAPSED.get()[0] = -1;
+      return true;
+    }
+
+    long elapsed = System.nanoTime() - entered;
+    STATISTICS.record(methodId, elapsed, cause != null);
+
+    if (cause == null && elapsed < slowNanos) return false;
+    ELAPSED.get()[0] = elapsed;
+    return true;
+  }
+
+  @Override
+  public void trace(Trace trace) {
+    // Called directly after exit, on the same thread
+    long elapsed = ELAPSED.get()[0];
+    String line = trace.toString();
+    if (elapsed >= 0) {
+      line += String.format(Locale.ROOT, " elapsed(%.3fms)", elapsed / 1_000_000.0);
+    }
+    try {
+      synchronized (out) {
+        out.append(line).append("\n").flush();
+      }
+    }
+    catch (IOException ignored) {
+    }
+  }
+
+  private static String getProperty(Properties info, String name, String def) {
+    String value = info.getProperty(name, System.getProperty(name, def));
+    info.remove(name);
+    return value;
+  }
+
+  private static void writeSummary(String destination) {
+    try {
+      Writer out;
+      switch (destination) {
+        case "@out":
+          out = new OutputStreamWriter(System.out);
+          break;
+        case "@err":
+          out = new OutputStreamWriter(System.err);
+          break;
+        default:
+          out = new OutputStreamWriter(new FileOutputStream(destination));
+          break;
+      }
+      STATISTICS.writeTo(out);
+      if (!destination.startsWith("@")) {
+        out.close();
+      }
+    }
+    catch (IOException ignored) {
+    }
+  }
+
+}
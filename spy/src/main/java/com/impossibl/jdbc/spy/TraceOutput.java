@@ -4,4 +4,18 @@ public interface TraceOutput {
 
   void trace(Trace trace);
 
+  /**
+   * @see Listener#enter(int)
+   */
+  default long enter(int methodId) {
+    return 0;
+  }
+
+  /**
+   * @see Listener#exit(int, long, Throwable)
+   */
+  default boolean exit(int methodId, long entered, Throwable cause) {
+    return true;
+  }
+
 }
@@ -0,0 +1,85 @@
+package com.impossibl.jdbc.spy;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingTraceOutputTest {
+
+  private static Connection target() {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "isValid":
+          Thread.sleep((Integer) args[0]);
+          return true;
+        case "nativeSQL":
+          throw new SQLException("failed");
+        default:
+          return null;
+      }
+    });
+  }
+
+  @Test
+  public void testOnlySlowAndFailedCallsAreTraced() throws Exception {
+
+    TimingTraceOutput.getStatistics().reset();
+
+    File file = File.createTempFile("spy", ".trace");
+    try {
+      Properties info = new Properties();
+      info.setProperty("spy.tracer.file", file.getPath());
+      info.setProperty("spy.tracer.slow", "10");
+
+      Connection connection = new ConnectionRelay(target(), new ConnectionTracer(new TimingTraceOutput(info)));
+
+      connection.isValid(0);
+      connection.isValid(0);
+      connection.isValid(25);
+      assertThrows(SQLException.class, () -> connection.nativeSQL("SELECT 1"));
+
+      List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+      assertEquals(2, lines.size());
+      assertTrue(lines.get(0).startsWith("Connection.isValid(timeout=25) returned(true) elapsed("));
+      assertTrue(lines.get(1).startsWith("Connection.nativeSQL(sql=SELECT 1) threw SQLException(failed)"));
+    }
+    finally {
+      file.delete();
+    }
+
+    List<LatencyStatistics.Summary> summaries = TimingTraceOutput.getStatistics().getSummaries();
+    assertEquals(2, summaries.size());
+
+    LatencyStatistics.Summary isValid = summaries.get(0);
+    assertEquals("Connection.isValid(int)", isValid.getMethod());
+    assertEquals(3, isValid.getCount());
+    assertEquals(0, isValid.getFailures());
+    assertTrue(isValid.getMaxNanos() >= 25_000_000L);
+
+    LatencyStatistics.Summary nativeSQL = summaries.get(1);
+    assertEquals("Connection.nativeSQL(String)", nativeSQL.getMethod());
+    assertEquals(1, nativeSQL.getFailures());
+  }
+
+  @Test
+  public void testBuckets() {
+    assertEquals(0, LatencyStatistics.bucket(500));
+    assertEquals(0, LatencyStatistics.bucket(1_999));
+    assertEquals(1, LatencyStatistics.bucket(2_000));
+    assertEquals(9, LatencyStatistics.bucket(1_000_000));
+    assertEquals(LatencyStatistics.BUCKETS - 1, LatencyStatistics.bucket(Long.MAX_VALUE));
+  }
+
+}
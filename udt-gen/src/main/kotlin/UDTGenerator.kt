@@ -3,10 +3,13 @@ package com.impossibl.postgres.tools
 import com.impossibl.postgres.api.jdbc.PGAnyType
 import com.impossibl.postgres.api.jdbc.PGConnection
 import com.impossibl.postgres.api.jdbc.PGType
+import com.impossibl.postgres.system.procs.ProcProvider
+import com.impossibl.postgres.system.procs.RecordProcProvider
 import com.impossibl.postgres.types.QualifiedName
 import com.squareup.javapoet.*
 import com.xenomachina.argparser.*
 import java.io.File
+import java.io.IOException
 import java.io.InputStream
 import java.io.Reader
 import java.sql.*
@@ -43,6 +46,12 @@ class UDTGenerator(
 
     }
 
+    const val CODEC_CLASS_NAME = "Codec"
+
+    private val recordProcProviderName = ClassName.get(RecordProcProvider::class.java)
+    private val recordInputName = recordProcProviderName.nestedClass("Input")
+    private val recordOutputName = recordProcProviderName.nestedClass("Output")
+
     @JvmStatic
     fun main(args: Array<String>) {
 
@@ -119,7 +128,22 @@ class UDTGenerator(
   }
 
   fun generate(outDirectory: File) {
-    generate().forEach { it.writeTo(outDirectory) }
+
+    val files = generate()
+    files.forEach { it.writeTo(outDirectory) }
+
+    // Register generated record codecs as services, so the driver can find them
+    val codecNames =
+       files
+          .filter { file -> file.typeSpec.typeSpecs.any { it.name == CODEC_CLASS_NAME } }
+          .map { "${it.packageName}.${it.typeSpec.name}\$$CODEC_CLASS_NAME" }
+
+    if (codecNames.isNotEmpty()) {
+      val servicesDirectory = File(outDirectory, "META-INF/services")
+      servicesDirectory.mkdirs()
+      File(servicesDirectory, ProcProvider::class.java.name)
+         .writeText(codecNames.joinToString("\n", postfix = "\n"))
+    }
   }
 
   private fun generateEnum(sqlTypeName: QualifiedName): TypeSpec? {
@@ -304,11 +328,29 @@ class UDTGenerator(
        .addException(SQLException::class.java)
 
 
+    val codecClassName = className.nestedClass(CODEC_CLASS_NAME)
+
+    val decodeAttributesBldr = MethodSpec.methodBuilder("decodeAttributes")
+       .addAnnotation(Override::class.java)
+       .addModifiers(Modifier.PROTECTED)
+       .returns(className)
+       .addParameter(recordInputName, "in")
+       .addException(IOException::class.java)
+       .addStatement("\$1T value = new \$1T()", className)
+
+    val encodeAttributesBldr = MethodSpec.methodBuilder("encodeAttributes")
+       .addAnnotation(Override::class.java)
+       .addModifiers(Modifier.PROTECTED)
+       .addParameter(recordOutputName, "out")
+       .addParameter(className, "value")
+       .addException(IOException::class.java)
+
     for (attr in attributes) {
 
       val attrPropName = attr.name.javaPropertyName()
       val attrSqlType = connection.resolveType(attr.typeName.toString())
       val attrTypeName = resolveTypeName(attr.typeName, attrSqlType)
+      val attrAccessorName = attr.typeName.recordAccessorName(attrTypeName)
 
       classBldr.addField(
          FieldSpec.builder(attrTypeName.box(), attrPropName)
@@ -376,11 +418,52 @@ class UDTGenerator(
          }
       )
 
+      when {
+        typesInfo[attr.typeName] == TypeCategory.Enum -> {
+          decodeAttributesBldr.addStatement("\$T \$LLabel = in.readString()", String::class.java, attrPropName)
+          decodeAttributesBldr.addStatement("value.\$1L = \$1LLabel != null ? \$2T.valueOfLabel(\$1LLabel) : null", attrPropName, attrTypeName)
+          encodeAttributesBldr.addStatement("out.writeString(value.\$1L != null ? value.\$1L.getLabel() : null)", attrPropName)
+        }
+
+        attrAccessorName != null -> {
+          decodeAttributesBldr.addStatement("value.\$L = in.read\$L()", attrPropName, attrAccessorName)
+          encodeAttributesBldr.addStatement("out.write\$L(value.\$L)", attrAccessorName, attrPropName)
+        }
+
+        else -> {
+          decodeAttributesBldr.addStatement("value.\$L = in.readObject(\$T.class)", attrPropName, attrTypeName)
+          encodeAttributesBldr.addStatement("out.writeObject(value.\$L)", attrPropName)
+        }
+      }
+
     }
 
     classBldr.addMethod(readSQLBldr.build())
     classBldr.addMethod(writeSQLBldr.build())
 
+    decodeAttributesBldr.addStatement("return value")
+
+    val attributeTypeNames = attributes.map { CodeBlock.of("\$S", it.typeName.toString(false)) }
+
+    classBldr.addType(
+       TypeSpec.classBuilder(codecClassName)
+          .addJavadoc("Binary codec reading \$L attributes directly to/from fields.\n", sqlTypeName.localName)
+          .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+          .superclass(ParameterizedTypeName.get(recordProcProviderName, className))
+          .addMethod(
+             MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addStatement(
+                   "super(\$S, \$S, \$T.class, \$L)",
+                   sqlTypeName.namespace, sqlTypeName.localName, className, CodeBlock.join(attributeTypeNames, ", ")
+                )
+                .build()
+          )
+          .addMethod(decodeAttributesBldr.build())
+          .addMethod(encodeAttributesBldr.build())
+          .build()
+    )
+
     return classBldr.build()
   }
 
@@ -550,6 +633,26 @@ private fun String.javaPropertyName(): String {
   return javaTypeName().decapitalize()
 }
 
+/**
+ * Name of the `RecordProcProvider` input/output accessor reading & writing
+ * this (built-in) type directly, or null if it must use its codec.
+ */
+private fun QualifiedName.recordAccessorName(javaTypeName: TypeName): String? {
+  if (namespace != "pg_catalog") return null
+  val (javaType, accessorName) =
+     when (localName) {
+       "bool" -> Boolean::class.javaObjectType to "Boolean"
+       "int2" -> Short::class.javaObjectType to "Short"
+       "int4" -> Int::class.javaObjectType to "Int"
+       "int8" -> Long::class.javaObjectType to "Long"
+       "float4" -> Float::class.javaObjectType to "Float"
+       "float8" -> Double::class.javaObjectType to "Double"
+       "text", "varchar", "bpchar", "name" -> String::class.java to "String"
+       else -> return null
+     }
+  return if (javaTypeName.box() == TypeName.get(javaType)) accessorName else null
+}
+
 private val TypeName.primitiveJDBCType: JDBCType
   get() =
     when (if (isBoxedPrimitive) unbox() else this) {
@@ -101,6 +101,11 @@ class UDTGeneratorTest {
         assertThat(pkgFileNames.size, equalTo(3))
         assertThat(pkgFileNames, hasItems("Title.java", "Address.java", "VCard.java"))
 
+        val codecNames = File(outDirectory, "META-INF/services/com.impossibl.postgres.system.procs.ProcProvider")
+           .readLines()
+
+        assertThat(codecNames, hasItems("$pkgName.Address\$Codec", "$pkgName.VCard\$Codec"))
+
       }
       finally {
         connection.createStatement().use {
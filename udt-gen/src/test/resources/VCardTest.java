@@ -20,4 +20,9 @@ class VCardTest {
     vCard.setAddresses(new Address[]{address});
   }
 
+  public static void testCodecs() {
+    new Address.Codec();
+    new VCard.Codec();
+  }
+
 }